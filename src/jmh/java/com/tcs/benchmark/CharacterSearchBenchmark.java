@@ -0,0 +1,123 @@
+package com.tcs.benchmark;
+
+import com.tcs.model.Character;
+import com.tcs.repository.CatalogSource;
+import com.tcs.repository.CharacterRepository;
+import com.tcs.service.CharacterSearchIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 角色检索：倒排索引查询与逐个角色 contains 扫描的对比
+ * 角色文本由约 3000 个随机中文词按近似齐夫分布组成，名称中带一个英文职业词
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class CharacterSearchBenchmark {
+    private static final String[] TITLES = {"philosopher", "physicist", "poet", "painter", "general",
+            "emperor", "scientist", "novelist", "musician", "explorer"};
+
+    @Param({"10000", "100000"})
+    private int catalogSize;
+
+    // 中文二元组、多个二元组、英文前缀、拼写错误
+    @Param({"chinese", "phrase", "prefix", "fuzzy"})
+    private String queryType;
+
+    private List<Character> characters;
+    private CharacterSearchIndex index;
+    private String query;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] vocabulary = new String[3000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = randomCjk(random, 2 + random.nextInt(2));
+        }
+        characters = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            characters.add(new Character("c" + i,
+                    text(random, vocabulary, 3) + " " + TITLES[random.nextInt(TITLES.length)],
+                    "/avatars/c" + i + ".png",
+                    text(random, vocabulary, 2),
+                    text(random, vocabulary, 120),
+                    text(random, vocabulary, 50)));
+        }
+        index = new CharacterSearchIndex(new CharacterRepository(new CatalogSource() {
+            @Override
+            public String getName() {
+                return "benchmark";
+            }
+
+            @Override
+            public List<Character> loadAll() {
+                return characters;
+            }
+        }));
+        String phrase = vocabulary[20] + vocabulary[30];
+        query = switch (queryType) {
+            case "chinese" -> vocabulary[100].substring(0, 2);
+            case "phrase" -> phrase;
+            case "prefix" -> "philos";
+            case "fuzzy" -> "physcist";
+            default -> throw new IllegalArgumentException(queryType);
+        };
+    }
+
+    @Benchmark
+    public List<Character> invertedIndex() {
+        return index.search(query, 20);
+    }
+
+    @Benchmark
+    public List<Character> linearScan() {
+        String needle = query.toLowerCase(Locale.ROOT);
+        List<Character> result = new ArrayList<>();
+        for (Character character : characters) {
+            if (contains(character.getName(), needle) || contains(character.getCategory(), needle)
+                    || contains(character.getDescription(), needle) || contains(character.getPersonality(), needle)) {
+                result.add(character);
+                if (result.size() == 20) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean contains(String text, String needle) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(needle);
+    }
+
+    // 按近似齐夫分布从词表中取词，直到达到指定长度
+    private static String text(Random random, String[] vocabulary, int length) {
+        StringBuilder text = new StringBuilder(length + 4);
+        while (text.length() < length) {
+            int rank = (int) Math.min(vocabulary.length - 1, Math.abs(random.nextGaussian()) * vocabulary.length / 5);
+            text.append(vocabulary[rank]);
+            if (random.nextInt(8) == 0) {
+                text.append('，');
+            }
+        }
+        return text.toString();
+    }
+
+    // 在常用汉字区间内生成随机字符串
+    private static String randomCjk(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (0x4E00 + random.nextInt(2500));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,71 @@
+package com.tcs.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tcs.model.ChatRequest;
+import com.tcs.model.ChatResponse;
+import com.tcs.model.Message;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ChatRequest / ChatResponse 的 Jackson 序列化与反序列化开销，历史记录长度可调
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatJsonBenchmark {
+
+    @Param({"5", "100", "1000"})
+    private int historySize;
+
+    private ObjectMapper objectMapper;
+    private ChatRequest request;
+    private ChatResponse response;
+    private byte[] requestJson;
+    private byte[] responseJson;
+
+    @Setup
+    public void setUp() throws Exception {
+        // 与 Spring Boot 默认配置保持一致：日期按 ISO 字符串输出
+        objectMapper = new ObjectMapper().disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        List<Message> history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            String sender = i % 2 == 0 ? "user" : "character";
+            history.add(new Message("msg-" + i, "第" + i + "条消息：想象力比知识更重要，因为知识是有限的。", sender, new Date(), false));
+        }
+        request = new ChatRequest("einstein", "请解释一下广义相对论中的时空弯曲", history);
+        response = new ChatResponse(true,
+                new Message("character-1", "时空就像一张被重物压弯的床单。", "character", new Date(), false), null);
+        requestJson = objectMapper.writeValueAsBytes(request);
+        responseJson = objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] serializeRequest() throws Exception {
+        return objectMapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public ChatRequest deserializeRequest() throws Exception {
+        return objectMapper.readValue(requestJson, ChatRequest.class);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public ChatResponse deserializeResponse() throws Exception {
+        return objectMapper.readValue(responseJson, ChatResponse.class);
+    }
+}
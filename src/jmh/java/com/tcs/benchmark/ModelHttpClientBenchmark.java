@@ -0,0 +1,81 @@
+package com.tcs.benchmark;
+
+import com.tcs.http.ModelHttpTransport;
+import com.tcs.support.StubModelServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对本地桩模型服务器发起一次小的补全请求：连接池复用连接、每次请求新建连接（Connection: close）
+ * 与 JDK HttpURLConnection 默认实现的对比。本地回环上没有 TLS 握手，实际环境中新建连接的开销更大
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelHttpClientBenchmark {
+    private static final byte[] BODY = "{\"model\":\"stub\",\"messages\":[{\"role\":\"user\",\"content\":\"你好\"}]}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    private StubModelServer server;
+    private ModelHttpTransport transport;
+    private ClientHttpRequestFactory simpleFactory;
+    private URI uri;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new StubModelServer("你好，我是爱因斯坦。");
+        uri = URI.create(server.getBaseUrl() + "/v1/chat/completions");
+        transport = new ModelHttpTransport(new ModelHttpTransport.Settings(200, 50, 3000, 10000, 5000,
+                30000, 300000, 60000, true, true));
+        simpleFactory = new SimpleClientHttpRequestFactory();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        transport.close();
+        server.close();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int pooledKeepAlive() throws IOException {
+        return call(transport.getRequestFactory(), false);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int newConnectionPerRequest() throws IOException {
+        return call(transport.getRequestFactory(), true);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int jdkDefault() throws IOException {
+        return call(simpleFactory, false);
+    }
+
+    private int call(ClientHttpRequestFactory factory, boolean closeConnection) throws IOException {
+        ClientHttpRequest request = factory.createRequest(uri, HttpMethod.POST);
+        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        if (closeConnection) {
+            request.getHeaders().setConnection("close");
+        }
+        request.getBody().write(BODY);
+        try (ClientHttpResponse response = request.execute()) {
+            return response.getBody().readAllBytes().length;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.tcs.benchmark;
+
+import com.tcs.ratelimit.AdaptiveConcurrencyLimiter;
+import com.tcs.ratelimit.RateLimiter;
+import com.tcs.ratelimit.TokenBucket;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流检查的开销：单个令牌桶的 CAS 获取，以及按键查找令牌桶后获取（单线程和多线程竞争）
+ * 速率设置得足够高，使检查总是成功，测量的是正常放行路径；
+ * 另外测量准入控制的许可获取和归还，以及上限占满时直接拒绝的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RateLimiterBenchmark {
+
+    @Param({"1000", "100000"})
+    private int keyCount;
+
+    private TokenBucket bucket;
+    private RateLimiter limiter;
+    private String[] keys;
+    private AdaptiveConcurrencyLimiter admission;
+    private AdaptiveConcurrencyLimiter saturated;
+
+    @Setup
+    public void setUp() {
+        long now = System.nanoTime();
+        bucket = new TokenBucket(1e9, 1_000_000, now);
+        limiter = new RateLimiter(1e9, 1_000_000, keyCount * 2);
+        keys = new String[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            keys[i] = "client-" + i + "|einstein";
+            limiter.bucket(keys[i], now);
+        }
+        admission = new AdaptiveConcurrencyLimiter(
+                new AdaptiveConcurrencyLimiter.Settings(1024, 1, 1024, 0.2, 1.5, 10, 600), (previous, updated) -> { });
+        saturated = new AdaptiveConcurrencyLimiter(
+                new AdaptiveConcurrencyLimiter.Settings(1, 1, 1, 0.2, 1.5, 10, 600), (previous, updated) -> { });
+        saturated.tryAcquire();
+    }
+
+    @Benchmark
+    public long singleBucket() {
+        return bucket.tryAcquire(1, System.nanoTime());
+    }
+
+    @Benchmark
+    public long keyedCheck() {
+        long now = System.nanoTime();
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        return limiter.bucket(key, now).tryAcquire(1, now);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long singleBucketContended() {
+        return bucket.tryAcquire(1, System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long keyedCheckContended() {
+        long now = System.nanoTime();
+        String key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+        return limiter.bucket(key, now).tryAcquire(1, now);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean admissionAcquireReleaseContended() {
+        boolean acquired = admission.tryAcquire();
+        if (acquired) {
+            admission.release();
+        }
+        return acquired;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean admissionShedContended() {
+        return saturated.tryAcquire();
+    }
+}
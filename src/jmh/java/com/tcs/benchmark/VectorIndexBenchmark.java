@@ -0,0 +1,122 @@
+package com.tcs.benchmark;
+
+import com.tcs.vector.HnswIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 语义缓存的向量索引：HNSW 近似检索与逐个比较的精确检索的对比
+ * 向量围绕 200 个随机中心聚类（接近真实问题的向量分布），Setup 中输出 recall@10 和堆外内存占用
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class VectorIndexBenchmark {
+    private static final int QUERIES = 256;
+
+    @Param({"2000", "10000"})
+    private int size;
+
+    // 本地哈希向量化和 OpenAI text-embedding-3-small 的维度
+    @Param({"256", "1536"})
+    private int dimensions;
+
+    @Param({"16", "64"})
+    private int efSearch;
+
+    private HnswIndex<Integer> index;
+    private float[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        float[][] centers = new float[200][];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = gaussian(random);
+        }
+        AtomicLong allocated = new AtomicLong();
+        index = new HnswIndex<>(dimensions, size, 16, 100, allocated, 42);
+        long start = System.nanoTime();
+        for (int i = 0; i < size; i++) {
+            index.add(around(random, centers), i);
+        }
+        long buildMs = (System.nanoTime() - start) / 1_000_000;
+        queries = new float[QUERIES][];
+        int found = 0;
+        int expected = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = around(random, centers);
+            Set<Integer> exact = new HashSet<>();
+            for (HnswIndex.Match<Integer> match : index.searchExact(queries[i], 10)) {
+                exact.add(match.id());
+            }
+            for (HnswIndex.Match<Integer> match : index.search(queries[i], 10, efSearch)) {
+                if (exact.contains(match.id())) {
+                    found++;
+                }
+            }
+            expected += exact.size();
+        }
+        System.out.printf("%n[size=%d, dimensions=%d, efSearch=%d] recall@10=%.3f, 构建耗时=%dms, 堆外内存=%dKB%n",
+                size, dimensions, efSearch, (double) found / expected, buildMs, allocated.get() / 1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        index.release();
+    }
+
+    @Benchmark
+    public List<HnswIndex.Match<Integer>> hnsw() {
+        return index.search(nextQuery(), 10, efSearch);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Match<Integer>> exact() {
+        return index.searchExact(nextQuery(), 10);
+    }
+
+    private float[] nextQuery() {
+        return queries[next++ & (QUERIES - 1)];
+    }
+
+    // 随机中心加上噪声后归一化
+    private float[] around(Random random, float[][] centers) {
+        float[] center = centers[random.nextInt(centers.length)];
+        float[] noise = gaussian(random);
+        for (int i = 0; i < dimensions; i++) {
+            noise[i] = center[i] + 0.35f * noise[i];
+        }
+        return normalize(noise);
+    }
+
+    private float[] gaussian(Random random) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return normalize(vector);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,99 @@
+package com.tcs.benchmark;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tcs.http.Gzip;
+import com.tcs.http.WireFormat;
+import com.tcs.model.Character;
+import com.tcs.model.ChatResponse;
+import com.tcs.model.Message;
+import com.tcs.repository.BuiltinCatalogSource;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 各响应编码的传输字节数和编解码开销：JSON、CBOR、Smile，以及各自 gzip 压缩后的结果
+ * 载荷为一条聊天回复和 200 个角色的完整列表（内置角色的长中文简介和性格重复生成），Setup 中输出各组合的字节数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+    private static final TypeReference<List<Character>> CHARACTER_LIST = new TypeReference<>() {
+    };
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    private WireFormat format;
+
+    @Param({"false", "true"})
+    private boolean gzip;
+
+    @Param({"chat", "catalog"})
+    private String payload;
+
+    private ObjectMapper objectMapper;
+    private Object value;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = mapper(format);
+        if (payload.equals("chat")) {
+            value = new ChatResponse(true, new Message("1843029577234432000",
+                    "想象力比知识更重要，因为知识是有限的，而想象力概括着世界上的一切，推动着进步，并且是知识进化的源泉。"
+                            + "时空就像一张被重物压弯的床单，行星沿着弯曲的时空运动，这就是我们感受到的引力。",
+                    "character", new Date(), false), null);
+        } else {
+            List<Character> builtin = new BuiltinCatalogSource().loadAll();
+            List<Character> characters = new ArrayList<>(200);
+            for (int i = 0; i < 200; i++) {
+                Character c = builtin.get(i % builtin.size());
+                characters.add(new Character(c.getId() + "-" + i, c.getName(), c.getAvatar(), c.getCategory(),
+                        c.getDescription(), c.getPersonality()));
+            }
+            value = characters;
+        }
+        encoded = encode();
+        System.out.printf("%n[%s%s, %s] %d 字节%n", format, gzip ? "+gzip" : "", payload, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return encode();
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException {
+        byte[] bytes = gzip ? new GZIPInputStream(new ByteArrayInputStream(encoded)).readAllBytes() : encoded;
+        return payload.equals("chat")
+                ? objectMapper.readValue(bytes, ChatResponse.class)
+                : objectMapper.readValue(bytes, CHARACTER_LIST);
+    }
+
+    private byte[] encode() throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(value);
+        return gzip ? Gzip.compress(bytes) : bytes;
+    }
+
+    // 与 AppConfig 一致：JSON 使用 Spring Boot 默认配置（日期为 ISO 字符串），二进制编码输出时间戳并省略 null
+    private static ObjectMapper mapper(WireFormat format) {
+        ObjectMapper mapper = new ObjectMapper(format.getFactory().copy());
+        if (format == WireFormat.JSON) {
+            return mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        }
+        return mapper.enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    }
+}
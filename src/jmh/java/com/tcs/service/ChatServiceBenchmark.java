@@ -0,0 +1,116 @@
+package com.tcs.service;
+
+import com.tcs.cache.ResponseCache;
+import com.tcs.cache.SemanticCache;
+import com.tcs.metrics.ChatMetrics;
+import com.tcs.model.Character;
+import com.tcs.model.ChatRequest;
+import com.tcs.model.ChatResponse;
+import com.tcs.model.Message;
+import com.tcs.repository.CharacterRepository;
+import com.tcs.repository.InMemoryConversationStore;
+import com.tcs.repository.TranscriptStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.Generation;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天请求热路径基准测试，模型客户端为立即返回的桩实现，只测量服务自身的开销
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatServiceBenchmark {
+
+    @Param({"5", "50"})
+    private int historySize;
+
+    private PromptCompiler promptCompiler;
+    private ChatServiceImpl uncachedService;
+    private ChatServiceImpl cachedService;
+    private Character character;
+    private ChatRequest request;
+    private List<Message> history;
+
+    @Setup
+    public void setUp() {
+        CharacterRepository characterRepository = new CharacterRepository();
+        ChatClient stubClient = new ChatClient() {
+            @Override
+            public org.springframework.ai.chat.ChatResponse call(Prompt prompt) {
+                return new org.springframework.ai.chat.ChatResponse(List.of(new Generation("这是一个来自桩模型的回复。")));
+            }
+        };
+        StreamingChatClient stubStreamingClient = prompt -> Flux.empty();
+        promptCompiler = new PromptCompiler(characterRepository);
+        InMemoryConversationStore conversationStore = new InMemoryConversationStore(20, 1000, 1_000_000, 30);
+        HistoryWindow historyWindow = new HistoryWindow(new TokenEstimator(), promptCompiler, 2000, 50, false, 200);
+        ChatMetrics chatMetrics = new ChatMetrics(new SimpleMeterRegistry());
+        MessageIdGenerator messageIdGenerator = new MessageIdGenerator(1);
+
+        uncachedService = new ChatServiceImpl(characterRepository, stubClient, stubStreamingClient,
+                new UpstreamCallLimiter(1024, 1000), new ResponseCache(false, 1, 0, Set.of()), SemanticCache.disabled(),
+                new SensitiveWordFilter(""), promptCompiler, conversationStore, TranscriptStore.NONE, historyWindow, messageIdGenerator, chatMetrics);
+        cachedService = new ChatServiceImpl(characterRepository, stubClient, stubStreamingClient,
+                new UpstreamCallLimiter(1024, 1000), new ResponseCache(true, 10000, 0, Set.of()), SemanticCache.disabled(),
+                new SensitiveWordFilter(""), promptCompiler, conversationStore, TranscriptStore.NONE, historyWindow, messageIdGenerator, chatMetrics);
+
+        character = characterRepository.getCharacterById("einstein");
+        history = new ArrayList<>(historySize);
+        for (int i = 0; i < historySize; i++) {
+            String sender = i % 2 == 0 ? "user" : "character";
+            history.add(new Message("m-" + i, "第" + i + "条历史消息，讨论时间、空间与引力之间的关系。", sender, new Date(), false));
+        }
+        request = new ChatRequest("einstein", "请解释一下广义相对论中的时空弯曲", history);
+        // 预热缓存，使 cachedService 每次都命中
+        cachedService.processChatRequest(request);
+    }
+
+    @Benchmark
+    public ChatResponse processChatRequest() {
+        return uncachedService.processChatRequest(request);
+    }
+
+    @Benchmark
+    public ChatResponse processChatRequestCacheHit() {
+        return cachedService.processChatRequest(request);
+    }
+
+    @Benchmark
+    public String renderSystemPrompt() {
+        return promptCompiler.renderSystemPrompt(character);
+    }
+
+    @Benchmark
+    public Prompt buildPrompt() {
+        return uncachedService.buildPrompt(character, request.getMessage(), uncachedService.limitMessageHistory(character, request.getMessage(), history));
+    }
+
+    @Benchmark
+    public List<Message> limitMessageHistory() {
+        return uncachedService.limitMessageHistory(character, request.getMessage(), history);
+    }
+
+    @Benchmark
+    public String filterSensitiveContent() {
+        return uncachedService.filterSensitiveContent(request.getMessage());
+    }
+
+    @Benchmark
+    public String checkCommonResponsesCache() {
+        return uncachedService.checkCommonResponsesCache(request.getMessage());
+    }
+}
@@ -0,0 +1,89 @@
+package com.tcs.loadtest;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个场景的延迟和结果记录
+ * 延迟从请求的计划发出时间算起，发压端或连接排队造成的等待也计入，避免协调遗漏（coordinated omission）低估尾延迟；
+ * 样本写入预先分配的数组，超出容量的请求只计数不记录延迟
+ */
+final class LatencyRecorder {
+    // 状态码 -1 表示连接失败或超时，-2 表示因进行中的请求过多而未发出
+    static final int STATUS_IO_ERROR = -1;
+    static final int STATUS_NOT_SENT = -2;
+
+    private final String name;
+    private final long[] samples;
+    private final AtomicInteger sampleCount = new AtomicInteger();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    LatencyRecorder(String name, int capacity) {
+        this.name = name;
+        this.samples = new long[capacity];
+    }
+
+    void record(long latencyNanos, int status, boolean success) {
+        requests.increment();
+        if (!success) {
+            errors.increment();
+        }
+        statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+        if (status == STATUS_NOT_SENT) {
+            return;
+        }
+        int index = sampleCount.getAndIncrement();
+        if (index < samples.length) {
+            samples[index] = latencyNanos;
+        }
+    }
+
+    /**
+     * 汇总测量阶段的结果，调用时所有请求都应已结束
+     */
+    Summary summarize(double seconds) {
+        int n = Math.min(sampleCount.get(), samples.length);
+        long[] sorted = Arrays.copyOf(samples, n);
+        Arrays.sort(sorted);
+        long total = requests.sum();
+        long failed = errors.sum();
+        Map<String, Long> statusCounts = new TreeMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(String.valueOf(status), count.sum()));
+        double mean = 0;
+        for (long sample : sorted) {
+            mean += sample;
+        }
+        mean = n == 0 ? 0 : mean / n;
+        return new Summary(name, total, failed, total == 0 ? 0 : (double) failed / total,
+                total / seconds, (total - failed) / seconds,
+                millis(mean), percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), n == 0 ? 0 : millis(sorted[n - 1]), statusCounts);
+    }
+
+    // 最近秩法：第 ceil(q*n) 个样本
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(quantile * sorted.length);
+        return millis(sorted[Math.max(0, Math.min(sorted.length, rank) - 1)]);
+    }
+
+    private static double millis(double nanos) {
+        return Math.round(nanos / 1_000.0) / 1_000.0;
+    }
+
+    /**
+     * 场景的汇总结果，延迟单位为毫秒，吞吐量单位为每秒请求数
+     */
+    record Summary(String name, long requests, long errors, double errorRate, double throughput,
+                   double successThroughput, double meanMs, double p50Ms, double p90Ms, double p99Ms,
+                   double p999Ms, double maxMs, Map<String, Long> statusCounts) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.tcs.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 压测报告：控制台表格和 JSON 文件，指定基线报告时输出与基线的对比
+ * JSON 中保存全部运行参数，便于对比不同执行模式（如虚拟线程开关）和配置的结果
+ */
+final class LoadReport {
+    private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final String label;
+    private final Map<String, String> options;
+    private final double durationSeconds;
+    private final List<LatencyRecorder.Summary> summaries;
+    private final Map<String, Long> upstream; // 测量阶段的模型调用数、注入的故障数和应用记录的模型错误数
+
+    LoadReport(String label, Map<String, String> options, double durationSeconds, List<LatencyRecorder.Summary> summaries,
+               Map<String, Long> upstream) {
+        this.label = label;
+        this.options = options;
+        this.durationSeconds = durationSeconds;
+        this.summaries = summaries;
+        this.upstream = upstream;
+    }
+
+    void print() {
+        System.out.printf(Locale.ROOT, "%n压测结果 [%s]，测量时长 %.0f 秒%n", label, durationSeconds);
+        System.out.printf(Locale.ROOT, "%-12s %9s %8s %10s %10s %9s %9s %9s %9s %9s%n",
+                "场景", "请求数", "错误率", "吞吐量/s", "成功/s", "p50(ms)", "p90(ms)", "p99(ms)", "p999(ms)", "max(ms)");
+        for (LatencyRecorder.Summary s : summaries) {
+            System.out.printf(Locale.ROOT, "%-12s %9d %7.2f%% %10.1f %10.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                    s.name(), s.requests(), s.errorRate() * 100, s.throughput(), s.successThroughput(),
+                    s.p50Ms(), s.p90Ms(), s.p99Ms(), s.p999Ms(), s.maxMs());
+            System.out.println("             状态码: " + s.statusCounts());
+        }
+        System.out.println("模型调用: " + upstream);
+    }
+
+    /**
+     * 写入 outputDir/label-时间.json，返回文件路径
+     */
+    Path write(Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        String time = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = outputDir.resolve(label + "-" + time + ".json");
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", label);
+        report.put("time", time);
+        report.put("durationSeconds", durationSeconds);
+        report.put("javaVersion", Runtime.version().toString());
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        report.put("options", options);
+        report.put("scenarios", summaries);
+        report.put("upstream", upstream);
+        objectMapper.writeValue(file.toFile(), report);
+        return file;
+    }
+
+    /**
+     * 与之前的报告对比吞吐量和延迟，按场景名称匹配
+     */
+    void compare(Path baselineFile) throws IOException {
+        JsonNode baseline = objectMapper.readTree(baselineFile.toFile());
+        System.out.printf(Locale.ROOT, "%n与基线 [%s] 对比（%s）%n", baseline.path("label").asText(), baselineFile.getFileName());
+        System.out.printf(Locale.ROOT, "%-12s %14s %14s %14s %14s%n", "场景", "成功/s", "p50", "p99", "错误率");
+        for (LatencyRecorder.Summary s : summaries) {
+            JsonNode base = null;
+            for (JsonNode node : baseline.path("scenarios")) {
+                if (s.name().equals(node.path("name").asText())) {
+                    base = node;
+                }
+            }
+            if (base == null) {
+                System.out.printf(Locale.ROOT, "%-12s 基线中没有该场景%n", s.name());
+                continue;
+            }
+            System.out.printf(Locale.ROOT, "%-12s %14s %14s %14s %13.2fpp%n", s.name(),
+                    change(base.path("successThroughput").asDouble(), s.successThroughput()),
+                    change(base.path("p50Ms").asDouble(), s.p50Ms()),
+                    change(base.path("p99Ms").asDouble(), s.p99Ms()),
+                    (s.errorRate() - base.path("errorRate").asDouble()) * 100);
+        }
+    }
+
+    private static String change(double before, double after) {
+        if (before == 0) {
+            return String.format(Locale.ROOT, "%.1f", after);
+        }
+        return String.format(Locale.ROOT, "%.1f(%+.1f%%)", after, (after - before) / before * 100);
+    }
+}
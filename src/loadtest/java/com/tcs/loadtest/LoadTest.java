@@ -0,0 +1,365 @@
+package com.tcs.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcs.DemoApplication;
+import com.tcs.support.StubModelServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 压测入口：启动进程内的桩模型服务器和应用，按开放模型（泊松到达，与响应快慢无关）的速率发送请求，
+ * 预热后统计各场景的 p50/p99/p999 延迟、吞吐量和错误率，以及桩模型注入的故障数和应用记录的模型调用错误数，
+ * 输出到控制台和 JSON 报告。
+ * 参数为 key=value 形式，app. 开头的参数去掉前缀后作为应用配置，例如：
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="label=vt rate=200 duration=60 app.spring.threads.virtual.enabled=true"
+ * </pre>
+ */
+public final class LoadTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String[] MESSAGES = {
+            "你好，请介绍一下你自己", "你最重要的成就是什么？", "能讲讲你年轻时候的故事吗？",
+            "你怎么看待失败？", "给现在的年轻人一些建议吧", "你的研究方法是什么？"
+    };
+    // 模型调用失败时 /api/chat 仍返回 200 和 success=true，以兜底回复区分
+    private static final String FALLBACK_REPLY = "抱歉，我现在无法回答你的问题";
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("label", "default");
+        DEFAULTS.put("rate", "50");                    // 每秒到达的请求数
+        DEFAULTS.put("duration", "60");                // 测量时长（秒）
+        DEFAULTS.put("warmup", "10");                  // 预热时长（秒），不计入结果
+        DEFAULTS.put("mix", "chat:6,characters:3,search:1"); // 场景权重，可用场景 chat、stream、characters、search
+        DEFAULTS.put("clients", "1000");               // 模拟的客户端数（X-Client-Id）
+        DEFAULTS.put("unique-messages", "true");       // 消息附加序号，避免回复缓存命中
+        DEFAULTS.put("max-in-flight", "10000");        // 进行中的请求上限，超出的请求记为未发出
+        DEFAULTS.put("timeout-ms", "60000");
+        DEFAULTS.put("stub.latency-ms", "300");        // 模型首个 token 延迟的中位数
+        DEFAULTS.put("stub.latency-sigma", "0.5");     // 对数正态分布参数，0 为固定延迟
+        DEFAULTS.put("stub.tokens-per-second", "50");
+        DEFAULTS.put("stub.error-rate", "0");
+        DEFAULTS.put("stub.reply-length", "200");      // 回复字数，每 4 个字为一个分片
+        DEFAULTS.put("output", "target/loadtest");
+        DEFAULTS.put("baseline", "");                  // 对比的基线报告文件
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        Map<String, Object> appProperties = appProperties(options);
+
+        try (StubModelServer stub = new StubModelServer(reply(intOption(options, "stub.reply-length")))) {
+            stub.setDelayMs(longOption(options, "stub.latency-ms"));
+            stub.setLatencySigma(doubleOption(options, "stub.latency-sigma"));
+            stub.setTokensPerSecond(doubleOption(options, "stub.tokens-per-second"));
+            stub.setErrorRate(doubleOption(options, "stub.error-rate"));
+            appProperties.put("spring.ai.openai.base-url", stub.getBaseUrl());
+
+            try (ConfigurableApplicationContext app = new SpringApplicationBuilder(DemoApplication.class)
+                    .properties(appProperties)
+                    .run()) {
+                int port = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                run(options, URI.create("http://127.0.0.1:" + port), stub, app.getBean(MeterRegistry.class));
+            }
+        }
+    }
+
+    private static void run(Map<String, String> options, URI base, StubModelServer stub, MeterRegistry meterRegistry)
+            throws Exception {
+        HttpClient http = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        awaitReady(http, base);
+        Workload workload = new Workload(http, base, options, loadCharacters(http, base));
+
+        double rate = doubleOption(options, "rate");
+        long warmup = longOption(options, "warmup");
+        long duration = longOption(options, "duration");
+        System.out.printf("预热 %d 秒，速率 %.1f/s%n", warmup, rate);
+        drive(workload, rate, TimeUnit.SECONDS.toNanos(warmup), null);
+
+        // 样本数组按预期请求数的两倍预先分配
+        int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1024, rate * duration * 2));
+        Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+        for (String scenario : workload.scenarios()) {
+            recorders.put(scenario, new LatencyRecorder(scenario, capacity));
+        }
+        System.out.printf("测量 %d 秒%n", duration);
+        int stubRequests = stub.getRequestCount();
+        int stubFailures = stub.getFailureCount();
+        double modelErrors = modelErrors(meterRegistry);
+        long start = System.nanoTime();
+        drive(workload, rate, TimeUnit.SECONDS.toNanos(duration), recorders);
+        // 吞吐量按发压时长计算，等待最后一批请求结束的时间不计入
+        double seconds = Math.max(1e-9, Math.min(duration, (System.nanoTime() - start) / 1e9));
+
+        List<LatencyRecorder.Summary> summaries = new ArrayList<>();
+        for (LatencyRecorder recorder : recorders.values()) {
+            summaries.add(recorder.summarize(seconds));
+        }
+        // 模型调用的失败可能被兜底回复、重试或故障转移掩盖，单独统计
+        Map<String, Long> upstream = new LinkedHashMap<>();
+        upstream.put("requests", (long) (stub.getRequestCount() - stubRequests));
+        upstream.put("injectedFailures", (long) (stub.getFailureCount() - stubFailures));
+        upstream.put("modelErrors", Math.round(modelErrors(meterRegistry) - modelErrors));
+        LoadReport report = new LoadReport(options.get("label"), options, seconds, summaries, upstream);
+        report.print();
+        Path file = report.write(Path.of(options.get("output")));
+        System.out.println("报告已写入 " + file.toAbsolutePath());
+        if (!options.get("baseline").isBlank()) {
+            report.compare(Path.of(options.get("baseline")));
+        }
+    }
+
+    /**
+     * 按泊松过程生成到达时间，每个请求在独立的虚拟线程上发送；recorders 为空时为预热阶段
+     */
+    private static void drive(Workload workload, double rate, long durationNanos, Map<String, LatencyRecorder> recorders)
+            throws InterruptedException {
+        SplittableRandom random = new SplittableRandom();
+        Semaphore inFlight = new Semaphore(intOption(workload.options, "max-in-flight"));
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        long start = System.nanoTime();
+        long intended = start;
+        while (true) {
+            intended += (long) (-Math.log(1 - random.nextDouble()) / rate * 1_000_000_000L);
+            if (intended - start >= durationNanos) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String scenario = workload.pick(random);
+            LatencyRecorder recorder = recorders == null ? null : recorders.get(scenario);
+            if (!inFlight.tryAcquire()) {
+                if (recorder != null) {
+                    recorder.record(0, LatencyRecorder.STATUS_NOT_SENT, false);
+                }
+                continue;
+            }
+            long scheduledAt = intended;
+            executor.execute(() -> {
+                try {
+                    Workload.Result result = workload.execute(scenario);
+                    if (recorder != null) {
+                        recorder.record(System.nanoTime() - scheduledAt, result.status(), result.success());
+                    }
+                } finally {
+                    inFlight.release();
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(longOption(workload.options, "timeout-ms") + 10_000, TimeUnit.MILLISECONDS);
+    }
+
+    // 应用记录的模型调用错误数（chat.model.errors 各角色之和）
+    private static double modelErrors(MeterRegistry meterRegistry) {
+        return meterRegistry.find("chat.model.errors").counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    // 等待模型后端探测完成，应用就绪后再开始发压
+    private static void awaitReady(HttpClient http, URI base) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (System.nanoTime() < deadline) {
+            HttpResponse<Void> response = http.send(HttpRequest.newBuilder(base.resolve("/api/health/ready")).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() == 200) {
+                return;
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("应用在 60 秒内未就绪");
+    }
+
+    // 角色ID和名称，分别用于聊天和检索请求
+    private static List<String[]> loadCharacters(HttpClient http, URI base) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(base.resolve("/api/characters?fields=id,name")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        List<String[]> characters = new ArrayList<>();
+        for (JsonNode node : objectMapper.readTree(response.body())) {
+            characters.add(new String[]{node.path("id").asText(), node.path("name").asText()});
+        }
+        if (characters.isEmpty()) {
+            throw new IllegalStateException("角色目录为空");
+        }
+        return characters;
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            // exec 插件把 -Dloadtest.args 作为一个参数传入，按空白拆分
+            for (String token : arg.trim().split("\\s+")) {
+                if (token.isEmpty()) {
+                    continue;
+                }
+                int eq = token.indexOf('=');
+                if (eq <= 0) {
+                    throw new IllegalArgumentException("参数格式应为 key=value: " + token);
+                }
+                String key = token.substring(0, eq);
+                if (!DEFAULTS.containsKey(key) && !key.startsWith("app.")) {
+                    throw new IllegalArgumentException("未知参数: " + key + "，可用参数: " + DEFAULTS.keySet());
+                }
+                options.put(key, token.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    // 压测默认关闭限流，使用随机端口；app. 参数可以覆盖
+    private static Map<String, Object> appProperties(Map<String, String> options) {
+        Map<String, Object> properties = new TreeMap<>();
+        properties.put("server.port", "0");
+        properties.put("spring.ai.openai.api-key", "stub");
+        properties.put("chat.router.providers", "openai");
+        properties.put("chat.ratelimit.enabled", "false");
+        // 模拟的客户端都来自本机，开启限流时按 X-Client-Id 区分
+        properties.put("chat.ratelimit.trust-client-header", "true");
+        properties.put("chat.health.probe-interval-ms", "1000");
+        options.forEach((key, value) -> {
+            if (key.startsWith("app.")) {
+                properties.put(key.substring(4), value);
+            }
+        });
+        return properties;
+    }
+
+    private static String reply(int length) {
+        StringBuilder text = new StringBuilder(length);
+        String source = "相对论告诉我们时间和空间并不是绝对的，观察者的运动状态会影响对它们的测量。";
+        while (text.length() < length) {
+            text.append(source);
+        }
+        return text.substring(0, length);
+    }
+
+    static int intOption(Map<String, String> options, String key) {
+        return Integer.parseInt(options.get(key));
+    }
+
+    static long longOption(Map<String, String> options, String key) {
+        return Long.parseLong(options.get(key));
+    }
+
+    static double doubleOption(Map<String, String> options, String key) {
+        return Double.parseDouble(options.get(key));
+    }
+
+    /**
+     * 请求场景和权重
+     */
+    private static final class Workload {
+        private final HttpClient http;
+        private final URI base;
+        private final Map<String, String> options;
+        private final List<String[]> characters;
+        private final String[] scenarios;
+        private final int[] cumulativeWeights;
+        private final int clients;
+        private final boolean uniqueMessages;
+        private final Duration timeout;
+        private final AtomicLong sequence = new AtomicLong();
+
+        Workload(HttpClient http, URI base, Map<String, String> options, List<String[]> characters) {
+            this.http = http;
+            this.base = base;
+            this.options = options;
+            this.characters = characters;
+            this.clients = intOption(options, "clients");
+            this.uniqueMessages = Boolean.parseBoolean(options.get("unique-messages"));
+            this.timeout = Duration.ofMillis(longOption(options, "timeout-ms"));
+            String[] parts = options.get("mix").split(",");
+            this.scenarios = new String[parts.length];
+            this.cumulativeWeights = new int[parts.length];
+            int total = 0;
+            for (int i = 0; i < parts.length; i++) {
+                String[] pair = parts[i].trim().split(":");
+                scenarios[i] = pair[0];
+                if (!List.of("chat", "stream", "characters", "search").contains(scenarios[i])) {
+                    throw new IllegalArgumentException("未知场景: " + scenarios[i]);
+                }
+                total += pair.length > 1 ? Integer.parseInt(pair[1]) : 1;
+                cumulativeWeights[i] = total;
+            }
+        }
+
+        List<String> scenarios() {
+            return List.of(scenarios);
+        }
+
+        String pick(SplittableRandom random) {
+            int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (value < cumulativeWeights[i]) {
+                    return scenarios[i];
+                }
+            }
+            return scenarios[scenarios.length - 1];
+        }
+
+        Result execute(String scenario) {
+            long seq = sequence.incrementAndGet();
+            HttpRequest.Builder request = HttpRequest.newBuilder().timeout(timeout)
+                    .header("X-Client-Id", "client-" + seq % clients);
+            String[] character = characters.get((int) (seq % characters.size()));
+            switch (scenario) {
+                case "chat", "stream" -> {
+                    String message = MESSAGES[(int) (seq % MESSAGES.length)] + (uniqueMessages ? " #" + seq : "");
+                    String body = "{\"characterId\":\"" + character[0] + "\",\"message\":\"" + message + "\"}";
+                    request.uri(base.resolve(scenario.equals("chat") ? "/api/chat" : "/api/chat/stream"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body));
+                }
+                case "characters" -> request.uri(base.resolve("/api/characters")).GET();
+                default -> request.uri(base.resolve("/api/characters/search?q="
+                        + URLEncoder.encode(character[1], StandardCharsets.UTF_8))).GET();
+            }
+            try {
+                HttpResponse<String> response = http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+                boolean success = response.statusCode() / 100 == 2 && !response.body().contains("\"success\":false")
+                        && !response.body().contains(FALLBACK_REPLY);
+                return new Result(response.statusCode(), success);
+            } catch (IOException e) {
+                return new Result(LatencyRecorder.STATUS_IO_ERROR, false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new Result(LatencyRecorder.STATUS_IO_ERROR, false);
+            }
+        }
+
+        record Result(int status, boolean success) {
+        }
+    }
+}
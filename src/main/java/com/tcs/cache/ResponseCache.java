@@ -0,0 +1,129 @@
+package com.tcs.cache;
+
+import com.tcs.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 模型回复缓存
+ * 以 角色ID + 归一化后的用户消息 + 历史记录哈希 为键，同一角色的相同问题直接返回缓存的回复
+ */
+@Component
+public class ResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    private static final char KEY_SEPARATOR = '\u0001';
+
+    private final boolean enabled;
+    private final Set<String> disabledCharacters;
+    private final LruCache<String, String> cache;
+
+    public ResponseCache(@Value("${chat.cache.enabled:true}") boolean enabled,
+                         @Value("${chat.cache.max-size:10000}") int maxSize,
+                         @Value("${chat.cache.ttl-seconds:3600}") long ttlSeconds,
+                         @Value("${chat.cache.disabled-characters:}") Set<String> disabledCharacters) {
+        this.enabled = enabled;
+        this.disabledCharacters = new HashSet<>(disabledCharacters);
+        this.cache = new LruCache<>(maxSize, ttlSeconds * 1000L);
+        logger.info("回复缓存{}，容量: {}，过期时间: {}s，不缓存的角色: {}",
+                enabled ? "已开启" : "已关闭", maxSize, ttlSeconds, this.disabledCharacters);
+    }
+
+    // 判断该角色的回复是否允许缓存
+    public boolean isCacheable(String characterId) {
+        return enabled && !disabledCharacters.contains(characterId);
+    }
+
+    public String get(String characterId, String message, List<Message> history) {
+        if (!isCacheable(characterId)) {
+            return null;
+        }
+        return cache.get(buildKey(characterId, message, history));
+    }
+
+    public void put(String characterId, String message, List<Message> history, String response) {
+        if (!isCacheable(characterId) || response == null || response.isEmpty()) {
+            return;
+        }
+        cache.put(buildKey(characterId, message, history), response);
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    public LruCache.Stats getStats() {
+        return cache.stats();
+    }
+
+    // 构建缓存键
+    static String buildKey(String characterId, String message, List<Message> history) {
+        String normalized = normalize(message);
+        return new StringBuilder(characterId.length() + normalized.length() + 18)
+                .append(characterId).append(KEY_SEPARATOR)
+                .append(normalized).append(KEY_SEPARATOR)
+                .append(Long.toHexString(hashHistory(history)))
+                .toString();
+    }
+
+    /**
+     * 归一化用户消息：转小写、合并连续空白、去掉末尾标点，
+     * 使 "Hello  there!" 与 "hello there" 命中同一条缓存
+     */
+    public static String normalize(String message) {
+        StringBuilder sb = new StringBuilder(message.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < message.length(); i++) {
+            char c = message.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(Character.toLowerCase(c));
+        }
+        int end = sb.length();
+        while (end > 0 && isTrailingPunctuation(sb.charAt(end - 1))) {
+            end--;
+        }
+        sb.setLength(end);
+        return sb.toString();
+    }
+
+    // 计算历史记录的 64 位 FNV-1a 哈希，发送者和文本都参与计算
+    public static long hashHistory(List<Message> history) {
+        long hash = 0xcbf29ce484222325L;
+        if (history == null) {
+            return hash;
+        }
+        for (Message msg : history) {
+            hash = fnv(hash, msg.getSender());
+            hash = fnv(hash, msg.getText());
+            hash = (hash ^ KEY_SEPARATOR) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long fnv(long hash, String value) {
+        if (value == null) {
+            return hash;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static boolean isTrailingPunctuation(char c) {
+        return c == '?' || c == '？' || c == '!' || c == '！' || c == '.' || c == '。' || c == '~' || c == '～';
+    }
+}
@@ -0,0 +1,324 @@
+package com.tcs.cache;
+
+import com.tcs.embedding.TextEmbedder;
+import com.tcs.model.Message;
+import com.tcs.vector.HnswIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 语义回复缓存
+ * 把归一化后的用户消息向量化，在每个角色独立的 HNSW 索引中查找意思相近的已回答问题，
+ * 相似度达到阈值时直接返回当时的回复，例如 "相对论是什么？" 和 "什么是相对论" 共用一条回复。
+ * 回复与上下文相关，只缓存和命中没有历史记录的对话轮次。
+ * 每个角色的条目数有上限（超出时先清理过期条目，再淘汰最久未命中的条目），向量存放在堆外，
+ * 所有角色的向量字节数超过上限时淘汰最久未使用的角色的整个索引
+ */
+public class SemanticCache {
+    private static final Logger logger = LoggerFactory.getLogger(SemanticCache.class);
+    // 与已有条目的相似度达到该值时视为同一问题，替换旧回复
+    private static final float DUPLICATE_SIMILARITY = 0.999f;
+    private static final int CANDIDATES = 4;
+    private static final Settings DISABLED = new Settings(false, 1f, 1, 1, 0, 0, 2, 2, 2);
+
+    private final TextEmbedder embedder;
+    private final Settings settings;
+    private final AtomicLong memoryBytes = new AtomicLong();
+    private final LinkedHashMap<String, CharacterIndex> indexes = new LinkedHashMap<>(16, 0.75f, true); // 按访问顺序
+    private final LruCache<String, float[]> embeddings; // 最近的向量化结果，查找和写入同一条消息只调用一次向量化
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public SemanticCache(TextEmbedder embedder, Settings settings) {
+        this.embedder = embedder;
+        this.settings = settings;
+        this.embeddings = new LruCache<>(4096, 60_000);
+        if (settings.enabled()) {
+            logger.info("语义缓存已开启，向量化: {}，相似度阈值: {}，每个角色最多 {} 条，最多 {} 个角色，向量内存上限: {}MB",
+                    embedder.getName(), settings.similarityThreshold(), settings.maxEntriesPerCharacter(),
+                    settings.maxCharacters(), settings.maxMemoryBytes() / (1024 * 1024));
+        }
+    }
+
+    public static SemanticCache disabled() {
+        return new SemanticCache(null, DISABLED);
+    }
+
+    /**
+     * 只有开启且没有历史记录的对话轮次使用语义缓存
+     */
+    public boolean isApplicable(List<Message> history) {
+        return settings.enabled() && (history == null || history.isEmpty());
+    }
+
+    /**
+     * 查找该角色意思相近的已回答问题，没有达到阈值的条目时返回 null；向量化失败时按未命中处理
+     */
+    public String lookup(String characterId, String message) {
+        if (!settings.enabled()) {
+            return null;
+        }
+        CharacterIndex index;
+        synchronized (indexes) {
+            index = indexes.get(characterId);
+        }
+        float[] query = index == null ? null : embed(message);
+        if (query == null) {
+            misses.increment();
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        index.lock.readLock().lock();
+        try {
+            if (!index.closed) {
+                for (HnswIndex.Match<Entry> match : index.vectors.search(query, CANDIDATES, settings.efSearch())) {
+                    if (match.similarity() < settings.similarityThreshold()) {
+                        break;
+                    }
+                    Entry entry = match.payload();
+                    if (!entry.isExpired(now, settings.ttlMillis())) {
+                        entry.lastAccess = now;
+                        hits.increment();
+                        return entry.response;
+                    }
+                }
+            }
+        } finally {
+            index.lock.readLock().unlock();
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * 写入一条模型回复，有历史记录的轮次不写入
+     */
+    public void put(String characterId, String message, List<Message> history, String response) {
+        if (!isApplicable(history) || response == null || response.isEmpty()) {
+            return;
+        }
+        float[] vector = embed(message);
+        if (vector == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        while (true) {
+            CharacterIndex index = indexFor(characterId, vector.length);
+            index.lock.writeLock().lock();
+            try {
+                // 拿到锁之前索引已被淘汰时重新创建
+                if (index.closed) {
+                    continue;
+                }
+                if (index.vectors.dimensions() != vector.length) {
+                    logger.warn("向量维度 {} 与角色 {} 的索引维度 {} 不一致，不写入语义缓存",
+                            vector.length, characterId, index.vectors.dimensions());
+                    return;
+                }
+                insert(index.vectors, vector, new Entry(response, now), now);
+            } finally {
+                index.lock.writeLock().unlock();
+            }
+            break;
+        }
+        enforceMemoryLimit(characterId);
+    }
+
+    private void insert(HnswIndex<Entry> vectors, float[] vector, Entry entry, long now) {
+        List<HnswIndex.Match<Entry>> nearest = vectors.search(vector, 1, settings.efSearch());
+        if (!nearest.isEmpty() && nearest.get(0).similarity() >= DUPLICATE_SIMILARITY) {
+            vectors.remove(nearest.get(0).id());
+        }
+        if (vectors.size() >= settings.maxEntriesPerCharacter()) {
+            evictEntries(vectors, now);
+        }
+        vectors.add(vector, entry);
+    }
+
+    // 清理所有过期条目，没有过期条目时淘汰最久未命中的一条
+    private void evictEntries(HnswIndex<Entry> vectors, long now) {
+        List<Integer> expired = new ArrayList<>();
+        int[] oldest = {-1};
+        long[] oldestAccess = {Long.MAX_VALUE};
+        vectors.forEach((entry, id) -> {
+            if (entry.isExpired(now, settings.ttlMillis())) {
+                expired.add(id);
+            } else if (entry.lastAccess < oldestAccess[0]) {
+                oldestAccess[0] = entry.lastAccess;
+                oldest[0] = id;
+            }
+        });
+        if (!expired.isEmpty()) {
+            expired.forEach(vectors::remove);
+            expirations.add(expired.size());
+        } else if (oldest[0] >= 0) {
+            vectors.remove(oldest[0]);
+            evictions.increment();
+        }
+    }
+
+    private CharacterIndex indexFor(String characterId, int dimensions) {
+        List<CharacterIndex> evicted = new ArrayList<>();
+        CharacterIndex index;
+        synchronized (indexes) {
+            index = indexes.get(characterId);
+            if (index == null || index.closed) {
+                index = new CharacterIndex(new HnswIndex<>(dimensions, settings.maxEntriesPerCharacter() * 2,
+                        settings.m(), settings.efConstruction(), memoryBytes, characterId.hashCode()));
+                indexes.put(characterId, index);
+                Iterator<CharacterIndex> eldest = indexes.values().iterator();
+                while (indexes.size() > settings.maxCharacters()) {
+                    evicted.add(eldest.next());
+                    eldest.remove();
+                }
+            }
+        }
+        evicted.forEach(this::close);
+        return index;
+    }
+
+    // 向量总字节数超过上限时，按最久未使用的顺序淘汰其他角色的索引
+    private void enforceMemoryLimit(String currentCharacterId) {
+        while (memoryBytes.get() > settings.maxMemoryBytes()) {
+            CharacterIndex eldest = null;
+            synchronized (indexes) {
+                for (Iterator<Map.Entry<String, CharacterIndex>> it = indexes.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<String, CharacterIndex> e = it.next();
+                    if (!e.getKey().equals(currentCharacterId)) {
+                        eldest = e.getValue();
+                        it.remove();
+                        break;
+                    }
+                }
+            }
+            if (eldest == null) {
+                return;
+            }
+            close(eldest);
+        }
+    }
+
+    private void close(CharacterIndex index) {
+        index.lock.writeLock().lock();
+        try {
+            if (!index.closed) {
+                index.closed = true;
+                evictions.add(index.vectors.size());
+                index.vectors.release();
+            }
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+    // 向量化归一化后的消息，失败时返回 null
+    private float[] embed(String message) {
+        String normalized = ResponseCache.normalize(message);
+        float[] vector = embeddings.get(normalized);
+        if (vector != null) {
+            return vector;
+        }
+        try {
+            vector = embedder.embed(normalized);
+        } catch (RuntimeException e) {
+            logger.warn("消息向量化失败，跳过语义缓存: {}", e.getMessage());
+            return null;
+        }
+        embeddings.put(normalized, vector);
+        return vector;
+    }
+
+    /**
+     * 清空角色的语义缓存，角色设定修改后调用
+     */
+    public void invalidate(String characterId) {
+        CharacterIndex index;
+        synchronized (indexes) {
+            index = indexes.remove(characterId);
+        }
+        if (index != null) {
+            close(index);
+        }
+    }
+
+    public void invalidateAll() {
+        List<CharacterIndex> all;
+        synchronized (indexes) {
+            all = new ArrayList<>(indexes.values());
+            indexes.clear();
+        }
+        all.forEach(this::close);
+    }
+
+    public LruCache.Stats getStats() {
+        int size = 0;
+        synchronized (indexes) {
+            for (CharacterIndex index : indexes.values()) {
+                size += index.vectors.size();
+            }
+        }
+        return new LruCache.Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size);
+    }
+
+    /**
+     * 所有角色索引占用的堆外字节数
+     */
+    public long getMemoryBytes() {
+        return memoryBytes.get();
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @param similarityThreshold    命中所需的最低余弦相似度
+     * @param maxEntriesPerCharacter 每个角色的条目数上限
+     * @param maxCharacters          同时保留索引的角色数上限
+     * @param maxMemoryBytes         所有角色的向量占用的堆外字节数上限
+     * @param ttlMillis              条目过期时间，小于等于0表示不过期
+     * @param m                      HNSW 每层的邻居数
+     * @param efConstruction         HNSW 插入时的候选集大小
+     * @param efSearch               HNSW 查找时的候选集大小
+     */
+    public record Settings(boolean enabled, float similarityThreshold, int maxEntriesPerCharacter, int maxCharacters,
+                           long maxMemoryBytes, long ttlMillis, int m, int efConstruction, int efSearch) {
+    }
+
+    private static final class CharacterIndex {
+        private final HnswIndex<Entry> vectors;
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile boolean closed;
+
+        private CharacterIndex(HnswIndex<Entry> vectors) {
+            this.vectors = vectors;
+        }
+    }
+
+    private static final class Entry {
+        private final String response;
+        private final long createdAt;
+        private volatile long lastAccess;
+
+        private Entry(String response, long createdAt) {
+            this.response = response;
+            this.createdAt = createdAt;
+            this.lastAccess = createdAt;
+        }
+
+        private boolean isExpired(long now, long ttlMillis) {
+            return ttlMillis > 0 && now - createdAt >= ttlMillis;
+        }
+    }
+}
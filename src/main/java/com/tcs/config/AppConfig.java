@@ -1,7 +1,14 @@
 package com.tcs.config;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tcs.http.WireFormat;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
@@ -40,4 +47,26 @@ public class AppConfig implements WebMvcConfigurer {
         
         return new CorsFilter(source);
     }
-}
\ No newline at end of file
+
+    /**
+     * CBOR 和 Smile 编码，客户端通过 Accept 选择、通过 Content-Type 发送请求体；
+     * 沿用 spring.jackson.* 配置，另外日期按毫秒时间戳输出、省略值为 null 的字段。
+     * Spring Boot 按类型替换默认的同类转换器，排在 JSON 之后，不指定 Accept 时仍返回 JSON。
+     * ObjectMapper 会把自己设为工厂的 codec，这里使用工厂的副本
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(compact(builder.factory(WireFormat.CBOR.getFactory().copy())));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(compact(builder.factory(WireFormat.SMILE.getFactory().copy())));
+    }
+
+    private static ObjectMapper compact(Jackson2ObjectMapperBuilder builder) {
+        return builder.featuresToEnable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .serializationInclusion(JsonInclude.Include.NON_NULL)
+                .build();
+    }
+}
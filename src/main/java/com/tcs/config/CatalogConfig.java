@@ -0,0 +1,62 @@
+package com.tcs.config;
+
+import com.tcs.repository.BuiltinCatalogSource;
+import com.tcs.repository.CatalogSource;
+import com.tcs.repository.CharacterRepository;
+import com.tcs.repository.FileCatalogSource;
+import com.tcs.repository.JdbcCatalogSource;
+import com.tcs.service.CharacterSearchIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+@Configuration
+public class CatalogConfig {
+
+    /**
+     * 按 chat.catalog.source 选择角色目录的数据来源：builtin、file 或 jdbc
+     */
+    @Bean
+    public CatalogSource catalogSource(@Value("${chat.catalog.source:builtin}") String source,
+                                       @Value("${chat.catalog.file:}") String file,
+                                       @Value("${chat.catalog.jdbc.url:}") String jdbcUrl,
+                                       @Value("${chat.catalog.jdbc.username:}") String jdbcUsername,
+                                       @Value("${chat.catalog.jdbc.password:}") String jdbcPassword,
+                                       @Value("${chat.catalog.jdbc.table:characters}") String jdbcTable) {
+        return switch (source.trim().toLowerCase()) {
+            case "builtin" -> new BuiltinCatalogSource();
+            case "file" -> {
+                if (file.isBlank()) {
+                    throw new IllegalStateException("chat.catalog.source=file 时必须配置 chat.catalog.file");
+                }
+                yield new FileCatalogSource(Paths.get(file));
+            }
+            case "jdbc" -> {
+                if (jdbcUrl.isBlank()) {
+                    throw new IllegalStateException("chat.catalog.source=jdbc 时必须配置 chat.catalog.jdbc.url");
+                }
+                yield new JdbcCatalogSource(jdbcUrl, jdbcUsername, jdbcPassword, jdbcTable);
+            }
+            default -> throw new IllegalArgumentException("不支持的角色目录来源: " + source);
+        };
+    }
+
+    /**
+     * 角色目录的版本、角色数和检索索引的词项数
+     */
+    @Bean
+    public MeterBinder catalogMetrics(CharacterRepository characterRepository, CharacterSearchIndex characterSearchIndex) {
+        return registry -> {
+            Gauge.builder("chat.catalog.version", characterRepository, CharacterRepository::getVersion)
+                    .register(registry);
+            Gauge.builder("chat.catalog.size", characterRepository, r -> r.getSnapshot().size())
+                    .register(registry);
+            Gauge.builder("chat.search.terms", characterSearchIndex, CharacterSearchIndex::getTermCount)
+                    .register(registry);
+        };
+    }
+}
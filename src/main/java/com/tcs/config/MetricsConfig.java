@@ -0,0 +1,100 @@
+package com.tcs.config;
+
+import com.tcs.cache.LruCache;
+import com.tcs.cache.ResponseCache;
+import com.tcs.cache.SemanticCache;
+import com.tcs.ratelimit.AdaptiveConcurrencyLimiter;
+import com.tcs.ratelimit.ChatAdmissionFilter;
+import com.tcs.ratelimit.ChatRateLimitFilter;
+import com.tcs.repository.ConversationStore;
+import com.tcs.repository.InMemoryConversationStore;
+import com.tcs.service.CharacterListing;
+import com.tcs.service.SensitiveWordFilter;
+import com.tcs.service.UpstreamCallLimiter;
+import com.tcs.warmup.GreetingPrefetcher;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.Function;
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * 缓存、上游并发和会话存储的状态指标，导出时读取，不占用请求路径
+     */
+    @Bean
+    public MeterBinder chatStateMetrics(ResponseCache responseCache, UpstreamCallLimiter upstreamCallLimiter,
+                                        SensitiveWordFilter sensitiveWordFilter,
+                                        ConversationStore conversationStore, CharacterListing characterListing,
+                                        ChatRateLimitFilter rateLimitFilter, GreetingPrefetcher greetingPrefetcher,
+                                        SemanticCache semanticCache, ChatAdmissionFilter admissionFilter) {
+        return registry -> {
+            bindCache(registry, "response", responseCache, ResponseCache::getStats);
+            bindCache(registry, "character-listing", characterListing, CharacterListing::getCacheStats);
+            if (semanticCache.getSettings().enabled()) {
+                bindCache(registry, "semantic", semanticCache, SemanticCache::getStats);
+                Gauge.builder("chat.cache.semantic.memory", semanticCache, SemanticCache::getMemoryBytes)
+                        .description("语义缓存向量占用的堆外内存").baseUnit("bytes").register(registry);
+            }
+
+            Gauge.builder("chat.upstream.in-flight", upstreamCallLimiter, UpstreamCallLimiter::getInFlight)
+                    .description("进行中的上游模型调用数").register(registry);
+            Gauge.builder("chat.upstream.queued", upstreamCallLimiter, UpstreamCallLimiter::getQueueLength)
+                    .description("等待上游调用许可的请求数").register(registry);
+            Gauge.builder("chat.upstream.limit", upstreamCallLimiter, UpstreamCallLimiter::getMaxConcurrent)
+                    .register(registry);
+            if (admissionFilter.isEnabled()) {
+                AdaptiveConcurrencyLimiter limiter = admissionFilter.getLimiter();
+                Gauge.builder("chat.admission.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                        .description("聊天请求当前的自适应并发上限").register(registry);
+                Gauge.builder("chat.admission.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                        .description("处理中的聊天请求数").register(registry);
+                Gauge.builder("chat.admission.rtt", limiter, AdaptiveConcurrencyLimiter::getShortRttMillis)
+                        .description("驱动并发上限的模型响应平均延迟").tags("window", "short").baseUnit("milliseconds")
+                        .register(registry);
+                Gauge.builder("chat.admission.rtt", limiter, AdaptiveConcurrencyLimiter::getLongRttMillis)
+                        .tags("window", "long").baseUnit("milliseconds").register(registry);
+            }
+            Gauge.builder("chat.ratelimit.buckets", rateLimitFilter, ChatRateLimitFilter::getBucketCount)
+                    .description("当前保留的限流令牌桶数").register(registry);
+            Gauge.builder("chat.filter.words", sensitiveWordFilter, SensitiveWordFilter::getWordCount)
+                    .register(registry);
+
+            if (greetingPrefetcher.isEnabled()) {
+                FunctionCounter.builder("chat.warmup.greetings", greetingPrefetcher, GreetingPrefetcher::getGenerated)
+                        .description("预取的角色开场回复数").tags("result", "generated").register(registry);
+                FunctionCounter.builder("chat.warmup.greetings", greetingPrefetcher, GreetingPrefetcher::getSkipped)
+                        .tags("result", "skipped").register(registry);
+                FunctionCounter.builder("chat.warmup.greetings", greetingPrefetcher, GreetingPrefetcher::getFailed)
+                        .tags("result", "failed").register(registry);
+            }
+
+            if (conversationStore instanceof InMemoryConversationStore store) {
+                Gauge.builder("chat.conversation.count", store, InMemoryConversationStore::getConversationCount)
+                        .register(registry);
+                Gauge.builder("chat.conversation.chars", store, InMemoryConversationStore::getTotalChars)
+                        .register(registry);
+            }
+        };
+    }
+
+    // 指标以缓存所属的单例 bean 为状态对象（Micrometer 只持有其弱引用）
+    private static <T> void bindCache(MeterRegistry registry, String name, T owner, Function<T, LruCache.Stats> stats) {
+        FunctionCounter.builder("chat.cache.requests", owner, o -> stats.apply(o).hits())
+                .tags("cache", name, "result", "hit").register(registry);
+        FunctionCounter.builder("chat.cache.requests", owner, o -> stats.apply(o).misses())
+                .tags("cache", name, "result", "miss").register(registry);
+        FunctionCounter.builder("chat.cache.evictions", owner, o -> {
+                    LruCache.Stats s = stats.apply(o);
+                    return s.evictions() + s.expirations();
+                })
+                .tags("cache", name).register(registry);
+        Gauge.builder("chat.cache.size", owner, o -> stats.apply(o).size())
+                .tags("cache", name).register(registry);
+    }
+}
@@ -0,0 +1,93 @@
+package com.tcs.config;
+
+import com.tcs.http.ModelHttpTransport;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class ModelHttpClientConfig {
+
+    /**
+     * 模型客户端的 HTTP 传输层，配置见 chat.model.http.*
+     */
+    @Bean(destroyMethod = "close")
+    public ModelHttpTransport modelHttpTransport(@Value("${chat.model.http.max-total:200}") int maxTotal,
+                                                 @Value("${chat.model.http.max-per-route:50}") int maxPerRoute,
+                                                 @Value("${chat.model.http.connect-timeout-ms:3000}") long connectTimeoutMs,
+                                                 @Value("${chat.model.http.read-timeout-ms:120000}") long readTimeoutMs,
+                                                 @Value("${chat.model.http.acquire-timeout-ms:5000}") long acquireTimeoutMs,
+                                                 @Value("${chat.model.http.idle-evict-ms:30000}") long idleEvictMs,
+                                                 @Value("${chat.model.http.time-to-live-ms:300000}") long timeToLiveMs,
+                                                 @Value("${chat.model.http.keep-alive-ms:60000}") long keepAliveMs,
+                                                 @Value("${chat.model.http.http2:true}") boolean http2,
+                                                 @Value("${chat.model.http.compression:true}") boolean compression) {
+        return new ModelHttpTransport(new ModelHttpTransport.Settings(maxTotal, maxPerRoute, connectTimeoutMs, readTimeoutMs,
+                acquireTimeoutMs, idleEvictMs, timeToLiveMs, keepAliveMs, http2, compression));
+    }
+
+    /**
+     * Spring AI 的模型客户端通过容器中的 RestClient.Builder（同步调用）和 WebClient.Builder（流式调用）创建。
+     * 构建器是原型作用域，每次注入都会经过定制器，这里只在创建 chat.model.http.client-beans 列出的模型 bean 时替换底层的 HTTP 客户端，
+     * 应用中其他用途的构建器保持 Spring Boot 的默认配置
+     */
+    @Bean
+    public RestClientCustomizer modelRestClientCustomizer(ModelHttpTransport transport, ConfigurableListableBeanFactory beanFactory,
+                                                          @Value("${chat.model.http.client-beans:openAiChatModel,openAiEmbeddingModel,ollamaApi}") List<String> clientBeans) {
+        return builder -> {
+            if (creatingModelClient(beanFactory, clientBeans)) {
+                builder.requestFactory(transport.getRequestFactory());
+            }
+        };
+    }
+
+    @Bean
+    public WebClientCustomizer modelWebClientCustomizer(ModelHttpTransport transport, ConfigurableListableBeanFactory beanFactory,
+                                                        @Value("${chat.model.http.client-beans:openAiChatModel,openAiEmbeddingModel,ollamaApi}") List<String> clientBeans) {
+        return builder -> {
+            if (creatingModelClient(beanFactory, clientBeans)) {
+                builder.clientConnector(transport.getConnector());
+            }
+        };
+    }
+
+    static boolean creatingModelClient(ConfigurableListableBeanFactory beanFactory, List<String> clientBeans) {
+        for (String name : clientBeans) {
+            String beanName = name.trim();
+            if (!beanName.isEmpty() && beanFactory.containsBeanDefinition(beanName) && beanFactory.isCurrentlyInCreation(beanName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 连接池状态和连接复用情况，按 blocking（同步调用）和 streaming（流式调用）区分
+     */
+    @Bean
+    public MeterBinder modelHttpMetrics(ModelHttpTransport transport) {
+        return registry -> {
+            for (String client : new String[]{ModelHttpTransport.CLIENT_BLOCKING, ModelHttpTransport.CLIENT_STREAMING}) {
+                Gauge.builder("chat.model.http.pool.leased", transport, t -> t.getPoolStats(client).getLeased())
+                        .description("已借出的连接数").tag("client", client).register(registry);
+                Gauge.builder("chat.model.http.pool.available", transport, t -> t.getPoolStats(client).getAvailable())
+                        .description("空闲的连接数").tag("client", client).register(registry);
+                Gauge.builder("chat.model.http.pool.pending", transport, t -> t.getPoolStats(client).getPending())
+                        .description("等待连接的请求数").tag("client", client).register(registry);
+                FunctionCounter.builder("chat.model.http.requests", transport, t -> t.getOpenedConnections(client))
+                        .description("模型调用的 HTTP 请求数，按是否新建连接区分")
+                        .tags("client", client, "connection", "new").register(registry);
+                FunctionCounter.builder("chat.model.http.requests", transport, t -> t.getReusedConnections(client))
+                        .tags("client", client, "connection", "reused").register(registry);
+            }
+        };
+    }
+}
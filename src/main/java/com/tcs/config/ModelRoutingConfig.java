@@ -0,0 +1,87 @@
+package com.tcs.config;
+
+import com.tcs.metrics.ChatMetrics;
+import com.tcs.routing.BackendStats;
+import com.tcs.routing.CircuitBreaker;
+import com.tcs.routing.ModelBackend;
+import com.tcs.routing.RoutingChatClient;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.ollama.OllamaChatClient;
+import org.springframework.ai.openai.OpenAiChatClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+public class ModelRoutingConfig {
+
+    /**
+     * 按 chat.router.providers 的顺序组装模型后端，路由客户端作为首选的 ChatClient 和 StreamingChatClient
+     */
+    @Bean
+    @Primary
+    public RoutingChatClient routingChatClient(ObjectProvider<OpenAiChatClient> openAiChatClient,
+                                               ObjectProvider<OllamaChatClient> ollamaChatClient,
+                                               ChatMetrics chatMetrics,
+                                               @Value("${chat.router.providers:openai}") List<String> providers,
+                                               @Value("${chat.router.latency-window:128}") int latencyWindow,
+                                               @Value("${chat.router.circuit.failure-threshold:5}") int failureThreshold,
+                                               @Value("${chat.router.circuit.open-ms:30000}") long openMs,
+                                               @Value("${chat.router.hedge.enabled:true}") boolean hedgeEnabled,
+                                               @Value("${chat.router.hedge.min-delay-ms:300}") long hedgeMinDelayMs,
+                                               @Value("${chat.router.hedge.max-delay-ms:10000}") long hedgeMaxDelayMs,
+                                               @Value("${chat.router.explore-ratio:0.02}") double exploreRatio) {
+        List<ModelBackend> backends = new ArrayList<>();
+        for (String provider : providers) {
+            String name = provider.trim().toLowerCase();
+            if (name.isEmpty()) {
+                continue;
+            }
+            backends.add(switch (name) {
+                case "openai" -> backend(name, openAiChatClient.getIfAvailable(), latencyWindow, failureThreshold, openMs);
+                case "ollama" -> backend(name, ollamaChatClient.getIfAvailable(), latencyWindow, failureThreshold, openMs);
+                default -> throw new IllegalArgumentException("不支持的模型提供方: " + provider);
+            });
+        }
+        return new RoutingChatClient(backends, chatMetrics, hedgeEnabled, hedgeMinDelayMs, hedgeMaxDelayMs, exploreRatio);
+    }
+
+    private static <T extends ChatClient & StreamingChatClient> ModelBackend backend(String name, T client, int latencyWindow,
+                                                                                int failureThreshold, long openMs) {
+        if (client == null) {
+            throw new IllegalStateException("模型提供方 " + name + " 未配置");
+        }
+        return new ModelBackend(name, client, client, new BackendStats(latencyWindow),
+                new CircuitBreaker(failureThreshold, openMs));
+    }
+
+    /**
+     * 各后端的熔断状态（0 关闭，1 半开，2 打开）和最近的 p95 延迟
+     */
+    @Bean
+    public MeterBinder modelRoutingMetrics(RoutingChatClient routingChatClient) {
+        return registry -> {
+            for (ModelBackend backend : routingChatClient.getBackends()) {
+                Gauge.builder("chat.router.circuit.state", backend, b -> switch (b.getCircuitBreaker().getState()) {
+                            case CLOSED -> 0;
+                            case HALF_OPEN -> 1;
+                            case OPEN -> 2;
+                        })
+                        .tag("provider", backend.getName())
+                        .register(registry);
+                Gauge.builder("chat.router.backend.p95", backend, b -> b.getStats().getP95Nanos() / 1_000_000.0)
+                        .tag("provider", backend.getName())
+                        .baseUnit("milliseconds")
+                        .register(registry);
+            }
+        };
+    }
+}
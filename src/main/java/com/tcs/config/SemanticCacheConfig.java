@@ -0,0 +1,59 @@
+package com.tcs.config;
+
+import com.tcs.cache.SemanticCache;
+import com.tcs.embedding.SpringAiEmbedder;
+import com.tcs.embedding.TextEmbedder;
+import com.tcs.repository.CharacterRepository;
+import org.springframework.ai.embedding.EmbeddingClient;
+import org.springframework.ai.ollama.OllamaEmbeddingClient;
+import org.springframework.ai.openai.OpenAiEmbeddingClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SemanticCacheConfig {
+
+    /**
+     * 开启 chat.semantic-cache.enabled 时按 chat.semantic-cache.embedder 选择模型向量：
+     * openai 或 ollama（对应 starter 的 EmbeddingClient），未配置时启动失败；角色设定修改后清空其语义缓存。
+     * 本地字词哈希（HashingEmbedder）区分不了否定等语义差异，只用于测试和启动预热，不能用于线上缓存
+     */
+    @Bean
+    public SemanticCache semanticCache(ObjectProvider<OpenAiEmbeddingClient> openAiEmbeddingClient,
+                                       ObjectProvider<OllamaEmbeddingClient> ollamaEmbeddingClient,
+                                       CharacterRepository characterRepository,
+                                       @Value("${chat.semantic-cache.enabled:false}") boolean enabled,
+                                       @Value("${chat.semantic-cache.embedder:}") String embedder,
+                                       @Value("${chat.semantic-cache.similarity-threshold:0.92}") float similarityThreshold,
+                                       @Value("${chat.semantic-cache.max-entries-per-character:2000}") int maxEntriesPerCharacter,
+                                       @Value("${chat.semantic-cache.max-characters:256}") int maxCharacters,
+                                       @Value("${chat.semantic-cache.max-memory-mb:256}") long maxMemoryMb,
+                                       @Value("${chat.semantic-cache.ttl-seconds:3600}") long ttlSeconds,
+                                       @Value("${chat.semantic-cache.hnsw.m:16}") int m,
+                                       @Value("${chat.semantic-cache.hnsw.ef-construction:100}") int efConstruction,
+                                       @Value("${chat.semantic-cache.hnsw.ef-search:32}") int efSearch) {
+        if (!enabled) {
+            return SemanticCache.disabled();
+        }
+        TextEmbedder textEmbedder = switch (embedder.trim().toLowerCase()) {
+            case "openai" -> springAi("openai", openAiEmbeddingClient.getIfAvailable());
+            case "ollama" -> springAi("ollama", ollamaEmbeddingClient.getIfAvailable());
+            case "" -> throw new IllegalStateException("开启语义缓存时必须配置 chat.semantic-cache.embedder（openai 或 ollama）");
+            default -> throw new IllegalArgumentException("不支持的向量化方式: " + embedder + "，语义缓存只能使用 openai 或 ollama 的模型向量");
+        };
+        SemanticCache cache = new SemanticCache(textEmbedder, new SemanticCache.Settings(true, similarityThreshold,
+                maxEntriesPerCharacter, maxCharacters, maxMemoryMb * 1024 * 1024, ttlSeconds * 1000L,
+                m, efConstruction, efSearch));
+        characterRepository.addChangeListener((snapshot, changedIds) -> changedIds.forEach(cache::invalidate));
+        return cache;
+    }
+
+    private static TextEmbedder springAi(String name, EmbeddingClient client) {
+        if (client == null) {
+            throw new IllegalStateException("chat.semantic-cache.embedder=" + name + " 时必须配置对应的 EmbeddingClient");
+        }
+        return new SpringAiEmbedder(client, name);
+    }
+}
@@ -0,0 +1,65 @@
+package com.tcs.config;
+
+import com.tcs.repository.JdbcTranscriptStore;
+import com.tcs.repository.TranscriptStore;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+@Configuration
+public class TranscriptConfig {
+
+    /**
+     * 开启 chat.transcript.enabled 时异步写入数据库，否则不保存对话记录
+     */
+    @Bean(destroyMethod = "close")
+    public TranscriptStore transcriptStore(@Value("${chat.transcript.enabled:false}") boolean enabled,
+                                           @Value("${chat.transcript.jdbc.url:}") String jdbcUrl,
+                                           @Value("${chat.transcript.jdbc.username:}") String jdbcUsername,
+                                           @Value("${chat.transcript.jdbc.password:}") String jdbcPassword,
+                                           @Value("${chat.transcript.jdbc.table:chat_transcripts}") String table,
+                                           @Value("${chat.transcript.queue-capacity:65536}") int queueCapacity,
+                                           @Value("${chat.transcript.batch-size:500}") int batchSize,
+                                           @Value("${chat.transcript.flush-interval-ms:1000}") long flushIntervalMs,
+                                           @Value("${chat.transcript.init-schema:false}") boolean initSchema) {
+        if (!enabled) {
+            return TranscriptStore.NONE;
+        }
+        if (jdbcUrl.isBlank()) {
+            throw new IllegalStateException("chat.transcript.enabled=true 时必须配置 chat.transcript.jdbc.url");
+        }
+        return new JdbcTranscriptStore(jdbcUrl, jdbcUsername, jdbcPassword, table, queueCapacity, batchSize,
+                flushIntervalMs, initSchema);
+    }
+
+    /**
+     * 写入队列的长度、写入和丢弃的记录数，以及批量写入的次数和耗时
+     */
+    @Bean
+    public MeterBinder transcriptMetrics(TranscriptStore transcriptStore) {
+        return registry -> {
+            if (!(transcriptStore instanceof JdbcTranscriptStore store)) {
+                return;
+            }
+            Gauge.builder("chat.transcript.queue.size", store, JdbcTranscriptStore::getQueueSize)
+                    .description("等待写入的对话记录数").register(registry);
+            Gauge.builder("chat.transcript.queue.capacity", store, JdbcTranscriptStore::getQueueCapacity)
+                    .register(registry);
+            FunctionCounter.builder("chat.transcript.records", store, JdbcTranscriptStore::getWrittenCount)
+                    .tag("result", "written").register(registry);
+            FunctionCounter.builder("chat.transcript.records", store, JdbcTranscriptStore::getDroppedCount)
+                    .description("队列已满或写入失败被丢弃的记录").tag("result", "dropped").register(registry);
+            FunctionCounter.builder("chat.transcript.flush.failures", store, JdbcTranscriptStore::getFailedFlushCount)
+                    .register(registry);
+            FunctionTimer.builder("chat.transcript.flush", store, JdbcTranscriptStore::getFlushCount,
+                            JdbcTranscriptStore::getFlushNanos, TimeUnit.NANOSECONDS)
+                    .description("批量写入的次数和耗时").register(registry);
+        };
+    }
+}
@@ -1,67 +1,71 @@
 package com.tcs.controller;
 
-import com.tcs.model.Character;
-import com.tcs.repository.CharacterRepository;
+import com.tcs.http.Gzip;
+import com.tcs.http.WireFormat;
+import com.tcs.service.CharacterListing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
-import java.util.Set;
-import java.util.logging.Logger;
-
 @RestController
 @RequestMapping("/api/character-categories")
 public class CharacterCategoryController {
-    private static final Logger logger = Logger.getLogger(CharacterCategoryController.class.getName());
+    private static final Logger logger = LoggerFactory.getLogger(CharacterCategoryController.class);
 
-    private final CharacterRepository characterRepository;
+    private final CharacterListing characterListing;
 
     @Autowired
-    public CharacterCategoryController(CharacterRepository characterRepository) {
-        this.characterRepository = characterRepository;
+    public CharacterCategoryController(CharacterListing characterListing) {
+        this.characterListing = characterListing;
         logger.info("CharacterCategoryController 初始化完成");
     }
 
     /**
-     * 获取所有角色分类
+     * 获取所有角色分类，返回按目录版本预先序列化的 JSON
      * @return 分类列表
      */
     @GetMapping
-    public ResponseEntity<Set<String>> getAllCategories() {
+    public ResponseEntity<byte[]> getAllCategories(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         try {
-            logger.info("获取所有角色分类");
-            Set<String> categories = characterRepository.getAllCategories();
-            logger.info("成功获取角色分类，数量: " + categories.size());
-            return ResponseEntity.ok(categories);
+            logger.debug("获取所有角色分类");
+            return characterListing.respondCategories(ifNoneMatch);
         } catch (Exception e) {
-            logger.severe("获取角色分类失败: " + e.getMessage());
+            logger.error("获取角色分类失败: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
 
     /**
-     * 根据分类获取角色列表
+     * 根据分类获取角色列表，支持与 /api/characters 相同的 cursor、limit 和 fields 参数
      * @param category 角色分类
      * @return 该分类下的角色列表
      */
     @GetMapping("/{category}")
-    public ResponseEntity<List<Character>> getCharactersByCategory(@PathVariable String category) {
+    public ResponseEntity<byte[]> getCharactersByCategory(@PathVariable String category,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer limit,
+                                                          @RequestParam(required = false) String fields,
+                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                          @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        if (category == null || category.trim().isEmpty()) {
+            logger.warn("分类参数为空");
+            return ResponseEntity.badRequest().build();
+        }
+        CharacterListing.Query query = characterListing.query(category, cursor, limit, fields);
         try {
-            if (category == null || category.trim().isEmpty()) {
-                logger.warning("分类参数为空");
-                return ResponseEntity.badRequest().build();
-            }
-
-            logger.info("获取分类下的角色列表: " + category);
-            List<Character> characters = characterRepository.getCharactersByCategory(category);
-            logger.info("成功获取分类下的角色，数量: " + characters.size());
-            return ResponseEntity.ok(characters);
+            logger.debug("获取分类下的角色列表: {}", category);
+            return characterListing.respond(query, ifNoneMatch, WireFormat.negotiate(accept), Gzip.accepts(acceptEncoding));
         } catch (Exception e) {
-            logger.severe("获取分类下的角色列表失败: " + e.getMessage());
+            logger.error("获取分类下的角色列表失败: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().build();
         }
     }
@@ -1,8 +1,17 @@
 package com.tcs.controller;
 
+import com.tcs.exception.BusinessException;
+import com.tcs.http.Gzip;
+import com.tcs.http.WireFormat;
 import com.tcs.model.Character;
 import com.tcs.repository.CharacterRepository;
+import com.tcs.service.CharacterListing;
+import com.tcs.service.CharacterSearchIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -12,26 +21,61 @@ import java.util.List;
 @RestController
 @RequestMapping("/api/characters")
 public class CharacterController {
+    private static final Logger logger = LoggerFactory.getLogger(CharacterController.class);
 
     private final CharacterRepository characterRepository;
+    private final CharacterListing characterListing;
+    private final CharacterSearchIndex characterSearchIndex;
+
+    @Value("${chat.search.max-results:100}")
+    private int maxSearchResults;
 
     @Autowired
-    public CharacterController(CharacterRepository characterRepository) {
+    public CharacterController(CharacterRepository characterRepository, CharacterListing characterListing,
+                               CharacterSearchIndex characterSearchIndex) {
         this.characterRepository = characterRepository;
+        this.characterListing = characterListing;
+        this.characterSearchIndex = characterSearchIndex;
     }
 
-    // 获取所有角色
+    /**
+     * 获取角色列表
+     * 不带 cursor 和 limit 时返回全部角色的数组，否则返回 {items, nextCursor} 分页对象；
+     * fields 指定返回的字段（例如 id,name,avatar），category 按分类过滤
+     */
     @GetMapping
-    public ResponseEntity<List<Character>> getAllCharacters() {
+    public ResponseEntity<byte[]> getAllCharacters(@RequestParam(required = false) String category,
+                                                   @RequestParam(required = false) String cursor,
+                                                   @RequestParam(required = false) Integer limit,
+                                                   @RequestParam(required = false) String fields,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        CharacterListing.Query query = characterListing.query(category, cursor, limit, fields);
         try {
-            List<Character> characters = characterRepository.getAllCharacters();
-            return ResponseEntity.ok(characters);
+            return characterListing.respond(query, ifNoneMatch, WireFormat.negotiate(accept), Gzip.accepts(acceptEncoding));
         } catch (Exception e) {
-            System.err.println("Error fetching characters: " + e.getMessage());
+            logger.error("Error fetching characters: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * 按名称、分类、简介和性格检索角色，支持中文片段、英文前缀和拼写错误的模糊匹配，结果按相关度排序
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<Character>> searchCharacters(@RequestParam String q,
+                                                            @RequestParam(defaultValue = "20") int limit) {
+        if (q.isBlank()) {
+            throw new BusinessException("搜索关键词不能为空");
+        }
+        if (limit <= 0 || limit > maxSearchResults) {
+            throw new BusinessException("limit 必须在 1 到 " + maxSearchResults + " 之间");
+        }
+        logger.debug("检索角色: {}", q);
+        return ResponseEntity.ok(characterSearchIndex.search(q, limit));
+    }
+
     // 获取单个角色信息
     @GetMapping("/{id}")
     public ResponseEntity<?> getCharacterById(@PathVariable String id) {
@@ -47,7 +91,7 @@ public class CharacterController {
             
             return ResponseEntity.ok(character);
         } catch (Exception e) {
-            System.err.println("Error fetching character: " + e.getMessage());
+            logger.error("Error fetching character: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("获取角色信息失败");
         }
     }
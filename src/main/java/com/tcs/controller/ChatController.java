@@ -1,22 +1,48 @@
 package com.tcs.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcs.exception.BusinessException;
+import com.tcs.exception.ServiceBusyException;
+import com.tcs.model.BatchChatItem;
 import com.tcs.model.ChatRequest;
 import com.tcs.model.ChatResponse;
+import com.tcs.model.ChatStreamEvent;
 import com.tcs.service.ChatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.Disposable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/chat")
 public class ChatController {
+    private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
 
     private final ChatService chatService;
+    private final ObjectMapper objectMapper;
+
+    @Value("${chat.stream.timeout-ms:120000}")
+    private long streamTimeoutMs;
+
+    @Value("${chat.batch.max-size:1000}")
+    private int batchMaxSize;
 
     @Autowired
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService, ObjectMapper objectMapper) {
         this.chatService = chatService;
+        this.objectMapper = objectMapper;
     }
 
     // 处理聊天请求
@@ -29,10 +55,71 @@ public class ChatController {
             } else {
                 return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
             }
+        } catch (ServiceBusyException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error processing chat: " + e.getMessage());
+            logger.error("Error processing chat: {}", e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new ChatResponse(false, null, "处理聊天请求失败"));
         }
     }
-}
\ No newline at end of file
+
+    // 流式处理聊天请求，以SSE事件逐段推送模型输出，最后一个事件携带完整回复
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChatRequest(@RequestBody ChatRequest request) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Disposable subscription = chatService.streamChatRequest(request).subscribe(
+                event -> sendEvent(emitter, event),
+                emitter::completeWithError,
+                emitter::complete
+        );
+        // 客户端断开或超时后取消上游订阅，避免继续消耗模型输出
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        return emitter;
+    }
+
+    // 批量处理聊天请求，结果按请求顺序返回，单个请求的错误放在对应结果中
+    @PostMapping("/batch")
+    public ResponseEntity<List<ChatResponse>> processChatBatch(@RequestBody List<ChatRequest> requests) {
+        validateBatchSize(requests);
+        return ResponseEntity.ok(chatService.processChatBatch(requests));
+    }
+
+    // 批量处理聊天请求并以NDJSON逐行输出，每个请求完成时立即写出一行，行内 index 对应请求位置
+    @PostMapping(value = "/batch", params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamChatBatch(@RequestBody List<ChatRequest> requests) {
+        validateBatchSize(requests);
+        StreamingResponseBody body = out -> chatService.processChatBatch(requests,
+                (index, response) -> writeLine(out, BatchChatItem.of(index, response)));
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private void validateBatchSize(List<ChatRequest> requests) {
+        if (requests == null || requests.isEmpty() || requests.size() > batchMaxSize) {
+            throw new BusinessException("批量请求数量必须在1-" + batchMaxSize + "之间");
+        }
+    }
+
+    private void writeLine(OutputStream out, BatchChatItem item) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(item));
+            out.write('\n');
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void sendEvent(SseEmitter emitter, ChatStreamEvent event) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(event.getType())
+                    .data(event, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,23 +1,62 @@
 package com.tcs.controller;
 
+import com.tcs.health.ModelReadinessProbe;
+import com.tcs.warmup.StartupWarmup;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
 
 @RestController
 @RequestMapping("/api/health")
 public class HealthController {
+    // 与 Jackson 默认的日期格式一致
+    private static final DateTimeFormatter TIMESTAMP_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'+00:00'").withZone(ZoneOffset.UTC);
 
-    // 健康检查接口
+    private final ModelReadinessProbe modelReadinessProbe;
+    private final StartupWarmup startupWarmup;
+    // 当前这一秒的健康检查响应，每秒最多生成一次
+    private volatile CachedResponse cached = new CachedResponse(-1, null);
+
+    public HealthController(ModelReadinessProbe modelReadinessProbe, StartupWarmup startupWarmup) {
+        this.modelReadinessProbe = modelReadinessProbe;
+        this.startupWarmup = startupWarmup;
+    }
+
+    // 健康检查接口，timestamp 精确到秒
     @GetMapping
-    public Map<String, Object> healthCheck() {
-        Map<String, Object> response = new HashMap<>();
-        response.put("status", "ok");
-        response.put("timestamp", new Date());
-        return response;
+    public ResponseEntity<byte[]> healthCheck() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedResponse current = cached;
+        if (current.second() != second) {
+            byte[] body = ("{\"status\":\"ok\",\"timestamp\":\"" + TIMESTAMP_FORMAT.format(Instant.ofEpochSecond(second)) + "\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            current = new CachedResponse(second, ResponseEntity.ok()
+                    .cacheControl(CacheControl.noStore())
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(body));
+            cached = current;
+        }
+        return current.response();
+    }
+
+    // 就绪检查接口，启动预热完成后返回后台探测模型后端的结果，不在请求线程上访问模型
+    @GetMapping("/ready")
+    public ResponseEntity<byte[]> readinessCheck() {
+        if (!startupWarmup.isComplete()) {
+            return startupWarmup.warmingUpResponse();
+        }
+        return modelReadinessProbe.readinessResponse();
+    }
+
+    private record CachedResponse(long second, ResponseEntity<byte[]> response) {
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,60 @@
+package com.tcs.embedding;
+
+import com.tcs.text.NGramTokenizer;
+
+/**
+ * 本地哈希向量化
+ * 中日韩片段切分为单字和二元组、其余按单词切分（与角色检索相同的分词），每个词项哈希到一个维度并带随机符号，
+ * 词频取对数后归一化。不需要模型服务，适合测试和离线环境；只反映字面重合度，
+ * 语序不同的同一问题能命中，但无法识别同义改写，否定词等少量字的差异也区分不出来
+ */
+public class HashingEmbedder implements TextEmbedder {
+    private final int dimensions;
+
+    public HashingEmbedder(int dimensions) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("dimensions 必须大于0");
+        }
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public String getName() {
+        return "hashing";
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] counts = new float[dimensions];
+        for (NGramTokenizer.Token token : NGramTokenizer.indexTokens(text)) {
+            int hash = mix(token.text().hashCode());
+            counts[Math.floorMod(hash, dimensions)] += (hash & 0x80000000) == 0 ? 1 : -1;
+        }
+        double norm = 0;
+        for (int i = 0; i < dimensions; i++) {
+            float c = counts[i];
+            if (c != 0) {
+                // 亚线性词频，重复的字不会主导整个向量
+                counts[i] = (float) (Math.signum(c) * (1 + Math.log(Math.abs(c))));
+                norm += counts[i] * counts[i];
+            }
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimensions; i++) {
+                counts[i] *= scale;
+            }
+        }
+        return counts;
+    }
+
+    // murmur3 的最终混合步骤，打散 String.hashCode 的低位
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
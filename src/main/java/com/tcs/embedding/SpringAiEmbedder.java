@@ -0,0 +1,42 @@
+package com.tcs.embedding;
+
+import org.springframework.ai.embedding.EmbeddingClient;
+
+import java.util.List;
+
+/**
+ * 通过 Spring AI 的 EmbeddingClient（OpenAI 兼容接口或 Ollama）向量化，结果重新归一化
+ */
+public class SpringAiEmbedder implements TextEmbedder {
+    private final EmbeddingClient embeddingClient;
+    private final String name;
+
+    public SpringAiEmbedder(EmbeddingClient embeddingClient, String name) {
+        this.embeddingClient = embeddingClient;
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        List<Double> values = embeddingClient.embed(text);
+        float[] vector = new float[values.size()];
+        double norm = 0;
+        for (int i = 0; i < vector.length; i++) {
+            double v = values.get(i);
+            vector[i] = (float) v;
+            norm += v * v;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,12 @@
+package com.tcs.embedding;
+
+/**
+ * 文本向量化
+ * 返回 L2 归一化的向量，两个向量的内积即余弦相似度；同一个实例返回的向量维度固定
+ */
+public interface TextEmbedder {
+
+    String getName();
+
+    float[] embed(String text);
+}
@@ -0,0 +1,25 @@
+package com.tcs.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * 服务繁忙异常，用于表示请求因容量限制被拒绝，客户端可在稍后重试
+ */
+public class ServiceBusyException extends RuntimeException {
+    private final HttpStatus status;
+    private final long retryAfterSeconds;
+
+    public ServiceBusyException(String message, HttpStatus status, long retryAfterSeconds) {
+        super(message);
+        this.status = status;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
\ No newline at end of file
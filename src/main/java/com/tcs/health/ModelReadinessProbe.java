@@ -0,0 +1,165 @@
+package com.tcs.health;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcs.routing.ModelBackend;
+import com.tcs.routing.RoutingChatClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.core.env.Environment;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模型后端可达性探测
+ * 后台定时向各模型提供方的 base-url 发送请求，收到任何非 5xx 响应即认为可达；
+ * 至少一个后端可达时就绪。探测结果和对应的 JSON 响应只在可达性变化时重新生成，
+ * 就绪检查（/api/health/ready 和 actuator 的 readiness 分组）直接返回缓存的结果，不在探针线程上访问模型
+ */
+@Component("modelBackend")
+public class ModelReadinessProbe implements HealthIndicator {
+    private static final Logger logger = LoggerFactory.getLogger(ModelReadinessProbe.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, URI> targets;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private final Map<String, Boolean> reachable = new ConcurrentHashMap<>();
+    private volatile Result result;
+
+    @Autowired
+    public ModelReadinessProbe(RoutingChatClient routingChatClient, Environment environment,
+                               @Value("${chat.health.probe-timeout-ms:2000}") long timeoutMs) {
+        this(targets(routingChatClient.getBackends(), environment), timeoutMs);
+    }
+
+    public ModelReadinessProbe(Map<String, URI> targets, long timeoutMs) {
+        this.targets = new LinkedHashMap<>(targets);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+        // 首次探测完成之前不认为就绪；没有需要探测的后端时直接就绪
+        this.result = targets.isEmpty() ? build(true, Map.of()) : build(false, Map.of());
+    }
+
+    // 各后端的探测地址取自 spring.ai.<提供方>.base-url
+    private static Map<String, URI> targets(List<ModelBackend> backends, Environment environment) {
+        Map<String, URI> targets = new LinkedHashMap<>();
+        for (ModelBackend backend : backends) {
+            String baseUrl = environment.getProperty("spring.ai." + backend.getName() + ".base-url");
+            if (baseUrl != null && !baseUrl.isBlank()) {
+                targets.put(backend.getName(), URI.create(baseUrl));
+            }
+        }
+        return targets;
+    }
+
+    @Scheduled(fixedDelayString = "${chat.health.probe-interval-ms:10000}")
+    public void probe() {
+        probeAll();
+    }
+
+    /**
+     * 异步探测所有后端，返回的 future 在全部探测结束后完成
+     */
+    public CompletableFuture<Void> probeAll() {
+        List<CompletableFuture<?>> probes = new ArrayList<>(targets.size());
+        for (Map.Entry<String, URI> target : targets.entrySet()) {
+            HttpRequest request = HttpRequest.newBuilder(target.getValue()).timeout(timeout).GET().build();
+            probes.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        boolean up = error == null && response.statusCode() < 500;
+                        if (!up) {
+                            logger.debug("模型后端 {} 探测失败: {}", target.getKey(),
+                                    error != null ? error.toString() : "HTTP " + response.statusCode());
+                        }
+                        update(target.getKey(), up);
+                        return null;
+                    }));
+        }
+        return CompletableFuture.allOf(probes.toArray(new CompletableFuture[0]));
+    }
+
+    private synchronized void update(String name, boolean up) {
+        Boolean previous = reachable.put(name, up);
+        boolean complete = reachable.size() == targets.size();
+        // 可达性没有变化时保留已生成的结果
+        if (previous != null && previous == up && complete == result.complete()) {
+            return;
+        }
+        if (previous != null && previous != up) {
+            logger.warn("模型后端 {} {}", name, up ? "恢复可达" : "不可达");
+        }
+        Map<String, Boolean> current = new LinkedHashMap<>();
+        for (String target : targets.keySet()) {
+            Boolean state = reachable.get(target);
+            if (state != null) {
+                current.put(target, state);
+            }
+        }
+        result = build(complete, current);
+    }
+
+    private static Result build(boolean complete, Map<String, Boolean> states) {
+        boolean ready = complete && (states.isEmpty() || states.containsValue(Boolean.TRUE));
+        Status status = !complete ? Status.OUT_OF_SERVICE : ready ? Status.UP : Status.DOWN;
+        Map<String, String> backends = new LinkedHashMap<>();
+        states.forEach((name, up) -> backends.put(name, up ? "UP" : "DOWN"));
+
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", status.getCode());
+        body.put("backends", backends);
+        byte[] bytes;
+        try {
+            bytes = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        ResponseEntity<byte[]> response = ResponseEntity.status(ready ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE)
+                .cacheControl(CacheControl.noStore())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(bytes);
+        Health health = Health.status(status).withDetail("backends", backends).build();
+        return new Result(complete, ready, health, response);
+    }
+
+    public boolean isReady() {
+        return result.ready();
+    }
+
+    /**
+     * 预先序列化好的就绪检查响应，就绪时为 200，否则为 503
+     */
+    public ResponseEntity<byte[]> readinessResponse() {
+        return result.response();
+    }
+
+    @Override
+    public Health health() {
+        return result.health();
+    }
+
+    private record Result(boolean complete, boolean ready, Health health, ResponseEntity<byte[]> response) {
+    }
+}
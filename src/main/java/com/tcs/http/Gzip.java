@@ -0,0 +1,62 @@
+package com.tcs.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 预先压缩的响应体：结果缓存的接口把 gzip 后的字节一起缓存，之后的请求不再重复压缩
+ * （Tomcat 的 server.compression 对每个响应重新压缩，且不会压缩已带 Content-Encoding 的响应）
+ */
+public final class Gzip {
+
+    private Gzip() {
+    }
+
+    /**
+     * Accept-Encoding 是否接受 gzip：列出 gzip 或 *，且质量值不为 0
+     */
+    public static boolean accepts(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return false;
+        }
+        // 明确列出的 gzip 优先于 *
+        Boolean gzip = null;
+        Boolean any = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim();
+            if (coding.equalsIgnoreCase("gzip")) {
+                gzip = quality(params) > 0;
+            } else if (coding.equals("*")) {
+                any = quality(params) > 0;
+            }
+        }
+        return gzip != null ? gzip : Boolean.TRUE.equals(any);
+    }
+
+    private static double quality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    public static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
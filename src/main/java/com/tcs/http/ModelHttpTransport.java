@@ -0,0 +1,169 @@
+package com.tcs.http;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.EndpointDetails;
+import org.apache.hc.core5.http.HttpResponseInterceptor;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.HttpComponentsClientHttpConnector;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 模型提供方的 HTTP 传输层
+ * 同步调用（RestClient）和流式调用（WebClient）各使用一个 Apache HttpClient 连接池：连接保持复用，
+ * 空闲和超过存活时间的连接由后台线程清理，连接池总数和每个提供方（路由）的连接数都有上限；
+ * 流式客户端在 TLS 上通过 ALPN 协商 HTTP/2。
+ * 每个响应按所在连接已处理的请求数区分新建连接和复用连接，用于观察连接复用率
+ */
+public class ModelHttpTransport implements AutoCloseable {
+    public static final String CLIENT_BLOCKING = "blocking";
+    public static final String CLIENT_STREAMING = "streaming";
+
+    private final PoolingHttpClientConnectionManager blockingPool;
+    private final PoolingAsyncClientConnectionManager streamingPool;
+    private final CloseableHttpClient blockingClient;
+    private final CloseableHttpAsyncClient streamingClient;
+    private final ClientHttpRequestFactory requestFactory;
+    private final ClientHttpConnector connector;
+    private final ConnectionUsage blockingUsage = new ConnectionUsage();
+    private final ConnectionUsage streamingUsage = new ConnectionUsage();
+
+    public ModelHttpTransport(Settings settings) {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.ofMilliseconds(settings.connectTimeoutMs()))
+                .setSocketTimeout(Timeout.ofMilliseconds(settings.readTimeoutMs()))
+                // 限制连接的存活时间，使 DNS 变化和服务端摘除节点能及时生效
+                .setTimeToLive(TimeValue.ofMilliseconds(settings.timeToLiveMs()))
+                .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                .build();
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.ofMilliseconds(settings.acquireTimeoutMs()))
+                .setResponseTimeout(Timeout.ofMilliseconds(settings.readTimeoutMs()))
+                // 服务端未声明 Keep-Alive 时连接保持的时长
+                .setConnectionKeepAlive(TimeValue.ofMilliseconds(settings.keepAliveMs()))
+                .build();
+        TimeValue idleEviction = TimeValue.ofMilliseconds(settings.idleEvictMs());
+
+        this.blockingPool = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxTotal())
+                .setMaxConnPerRoute(settings.maxPerRoute())
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+        HttpClientBuilder blocking = HttpClients.custom()
+                .setConnectionManager(blockingPool)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(idleEviction)
+                .evictExpiredConnections()
+                .addResponseInterceptorLast(countConnections(blockingUsage));
+        if (!settings.compression()) {
+            blocking.disableContentCompression();
+        }
+        this.blockingClient = blocking.build();
+
+        this.streamingPool = PoolingAsyncClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(settings.maxTotal())
+                .setMaxConnPerRoute(settings.maxPerRoute())
+                .setDefaultConnectionConfig(connectionConfig)
+                .setDefaultTlsConfig(TlsConfig.custom()
+                        .setVersionPolicy(settings.http2() ? HttpVersionPolicy.NEGOTIATE : HttpVersionPolicy.FORCE_HTTP_1)
+                        .build())
+                .build();
+        this.streamingClient = HttpAsyncClients.custom()
+                .setConnectionManager(streamingPool)
+                .setDefaultRequestConfig(requestConfig)
+                .evictIdleConnections(idleEviction)
+                .evictExpiredConnections()
+                .addResponseInterceptorLast(countConnections(streamingUsage))
+                .build();
+
+        this.requestFactory = new HttpComponentsClientHttpRequestFactory(blockingClient);
+        this.connector = new HttpComponentsClientHttpConnector(streamingClient);
+    }
+
+    // 连接的第一个请求说明该连接是新建的；取不到连接信息的响应不计入
+    private static HttpResponseInterceptor countConnections(ConnectionUsage usage) {
+        return (response, entity, context) -> {
+            EndpointDetails endpoint = HttpCoreContext.cast(context).getEndpointDetails();
+            if (endpoint != null) {
+                (endpoint.getRequestCount() <= 1 ? usage.opened : usage.reused).increment();
+            }
+        };
+    }
+
+    /**
+     * 同步调用使用的请求工厂，供 RestClient 使用
+     */
+    public ClientHttpRequestFactory getRequestFactory() {
+        return requestFactory;
+    }
+
+    /**
+     * 流式调用使用的连接器，供 WebClient 使用
+     */
+    public ClientHttpConnector getConnector() {
+        return connector;
+    }
+
+    /**
+     * 连接池状态（已借出、空闲、等待、上限），client 为 blocking 或 streaming
+     */
+    public PoolStats getPoolStats(String client) {
+        return CLIENT_STREAMING.equals(client) ? streamingPool.getTotalStats() : blockingPool.getTotalStats();
+    }
+
+    public long getOpenedConnections(String client) {
+        return usage(client).opened.sum();
+    }
+
+    public long getReusedConnections(String client) {
+        return usage(client).reused.sum();
+    }
+
+    private ConnectionUsage usage(String client) {
+        return CLIENT_STREAMING.equals(client) ? streamingUsage : blockingUsage;
+    }
+
+    @Override
+    public void close() throws IOException {
+        blockingClient.close(CloseMode.GRACEFUL);
+        streamingClient.close(CloseMode.GRACEFUL);
+    }
+
+    private static class ConnectionUsage {
+        final LongAdder opened = new LongAdder();
+        final LongAdder reused = new LongAdder();
+    }
+
+    /**
+     * 传输层配置，时间单位均为毫秒
+     * @param maxTotal 每个连接池的连接总数上限
+     * @param maxPerRoute 每个提供方（协议+主机+端口）的连接数上限
+     * @param acquireTimeoutMs 连接池已满时等待空闲连接的时长
+     * @param idleEvictMs 空闲超过该时长的连接被关闭
+     * @param timeToLiveMs 连接的最长存活时间
+     * @param keepAliveMs 服务端未声明 Keep-Alive 时连接保持的时长
+     */
+    public record Settings(int maxTotal, int maxPerRoute, long connectTimeoutMs, long readTimeoutMs, long acquireTimeoutMs,
+                           long idleEvictMs, long timeToLiveMs, long keepAliveMs, boolean http2, boolean compression) {
+    }
+}
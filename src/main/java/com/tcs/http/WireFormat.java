@@ -0,0 +1,105 @@
+package com.tcs.http;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * 请求和响应的编码格式，响应按请求的 Accept 头选择，请求体按 Content-Type 解析
+ * 默认 JSON；客户端明确接受 application/cbor 或 application/x-jackson-smile 时使用对应的二进制编码，
+ * 字段名和字符串不再转义、数字按二进制存储，Smile 还会复用重复出现的字段名和短字符串
+ */
+public enum WireFormat {
+    JSON(MediaType.APPLICATION_JSON, "", new JsonFactory()),
+    CBOR(MediaType.APPLICATION_CBOR, "cbor", new CBORFactory()),
+    SMILE(new MediaType("application", "x-jackson-smile"), "smile",
+            SmileFactory.builder().enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES).build());
+
+    private final MediaType mediaType;
+    private final String suffix;
+    private final JsonFactory factory;
+
+    WireFormat(MediaType mediaType, String suffix, JsonFactory factory) {
+        this.mediaType = mediaType;
+        this.suffix = suffix;
+        this.factory = factory;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * 用于区分缓存键和 ETag 的后缀，JSON 为空
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * 生成该格式的 JsonGenerator 的工厂，线程安全
+     */
+    public JsonFactory getFactory() {
+        return factory;
+    }
+
+    /**
+     * 请求体的格式：没有 Content-Type 时按 JSON 处理，application/*+json 也是 JSON；
+     * 无法解析或不是支持的格式时返回 null
+     */
+    public static WireFormat fromContentType(String contentType) {
+        if (contentType == null || contentType.isBlank()) {
+            return JSON;
+        }
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        for (WireFormat format : values()) {
+            if (format.mediaType.equalsTypeAndSubtype(mediaType)) {
+                return format;
+            }
+        }
+        return "application".equalsIgnoreCase(mediaType.getType()) && mediaType.getSubtype().endsWith("+json")
+                ? JSON : null;
+    }
+
+    /**
+     * 选择 Accept 中质量值最高的格式，质量值相同时明确列出的类型优先于通配符；
+     * 没有 Accept、无法解析或都不支持时返回 JSON
+     */
+    public static WireFormat negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return JSON;
+        }
+        WireFormat best = JSON;
+        double bestScore = -1;
+        for (MediaType mediaType : mediaTypes) {
+            for (WireFormat format : values()) {
+                if (!mediaType.includes(format.mediaType)) {
+                    continue;
+                }
+                // 质量值占主要部分，明确类型加一个小于质量值精度的分数
+                double score = mediaType.getQualityValue() + (mediaType.isWildcardSubtype() ? 0 : 0.0001);
+                if (mediaType.getQualityValue() > 0 && score > bestScore) {
+                    best = format;
+                    bestScore = score;
+                }
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,223 @@
+package com.tcs.metrics;
+
+import com.tcs.repository.CharacterRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 聊天请求各阶段的指标
+ * 阶段耗时（校验、过滤、角色查找、历史记录、缓存查找、语义缓存查找、构建提示）使用固定的计时器，
+ * 模型调用耗时按角色区分（只有计数、总耗时和最大值），计时器创建后缓存，热路径上不再查找注册表；角色从目录中删除时移除对应的指标
+ */
+@Component
+public class ChatMetrics {
+    public static final String STAGE_VALIDATION = "validation";
+    public static final String STAGE_FILTER = "filter";
+    public static final String STAGE_LOOKUP = "lookup";
+    public static final String STAGE_HISTORY = "history";
+    public static final String STAGE_CACHE = "cache";
+    public static final String STAGE_SEMANTIC_CACHE = "semantic-cache";
+    public static final String STAGE_PROMPT = "prompt";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> modelTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> firstTokenTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> modelErrors = new ConcurrentHashMap<>();
+    private final Map<String, Timer> backendTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> routerCounters = new ConcurrentHashMap<>(); // 路由、请求合并和限流的计数器
+    private final List<ModelLatencyListener> modelLatencyListeners = new CopyOnWriteArrayList<>();
+    private final Counter responseCacheHits;
+    private final Counter commonResponseHits;
+    private final Counter semanticCacheHits;
+    private final Counter filteredMessages;
+    private final Counter rejectedMessages;
+
+    public ChatMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (String stage : new String[]{STAGE_VALIDATION, STAGE_FILTER, STAGE_LOOKUP, STAGE_HISTORY, STAGE_CACHE,
+                STAGE_SEMANTIC_CACHE, STAGE_PROMPT}) {
+            stageTimers.put(stage, Timer.builder("chat.stage.duration")
+                    .description("聊天请求各处理阶段的耗时")
+                    .tag("stage", stage)
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(500))
+                    .maximumExpectedValue(Duration.ofMillis(100))
+                    .register(registry));
+        }
+        this.responseCacheHits = Counter.builder("chat.requests.short-circuited").tag("source", "response-cache").register(registry);
+        this.commonResponseHits = Counter.builder("chat.requests.short-circuited").tag("source", "common-response").register(registry);
+        this.semanticCacheHits = Counter.builder("chat.requests.short-circuited").tag("source", "semantic-cache").register(registry);
+        this.filteredMessages = Counter.builder("chat.filter.messages").tag("result", "masked").register(registry);
+        this.rejectedMessages = Counter.builder("chat.filter.messages").tag("result", "rejected").register(registry);
+    }
+
+    /**
+     * 角色从目录中删除后，按角色区分的模型调用指标随之移除
+     */
+    @Autowired
+    public ChatMetrics(MeterRegistry registry, CharacterRepository characterRepository) {
+        this(registry);
+        characterRepository.addChangeListener((snapshot, changedIds) -> changedIds.stream()
+                .filter(id -> snapshot.getById(id) == null)
+                .forEach(this::removeCharacter));
+    }
+
+    public void recordStage(String stage, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次模型调用的耗时，outcome 为 success 或 error
+     * 按角色区分的计时器不发布百分位直方图，否则时间序列数随角色数成倍增长；
+     * 模型调用经过路由客户端，实际服务的后端及其延迟分布见 chat.router.backend.duration
+     */
+    public void recordModelCall(String characterId, long nanos, boolean success) {
+        String outcome = success ? "success" : "error";
+        modelTimers.computeIfAbsent(characterId + ':' + outcome, k -> Timer.builder("chat.model.duration")
+                .description("模型调用耗时")
+                .tags("character", characterId, "outcome", outcome)
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+        if (!success) {
+            modelErrors.computeIfAbsent(characterId, k -> Counter.builder("chat.model.errors")
+                    .tags("character", characterId)
+                    .register(registry)).increment();
+        }
+    }
+
+    /**
+     * 记录一个模型响应延迟样本并同步通知监听器：非流式调用为完整耗时，流式调用为收到首个分片的耗时。
+     * 流式调用的完整耗时取决于生成长度，不反映模型的处理能力，不作为样本
+     */
+    public void recordModelLatency(long nanos, boolean success) {
+        for (ModelLatencyListener listener : modelLatencyListeners) {
+            listener.onModelLatency(nanos, success);
+        }
+    }
+
+    /**
+     * 注册模型响应延迟的监听器
+     */
+    public void addModelLatencyListener(ModelLatencyListener listener) {
+        modelLatencyListeners.add(listener);
+    }
+
+    public void recordFirstToken(String characterId, long nanos) {
+        firstTokenTimers.computeIfAbsent(characterId, k -> Timer.builder("chat.stream.first-token")
+                .description("流式回复的首字延迟")
+                .tags("character", characterId)
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 删除角色的模型调用指标，从注册表和缓存中一并移除，角色删除后不再导出这些时间序列
+     */
+    public void removeCharacter(String characterId) {
+        for (String outcome : new String[]{"success", "error"}) {
+            remove(modelTimers.remove(characterId + ':' + outcome));
+        }
+        remove(modelErrors.remove(characterId));
+        remove(firstTokenTimers.remove(characterId));
+    }
+
+    private void remove(Meter meter) {
+        if (meter != null) {
+            registry.remove(meter);
+        }
+    }
+
+    /**
+     * 路由层记录的单个模型后端调用耗时
+     */
+    public void recordBackendCall(String provider, long nanos, boolean success) {
+        String outcome = success ? "success" : "error";
+        backendTimers.computeIfAbsent(provider + ':' + outcome, k -> Timer.builder("chat.router.backend.duration")
+                .description("各模型后端的调用耗时")
+                .tags("provider", provider, "outcome", outcome)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofSeconds(120))
+                .register(registry)).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void hedgeLaunched(String provider) {
+        routerCounters.computeIfAbsent("hedge:" + provider, k -> Counter.builder("chat.router.hedges")
+                .tag("provider", provider).register(registry)).increment();
+    }
+
+    public void failover(String provider) {
+        routerCounters.computeIfAbsent("failover:" + provider, k -> Counter.builder("chat.router.failovers")
+                .tag("provider", provider).register(registry)).increment();
+    }
+
+    /**
+     * 相同的进行中请求被合并，type 为 call 或 stream
+     */
+    public void requestCoalesced(String type) {
+        routerCounters.computeIfAbsent("coalesced:" + type, k -> Counter.builder("chat.singleflight.coalesced")
+                .description("与进行中的相同请求合并、未单独调用模型的请求数")
+                .tag("type", type).register(registry)).increment();
+    }
+
+    /**
+     * 请求被限流拒绝，scope 为 client、character、body-size（请求体超过大小上限）或 batch-size（批量请求的条数超过突发容量）
+     */
+    public void rateLimited(String scope) {
+        routerCounters.computeIfAbsent("ratelimit:" + scope, k -> Counter.builder("chat.ratelimit.rejected")
+                .description("因超出限流配额被拒绝的请求数")
+                .tag("scope", scope).register(registry)).increment();
+    }
+
+    /**
+     * 聊天请求超出自适应并发上限被直接拒绝
+     */
+    public void admissionRejected() {
+        routerCounters.computeIfAbsent("admission:rejected", k -> Counter.builder("chat.admission.rejected")
+                .description("超出并发上限、未进入处理的聊天请求数").register(registry)).increment();
+    }
+
+    /**
+     * 自适应并发上限发生变化，direction 为 increase 或 decrease
+     */
+    public void admissionLimitChanged(String direction) {
+        routerCounters.computeIfAbsent("admission:" + direction, k -> Counter.builder("chat.admission.limit.changes")
+                .description("聊天请求并发上限的调整次数")
+                .tag("direction", direction).register(registry)).increment();
+    }
+
+    public void responseCacheHit() {
+        responseCacheHits.increment();
+    }
+
+    public void commonResponseHit() {
+        commonResponseHits.increment();
+    }
+
+    public void semanticCacheHit() {
+        semanticCacheHits.increment();
+    }
+
+    public void messageFiltered() {
+        filteredMessages.increment();
+    }
+
+    public void messageRejected() {
+        rejectedMessages.increment();
+    }
+
+    @FunctionalInterface
+    public interface ModelLatencyListener {
+        void onModelLatency(long nanos, boolean success);
+    }
+}
@@ -0,0 +1,22 @@
+package com.tcs.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量聊天中单个请求的结果，index 为该请求在批次中的位置
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchChatItem {
+    private int index;
+    private boolean success;
+    private Message message;
+    private String error;
+
+    public static BatchChatItem of(int index, ChatResponse response) {
+        return new BatchChatItem(index, response.isSuccess(), response.getMessage(), response.getError());
+    }
+}
\ No newline at end of file
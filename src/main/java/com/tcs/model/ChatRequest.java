@@ -13,4 +13,10 @@ public class ChatRequest {
     private String characterId;
     private String message;
     private List<Message> messageHistory;
+    // 会话ID，提供时由服务端维护历史记录，客户端无需再上传 messageHistory
+    private String conversationId;
+
+    public ChatRequest(String characterId, String message, List<Message> messageHistory) {
+        this(characterId, message, messageHistory, null);
+    }
 }
\ No newline at end of file
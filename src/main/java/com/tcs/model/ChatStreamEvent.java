@@ -0,0 +1,33 @@
+package com.tcs.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 流式聊天事件：delta 为模型增量输出，done 携带完整回复，error 携带错误信息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChatStreamEvent {
+    public static final String TYPE_DELTA = "delta";
+    public static final String TYPE_DONE = "done";
+    public static final String TYPE_ERROR = "error";
+
+    private String type;
+    private String delta;
+    private ChatResponse response;
+
+    public static ChatStreamEvent delta(String delta) {
+        return new ChatStreamEvent(TYPE_DELTA, delta, null);
+    }
+
+    public static ChatStreamEvent done(ChatResponse response) {
+        return new ChatStreamEvent(TYPE_DONE, null, response);
+    }
+
+    public static ChatStreamEvent error(ChatResponse response) {
+        return new ChatStreamEvent(TYPE_ERROR, null, response);
+    }
+}
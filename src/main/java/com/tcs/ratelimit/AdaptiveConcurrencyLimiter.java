@@ -0,0 +1,151 @@
+package com.tcs.ratelimit;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 自适应并发上限（梯度算法）
+ * 以长窗口的平均延迟为基准，与短窗口的平均延迟比较：短窗口延迟超过基准的 tolerance 倍时按比例收缩上限（每次最多减半），
+ * 否则上限每个样本增长约 sqrt(limit)；新上限与旧上限按 smoothing 加权平滑，并限制在 [minLimit, maxLimit] 之内。
+ * 进行中的请求数不到上限一半时只收缩不增长，避免空闲时上限虚高。
+ * 获取许可不等待，达到上限时直接返回 false，由调用方立即拒绝请求
+ */
+public class AdaptiveConcurrencyLimiter {
+    private final Settings settings;
+    private final LimitListener listener;
+    private final double shortAlpha;
+    private final double longAlpha;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+    // 以下字段在 onSample 中加锁更新
+    private double estimatedLimit;
+    private double shortRtt; // 纳秒，0 表示还没有样本
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(Settings settings, LimitListener listener) {
+        if (settings.minLimit() <= 0 || settings.maxLimit() < settings.minLimit()) {
+            throw new IllegalArgumentException("并发上限范围无效: [" + settings.minLimit() + ", " + settings.maxLimit() + "]");
+        }
+        if (settings.smoothing() <= 0 || settings.smoothing() > 1 || settings.tolerance() < 1) {
+            throw new IllegalArgumentException("smoothing 必须在 (0, 1] 之间，tolerance 不能小于1");
+        }
+        this.settings = settings;
+        this.listener = listener;
+        this.shortAlpha = 2.0 / (Math.max(1, settings.shortWindow()) + 1);
+        this.longAlpha = 2.0 / (Math.max(settings.shortWindow(), settings.longWindow()) + 1);
+        this.estimatedLimit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(), settings.initialLimit()));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * 进行中的请求数未达到上限时占用一个许可，成功后调用方必须调用 release
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 占用 permits 个许可，占用后不超过上限时成功，成功后调用方必须以相同的数量调用 release。
+     * permits 超过当前上限时只在没有进行中的请求时成功，不会一直被拒绝
+     */
+    public boolean tryAcquire(int permits) {
+        while (true) {
+            int current = inFlight.get();
+            if (current > 0 && current + permits > limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + permits)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        release(1);
+    }
+
+    public void release(int permits) {
+        inFlight.addAndGet(-permits);
+    }
+
+    /**
+     * 记录一次下游调用的耗时并调整上限，返回调整后的上限
+     */
+    public synchronized int onSample(long rttNanos, boolean success) {
+        if (rttNanos <= 0) {
+            return limit;
+        }
+        if (longRtt == 0) {
+            shortRtt = rttNanos;
+            longRtt = rttNanos;
+            return limit;
+        }
+        // 快速失败（参数错误、连接被拒绝等）不反映下游的处理能力，只采样比基准更慢的失败（通常是超时）
+        if (!success && rttNanos < longRtt) {
+            return limit;
+        }
+        shortRtt += shortAlpha * (rttNanos - shortRtt);
+        longRtt += longAlpha * (rttNanos - longRtt);
+        // 下游从变慢中恢复后基准仍偏高，加快回落，否则下一次变慢要很久才能察觉
+        if (longRtt > shortRtt * 2) {
+            longRtt *= 0.95;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, settings.tolerance() * longRtt / shortRtt));
+        if (gradient >= 1.0 && inFlight.get() < estimatedLimit / 2) {
+            return limit;
+        }
+        // 延迟正常时加性增长，超过容忍倍数时按梯度乘性收缩
+        double next = gradient < 1.0 ? estimatedLimit * gradient : estimatedLimit + Math.sqrt(estimatedLimit);
+        next = estimatedLimit * (1 - settings.smoothing()) + next * settings.smoothing();
+        estimatedLimit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(), next));
+
+        int previous = limit;
+        int updated = (int) estimatedLimit;
+        if (updated != previous) {
+            limit = updated;
+            listener.onLimitChange(previous, updated);
+        }
+        return updated;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 短窗口的平均延迟（毫秒）
+     */
+    public synchronized double getShortRttMillis() {
+        return shortRtt / 1_000_000.0;
+    }
+
+    /**
+     * 作为基准的长窗口平均延迟（毫秒）
+     */
+    public synchronized double getLongRttMillis() {
+        return longRtt / 1_000_000.0;
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * @param initialLimit 没有样本时的初始上限
+     * @param smoothing    每个样本对上限的调整权重，越大调整越快
+     * @param tolerance    短窗口延迟超过基准的该倍数后才收缩上限
+     * @param shortWindow  短窗口的样本数
+     * @param longWindow   长窗口（基准）的样本数
+     */
+    public record Settings(int initialLimit, int minLimit, int maxLimit, double smoothing, double tolerance,
+                           int shortWindow, int longWindow) {
+    }
+
+    @FunctionalInterface
+    public interface LimitListener {
+        void onLimitChange(int previous, int updated);
+    }
+}
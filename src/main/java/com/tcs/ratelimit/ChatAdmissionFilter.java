@@ -0,0 +1,169 @@
+package com.tcs.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcs.metrics.ChatMetrics;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 聊天接口的准入控制，聊天请求使用独立的并发隔离区
+ * 同时处理中的聊天请求数受 AdaptiveConcurrencyLimiter 限制，上限随模型的响应延迟自动收缩和恢复，
+ * 超出上限的请求不排队、不读取请求体，直接返回 503 和 Retry-After，
+ * 模型变慢时聊天请求不会占满处理线程，角色列表和健康检查等接口不受影响。
+ * 流式和异步请求在异步处理结束后才归还许可；在限流过滤器之前执行，被拒绝的请求不消耗限流配额。
+ * 批量请求同时发起的模型调用最多为 chat.batch.parallelism 个，按这个数量占用许可；
+ * 准入时不读取请求体，条数少于并发数的批量请求也按最大并发计算
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ChatAdmissionFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(ChatAdmissionFilter.class);
+
+    private final boolean enabled;
+    private final long retryAfterSeconds;
+    private final int batchPermits;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final ChatMetrics chatMetrics;
+    private final ObjectMapper objectMapper;
+
+    public ChatAdmissionFilter(ChatMetrics chatMetrics, ObjectMapper objectMapper,
+                               @Value("${chat.admission.enabled:true}") boolean enabled,
+                               @Value("${chat.admission.initial-limit:20}") int initialLimit,
+                               @Value("${chat.admission.min-limit:4}") int minLimit,
+                               @Value("${chat.admission.max-limit:64}") int maxLimit,
+                               @Value("${chat.admission.smoothing:0.2}") double smoothing,
+                               @Value("${chat.admission.tolerance:1.5}") double tolerance,
+                               @Value("${chat.admission.short-window:10}") int shortWindow,
+                               @Value("${chat.admission.long-window:600}") int longWindow,
+                               @Value("${chat.admission.retry-after-seconds:1}") long retryAfterSeconds,
+                               @Value("${chat.batch.parallelism:8}") int batchParallelism) {
+        this.chatMetrics = chatMetrics;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.batchPermits = Math.max(1, batchParallelism);
+        this.limiter = new AdaptiveConcurrencyLimiter(new AdaptiveConcurrencyLimiter.Settings(initialLimit, minLimit,
+                maxLimit, smoothing, tolerance, shortWindow, longWindow), this::limitChanged);
+        if (enabled) {
+            // 上限由模型的响应延迟驱动（非流式调用的耗时、流式调用的首字延迟），缓存命中等不调用模型的请求不参与采样
+            chatMetrics.addModelLatencyListener(limiter::onSample);
+            logger.info("聊天请求准入控制已开启，初始并发上限: {}，范围: [{}, {}]", limiter.getLimit(), minLimit, maxLimit);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"POST".equals(request.getMethod()) || !request.getRequestURI().startsWith("/api/chat");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        int permits = request.getRequestURI().startsWith("/api/chat/batch") ? batchPermits : 1;
+        if (!limiter.tryAcquire(permits)) {
+            chatMetrics.admissionRejected();
+            reject(request, response);
+            return;
+        }
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                // 异步处理结束（完成、出错或超时）时归还许可
+                request.getAsyncContext().addListener(new ReleaseListener(permits));
+                async = true;
+            }
+        } finally {
+            if (!async) {
+                limiter.release(permits);
+            }
+        }
+    }
+
+    private void limitChanged(int previous, int updated) {
+        chatMetrics.admissionLimitChanged(updated > previous ? "increase" : "decrease");
+        logger.debug("聊天请求并发上限调整: {} -> {}，短窗口延迟: {}ms，基准延迟: {}ms", previous, updated,
+                Math.round(limiter.getShortRttMillis()), Math.round(limiter.getLongRttMillis()));
+    }
+
+    public AdaptiveConcurrencyLimiter getLimiter() {
+        return limiter;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", new Date());
+        body.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        body.put("error", HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase());
+        body.put("message", "当前请求过多，请稍后再试");
+        body.put("path", request.getRequestURI());
+
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    // 出错和超时之后还会收到完成事件，许可只归还一次
+    private class ReleaseListener implements AsyncListener {
+        private final int permits;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ReleaseListener(int permits) {
+            this.permits = permits;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // 再次开始异步处理时监听器被移除，需要重新注册
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(permits);
+            }
+        }
+    }
+}
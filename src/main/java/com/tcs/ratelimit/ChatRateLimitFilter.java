@@ -0,0 +1,327 @@
+package com.tcs.ratelimit;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcs.http.WireFormat;
+import com.tcs.metrics.ChatMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 聊天接口的限流过滤器，在请求进入 ChatController 之前执行
+ * 请求体按 Content-Type 以 JSON、CBOR 或 Smile 解析，其他格式返回 415；请求体先按大小上限读出（单个请求 max-item-bytes，批量请求再乘以批量上限），超出时返回 413；
+ * 每个请求先扣除客户端的令牌，再扣除“客户端+角色”的令牌（批量请求按每个角色的请求数扣除），
+ * 任一桶不足时退还已扣除的令牌并返回 429 和 Retry-After；需要的令牌超过突发容量（批量请求的条数超过 burst）时等待也不会成功，直接返回 413；
+ * 客户端默认按来源地址区分；只有开启 trust-client-header（例如网关已校验并覆盖该请求头）时才使用请求头（默认 X-Client-Id），
+ * 否则任何调用方都可以每次换一个标识拿到新的令牌桶
+ */
+@Component
+public class ChatRateLimitFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(ChatRateLimitFilter.class);
+    public static final String HEADER_LIMIT = "X-RateLimit-Limit";
+    public static final String HEADER_REMAINING = "X-RateLimit-Remaining";
+
+    private final boolean enabled;
+    private final String clientHeader;
+    private final boolean trustClientHeader;
+    private final RateLimiter clientLimiter;
+    private final RateLimiter characterLimiter;
+    private final int maxItemBytes;
+    private final int maxBatchBytes;
+    private final ChatMetrics chatMetrics;
+    private final ObjectMapper objectMapper;
+
+    public ChatRateLimitFilter(ChatMetrics chatMetrics, ObjectMapper objectMapper,
+                               @Value("${chat.ratelimit.enabled:true}") boolean enabled,
+                               @Value("${chat.ratelimit.client-header:X-Client-Id}") String clientHeader,
+                               @Value("${chat.ratelimit.trust-client-header:false}") boolean trustClientHeader,
+                               @Value("${chat.ratelimit.client.per-minute:60}") double clientPerMinute,
+                               @Value("${chat.ratelimit.client.burst:20}") int clientBurst,
+                               @Value("${chat.ratelimit.character.per-minute:30}") double characterPerMinute,
+                               @Value("${chat.ratelimit.character.burst:10}") int characterBurst,
+                               @Value("${chat.ratelimit.max-keys:100000}") int maxKeys,
+                               @Value("${chat.ratelimit.max-item-bytes:16384}") int maxItemBytes,
+                               @Value("${chat.batch.max-size:1000}") int batchMaxSize) {
+        this.chatMetrics = chatMetrics;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.clientHeader = clientHeader;
+        this.trustClientHeader = trustClientHeader;
+        this.clientLimiter = new RateLimiter(clientPerMinute / 60.0, clientBurst, maxKeys);
+        this.characterLimiter = new RateLimiter(characterPerMinute / 60.0, characterBurst, maxKeys);
+        this.maxItemBytes = maxItemBytes;
+        this.maxBatchBytes = (int) Math.min(Integer.MAX_VALUE - 8, (long) maxItemBytes * batchMaxSize);
+        if (enabled && batchMaxSize > clientBurst) {
+            logger.info("开启限流时批量请求最多包含 {} 条聊天（客户端突发容量），同一角色最多 {} 条，超出时返回 413",
+                    clientBurst, characterBurst);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // 只限制聊天请求，预检和其他接口不受影响
+        return !enabled || !"POST".equals(request.getMethod()) || !request.getRequestURI().startsWith("/api/chat");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        // 控制器也接受 CBOR 和 Smile，按相同的格式解析角色ID；无法解析的格式不放行，避免绕过按角色的限流
+        WireFormat format = WireFormat.fromContentType(request.getContentType());
+        if (format == null) {
+            writeError(request, response, HttpStatus.UNSUPPORTED_MEDIA_TYPE, "不支持的请求体格式: " + request.getContentType());
+            return;
+        }
+        // 角色ID在请求体中，先读出请求体，再交给后续处理重复读取；声明的长度或实际读到的字节超过上限时不再继续读取
+        int maxBytes = request.getRequestURI().startsWith("/api/chat/batch") ? maxBatchBytes : maxItemBytes;
+        if (request.getContentLengthLong() > maxBytes) {
+            tooLarge(request, response, maxBytes);
+            return;
+        }
+        byte[] body = request.getInputStream().readNBytes(maxBytes + 1);
+        if (body.length > maxBytes) {
+            tooLarge(request, response, maxBytes);
+            return;
+        }
+        Map<String, Integer> characterCounts = countCharacters(body, format);
+        int permits = 0;
+        for (int count : characterCounts.values()) {
+            permits += count;
+        }
+        permits = Math.max(permits, 1);
+        // 超过突发容量的请求等多久都不会被放行，直接拒绝，不返回 Retry-After
+        String overBurst = exceedsBurst(permits, characterCounts);
+        if (overBurst != null) {
+            chatMetrics.rateLimited("batch-size");
+            writeError(request, response, HttpStatus.PAYLOAD_TOO_LARGE, overBurst);
+            return;
+        }
+
+        String client = clientId(request);
+        long now = System.nanoTime();
+        TokenBucket clientBucket = clientLimiter.bucket(client, now);
+        long remaining = clientBucket.tryAcquire(permits, now);
+        if (remaining < 0) {
+            chatMetrics.rateLimited("client");
+            reject(request, response, -remaining);
+            return;
+        }
+
+        // 逐个扣除角色的令牌，失败时退还本次请求已扣除的全部令牌
+        TokenBucket[] acquired = new TokenBucket[characterCounts.size()];
+        int[] acquiredPermits = new int[acquired.length];
+        int n = 0;
+        for (Map.Entry<String, Integer> entry : characterCounts.entrySet()) {
+            TokenBucket bucket = characterLimiter.bucket(client + '|' + entry.getKey(), now);
+            long left = bucket.tryAcquire(entry.getValue(), now);
+            if (left < 0) {
+                clientBucket.release(permits, now);
+                for (int i = 0; i < n; i++) {
+                    acquired[i].release(acquiredPermits[i], now);
+                }
+                chatMetrics.rateLimited("character");
+                reject(request, response, -left);
+                return;
+            }
+            acquired[n] = bucket;
+            acquiredPermits[n++] = entry.getValue();
+            remaining = Math.min(remaining, left);
+        }
+
+        response.setHeader(HEADER_LIMIT, String.valueOf(clientLimiter.getBurst()));
+        response.setHeader(HEADER_REMAINING, String.valueOf(remaining));
+        filterChain.doFilter(new CachedBodyRequest(request, body), response);
+    }
+
+    // 请求需要的令牌超过客户端或某个角色的突发容量时返回错误信息，否则返回 null
+    private String exceedsBurst(int permits, Map<String, Integer> characterCounts) {
+        if (permits > clientLimiter.getBurst()) {
+            return "单次请求最多包含 " + clientLimiter.getBurst() + " 条聊天，请拆分批量请求";
+        }
+        for (Map.Entry<String, Integer> entry : characterCounts.entrySet()) {
+            if (entry.getValue() > characterLimiter.getBurst()) {
+                return "单次请求中同一角色最多包含 " + characterLimiter.getBurst() + " 条聊天，请拆分批量请求";
+            }
+        }
+        return null;
+    }
+
+    // 定期移除已补满的令牌桶
+    @Scheduled(fixedDelayString = "${chat.ratelimit.evict-interval-ms:60000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        int evicted = clientLimiter.evictIdle(now) + characterLimiter.evictIdle(now);
+        if (evicted > 0) {
+            logger.debug("清理空闲的限流令牌桶 {} 个", evicted);
+        }
+    }
+
+    public int getBucketCount() {
+        return clientLimiter.size() + characterLimiter.size();
+    }
+
+    private String clientId(HttpServletRequest request) {
+        String id = trustClientHeader ? request.getHeader(clientHeader) : null;
+        return id == null || id.isEmpty() ? request.getRemoteAddr() : id;
+    }
+
+    /**
+     * 统计请求体中各角色的请求数：单个请求为对象，批量请求为对象数组；
+     * 只扫描顶层的 characterId 字段，无法解析时返回空，由控制器返回参数错误
+     */
+    Map<String, Integer> countCharacters(byte[] body, WireFormat format) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        if (body.length == 0) {
+            return counts;
+        }
+        try (JsonParser parser = format.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                countObject(parser, counts);
+            } else if (token == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    countObject(parser, counts);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("限流时解析请求体失败: {}", e.getMessage());
+        }
+        return counts;
+    }
+
+    private static void countObject(JsonParser parser, Map<String, Integer> counts) throws IOException {
+        String characterId = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("characterId".equals(field) && value == JsonToken.VALUE_STRING) {
+                characterId = parser.getText();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        if (characterId != null && !characterId.isEmpty()) {
+            counts.merge(characterId, 1, Integer::sum);
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setHeader(HEADER_LIMIT, String.valueOf(clientLimiter.getBurst()));
+        response.setHeader(HEADER_REMAINING, "0");
+        writeError(request, response, HttpStatus.TOO_MANY_REQUESTS, "请求过于频繁，请在 " + retryAfterSeconds + " 秒后重试");
+    }
+
+    private void tooLarge(HttpServletRequest request, HttpServletResponse response, int maxBytes) throws IOException {
+        chatMetrics.rateLimited("body-size");
+        // 请求体没有读完，响应后关闭连接
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        writeError(request, response, HttpStatus.PAYLOAD_TOO_LARGE, "请求体不能超过 " + maxBytes + " 字节");
+    }
+
+    private void writeError(HttpServletRequest request, HttpServletResponse response, HttpStatus status,
+                            String message) throws IOException {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("timestamp", new Date());
+        body.put("status", status.value());
+        body.put("error", status.getReasonPhrase());
+        body.put("message", message);
+        body.put("path", request.getRequestURI());
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    /**
+     * 请求体已被读出的请求，后续的读取从缓存的字节返回
+     */
+    private static class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            ByteArrayInputStream in = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return in.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    // 请求体已全部缓存，直接通知读取完成
+                    try {
+                        listener.onAllDataRead();
+                    } catch (IOException e) {
+                        listener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return in.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return in.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding == null ? StandardCharsets.UTF_8 : Charset.forName(encoding)));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.tcs.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 按键（客户端、客户端+角色等）划分的令牌桶集合
+ * 已经补满的桶与新建的桶等价，定期清理时直接移除；桶的数量达到上限时，新出现的键在下一次定期清理之前共用一个溢出桶，
+ * 内存占用有上界，请求线程上不做全量扫描
+ */
+public class RateLimiter {
+    private final double ratePerSecond;
+    private final int burst;
+    private final int maxKeys;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final TokenBucket overflow;
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    public RateLimiter(double ratePerSecond, int burst, int maxKeys) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxKeys = maxKeys;
+        this.overflow = new TokenBucket(ratePerSecond, burst, System.nanoTime());
+    }
+
+    /**
+     * 返回键对应的令牌桶，不存在时创建（初始为满）
+     */
+    public TokenBucket bucket(String key, long nowNanos) {
+        TokenBucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            return overflow;
+        }
+        return buckets.computeIfAbsent(key, k -> new TokenBucket(ratePerSecond, burst, nowNanos));
+    }
+
+    /**
+     * 移除已经补满的桶，返回移除的数量；同一时间只有一个线程执行清理
+     */
+    public int evictIdle(long nowNanos) {
+        if (!evicting.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            int before = buckets.size();
+            buckets.values().removeIf(bucket -> bucket.isFull(nowNanos));
+            return before - buckets.size();
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    public int size() {
+        return buckets.size();
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+}
@@ -0,0 +1,77 @@
+package com.tcs.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶，按 GCRA（通用信元速率算法）实现
+ * 桶的全部状态是一个“理论到达时间”，每次获取令牌把它向后推进 permits 个发放间隔，
+ * 超出突发容量时拒绝；获取和退还都只做一次 CAS，不分配对象
+ */
+public final class TokenBucket {
+    private final long intervalNanos;
+    private final long capacityNanos;
+    private final AtomicLong theoreticalArrival;
+
+    /**
+     * @param ratePerSecond 每秒补充的令牌数
+     * @param burst 突发容量（桶的大小）
+     * @param nowNanos 当前时间，桶初始为满
+     */
+    public TokenBucket(double ratePerSecond, int burst, long nowNanos) {
+        if (ratePerSecond <= 0 || burst <= 0) {
+            throw new IllegalArgumentException("令牌速率和突发容量必须大于0");
+        }
+        this.intervalNanos = Math.max(1, (long) (1_000_000_000L / ratePerSecond));
+        this.capacityNanos = intervalNanos * burst;
+        this.theoreticalArrival = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * 尝试获取令牌
+     * permits 超过突发容量时总是失败，调用方应先检查
+     * @return 成功时返回剩余的令牌数（大于等于0）；失败时返回负数，其绝对值为需要等待的纳秒数
+     */
+    public long tryAcquire(int permits, long nowNanos) {
+        long increment = intervalNanos * permits;
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long base = tat - nowNanos > 0 ? tat : nowNanos;
+            long next = base + increment;
+            long backlog = next - nowNanos;
+            if (backlog > capacityNanos) {
+                return -Math.max(1, backlog - capacityNanos);
+            }
+            if (theoreticalArrival.compareAndSet(tat, next)) {
+                return (capacityNanos - backlog) / intervalNanos;
+            }
+        }
+    }
+
+    /**
+     * 退还已获取的令牌，用于同一请求的后续检查失败时
+     */
+    public void release(int permits, long nowNanos) {
+        long decrement = intervalNanos * permits;
+        while (true) {
+            long tat = theoreticalArrival.get();
+            long next = tat - decrement;
+            if (next - nowNanos < 0) {
+                next = nowNanos;
+            }
+            if (next == tat || theoreticalArrival.compareAndSet(tat, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 桶在 nowNanos 时是否已经补满，补满的桶与新建的桶等价，可以回收
+     */
+    public boolean isFull(long nowNanos) {
+        return theoreticalArrival.get() - nowNanos <= 0;
+    }
+
+    public int getBurst() {
+        return (int) (capacityNanos / intervalNanos);
+    }
+}
@@ -0,0 +1,157 @@
+package com.tcs.repository;
+
+import com.tcs.model.Character;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 角色目录的不可变快照
+ * 构建时一次性生成按ID、按分类和按名称前缀的索引，构建完成后只读，可以被任意线程无锁访问；
+ * 目录变化时构建新的快照整体替换。角色列表和分类列表均按ID排序，便于按ID做游标分页
+ */
+public final class CatalogSnapshot {
+    private static final CatalogSnapshot EMPTY = new CatalogSnapshot(0, List.of());
+
+    private final long version;
+    // 目录内容的指纹，内容相同的目录在不同实例上指纹相同，用于生成 ETag
+    private final long fingerprint;
+    private final List<Character> characters;
+    private final Map<String, Character> byId;
+    private final Map<String, List<Character>> byCategory;
+    private final Set<String> categories;
+    // 名称前缀索引：按规范化名称排序的并行数组
+    private final String[] sortedNames;
+    private final Character[] sortedByName;
+
+    public CatalogSnapshot(long version, Collection<Character> characters) {
+        this.version = version;
+        Map<String, Character> ids = new HashMap<>(Math.max(16, characters.size() * 4 / 3 + 1));
+        for (Character character : characters) {
+            if (character != null && character.getId() != null) {
+                ids.put(character.getId(), character);
+            }
+        }
+        this.byId = Collections.unmodifiableMap(ids);
+        Character[] sorted = ids.values().toArray(new Character[0]);
+        Arrays.sort(sorted, Comparator.comparing(Character::getId));
+        this.characters = List.of(sorted);
+
+        long hash = 1125899906842597L;
+        for (Character character : sorted) {
+            hash = 31 * hash + character.hashCode();
+        }
+        this.fingerprint = hash;
+
+        Map<String, List<Character>> categoryIndex = new LinkedHashMap<>();
+        for (Character character : this.characters) {
+            if (character.getCategory() != null) {
+                categoryIndex.computeIfAbsent(character.getCategory(), k -> new ArrayList<>()).add(character);
+            }
+        }
+        Map<String, List<Character>> frozen = new HashMap<>(Math.max(16, categoryIndex.size() * 4 / 3 + 1));
+        categoryIndex.forEach((category, list) -> frozen.put(category, List.copyOf(list)));
+        this.byCategory = Collections.unmodifiableMap(frozen);
+        this.categories = Collections.unmodifiableSet(new LinkedHashSet<>(categoryIndex.keySet()));
+
+        Character[] named = this.characters.stream()
+                .filter(c -> c.getName() != null)
+                .sorted(Comparator.comparing(c -> normalizeName(c.getName())))
+                .toArray(Character[]::new);
+        this.sortedByName = named;
+        this.sortedNames = new String[named.length];
+        for (int i = 0; i < named.length; i++) {
+            sortedNames[i] = normalizeName(named[i].getName());
+        }
+    }
+
+    public static CatalogSnapshot empty() {
+        return EMPTY;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public List<Character> getCharacters() {
+        return characters;
+    }
+
+    public Character getById(String id) {
+        return byId.get(id);
+    }
+
+    public Map<String, Character> getCharacterMap() {
+        return byId;
+    }
+
+    public List<Character> getByCategory(String category) {
+        return byCategory.getOrDefault(category, List.of());
+    }
+
+    public Set<String> getCategories() {
+        return categories;
+    }
+
+    public int size() {
+        return characters.size();
+    }
+
+    /**
+     * 按名称前缀查找（忽略大小写），结果按名称排序，最多返回 limit 个
+     */
+    public List<Character> findByNamePrefix(String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String key = normalizeName(prefix);
+        int index = Arrays.binarySearch(sortedNames, key);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        List<Character> result = new ArrayList<>(Math.min(limit, 16));
+        while (index < sortedNames.length && result.size() < limit && sortedNames[index].startsWith(key)) {
+            result.add(sortedByName[index++]);
+        }
+        return result;
+    }
+
+    /**
+     * 在按ID排序的列表中取 afterId 之后的最多 limit 个角色，afterId 为空时从头开始
+     */
+    public static List<Character> pageAfter(List<Character> sortedById, String afterId, int limit) {
+        int from = 0;
+        if (afterId != null) {
+            int low = 0;
+            int high = sortedById.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedById.get(mid).getId().compareTo(afterId) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            from = low;
+        }
+        return sortedById.subList(from, Math.min(sortedById.size(), from + Math.max(0, limit)));
+    }
+
+    static String normalizeName(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,41 @@
+package com.tcs.repository;
+
+import com.tcs.model.Character;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 角色目录的数据来源，由 chat.catalog.source 选择内置数据、本地文件或数据库
+ */
+public interface CatalogSource {
+
+    String getName();
+
+    /**
+     * 全量加载所有角色，同时记录增量加载的起点
+     */
+    List<Character> loadAll() throws Exception;
+
+    /**
+     * 加载上次加载之后的变更；默认不支持增量，返回无变更
+     */
+    default Changes loadChanges() throws Exception {
+        return Changes.NONE;
+    }
+
+    /**
+     * 目录变更：full 为 true 时 upserts 是完整的新目录，否则只包含新增或修改的角色和被删除的ID
+     */
+    record Changes(boolean full, List<Character> upserts, Set<String> deletedIds) {
+        public static final Changes NONE = new Changes(false, List.of(), Set.of());
+
+        public static Changes full(List<Character> characters) {
+            return new Changes(true, characters, Set.of());
+        }
+
+        public boolean isEmpty() {
+            return !full && upserts.isEmpty() && deletedIds.isEmpty();
+        }
+    }
+}
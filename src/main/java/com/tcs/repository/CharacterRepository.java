@@ -1,109 +1,50 @@
 package com.tcs.repository;
 
 import com.tcs.model.Character;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * 角色目录
+ * 读取操作只访问当前的不可变快照，无需加锁；重新加载时在后台构建新快照，
+ * 整体替换后通知监听器，正在进行的读取继续使用旧快照
+ */
 @Repository
 public class CharacterRepository {
     private static final Logger logger = LoggerFactory.getLogger(CharacterRepository.class);
 
-    // 预定义角色数据
-    private final Map<String, Character> characters = new HashMap<>();
-    private final Map<String, List<Character>> charactersByCategory = new HashMap<>();
+    private final CatalogSource source;
+    private volatile CatalogSnapshot snapshot = CatalogSnapshot.empty();
+    // 目录变化监听器，参数为新快照和发生变化（新增、修改或删除）的角色ID
+    private final List<BiConsumer<CatalogSnapshot, Set<String>>> listeners = new CopyOnWriteArrayList<>();
 
     public CharacterRepository() {
-        logger.info("初始化角色数据...");
-        // 初始化角色数据
-        addCharacter(new Character(
-                "harry-potter",
-                "哈利波特",
-                "/avatars/harry-potter.png",
-                "文学角色",
-                "哈利波特是J.K.罗琳创作的奇幻小说系列《哈利波特》的主角。他是一个年轻的巫师，在霍格沃茨魔法学校学习魔法，并与黑魔王伏地魔展开了一系列的战斗。",
-                "勇敢、忠诚、有责任感、好奇心强。作为格兰芬多学院的学生，他总是愿意为朋友冒险，并且有着强烈的正义感。"
-        ));
-
-        addCharacter(new Character(
-                "socrates",
-                "苏格拉底",
-                "/avatars/socrates.png",
-                "历史人物",
-                "苏格拉底是古希腊著名的哲学家，被认为是西方哲学的奠基人之一。他没有留下任何著作，但他的思想通过他的学生柏拉图的对话录流传下来。",
-                "善于提问、追求真理、质疑权威。他使用辩证法（问答法）来探索哲学问题，鼓励人们通过批判性思维来接近真理。"
-        ));
-
-        addCharacter(new Character(
-                "einstein",
-                "爱因斯坦",
-                "/avatars/einstein.png",
-                "科学家",
-                "阿尔伯特·爱因斯坦是20世纪最著名的物理学家，相对论的创始人。他的理论彻底改变了我们对时间、空间、引力和宇宙的理解。",
-                "富有创造力、好奇心强、热爱思考、追求简洁。他相信想象力比知识更重要，并且总是试图用简单的理论来解释复杂的自然现象。"
-        ));
-
-        addCharacter(new Character(
-                "shakespeare",
-                "莎士比亚",
-                "/avatars/shakespeare.png",
-                "文学家",
-                "威廉·莎士比亚是英国文艺复兴时期最伟大的剧作家和诗人，被广泛认为是世界文学史上最伟大的作家之一。他的作品包括38部戏剧、154首十四行诗和几首长诗。",
-                "富有诗意、善于观察人性、语言天赋极高。他的作品深刻探索了人类的情感、道德和社会问题，展现了人性的复杂性和多样性。"
-        ));
-
-        // 添加更多角色
-        addCharacter(new Character(
-                "marie-curie",
-                "居里夫人",
-                "/avatars/marie-curie.png",
-                "科学家",
-                "玛丽·居里是一位波兰裔法国物理学家和化学家，是首位获得诺贝尔奖的女性，也是唯一一位在两个不同科学领域获得诺贝尔奖的人。",
-                "坚韧不拔、专注、谦虚、热爱科学。她为了科学研究奉献了一生，对放射性的研究为现代医学和物理学奠定了基础。"
-        ));
-
-        addCharacter(new Character(
-                "confucius",
-                "孔子",
-                "/avatars/confucius.png",
-                "哲学家",
-                "孔子是中国古代著名的思想家、教育家和政治家，儒家学派的创始人。他的思想对中国和东亚文化产生了深远的影响。",
-                "睿智、温和、注重道德修养、强调社会和谐。他的教导强调仁、义、礼、智、信等美德，主张通过自我修养和教育来改善社会。"
-        ));
-
-        addCharacter(new Character(
-                "leonardo",
-                "达芬奇",
-                "/avatars/leonardo.png",
-                "艺术家/科学家",
-                "列奥纳多·达·芬奇是意大利文艺复兴时期的艺术家、科学家、发明家、工程师和数学家，被认为是历史上最全面发展的人才之一。",
-                "多才多艺、好奇心极强、善于观察、富有创造力。他在绘画、雕塑、建筑、音乐、数学、工程学等多个领域都有杰出贡献。"
-        ));
-
-        addCharacter(new Character(
-                "maya",
-                "玛雅祭司",
-                "/avatars/maya-priest.png",
-                "历史人物",
-                "玛雅祭司是玛雅文明中的知识精英，负责天文观测、历法制定、宗教仪式和文字记录。玛雅文明在天文、数学和建筑方面取得了令人惊叹的成就。",
-                "神秘、智慧、严谨、富有洞察力。玛雅祭司通过观察天象来预测季节变化和指导农业生产，同时也是玛雅文化和知识的守护者。"
-        ));
-
-        logger.info("成功初始化 {} 个角色", characters.size());
+        this(new BuiltinCatalogSource());
     }
 
-    // 添加角色并按分类组织
-    private void addCharacter(Character character) {
-        characters.put(character.getId(), character);
-        charactersByCategory.computeIfAbsent(character.getCategory(), k -> new ArrayList<>()).add(character);
+    @Autowired
+    public CharacterRepository(CatalogSource source) {
+        this.source = source;
+        logger.info("初始化角色数据，来源: {}", source.getName());
+        try {
+            snapshot = new CatalogSnapshot(1, source.loadAll());
+        } catch (Exception e) {
+            throw new IllegalStateException("加载角色目录失败: " + source.getName(), e);
+        }
+        logger.info("成功初始化 {} 个角色", snapshot.size());
     }
 
     // 获取所有角色列表
     public List<Character> getAllCharacters() {
         logger.debug("获取所有角色列表");
-        return new ArrayList<>(characters.values());
+        return snapshot.getCharacters();
     }
 
     // 根据ID获取角色信息
@@ -113,7 +54,7 @@ public class CharacterRepository {
             return null;
         }
         logger.debug("根据ID获取角色: {}", id);
-        return characters.get(id);
+        return snapshot.getById(id);
     }
 
     // 根据分类获取角色
@@ -123,12 +64,107 @@ public class CharacterRepository {
             return getAllCharacters();
         }
         logger.debug("根据分类获取角色: {}", category);
-        return charactersByCategory.getOrDefault(category, Collections.emptyList());
+        return snapshot.getByCategory(category);
     }
 
     // 获取所有角色分类
     public Set<String> getAllCategories() {
         logger.debug("获取所有角色分类");
-        return charactersByCategory.keySet();
+        return snapshot.getCategories();
+    }
+
+    // 按名称前缀查找角色（忽略大小写）
+    public List<Character> findByNamePrefix(String prefix, int limit) {
+        return snapshot.findByNamePrefix(prefix, limit);
+    }
+
+    /**
+     * 当前快照，需要在一次请求中多次读取目录时应先取得快照，保证读到的数据一致
+     */
+    public CatalogSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public long getVersion() {
+        return snapshot.getVersion();
+    }
+
+    public void addChangeListener(BiConsumer<CatalogSnapshot, Set<String>> listener) {
+        listeners.add(listener);
+    }
+
+    // 定期从数据源加载变更
+    @Scheduled(fixedDelayString = "${chat.catalog.reload-interval-ms:30000}")
+    public void reloadIfChanged() {
+        try {
+            CatalogSource.Changes changes = source.loadChanges();
+            if (!changes.isEmpty()) {
+                apply(changes);
+            }
+        } catch (Exception e) {
+            logger.warn("加载角色目录变更失败，继续使用当前目录: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从数据源全量重新加载
+     */
+    public void reload() {
+        try {
+            apply(CatalogSource.Changes.full(source.loadAll()));
+        } catch (Exception e) {
+            logger.error("重新加载角色目录失败，继续使用当前目录: {}", e.getMessage());
+        }
+    }
+
+    // 写操作串行执行：在当前快照的副本上合并变更，构建新快照后整体替换
+    synchronized void apply(CatalogSource.Changes changes) {
+        CatalogSnapshot current = snapshot;
+        Map<String, Character> merged;
+        Set<String> changedIds = new HashSet<>();
+        if (changes.full()) {
+            merged = new LinkedHashMap<>();
+            for (Character character : changes.upserts()) {
+                merged.put(character.getId(), character);
+            }
+            for (Character character : current.getCharacters()) {
+                if (!character.equals(merged.get(character.getId()))) {
+                    changedIds.add(character.getId());
+                }
+            }
+            for (Character character : merged.values()) {
+                if (current.getById(character.getId()) == null) {
+                    changedIds.add(character.getId());
+                }
+            }
+        } else {
+            merged = new LinkedHashMap<>(current.getCharacterMap());
+            for (Character character : changes.upserts()) {
+                // 内容未变的行（例如增量查询边界上重复读到的行）不产生新版本
+                if (!character.equals(merged.put(character.getId(), character))) {
+                    changedIds.add(character.getId());
+                }
+            }
+            for (String id : changes.deletedIds()) {
+                if (merged.remove(id) != null) {
+                    changedIds.add(id);
+                }
+            }
+        }
+        if (changedIds.isEmpty()) {
+            return;
+        }
+
+        CatalogSnapshot next = new CatalogSnapshot(current.getVersion() + 1, merged.values());
+        snapshot = next;
+        logger.info("角色目录已更新到版本 {}，共 {} 个角色，变化 {} 个", next.getVersion(), next.size(), changedIds.size());
+        Set<String> changed = Collections.unmodifiableSet(changedIds);
+        for (BiConsumer<CatalogSnapshot, Set<String>> listener : listeners) {
+            try {
+                listener.accept(next, changed);
+            } catch (RuntimeException e) {
+                logger.warn("角色目录变化通知失败: {}", e.getMessage());
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package com.tcs.repository;
+
+import com.tcs.model.Message;
+
+import java.util.List;
+
+/**
+ * 会话存储，保存每个会话最近的消息，使客户端只需发送会话ID和新消息
+ * 默认实现为内存存储，可通过 chat.conversation.store 切换为其他持久化实现
+ */
+public interface ConversationStore {
+
+    /**
+     * 获取会话最近的消息，按时间从旧到新排列；会话不存在时返回空列表
+     */
+    List<Message> getRecentMessages(String characterId, String conversationId);
+
+    /**
+     * 追加一轮或多条消息，超出容量时丢弃最旧的消息
+     */
+    void appendMessages(String characterId, String conversationId, List<Message> messages);
+
+    void removeConversation(String characterId, String conversationId);
+}
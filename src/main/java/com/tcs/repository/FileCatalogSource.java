@@ -0,0 +1,54 @@
+package com.tcs.repository;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcs.model.Character;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+/**
+ * 从本地 JSON 文件加载角色目录，文件内容为角色对象数组；文件修改后整体重新加载
+ */
+public class FileCatalogSource implements CatalogSource {
+    private static final TypeReference<List<Character>> CHARACTER_LIST = new TypeReference<>() {
+    };
+
+    private final Path file;
+    private final ObjectMapper objectMapper;
+    private volatile FileTime loadedModifiedTime;
+
+    public FileCatalogSource(Path file) {
+        this.file = file;
+        this.objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    @Override
+    public String getName() {
+        return "file:" + file;
+    }
+
+    @Override
+    public List<Character> loadAll() throws IOException {
+        FileTime modifiedTime = Files.getLastModifiedTime(file);
+        List<Character> characters;
+        try (InputStream in = Files.newInputStream(file)) {
+            characters = objectMapper.readValue(in, CHARACTER_LIST);
+        }
+        loadedModifiedTime = modifiedTime;
+        return characters;
+    }
+
+    @Override
+    public Changes loadChanges() throws IOException {
+        if (Files.getLastModifiedTime(file).equals(loadedModifiedTime)) {
+            return Changes.NONE;
+        }
+        return Changes.full(loadAll());
+    }
+}
@@ -0,0 +1,198 @@
+package com.tcs.repository;
+
+import com.tcs.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 内存会话存储
+ * 每个会话使用固定容量的环形缓冲区保存最近的消息；
+ * 空闲超时的会话定期清理，会话数或总字符数超过上限时优先淘汰最久未访问的会话
+ */
+@Repository
+@ConditionalOnProperty(name = "chat.conversation.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryConversationStore implements ConversationStore {
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryConversationStore.class);
+
+    private final Map<String, Conversation> conversations = new ConcurrentHashMap<>();
+    private final AtomicLong totalChars = new AtomicLong();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final int maxMessagesPerConversation;
+    private final int maxConversations;
+    private final long maxTotalChars;
+    private final long idleTimeoutNanos;
+
+    public InMemoryConversationStore(@Value("${chat.conversation.max-messages:20}") int maxMessagesPerConversation,
+                                     @Value("${chat.conversation.max-conversations:100000}") int maxConversations,
+                                     @Value("${chat.conversation.max-total-chars:50000000}") long maxTotalChars,
+                                     @Value("${chat.conversation.idle-timeout-minutes:30}") long idleTimeoutMinutes) {
+        this.maxMessagesPerConversation = maxMessagesPerConversation;
+        this.maxConversations = maxConversations;
+        this.maxTotalChars = maxTotalChars;
+        this.idleTimeoutNanos = TimeUnit.MINUTES.toNanos(idleTimeoutMinutes);
+        logger.info("内存会话存储初始化完成，每个会话保留 {} 条消息，最多 {} 个会话", maxMessagesPerConversation, maxConversations);
+    }
+
+    @Override
+    public List<Message> getRecentMessages(String characterId, String conversationId) {
+        Conversation conversation = conversations.get(key(characterId, conversationId));
+        if (conversation == null) {
+            return Collections.emptyList();
+        }
+        return conversation.snapshot();
+    }
+
+    @Override
+    public void appendMessages(String characterId, String conversationId, List<Message> messages) {
+        // 在 compute 中追加，与淘汰的 remove 互斥，消息不会追加到已被淘汰的会话上
+        long[] delta = new long[1];
+        conversations.compute(key(characterId, conversationId), (k, conversation) -> {
+            Conversation target = conversation != null ? conversation : new Conversation(maxMessagesPerConversation);
+            delta[0] = target.append(messages);
+            return target;
+        });
+        long total = totalChars.addAndGet(delta[0]);
+        if (conversations.size() > maxConversations || total > maxTotalChars) {
+            evictOverflow();
+        }
+    }
+
+    @Override
+    public void removeConversation(String characterId, String conversationId) {
+        Conversation removed = conversations.remove(key(characterId, conversationId));
+        if (removed != null) {
+            totalChars.addAndGet(-removed.chars());
+        }
+    }
+
+    public int getConversationCount() {
+        return conversations.size();
+    }
+
+    public long getTotalChars() {
+        return totalChars.get();
+    }
+
+    // 定期清理空闲超时的会话
+    @Scheduled(fixedDelayString = "${chat.conversation.sweep-interval-ms:60000}")
+    public void evictIdleConversations() {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Map.Entry<String, Conversation> entry : conversations.entrySet()) {
+            if (now - entry.getValue().lastAccessNanos() > idleTimeoutNanos
+                    && conversations.remove(entry.getKey(), entry.getValue())) {
+                totalChars.addAndGet(-entry.getValue().chars());
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            logger.debug("清理空闲会话 {} 个，剩余 {} 个", evicted, conversations.size());
+        }
+    }
+
+    // 超出容量时按最近访问时间淘汰，一次淘汰到上限的90%以摊薄排序开销
+    private void evictOverflow() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            // 访问时间在排序过程中会变化，先取快照再排序
+            List<Candidate> entries = new ArrayList<>(conversations.size());
+            for (Map.Entry<String, Conversation> entry : conversations.entrySet()) {
+                entries.add(new Candidate(entry.getKey(), entry.getValue(), entry.getValue().lastAccessNanos()));
+            }
+            entries.sort(Comparator.comparingLong(Candidate::lastAccessNanos));
+            int targetCount = (int) (maxConversations * 0.9);
+            long targetChars = (long) (maxTotalChars * 0.9);
+            int evicted = 0;
+            for (Candidate candidate : entries) {
+                if (conversations.size() <= targetCount && totalChars.get() <= targetChars) {
+                    break;
+                }
+                if (conversations.remove(candidate.key(), candidate.conversation())) {
+                    totalChars.addAndGet(-candidate.conversation().chars());
+                    evicted++;
+                }
+            }
+            logger.info("会话存储超出容量，淘汰 {} 个最久未访问的会话", evicted);
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    private static String key(String characterId, String conversationId) {
+        return characterId + ':' + conversationId;
+    }
+
+    private record Candidate(String key, Conversation conversation, long lastAccessNanos) {
+    }
+
+    /**
+     * 单个会话的环形缓冲区
+     */
+    private static final class Conversation {
+        private final Message[] ring;
+        private int head; // 最旧消息的位置
+        private int size;
+        private long chars;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private Conversation(int capacity) {
+            this.ring = new Message[capacity];
+        }
+
+        private synchronized List<Message> snapshot() {
+            lastAccessNanos = System.nanoTime();
+            List<Message> messages = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                messages.add(ring[(head + i) % ring.length]);
+            }
+            return messages;
+        }
+
+        // 追加消息，返回字符数的变化量
+        private synchronized long append(List<Message> messages) {
+            lastAccessNanos = System.nanoTime();
+            long before = chars;
+            for (Message message : messages) {
+                int tail = (head + size) % ring.length;
+                if (size == ring.length) {
+                    chars -= length(ring[head]);
+                    head = (head + 1) % ring.length;
+                } else {
+                    size++;
+                }
+                ring[tail] = message;
+                chars += length(message);
+            }
+            return chars - before;
+        }
+
+        private synchronized long chars() {
+            return chars;
+        }
+
+        private long lastAccessNanos() {
+            return lastAccessNanos;
+        }
+
+        private static int length(Message message) {
+            return message.getText() == null ? 0 : message.getText().length();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.tcs.repository;
+
+import com.tcs.model.Character;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 从数据库（MySQL）加载角色目录
+ * 表结构要求包含 id、name、avatar、category、description、personality、updated_at、deleted 列；
+ * 增量加载按 updated_at 读取上次加载之后变化的行，deleted 为 1 的行表示角色已下线
+ */
+public class JdbcCatalogSource implements CatalogSource {
+    private static final String COLUMNS = "id, name, avatar, category, description, personality, updated_at, deleted";
+    private static final int FETCH_SIZE = 1000;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String table;
+    // 已加载数据中最大的 updated_at，作为下次增量加载的起点
+    private volatile Timestamp watermark;
+
+    public JdbcCatalogSource(String url, String username, String password, String table) {
+        if (!table.matches("[A-Za-z0-9_.]+")) {
+            throw new IllegalArgumentException("角色表名不合法: " + table);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.table = table;
+    }
+
+    @Override
+    public String getName() {
+        return "jdbc:" + table;
+    }
+
+    @Override
+    public List<Character> loadAll() throws SQLException {
+        List<Character> characters = new ArrayList<>();
+        Timestamp maxUpdated = query("SELECT " + COLUMNS + " FROM " + table + " WHERE deleted = 0", null,
+                characters, null);
+        watermark = maxUpdated;
+        return characters;
+    }
+
+    @Override
+    public Changes loadChanges() throws SQLException {
+        Timestamp since = watermark;
+        if (since == null) {
+            return Changes.full(loadAll());
+        }
+        List<Character> upserts = new ArrayList<>();
+        Set<String> deletedIds = new HashSet<>();
+        // 使用 >= 并在合并时按ID覆盖，避免同一时间戳内后写入的行被漏掉
+        Timestamp maxUpdated = query("SELECT " + COLUMNS + " FROM " + table + " WHERE updated_at >= ?", since,
+                upserts, deletedIds);
+        if (maxUpdated != null && maxUpdated.after(since)) {
+            watermark = maxUpdated;
+        }
+        return upserts.isEmpty() && deletedIds.isEmpty() ? Changes.NONE : new Changes(false, upserts, deletedIds);
+    }
+
+    // 执行查询，返回结果中最大的 updated_at
+    private Timestamp query(String sql, Timestamp since, List<Character> upserts, Set<String> deletedIds) throws SQLException {
+        Timestamp maxUpdated = since;
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setFetchSize(FETCH_SIZE);
+            if (since != null) {
+                statement.setTimestamp(1, since);
+            }
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp updated = rs.getTimestamp("updated_at");
+                    if (updated != null && (maxUpdated == null || updated.after(maxUpdated))) {
+                        maxUpdated = updated;
+                    }
+                    String id = rs.getString("id");
+                    if (rs.getInt("deleted") != 0) {
+                        if (deletedIds != null) {
+                            deletedIds.add(id);
+                        }
+                        continue;
+                    }
+                    upserts.add(new Character(id, rs.getString("name"), rs.getString("avatar"),
+                            rs.getString("category"), rs.getString("description"), rs.getString("personality")));
+                }
+            }
+        }
+        return maxUpdated;
+    }
+}
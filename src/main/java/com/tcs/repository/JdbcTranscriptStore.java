@@ -0,0 +1,218 @@
+package com.tcs.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步写入数据库（MySQL，或离线使用的 H2）的对话记录存储
+ * 聊天线程只把记录放入有界无锁队列，队列满时丢弃并计数，不等待数据库；
+ * 后台写入线程在积累到 batch-size 条或最早的记录等待超过 flush-interval 时，用 JDBC 批量插入一次写入。
+ * 写入失败时保留当前批次重试，连续失败达到上限后丢弃该批次，期间队列积压由队列容量限制
+ */
+public class JdbcTranscriptStore implements TranscriptStore {
+    private static final Logger logger = LoggerFactory.getLogger(JdbcTranscriptStore.class);
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_BACKOFF_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final String insertSql;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final MpscRingBuffer<TranscriptRecord> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // 以下连接和语句只由写入线程使用
+    private Connection connection;
+    private PreparedStatement insert;
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+
+    public JdbcTranscriptStore(String url, String username, String password, String table, int queueCapacity,
+                               int batchSize, long flushIntervalMs, boolean initSchema) {
+        if (!table.matches("[A-Za-z0-9_.]+")) {
+            throw new IllegalArgumentException("对话记录表名不合法: " + table);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.insertSql = "INSERT INTO " + table
+                + " (character_id, conversation_id, user_message, reply, created_at) VALUES (?, ?, ?, ?, ?)";
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.queue = new MpscRingBuffer<>(queueCapacity);
+        if (initSchema) {
+            createTable(table);
+        }
+        this.writer = Thread.ofPlatform().name("transcript-writer").daemon().start(this::run);
+        logger.info("对话记录异步写入已启动，表: {}，队列容量 {}，批量大小 {}", table, queue.capacity(), batchSize);
+    }
+
+    @Override
+    public void record(TranscriptRecord record) {
+        if (!queue.offer(record)) {
+            dropped.increment();
+            return;
+        }
+        // 积累到一个批次时立即唤醒写入线程，否则等待定时刷新
+        if (queue.size() >= batchSize) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    private void run() {
+        List<TranscriptRecord> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+        int attempts = 0;
+        while (running || !batch.isEmpty() || queue.size() > 0) {
+            boolean wasEmpty = batch.isEmpty();
+            queue.drainTo(batch, batchSize - batch.size());
+            long now = System.nanoTime();
+            if (wasEmpty && !batch.isEmpty()) {
+                deadline = now + flushIntervalNanos;
+            }
+            if (!batch.isEmpty() && (batch.size() >= batchSize || now - deadline >= 0 || !running)) {
+                if (flush(batch)) {
+                    attempts = 0;
+                    continue;
+                }
+                if (++attempts >= MAX_ATTEMPTS || !running) {
+                    logger.error("对话记录连续写入失败 {} 次，丢弃 {} 条记录", attempts, batch.size());
+                    dropped.add(batch.size());
+                    batch.clear();
+                    attempts = 0;
+                    continue;
+                }
+                LockSupport.parkNanos(this, RETRY_BACKOFF_NANOS * attempts);
+                continue;
+            }
+            LockSupport.parkNanos(this, batch.isEmpty() ? flushIntervalNanos : deadline - now);
+        }
+        closeConnection();
+    }
+
+    // 在一个事务中批量插入，成功时清空批次
+    private boolean flush(List<TranscriptRecord> batch) {
+        long start = System.nanoTime();
+        try {
+            PreparedStatement statement = insertStatement();
+            for (TranscriptRecord record : batch) {
+                statement.setString(1, record.characterId());
+                statement.setString(2, record.conversationId());
+                statement.setString(3, record.userMessage());
+                statement.setString(4, record.reply());
+                statement.setTimestamp(5, new Timestamp(record.createdAtMillis()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.commit();
+            written.add(batch.size());
+            batch.clear();
+            return true;
+        } catch (SQLException e) {
+            failedFlushes.increment();
+            logger.warn("写入对话记录失败，{} 条记录等待重试: {}", batch.size(), e.getMessage());
+            closeConnection();
+            return false;
+        } finally {
+            flushes.increment();
+            flushNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private PreparedStatement insertStatement() throws SQLException {
+        if (insert == null) {
+            connection = DriverManager.getConnection(url, username, password);
+            connection.setAutoCommit(false);
+            insert = connection.prepareStatement(insertSql);
+        }
+        return insert;
+    }
+
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                logger.debug("关闭对话记录数据库连接失败: {}", e.getMessage());
+            }
+        }
+        connection = null;
+        insert = null;
+    }
+
+    private void createTable(String table) {
+        try (Connection c = DriverManager.getConnection(url, username, password);
+             Statement statement = c.createStatement()) {
+            statement.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                    + "id BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                    + "character_id VARCHAR(64) NOT NULL, "
+                    + "conversation_id VARCHAR(128), "
+                    + "user_message TEXT NOT NULL, "
+                    + "reply TEXT NOT NULL, "
+                    + "created_at TIMESTAMP(3) NOT NULL)");
+        } catch (SQLException e) {
+            throw new IllegalStateException("创建对话记录表失败: " + table, e);
+        }
+    }
+
+    /**
+     * 停止写入线程，队列中剩余的记录写入后返回
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public int getQueueCapacity() {
+        return queue.capacity();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public long getFailedFlushCount() {
+        return failedFlushes.sum();
+    }
+
+    public long getFlushCount() {
+        return flushes.sum();
+    }
+
+    public long getFlushNanos() {
+        return flushNanos.sum();
+    }
+}
@@ -0,0 +1,8 @@
+package com.tcs.repository;
+
+/**
+ * 一轮完成的对话：用户消息（过滤后）和角色回复，conversationId 为空表示客户端自行维护历史记录
+ */
+public record TranscriptRecord(String characterId, String conversationId, String userMessage, String reply,
+                               long createdAtMillis) {
+}
@@ -0,0 +1,20 @@
+package com.tcs.repository;
+
+/**
+ * 对话记录存储，用于分析和合规留存
+ * 记录在聊天请求的热路径上调用，实现不能阻塞调用方；通过 chat.transcript.enabled 开启
+ */
+public interface TranscriptStore extends AutoCloseable {
+
+    /**
+     * 不保存任何记录，未开启对话记录时使用
+     */
+    TranscriptStore NONE = record -> {
+    };
+
+    void record(TranscriptRecord record);
+
+    @Override
+    default void close() {
+    }
+}
@@ -0,0 +1,65 @@
+package com.tcs.routing;
+
+import java.util.Arrays;
+
+/**
+ * 模型后端的滚动统计：最近 N 次成功调用的延迟窗口、延迟和错误率的指数移动平均
+ * 写入在调用完成时进行（每次模型调用一次，频率低），读取的字段均为 volatile，路由选择时无锁
+ */
+public class BackendStats {
+    private static final double ALPHA = 0.2;
+    // 每新增多少个样本重新计算一次 p95
+    private static final int P95_REFRESH_INTERVAL = 8;
+
+    private final long[] window;
+    private int next;
+    private int count;
+    private int samplesSinceRefresh;
+
+    private volatile long ewmaNanos = -1;
+    private volatile double errorRate;
+    private volatile long p95Nanos = -1;
+    private volatile long sampleCount;
+
+    public BackendStats(int windowSize) {
+        this.window = new long[Math.max(1, windowSize)];
+    }
+
+    public synchronized void recordSuccess(long latencyNanos) {
+        window[next] = latencyNanos;
+        next = (next + 1) % window.length;
+        count = Math.min(count + 1, window.length);
+        ewmaNanos = ewmaNanos < 0 ? latencyNanos : (long) (ewmaNanos + (latencyNanos - ewmaNanos) * ALPHA);
+        errorRate = errorRate * (1 - ALPHA);
+        sampleCount++;
+        if (++samplesSinceRefresh >= P95_REFRESH_INTERVAL || p95Nanos < 0) {
+            samplesSinceRefresh = 0;
+            long[] sorted = Arrays.copyOf(window, count);
+            Arrays.sort(sorted);
+            p95Nanos = sorted[Math.min(count - 1, (int) Math.ceil(count * 0.95) - 1)];
+        }
+    }
+
+    public synchronized void recordFailure() {
+        errorRate = errorRate * (1 - ALPHA) + ALPHA;
+    }
+
+    /**
+     * 延迟的指数移动平均，还没有成功样本时返回 -1
+     */
+    public long getEwmaNanos() {
+        return ewmaNanos;
+    }
+
+    public long getP95Nanos() {
+        return p95Nanos;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public long getSampleCount() {
+        return sampleCount;
+    }
+}
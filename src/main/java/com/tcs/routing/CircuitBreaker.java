@@ -0,0 +1,88 @@
+package com.tcs.routing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 模型后端熔断器
+ * 连续失败达到阈值后打开，打开期间不再向该后端发送请求；
+ * 打开时间结束后进入半开状态，只放行一个探测请求，成功则关闭，失败则重新打开
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probeInFlight = new AtomicBoolean();
+    private volatile long openedAtNanos;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("熔断失败阈值必须大于0");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * 是否可以参与路由选择，不占用半开状态的探测名额
+     */
+    public boolean isAvailable() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            return System.nanoTime() - openedAtNanos >= openNanos;
+        }
+        return !probeInFlight.get();
+    }
+
+    /**
+     * 实际发送请求前调用，半开状态下只有一个调用方能拿到探测名额
+     */
+    public boolean allowRequest() {
+        State current = state.get();
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (System.nanoTime() - openedAtNanos < openNanos) {
+                return false;
+            }
+            state.compareAndSet(State.OPEN, State.HALF_OPEN);
+        }
+        return probeInFlight.compareAndSet(false, true);
+    }
+
+    public void onSuccess() {
+        consecutiveFailures.set(0);
+        state.set(State.CLOSED);
+        probeInFlight.set(false);
+    }
+
+    public void onFailure() {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAtNanos = System.nanoTime();
+            state.set(State.OPEN);
+            consecutiveFailures.set(0);
+        }
+        probeInFlight.set(false);
+    }
+
+    // 请求被取消（例如对冲中落后的请求），既不算成功也不算失败，只归还探测名额
+    public void onCancel() {
+        probeInFlight.set(false);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+}
@@ -0,0 +1,66 @@
+package com.tcs.routing;
+
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.StreamingChatClient;
+
+/**
+ * 一个模型提供方：同步和流式客户端，以及它的延迟统计和熔断器
+ */
+public class ModelBackend {
+    private static final long ERROR_PENALTY_NANOS = 1_000_000_000L;
+
+    private final String name;
+    private final ChatClient chatClient;
+    private final StreamingChatClient streamingChatClient;
+    private final BackendStats stats;
+    private final CircuitBreaker circuitBreaker;
+
+    public ModelBackend(String name, ChatClient chatClient, StreamingChatClient streamingChatClient,
+                        BackendStats stats, CircuitBreaker circuitBreaker) {
+        this.name = name;
+        this.chatClient = chatClient;
+        this.streamingChatClient = streamingChatClient;
+        this.stats = stats;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    public void recordSuccess(long latencyNanos) {
+        stats.recordSuccess(latencyNanos);
+        circuitBreaker.onSuccess();
+    }
+
+    public void recordFailure() {
+        stats.recordFailure();
+        circuitBreaker.onFailure();
+    }
+
+    /**
+     * 路由排序用的得分，越小越优先：延迟的移动平均按错误率加权，再加上与错误率成正比的固定惩罚；
+     * 没有成功样本也没有失败的后端得分为0，以便尽快探测
+     */
+    long score() {
+        long ewma = Math.max(0, stats.getEwmaNanos());
+        double errorRate = stats.getErrorRate();
+        return (long) (ewma * (1 + 4 * errorRate) + errorRate * ERROR_PENALTY_NANOS);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ChatClient getChatClient() {
+        return chatClient;
+    }
+
+    public StreamingChatClient getStreamingChatClient() {
+        return streamingChatClient;
+    }
+
+    public BackendStats getStats() {
+        return stats;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+}
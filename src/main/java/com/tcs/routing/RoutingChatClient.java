@@ -0,0 +1,226 @@
+package com.tcs.routing;
+
+import com.tcs.metrics.ChatMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 多模型提供方路由
+ * 按各后端最近的延迟和错误率选择最快的可用后端；请求超过主后端 p95 延迟仍未返回时，
+ * 向次优后端发送一个对冲请求，先返回的结果胜出；调用失败时依次切换到其余后端，
+ * 连续失败的后端由熔断器暂时摘除
+ */
+public class RoutingChatClient implements ChatClient, StreamingChatClient {
+    private static final Logger logger = LoggerFactory.getLogger(RoutingChatClient.class);
+    // 样本不足时不按 p95 对冲，使用最大对冲延迟
+    private static final int MIN_HEDGE_SAMPLES = 20;
+
+    private final List<ModelBackend> backends;
+    private final ChatMetrics chatMetrics;
+    private final boolean hedgeEnabled;
+    private final long hedgeMinDelayNanos;
+    private final long hedgeMaxDelayNanos;
+    private final double exploreRatio;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public RoutingChatClient(List<ModelBackend> backends, ChatMetrics chatMetrics, boolean hedgeEnabled,
+                             long hedgeMinDelayMs, long hedgeMaxDelayMs, double exploreRatio) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("至少需要一个模型后端");
+        }
+        this.backends = List.copyOf(backends);
+        this.chatMetrics = chatMetrics;
+        this.hedgeEnabled = hedgeEnabled;
+        this.hedgeMinDelayNanos = TimeUnit.MILLISECONDS.toNanos(hedgeMinDelayMs);
+        this.hedgeMaxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(hedgeMinDelayMs, hedgeMaxDelayMs));
+        this.exploreRatio = exploreRatio;
+        logger.info("模型路由初始化完成，后端: {}，对冲: {}", this.backends.stream().map(ModelBackend::getName).toList(),
+                hedgeEnabled ? "已开启" : "已关闭");
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        List<ModelBackend> candidates = rankBackends();
+        CompletionService<Attempt> completionService = new ExecutorCompletionService<>(executor);
+        List<Future<Attempt>> futures = new ArrayList<>(candidates.size());
+        futures.add(completionService.submit(() -> invoke(candidates.get(0), prompt)));
+        int next = 1;
+        int running = 1;
+        long hedgeAt = hedgeEnabled && candidates.size() > 1
+                ? System.nanoTime() + hedgeDelayNanos(candidates.get(0))
+                : Long.MAX_VALUE;
+        Exception lastError = null;
+        try {
+            while (running > 0) {
+                Future<Attempt> done;
+                if (hedgeAt == Long.MAX_VALUE) {
+                    done = completionService.take();
+                } else {
+                    done = completionService.poll(hedgeAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+                }
+                if (done == null) {
+                    // 主请求超过对冲延迟仍未返回，向下一个后端发送对冲请求
+                    hedgeAt = Long.MAX_VALUE;
+                    if (next < candidates.size()) {
+                        ModelBackend hedge = candidates.get(next++);
+                        chatMetrics.hedgeLaunched(hedge.getName());
+                        logger.debug("请求超过对冲延迟，向后端 {} 发送对冲请求", hedge.getName());
+                        futures.add(completionService.submit(() -> invoke(hedge, prompt)));
+                        running++;
+                    }
+                    continue;
+                }
+                running--;
+                Attempt attempt = done.get();
+                if (attempt.error() == null) {
+                    return attempt.response();
+                }
+                lastError = attempt.error();
+                // 所有进行中的请求都失败后切换到下一个后端
+                if (running == 0 && next < candidates.size()) {
+                    ModelBackend fallback = candidates.get(next++);
+                    chatMetrics.failover(fallback.getName());
+                    logger.warn("模型后端 {} 调用失败，切换到 {}", attempt.backend().getName(), fallback.getName());
+                    futures.add(completionService.submit(() -> invoke(fallback, prompt)));
+                    running++;
+                    hedgeAt = Long.MAX_VALUE;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("模型调用被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("模型调用执行失败", e.getCause());
+        } finally {
+            // 取消落后的对冲请求
+            for (Future<Attempt> future : futures) {
+                future.cancel(true);
+            }
+        }
+        throw new IllegalStateException("所有模型后端调用失败", lastError);
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return streamFrom(rankBackends(), 0, prompt);
+    }
+
+    // 流式调用只在尚未输出任何分片时切换后端，已输出部分内容后出错直接向下游传递错误
+    private Flux<ChatResponse> streamFrom(List<ModelBackend> candidates, int index, Prompt prompt) {
+        ModelBackend backend = candidates.get(index);
+        return Flux.defer(() -> {
+            if (!backend.getCircuitBreaker().allowRequest()) {
+                return index + 1 < candidates.size()
+                        ? streamFrom(candidates, index + 1, prompt)
+                        : Flux.<ChatResponse>error(new IllegalStateException("模型后端 " + backend.getName() + " 已熔断"));
+            }
+            AtomicBoolean emitted = new AtomicBoolean();
+            long start = System.nanoTime();
+            return backend.getStreamingChatClient().stream(prompt)
+                    .doOnNext(chunk -> emitted.set(true))
+                    .doOnComplete(() -> {
+                        // 流式回复长度不一，完成时间不计入延迟统计，只用于熔断和指标
+                        backend.getCircuitBreaker().onSuccess();
+                        chatMetrics.recordBackendCall(backend.getName(), System.nanoTime() - start, true);
+                    })
+                    .doOnCancel(() -> backend.getCircuitBreaker().onCancel())
+                    .onErrorResume(e -> {
+                        backend.recordFailure();
+                        chatMetrics.recordBackendCall(backend.getName(), System.nanoTime() - start, false);
+                        if (emitted.get() || index + 1 >= candidates.size()) {
+                            return Flux.error(e);
+                        }
+                        ModelBackend fallback = candidates.get(index + 1);
+                        chatMetrics.failover(fallback.getName());
+                        logger.warn("模型后端 {} 流式调用失败，切换到 {}: {}", backend.getName(), fallback.getName(), e.getMessage());
+                        return streamFrom(candidates, index + 1, prompt);
+                    });
+        });
+    }
+
+    private Attempt invoke(ModelBackend backend, Prompt prompt) {
+        if (!backend.getCircuitBreaker().allowRequest()) {
+            return new Attempt(backend, null, new IllegalStateException("模型后端 " + backend.getName() + " 已熔断"));
+        }
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = backend.getChatClient().call(prompt);
+            long nanos = System.nanoTime() - start;
+            backend.recordSuccess(nanos);
+            chatMetrics.recordBackendCall(backend.getName(), nanos, true);
+            return new Attempt(backend, response, null);
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                // 对冲中落后的请求被取消，不计入失败
+                backend.getCircuitBreaker().onCancel();
+                return new Attempt(backend, null, e);
+            }
+            backend.recordFailure();
+            chatMetrics.recordBackendCall(backend.getName(), System.nanoTime() - start, false);
+            logger.warn("模型后端 {} 调用失败: {}", backend.getName(), e.getMessage());
+            return new Attempt(backend, null, e);
+        }
+    }
+
+    /**
+     * 按得分排序可用的后端；全部熔断时仍返回全部后端，由熔断器的半开探测决定能否调用。
+     * 按 exploreRatio 的概率交换前两名，使较慢的后端也持续有延迟样本
+     */
+    List<ModelBackend> rankBackends() {
+        List<ModelBackend> ranked = new ArrayList<>(backends.size());
+        for (ModelBackend backend : backends) {
+            if (backend.getCircuitBreaker().isAvailable()) {
+                ranked.add(backend);
+            }
+        }
+        if (ranked.isEmpty()) {
+            return backends;
+        }
+        ranked.sort(Comparator.comparingLong(ModelBackend::score));
+        if (ranked.size() > 1 && exploreRatio > 0 && ThreadLocalRandom.current().nextDouble() < exploreRatio) {
+            Collections.swap(ranked, 0, 1);
+        }
+        return ranked;
+    }
+
+    // 对冲延迟取主后端的 p95 延迟，并限制在配置的上下限之间
+    private long hedgeDelayNanos(ModelBackend primary) {
+        BackendStats stats = primary.getStats();
+        if (stats.getSampleCount() < MIN_HEDGE_SAMPLES) {
+            return hedgeMaxDelayNanos;
+        }
+        return Math.max(hedgeMinDelayNanos, Math.min(hedgeMaxDelayNanos, stats.getP95Nanos()));
+    }
+
+    public List<ModelBackend> getBackends() {
+        return backends;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private record Attempt(ModelBackend backend, ChatResponse response, Exception error) {
+    }
+}
@@ -0,0 +1,334 @@
+package com.tcs.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.tcs.cache.LruCache;
+import com.tcs.exception.BusinessException;
+import com.tcs.http.Gzip;
+import com.tcs.http.WireFormat;
+import com.tcs.model.Character;
+import com.tcs.repository.CatalogSnapshot;
+import com.tcs.repository.CharacterRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 角色列表的序列化和缓存
+ * 同一目录版本下相同的查询（分类、游标、页大小、字段）只序列化一次，字节缓存在内存中直接输出；
+ * 按 Accept 输出 JSON、CBOR 或 Smile，客户端接受 gzip 且结果不小于 gzip-min-bytes 时输出同样缓存的压缩字节。
+ * ETag 由目录指纹、查询条件、编码和是否接受 gzip 生成，客户端携带匹配的 If-None-Match 时无需序列化和压缩
+ */
+@Component
+public class CharacterListing {
+    private static final String[] FIELDS = {"id", "name", "avatar", "category", "description", "personality"};
+    private static final int ALL_FIELDS = (1 << FIELDS.length) - 1;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+
+    private final CharacterRepository characterRepository;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final LruCache<String, byte[]> cache;
+    private final int maxPageSize;
+    private final int maxCachedBytes;
+    private final int gzipMinBytes;
+    // 分类列表按目录指纹缓存，目录不变时一直复用
+    private volatile CachedCategories categories = new CachedCategories(0, null);
+
+    public CharacterListing(CharacterRepository characterRepository,
+                            @Value("${chat.catalog.listing.cache-size:256}") int cacheSize,
+                            @Value("${chat.catalog.listing.max-cached-bytes:8388608}") int maxCachedBytes,
+                            @Value("${chat.catalog.listing.max-page-size:200}") int maxPageSize,
+                            @Value("${chat.catalog.listing.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.characterRepository = characterRepository;
+        this.cache = new LruCache<>(cacheSize, 0);
+        this.maxCachedBytes = maxCachedBytes;
+        this.maxPageSize = maxPageSize;
+        this.gzipMinBytes = gzipMinBytes;
+        // 目录更新后旧版本的结果不会再被命中，直接释放
+        characterRepository.addChangeListener((snapshot, changedIds) -> cache.clear());
+    }
+
+    /**
+     * 解析并校验查询参数；cursor 和 limit 都为空时返回完整的角色数组，否则返回分页对象
+     */
+    public Query query(String category, String cursor, Integer limit, String fields) {
+        boolean paged = cursor != null || limit != null;
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize <= 0 || pageSize > maxPageSize) {
+            throw new BusinessException("limit 必须在 1 到 " + maxPageSize + " 之间");
+        }
+        return new Query(category == null || category.isEmpty() ? null : category,
+                decodeCursor(cursor), paged ? pageSize : 0, parseFields(fields));
+    }
+
+    /**
+     * 按当前目录快照响应查询：ETag 匹配时返回 304，否则输出缓存的 JSON 字节
+     */
+    public ResponseEntity<byte[]> respond(Query query, String ifNoneMatch) {
+        return respond(query, ifNoneMatch, WireFormat.JSON, false);
+    }
+
+    /**
+     * 按指定编码响应查询，acceptsGzip 为 true 且结果足够大时输出 gzip 压缩的字节
+     */
+    public ResponseEntity<byte[]> respond(Query query, String ifNoneMatch, WireFormat format, boolean acceptsGzip) {
+        CatalogSnapshot snapshot = characterRepository.getSnapshot();
+        // 不同编码的响应体不同，ETag 也不同；是否压缩由目录版本、查询和编码唯一确定，
+        // 按客户端是否接受 gzip 区分 ETag，匹配时不需要序列化和压缩
+        String etag = etag(snapshot, query, format, acceptsGzip);
+        // 客户端需要每次重新验证，目录未变化时只返回 304
+        CacheControl cacheControl = CacheControl.noCache();
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING).build();
+        }
+        byte[] body = acceptsGzip ? renderGzip(snapshot, query, format) : null;
+        boolean gzipped = body != null;
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING)
+                .contentType(format.getMediaType());
+        if (gzipped) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzipped ? body : render(snapshot, query, format));
+    }
+
+    /**
+     * 所有分类的 JSON 数组，同一目录版本只序列化一次
+     */
+    public ResponseEntity<byte[]> respondCategories(String ifNoneMatch) {
+        CatalogSnapshot snapshot = characterRepository.getSnapshot();
+        String etag = "\"" + Long.toHexString(snapshot.getFingerprint()) + "-categories\"";
+        if (matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        CachedCategories current = categories;
+        if (current.bytes() == null || current.fingerprint() != snapshot.getFingerprint()) {
+            current = new CachedCategories(snapshot.getFingerprint(), serializeCategories(snapshot));
+            categories = current;
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(current.bytes());
+    }
+
+    public String etag(CatalogSnapshot snapshot, Query query) {
+        return etag(snapshot, query, WireFormat.JSON, false);
+    }
+
+    private static String etag(CatalogSnapshot snapshot, Query query, WireFormat format, boolean acceptsGzip) {
+        StringBuilder etag = new StringBuilder(40).append('"')
+                .append(Long.toHexString(snapshot.getFingerprint())).append('-')
+                .append(Integer.toHexString(query.key().hashCode()));
+        if (!format.getSuffix().isEmpty()) {
+            etag.append('-').append(format.getSuffix());
+        }
+        if (acceptsGzip) {
+            etag.append("-gzip");
+        }
+        return etag.append('"').toString();
+    }
+
+    /**
+     * 返回查询结果的 JSON 字节，命中缓存时不再序列化
+     */
+    public byte[] render(CatalogSnapshot snapshot, Query query) {
+        return render(snapshot, query, WireFormat.JSON);
+    }
+
+    /**
+     * 返回查询结果按指定格式编码的字节，命中缓存时不再序列化
+     */
+    public byte[] render(CatalogSnapshot snapshot, Query query, WireFormat format) {
+        String cacheKey = cacheKey(snapshot, query, format);
+        byte[] bytes = cache.get(cacheKey);
+        if (bytes == null) {
+            bytes = serialize(format.getFactory(), snapshot, query);
+            if (bytes.length <= maxCachedBytes) {
+                cache.put(cacheKey, bytes);
+            }
+        }
+        return bytes;
+    }
+
+    // 压缩后的字节与原始字节分别缓存；结果小于 gzip-min-bytes 或压缩后没有变小时返回 null
+    private byte[] renderGzip(CatalogSnapshot snapshot, Query query, WireFormat format) {
+        String cacheKey = cacheKey(snapshot, query, format) + "|gzip";
+        byte[] compressed = cache.get(cacheKey);
+        if (compressed != null) {
+            return compressed.length == 0 ? null : compressed;
+        }
+        byte[] bytes = render(snapshot, query, format);
+        compressed = bytes.length < gzipMinBytes ? new byte[0] : Gzip.compress(bytes);
+        if (compressed.length >= bytes.length) {
+            compressed = new byte[0];
+        }
+        // 不需要压缩的结果缓存空数组，下次不再尝试
+        if (bytes.length <= maxCachedBytes) {
+            cache.put(cacheKey, compressed);
+        }
+        return compressed.length == 0 ? null : compressed;
+    }
+
+    private static String cacheKey(CatalogSnapshot snapshot, Query query, WireFormat format) {
+        return snapshot.getFingerprint() + "|" + format.getSuffix() + "|" + query.key();
+    }
+
+    public LruCache.Stats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * If-None-Match 是否与 ETag 匹配，支持多个值和 *，按弱比较忽略 W/ 前缀
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isEmpty()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] serialize(JsonFactory factory, CatalogSnapshot snapshot, Query query) {
+        List<Character> source = query.category() == null ? snapshot.getCharacters() : snapshot.getByCategory(query.category());
+        ByteArrayOutputStream out = new ByteArrayOutputStream(query.paged() ? 4096 : 16384);
+        try (JsonGenerator generator = factory.createGenerator(out)) {
+            if (!query.paged()) {
+                writeArray(generator, source, query.fieldMask());
+            } else {
+                List<Character> page = CatalogSnapshot.pageAfter(source, query.afterId(), query.limit());
+                generator.writeStartObject();
+                generator.writeFieldName("items");
+                writeArray(generator, page, query.fieldMask());
+                // 还有后续数据时返回下一页的游标
+                Character last = page.isEmpty() ? null : page.get(page.size() - 1);
+                boolean hasMore = last != null && source.get(source.size() - 1) != last;
+                generator.writeStringField("nextCursor", hasMore ? encodeCursor(last.getId()) : null);
+                generator.writeEndObject();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private byte[] serializeCategories(CatalogSnapshot snapshot) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.writeStartArray();
+            for (String category : snapshot.getCategories()) {
+                generator.writeString(category);
+            }
+            generator.writeEndArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeArray(JsonGenerator generator, List<Character> characters, int fieldMask) throws IOException {
+        generator.writeStartArray();
+        for (Character character : characters) {
+            generator.writeStartObject();
+            writeField(generator, fieldMask, 0, character.getId());
+            writeField(generator, fieldMask, 1, character.getName());
+            writeField(generator, fieldMask, 2, character.getAvatar());
+            writeField(generator, fieldMask, 3, character.getCategory());
+            writeField(generator, fieldMask, 4, character.getDescription());
+            writeField(generator, fieldMask, 5, character.getPersonality());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeField(JsonGenerator generator, int fieldMask, int field, String value) throws IOException {
+        if ((fieldMask & (1 << field)) != 0) {
+            generator.writeStringField(FIELDS[field], value);
+        }
+    }
+
+    // 字段列表逗号分隔，为空时返回全部字段
+    private static int parseFields(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL_FIELDS;
+        }
+        int mask = 0;
+        for (String field : fields.split(",")) {
+            String name = field.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            int index = indexOfField(name);
+            if (index < 0) {
+                throw new BusinessException("不支持的字段: " + name);
+            }
+            mask |= 1 << index;
+        }
+        return mask == 0 ? ALL_FIELDS : mask;
+    }
+
+    private static int indexOfField(String name) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (FIELDS[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // 游标为上一页最后一个角色ID的 URL 安全 Base64 编码
+    static String encodeCursor(String id) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("无效的分页游标");
+        }
+    }
+
+    private record CachedCategories(long fingerprint, byte[] bytes) {
+    }
+
+    /**
+     * 列表查询条件，limit 为 0 表示不分页
+     */
+    public record Query(String category, String afterId, int limit, int fieldMask) {
+        public boolean paged() {
+            return limit > 0;
+        }
+
+        String key() {
+            return (category == null ? "" : category) + '\u0001' + (afterId == null ? "" : afterId)
+                    + '\u0001' + limit + '\u0001' + fieldMask;
+        }
+    }
+}
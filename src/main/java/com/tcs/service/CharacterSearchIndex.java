@@ -0,0 +1,521 @@
+package com.tcs.service;
+
+import com.tcs.model.Character;
+import com.tcs.repository.CatalogSnapshot;
+import com.tcs.repository.CharacterRepository;
+import com.tcs.text.NGramTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * 角色全文检索索引
+ * 名称、分类、简介和性格按 {@link NGramTokenizer} 切分后建立倒排表，每个词项的倒排表是不可变数组，
+ * 更新时整体替换，查询无需加锁。英文单词支持前缀匹配和编辑距离为 1 的模糊匹配。
+ * 角色目录变化时只重新索引变化的角色，变化较多时整体重建
+ */
+@Component
+public class CharacterSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(CharacterSearchIndex.class);
+    // 各字段的权重：名称 > 分类 > 简介、性格
+    private static final float NAME_WEIGHT = 4f;
+    private static final float CATEGORY_WEIGHT = 3f;
+    private static final float TEXT_WEIGHT = 1f;
+    private static final float K1 = 1.2f;
+    private static final float PREFIX_FACTOR = 0.7f;
+    private static final float FUZZY_FACTOR = 0.5f;
+    private static final float NAME_PREFIX_BONUS = 5f;
+    private static final int MAX_EXPANSIONS = 32;
+    private static final int MIN_FUZZY_LENGTH = 4;
+    // 单次变化的角色数超过此比例时整体重建
+    private static final double REBUILD_RATIO = 0.1;
+
+    private volatile State state;
+
+    public CharacterSearchIndex(CharacterRepository characterRepository) {
+        rebuild(characterRepository.getAllCharacters());
+        characterRepository.addChangeListener(this::onCatalogChanged);
+    }
+
+    /**
+     * 按相关度返回最多 limit 个角色；所有查询词都匹配的角色优先，没有这样的角色时返回部分匹配的结果
+     */
+    public List<Character> search(String query, int limit) {
+        State current = state;
+        // 查询开始后新增的角色不参与本次查询
+        Character[] docs = current.docs;
+        long[] nameHeads = current.nameHeads;
+        int docLimit = Math.min(docs.length, nameHeads.length);
+        List<Clause> clauses = parse(current, query);
+        if (clauses.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        float liveDocs = Math.max(1, current.liveCount);
+        // 每个子句得到按文档号排序的得分列表，再按文档号归并，统计每个角色匹配的子句数
+        ScoredDocs merged = null;
+        for (Clause clause : clauses) {
+            ScoredDocs clauseDocs = null;
+            for (Expansion expansion : clause.expansions()) {
+                ScoredDocs scored = score(expansion, liveDocs, docLimit);
+                clauseDocs = clauseDocs == null ? scored : ScoredDocs.union(clauseDocs, scored, false);
+            }
+            if (clauseDocs != null) {
+                merged = merged == null ? clauseDocs : ScoredDocs.union(merged, clauseDocs, true);
+            }
+        }
+        if (merged == null) {
+            return List.of();
+        }
+
+        int required = clauses.size();
+        boolean anyComplete = false;
+        for (int i = 0; i < merged.size; i++) {
+            if (merged.matched[i] == required && docs[merged.docs[i]] != null) {
+                anyComplete = true;
+                break;
+            }
+        }
+        String prefix = query.trim();
+        long prefixHead = nameHead(prefix);
+        long prefixMask = prefix.length() >= 4 ? -1L : ~(-1L >>> (prefix.length() * 16));
+        // 小顶堆保留得分最高的 limit 个结果，先按匹配的查询词数、再按得分排序
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1);
+        for (int i = 0; i < merged.size; i++) {
+            int matched = merged.matched[i];
+            float score = merged.scores[i];
+            if (anyComplete && matched < required) {
+                continue;
+            }
+            int doc = merged.docs[i];
+            // 名称前缀先用预先计算的名称前 4 个字符比较，避免逐个读取角色对象
+            if ((nameHeads[doc] & prefixMask) == (prefixHead & prefixMask) && !prefix.isEmpty()
+                    && (prefix.length() <= 4 || startsWithIgnoreCase(docs[doc], prefix))) {
+                score += NAME_PREFIX_BONUS;
+            }
+            Hit lowest = top.size() == limit ? top.peek() : null;
+            if (lowest != null && (matched < lowest.matched() || (matched == lowest.matched() && score <= lowest.score()))) {
+                continue;
+            }
+            Character character = docs[doc];
+            if (character == null) {
+                continue;
+            }
+            if (lowest != null) {
+                top.poll();
+            }
+            top.add(new Hit(character, matched, score));
+        }
+        Hit[] hits = top.toArray(new Hit[0]);
+        Arrays.sort(hits, (a, b) -> b.compareTo(a));
+        List<Character> result = new ArrayList<>(hits.length);
+        for (Hit hit : hits) {
+            result.add(hit.character());
+        }
+        return result;
+    }
+
+    private static boolean startsWithIgnoreCase(Character character, String prefix) {
+        return character != null && character.getName() != null
+                && character.getName().regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    // 名称前 4 个字符转为小写后按 16 位依次放入一个 long，不足 4 个字符的部分为 0
+    static long nameHead(String name) {
+        long head = 0;
+        if (name != null) {
+            for (int i = 0; i < 4; i++) {
+                char c = i < name.length() ? java.lang.Character.toLowerCase(name.charAt(i)) : 0;
+                head = (head << 16) | c;
+            }
+        }
+        return head;
+    }
+
+    // 按 BM25 的词频饱和公式计算一个扩展词项的得分，只保留文档号小于 docLimit 的角色
+    private static ScoredDocs score(Expansion expansion, float liveDocs, int docLimit) {
+        Posting posting = expansion.posting();
+        int df = posting.docs.length;
+        float idf = (float) Math.log(1 + (liveDocs - df + 0.5) / (df + 0.5));
+        float factor = expansion.factor() * idf * (K1 + 1);
+        int size = 0;
+        while (size < df && posting.docs[size] < docLimit) {
+            size++;
+        }
+        float[] scores = new float[size];
+        for (int i = 0; i < size; i++) {
+            float tf = posting.weights[i];
+            scores[i] = factor * tf / (tf + K1);
+        }
+        int[] matched = new int[size];
+        Arrays.fill(matched, 1);
+        return new ScoredDocs(posting.docs, scores, matched, size);
+    }
+
+    public int size() {
+        return state.liveCount;
+    }
+
+    public int getTermCount() {
+        return state.postings.size();
+    }
+
+    /**
+     * 用给定的角色整体重建索引，构建完成后替换当前索引
+     */
+    public synchronized void rebuild(Collection<Character> characters) {
+        long start = System.nanoTime();
+        Map<String, PostingBuilder> builders = new HashMap<>();
+        Character[] docs = new Character[Math.max(16, characters.size())];
+        long[] nameHeads = new long[docs.length];
+        Map<String, Integer> docIds = new HashMap<>(Math.max(16, characters.size() * 4 / 3 + 1));
+        int doc = 0;
+        for (Character character : characters) {
+            docs[doc] = character;
+            nameHeads[doc] = nameHead(character.getName());
+            docIds.put(character.getId(), doc);
+            for (Map.Entry<String, Float> term : termWeights(character).entrySet()) {
+                builders.computeIfAbsent(term.getKey(), k -> new PostingBuilder()).add(doc, term.getValue());
+            }
+            doc++;
+        }
+        State next = new State(docs, nameHeads, doc, docIds);
+        for (Map.Entry<String, PostingBuilder> entry : builders.entrySet()) {
+            next.putPosting(entry.getKey(), entry.getValue().build());
+        }
+        next.liveCount = doc;
+        state = next;
+        logger.info("角色检索索引构建完成，共 {} 个角色，{} 个词项，耗时 {} ms",
+                doc, next.postings.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // 角色目录变化时只更新变化的角色；新增的角色使用新的文档号，原文档号作废
+    synchronized void onCatalogChanged(CatalogSnapshot snapshot, Set<String> changedIds) {
+        State current = state;
+        if (changedIds.size() > Math.max(16, current.liveCount * REBUILD_RATIO)) {
+            rebuild(snapshot.getCharacters());
+            return;
+        }
+        for (String id : changedIds) {
+            Integer oldDoc = current.docIds.remove(id);
+            if (oldDoc != null) {
+                Character old = current.docs[oldDoc];
+                current.docs[oldDoc] = null;
+                current.liveCount--;
+                for (String term : termWeights(old).keySet()) {
+                    current.removeFromPosting(term, oldDoc);
+                }
+            }
+            Character character = snapshot.getById(id);
+            if (character != null) {
+                int doc = current.allocate(character);
+                current.docIds.put(id, doc);
+                current.liveCount++;
+                for (Map.Entry<String, Float> term : termWeights(character).entrySet()) {
+                    current.appendToPosting(term.getKey(), doc, term.getValue());
+                }
+            }
+        }
+        // 作废的文档号占用过多时整体重建，回收空间
+        if (current.nextDoc > current.liveCount * 2 + 1024) {
+            rebuild(snapshot.getCharacters());
+        }
+    }
+
+    // 把查询切分为子句：中文二元组或单字为一个子句，英文单词及其前缀、模糊扩展为一个子句
+    private static List<Clause> parse(State state, String query) {
+        List<Clause> clauses = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (NGramTokenizer.Token token : NGramTokenizer.queryTokens(query)) {
+            if (!seen.add(token.text())) {
+                continue;
+            }
+            List<Expansion> expansions = new ArrayList<>();
+            Posting exact = state.postings.get(token.text());
+            if (exact != null) {
+                expansions.add(new Expansion(exact, 1f));
+            }
+            if (!token.cjk()) {
+                expandPrefix(state, token.text(), expansions);
+                if (token.text().length() >= MIN_FUZZY_LENGTH) {
+                    expandFuzzy(state, token.text(), expansions);
+                }
+            }
+            // 索引中不存在的词也算一个子句，这样所有子句都匹配的要求不会被放宽
+            clauses.add(new Clause(expansions));
+        }
+        return clauses;
+    }
+
+    private static void expandPrefix(State state, String prefix, List<Expansion> expansions) {
+        NavigableSet<String> range = state.words.subSet(prefix, false, prefix + '\uffff', false);
+        int count = 0;
+        for (String word : range) {
+            Posting posting = state.postings.get(word);
+            if (posting != null) {
+                expansions.add(new Expansion(posting, PREFIX_FACTOR));
+                if (++count >= MAX_EXPANSIONS) {
+                    break;
+                }
+            }
+        }
+    }
+
+    // 删除一个字符后相同，或者其中一方删除一个字符后等于另一方，即可能相差一次增删改或相邻交换
+    private static void expandFuzzy(State state, String word, List<Expansion> expansions) {
+        Set<String> candidates = new HashSet<>();
+        addAll(candidates, state.deletes.get(word));
+        for (int i = 0; i < word.length(); i++) {
+            String deleted = word.substring(0, i) + word.substring(i + 1);
+            addAll(candidates, state.deletes.get(deleted));
+            if (state.words.contains(deleted)) {
+                candidates.add(deleted);
+            }
+        }
+        candidates.remove(word);
+        int count = 0;
+        for (String candidate : candidates) {
+            if (candidate.startsWith(word) || !withinOneEdit(word, candidate)) {
+                continue;
+            }
+            Posting posting = state.postings.get(candidate);
+            if (posting != null) {
+                expansions.add(new Expansion(posting, FUZZY_FACTOR));
+                if (++count >= MAX_EXPANSIONS) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private static void addAll(Set<String> target, Set<String> source) {
+        if (source != null) {
+            target.addAll(source);
+        }
+    }
+
+    // 编辑距离（含相邻交换）不超过 1
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < la && i < lb && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (la == lb) {
+            if (i == la) {
+                return true;
+            }
+            if (a.regionMatches(i + 1, b, i + 1, la - i - 1)) {
+                return true;
+            }
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.regionMatches(i + 2, b, i + 2, la - i - 2);
+        }
+        return la > lb ? a.regionMatches(i + 1, b, i, lb - i) : b.regionMatches(i + 1, a, i, la - i);
+    }
+
+    // 角色各字段词项的加权词频
+    private static Map<String, Float> termWeights(Character character) {
+        Map<String, Float> weights = new HashMap<>();
+        addField(weights, character.getName(), NAME_WEIGHT);
+        addField(weights, character.getCategory(), CATEGORY_WEIGHT);
+        addField(weights, character.getDescription(), TEXT_WEIGHT);
+        addField(weights, character.getPersonality(), TEXT_WEIGHT);
+        return weights;
+    }
+
+    private static void addField(Map<String, Float> weights, String text, float weight) {
+        for (NGramTokenizer.Token token : NGramTokenizer.indexTokens(text)) {
+            weights.merge(token.text(), weight, Float::sum);
+        }
+    }
+
+    /**
+     * 索引数据；倒排表和词典由单个写线程修改，查询线程通过并发容器读取不可变的倒排表
+     */
+    private static final class State {
+        final ConcurrentHashMap<String, Posting> postings = new ConcurrentHashMap<>();
+        // 英文单词词典，用于前缀扩展
+        final ConcurrentSkipListSet<String> words = new ConcurrentSkipListSet<>();
+        // 英文单词删除一个字符后的形式到原词的映射，用于模糊匹配
+        final ConcurrentHashMap<String, Set<String>> deletes = new ConcurrentHashMap<>();
+        // 以下字段只由写线程访问
+        final Map<String, Integer> docIds;
+        volatile Character[] docs;
+        // 各文档名称的前 4 个字符，见 nameHead
+        volatile long[] nameHeads;
+        volatile int liveCount;
+        int nextDoc;
+
+        State(Character[] docs, long[] nameHeads, int nextDoc, Map<String, Integer> docIds) {
+            this.docs = docs;
+            this.nameHeads = nameHeads;
+            this.nextDoc = nextDoc;
+            this.docIds = docIds;
+        }
+
+        int allocate(Character character) {
+            if (nextDoc == docs.length) {
+                nameHeads = Arrays.copyOf(nameHeads, docs.length * 2);
+                docs = Arrays.copyOf(docs, docs.length * 2);
+            }
+            nameHeads[nextDoc] = nameHead(character.getName());
+            docs[nextDoc] = character;
+            return nextDoc++;
+        }
+
+        void putPosting(String term, Posting posting) {
+            postings.put(term, posting);
+            if (isWord(term)) {
+                words.add(term);
+                if (term.length() >= MIN_FUZZY_LENGTH) {
+                    for (int i = 0; i < term.length(); i++) {
+                        deletes.computeIfAbsent(term.substring(0, i) + term.substring(i + 1),
+                                k -> ConcurrentHashMap.newKeySet()).add(term);
+                    }
+                }
+            }
+        }
+
+        void appendToPosting(String term, int doc, float weight) {
+            Posting posting = postings.get(term);
+            if (posting == null) {
+                putPosting(term, new Posting(new int[]{doc}, new float[]{weight}));
+                return;
+            }
+            // 新文档号总是最大的，追加在末尾后倒排表仍然有序
+            int n = posting.docs.length;
+            int[] docs = Arrays.copyOf(posting.docs, n + 1);
+            float[] weights = Arrays.copyOf(posting.weights, n + 1);
+            docs[n] = doc;
+            weights[n] = weight;
+            postings.put(term, new Posting(docs, weights));
+        }
+
+        void removeFromPosting(String term, int doc) {
+            Posting posting = postings.get(term);
+            if (posting == null) {
+                return;
+            }
+            int index = Arrays.binarySearch(posting.docs, doc);
+            if (index < 0) {
+                return;
+            }
+            int n = posting.docs.length;
+            if (n == 1) {
+                postings.remove(term);
+                if (isWord(term)) {
+                    words.remove(term);
+                    for (int i = 0; i < term.length(); i++) {
+                        String deleted = term.substring(0, i) + term.substring(i + 1);
+                        Set<String> variants = deletes.get(deleted);
+                        if (variants != null) {
+                            variants.remove(term);
+                        }
+                    }
+                }
+                return;
+            }
+            int[] docs = new int[n - 1];
+            float[] weights = new float[n - 1];
+            System.arraycopy(posting.docs, 0, docs, 0, index);
+            System.arraycopy(posting.docs, index + 1, docs, index, n - index - 1);
+            System.arraycopy(posting.weights, 0, weights, 0, index);
+            System.arraycopy(posting.weights, index + 1, weights, index, n - index - 1);
+            postings.put(term, new Posting(docs, weights));
+        }
+
+        private static boolean isWord(String term) {
+            return !NGramTokenizer.isCjk(term.charAt(0));
+        }
+    }
+
+    // 倒排表：按文档号升序的文档和对应的加权词频
+    private record Posting(int[] docs, float[] weights) {
+    }
+
+    /**
+     * 按文档号升序的得分列表，matched 为匹配的子句数
+     */
+    private record ScoredDocs(int[] docs, float[] scores, int[] matched, int size) {
+        // 按文档号归并两个列表，同一文档的得分相加；countClauses 为 false 时两个列表属于同一子句，匹配数不累加
+        static ScoredDocs union(ScoredDocs a, ScoredDocs b, boolean countClauses) {
+            int capacity = a.size + b.size;
+            int[] docs = new int[capacity];
+            float[] scores = new float[capacity];
+            int[] matched = new int[capacity];
+            int i = 0;
+            int j = 0;
+            int n = 0;
+            while (i < a.size || j < b.size) {
+                int docA = i < a.size ? a.docs[i] : Integer.MAX_VALUE;
+                int docB = j < b.size ? b.docs[j] : Integer.MAX_VALUE;
+                if (docA < docB) {
+                    docs[n] = docA;
+                    scores[n] = a.scores[i];
+                    matched[n++] = a.matched[i++];
+                } else if (docB < docA) {
+                    docs[n] = docB;
+                    scores[n] = b.scores[j];
+                    matched[n++] = b.matched[j++];
+                } else {
+                    docs[n] = docA;
+                    scores[n] = a.scores[i] + b.scores[j];
+                    matched[n++] = countClauses ? a.matched[i] + b.matched[j] : Math.max(a.matched[i], b.matched[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return new ScoredDocs(docs, scores, matched, n);
+        }
+    }
+
+    private record Expansion(Posting posting, float factor) {
+    }
+
+    private record Clause(List<Expansion> expansions) {
+    }
+
+    private record Hit(Character character, int matched, float score) implements Comparable<Hit> {
+        @Override
+        public int compareTo(Hit other) {
+            int byMatched = Integer.compare(matched, other.matched);
+            return byMatched != 0 ? byMatched : Float.compare(score, other.score);
+        }
+    }
+
+    private static final class PostingBuilder {
+        private int[] docs = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        void add(int doc, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size++] = weight;
+        }
+
+        Posting build() {
+            return new Posting(Arrays.copyOf(docs, size), Arrays.copyOf(weights, size));
+        }
+    }
+}
@@ -2,9 +2,23 @@ package com.tcs.service;
 
 import com.tcs.model.ChatRequest;
 import com.tcs.model.ChatResponse;
+import com.tcs.model.ChatStreamEvent;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.function.BiConsumer;
 
 public interface ChatService {
     ChatResponse processChatRequest(ChatRequest request);
+    Flux<ChatStreamEvent> streamChatRequest(ChatRequest request);
+    List<ChatResponse> processChatBatch(List<ChatRequest> requests);
+    // 批量处理，每个请求完成时回调一次（请求下标, 结果），回调都在调用线程上执行
+    void processChatBatch(List<ChatRequest> requests, BiConsumer<Integer, ChatResponse> onResult);
+    /**
+     * 预先生成角色对开场消息（无历史记录）的回复并写入回复缓存，replace 为 false 时已缓存的不再生成；
+     * 返回是否调用了模型，上游容量不足时抛出 ServiceBusyException，模型调用失败时抛出原异常
+     */
+    boolean prefetchReply(String characterId, String message, boolean replace);
     String formatMessageTimestamp(java.util.Date timestamp);
     boolean validateMessageContent(String content);
 }
\ No newline at end of file
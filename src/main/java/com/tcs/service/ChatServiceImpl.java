@@ -1,31 +1,61 @@
 package com.tcs.service;
 
+import com.tcs.cache.ResponseCache;
+import com.tcs.cache.SemanticCache;
+import com.tcs.exception.ServiceBusyException;
+import com.tcs.metrics.ChatMetrics;
 import com.tcs.model.ChatRequest;
 import com.tcs.model.ChatResponse;
+import com.tcs.model.ChatStreamEvent;
 import com.tcs.model.Message;
 import com.tcs.model.Character;
 import com.tcs.repository.CharacterRepository;
+import com.tcs.repository.ConversationStore;
+import com.tcs.repository.TranscriptRecord;
+import com.tcs.repository.TranscriptStore;
+import com.tcs.text.AhoCorasickMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.StreamingChatClient;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import java.util.*;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.logging.Logger;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 @Service
 public class ChatServiceImpl implements ChatService {
-    private static final Logger logger = Logger.getLogger(ChatServiceImpl.class.getName());
+    private static final Logger logger = LoggerFactory.getLogger(ChatServiceImpl.class);
 
     private final CharacterRepository characterRepository;
     private final ChatClient chatClient;
+    private final StreamingChatClient streamingChatClient;
+    private final UpstreamCallLimiter upstreamCallLimiter;
+    private final ResponseCache responseCache;
+    private final SemanticCache semanticCache;
+    private final SensitiveWordFilter sensitiveWordFilter;
+    private final PromptCompiler promptCompiler;
+    private final ConversationStore conversationStore;
+    private final TranscriptStore transcriptStore;
+    private final HistoryWindow historyWindow;
+    private final MessageIdGenerator messageIdGenerator;
+    private final ChatMetrics chatMetrics;
+    private final SingleFlight<String> singleFlight; // 合并进行中的相同提示
     private final Map<String, String> commonResponsesCache; // 缓存常见问题的响应
-    private final int maxHistorySize; // 最大历史记录条数
+    private final AhoCorasickMatcher commonResponsesMatcher; // 常见问题触发词的多模式匹配器
 
     @Value("${spring.ai.deepseek.chat.temperature:0.7}")
     private float temperature;
@@ -33,14 +63,38 @@ public class ChatServiceImpl implements ChatService {
     @Value("${spring.ai.deepseek.chat.max-tokens:1000}")
     private int maxTokens;
 
+    // 批量聊天中同时进行的模型调用数
+    @Value("${chat.batch.parallelism:8}")
+    private int batchParallelism = 8;
+
+    @Value("${chat.singleflight.enabled:true}")
+    private boolean singleFlightEnabled = true;
+
     @Autowired
-    public ChatServiceImpl(CharacterRepository characterRepository, ChatClient chatClient) {
+    public ChatServiceImpl(CharacterRepository characterRepository, ChatClient chatClient,
+                           StreamingChatClient streamingChatClient, UpstreamCallLimiter upstreamCallLimiter,
+                           ResponseCache responseCache, SemanticCache semanticCache,
+                           SensitiveWordFilter sensitiveWordFilter, PromptCompiler promptCompiler, ConversationStore conversationStore,
+                           TranscriptStore transcriptStore, HistoryWindow historyWindow,
+                           MessageIdGenerator messageIdGenerator, ChatMetrics chatMetrics) {
         this.characterRepository = characterRepository;
         this.chatClient = chatClient;
+        this.streamingChatClient = streamingChatClient;
+        this.upstreamCallLimiter = upstreamCallLimiter;
+        this.responseCache = responseCache;
+        this.semanticCache = semanticCache;
+        this.sensitiveWordFilter = sensitiveWordFilter;
+        this.promptCompiler = promptCompiler;
+        this.conversationStore = conversationStore;
+        this.transcriptStore = transcriptStore;
+        this.historyWindow = historyWindow;
+        this.messageIdGenerator = messageIdGenerator;
+        this.chatMetrics = chatMetrics;
+        this.singleFlight = new SingleFlight<>(chatMetrics::requestCoalesced);
         this.commonResponsesCache = new ConcurrentHashMap<>();
-        this.maxHistorySize = 5; // 限制历史记录大小，避免提示过长
         initializeCommonResponsesCache();
-        logger.info("ChatServiceImpl 初始化完成，最大历史记录数: " + maxHistorySize);
+        this.commonResponsesMatcher = AhoCorasickMatcher.compile(commonResponsesCache.keySet(), true);
+        logger.info("ChatServiceImpl 初始化完成");
     }
 
     private void initializeCommonResponsesCache() {
@@ -54,153 +108,433 @@ public class ChatServiceImpl implements ChatService {
     @Override
     public ChatResponse processChatRequest(ChatRequest request) {
         try {
-            logger.info("收到聊天请求，角色ID: " + request.getCharacterId());
+            PreparedChat prepared = prepareChat(request);
+            if (prepared.response != null) {
+                recordTurn(prepared, prepared.response);
+                return prepared.response;
+            }
 
-            String characterId = request.getCharacterId();
-            String message = request.getMessage();
-            List<Message> messageHistory = request.getMessageHistory();
+            // 生成AI回复
+            String aiResponseText = generateCoalesced(prepared);
 
-            // 输入验证
-            if (characterId == null || characterId.isEmpty()) {
-                logger.warning("角色ID为空");
-                return new ChatResponse(false, null, "角色ID是必需的");
-            }
+            logger.debug("聊天请求处理成功，角色ID: {}", request.getCharacterId());
+            ChatResponse response = new ChatResponse(true, createCharacterMessage(aiResponseText), null);
+            recordTurn(prepared, response);
+            return response;
+        } catch (ServiceBusyException e) {
+            // 容量不足交给全局异常处理，返回可重试的状态码
+            throw e;
+        } catch (Exception e) {
+            logger.error("处理聊天请求时出错: {}", e.getMessage(), e);
+            return new ChatResponse(false, null, "处理聊天请求失败，请稍后再试");
+        }
+    }
 
-            if (message == null) {
-                logger.warning("消息内容为空");
-                return new ChatResponse(false, null, "消息内容是必需的");
-            }
+    @Override
+    public Flux<ChatStreamEvent> streamChatRequest(ChatRequest request) {
+        PreparedChat prepared;
+        try {
+            prepared = prepareChat(request);
+        } catch (Exception e) {
+            logger.error("处理流式聊天请求时出错: {}", e.getMessage(), e);
+            return Flux.just(ChatStreamEvent.error(new ChatResponse(false, null, "处理聊天请求失败，请稍后再试")));
+        }
 
-            // 内容验证
-            if (!validateMessageContent(message.trim())) {
-                logger.warning("消息内容不合法");
-                return new ChatResponse(false, null, "消息内容必须在1-1000个字符之间");
-            }
+        // 校验失败或命中缓存时不调用模型，直接返回终止事件
+        if (prepared.response != null) {
+            recordTurn(prepared, prepared.response);
+            return Flux.just(prepared.response.isSuccess()
+                    ? ChatStreamEvent.done(prepared.response)
+                    : ChatStreamEvent.error(prepared.response));
+        }
+
+        // 相同提示的流式请求共享一次模型调用，订阅时才获取上游调用许可
+        Character character = prepared.character;
+        Flux<String> content = singleFlightEnabled
+                ? singleFlight.stream(prepared.promptKey(), () -> streamModelContent(prepared))
+                : streamModelContent(prepared);
+        return Flux.defer(() -> {
+            long startNanos = System.nanoTime();
+            StringBuilder fullText = new StringBuilder();
+            return content
+                    .doOnNext(chunk -> {
+                        if (fullText.length() == 0) {
+                            recordFirstTokenLatency(character, System.nanoTime() - startNanos);
+                        }
+                        fullText.append(chunk);
+                    })
+                    .map(ChatStreamEvent::delta)
+                    .concatWith(Flux.defer(() -> {
+                        ChatResponse response = new ChatResponse(true, createCharacterMessage(fullText.toString()), null);
+                        recordTurn(prepared, response);
+                        return Flux.just(ChatStreamEvent.done(response));
+                    }))
+                    // 容量不足交给控制器按繁忙处理，返回可重试的状态码
+                    .onErrorResume(e -> !(e instanceof ServiceBusyException), e -> Flux.just(ChatStreamEvent.error(
+                            new ChatResponse(false, null, "抱歉，我现在无法回答你的问题。请稍后再试。"))));
+        });
+    }
 
-            // 过滤敏感内容
-            String filteredMessage = filterSensitiveContent(message.trim());
-            if (filteredMessage.isEmpty()) {
-                logger.warning("消息内容包含不适当内容");
-                return new ChatResponse(false, null, "消息内容包含不适当内容，请修改后重试");
+    // 返回模型输出的文本分片流，每次订阅时获取上游调用许可（容量不足时以 ServiceBusyException 结束），
+    // 流结束或被取消时释放许可，成功结束时写入回复缓存
+    private Flux<String> streamModelContent(PreparedChat prepared) {
+        Character character = prepared.character;
+        return Flux.using(() -> {
+            upstreamCallLimiter.acquire();
+            return upstreamCallLimiter;
+        }, limiter -> Flux.defer(() -> {
+            long promptStart = System.nanoTime();
+            Prompt prompt = buildPrompt(character, prepared.filteredMessage, prepared.history);
+            long startNanos = stage(ChatMetrics.STAGE_PROMPT, promptStart);
+            StringBuilder fullText = new StringBuilder();
+            boolean[] responded = new boolean[1]; // 是否已记录响应延迟样本
+            logger.debug("调用AI模型流式生成回复，角色: {}", character.getName());
+            return streamingChatClient.stream(prompt)
+                    .<String>handle((chunk, sink) -> {
+                        String text = extractContent(chunk);
+                        if (text != null && !text.isEmpty()) {
+                            sink.next(text);
+                        }
+                    })
+                    .doOnNext(text -> {
+                        // 以首个分片的延迟作为响应延迟样本
+                        if (!responded[0]) {
+                            responded[0] = true;
+                            chatMetrics.recordModelLatency(System.nanoTime() - startNanos, true);
+                        }
+                        fullText.append(text);
+                    })
+                    .doOnComplete(() -> {
+                        long nanos = System.nanoTime() - startNanos;
+                        if (!responded[0]) {
+                            chatMetrics.recordModelLatency(nanos, true);
+                        }
+                        chatMetrics.recordModelCall(character.getId(), nanos, true);
+                        responseCache.put(character.getId(), prepared.filteredMessage, prepared.history, fullText.toString());
+                        if (responseCache.isCacheable(character.getId())) {
+                            semanticCache.put(character.getId(), prepared.filteredMessage, prepared.history, fullText.toString());
+                        }
+                    })
+                    .doOnError(e -> {
+                        long nanos = System.nanoTime() - startNanos;
+                        if (!responded[0]) {
+                            chatMetrics.recordModelLatency(nanos, false);
+                        }
+                        chatMetrics.recordModelCall(character.getId(), nanos, false);
+                        logger.error("流式调用AI模型时出错: {}", e.getMessage());
+                    });
+        }), UpstreamCallLimiter::release);
+    }
+
+    @Override
+    public List<ChatResponse> processChatBatch(List<ChatRequest> requests) {
+        ChatResponse[] results = new ChatResponse[requests.size()];
+        processChatBatch(requests, (index, response) -> results[index] = response);
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public void processChatBatch(List<ChatRequest> requests, BiConsumer<Integer, ChatResponse> onResult) {
+        // 先完成所有请求的校验、过滤和缓存检查，需要调用模型的请求按提示去重
+        PreparedChat[] prepared = new PreparedChat[requests.size()];
+        Map<String, List<Integer>> pendingCalls = new LinkedHashMap<>();
+        for (int i = 0; i < prepared.length; i++) {
+            try {
+                prepared[i] = prepareChat(requests.get(i));
+            } catch (Exception e) {
+                logger.error("预处理批量聊天请求时出错: {}", e.getMessage(), e);
+                prepared[i] = PreparedChat.of(new ChatResponse(false, null, "处理聊天请求失败，请稍后再试"));
             }
+            if (prepared[i].response != null) {
+                recordTurn(prepared[i], prepared[i].response);
+                onResult.accept(i, prepared[i].response);
+            } else {
+                pendingCalls.computeIfAbsent(prepared[i].promptKey(), k -> new ArrayList<>()).add(i);
+            }
+        }
+        if (pendingCalls.isEmpty()) {
+            return;
+        }
+        logger.info("批量聊天请求 {} 个，去重后调用模型 {} 次", prepared.length, pendingCalls.size());
 
-            // 获取角色信息
-            Character character = characterRepository.getCharacterById(characterId);
-            if (character == null) {
-                logger.warning("找不到指定的角色: " + characterId);
-                return new ChatResponse(false, null, "找不到指定的角色");
+        // 每个不同的提示在虚拟线程上调用一次模型，同时进行的调用不超过 batchParallelism，
+        // 按完成顺序回调，调用方可以边生成边输出
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            CompletionService<BatchCall> completionService = new ExecutorCompletionService<>(executor);
+            Iterator<List<Integer>> groups = pendingCalls.values().iterator();
+            int parallelism = Math.max(1, batchParallelism);
+            int inFlight = 0;
+            while (inFlight > 0 || groups.hasNext()) {
+                while (inFlight < parallelism && groups.hasNext()) {
+                    List<Integer> indexes = groups.next();
+                    PreparedChat first = prepared[indexes.get(0)];
+                    completionService.submit(() -> new BatchCall(indexes, callModelForBatch(first)));
+                    inFlight++;
+                }
+                BatchCall call = completionService.take().get();
+                inFlight--;
+                for (int index : call.indexes()) {
+                    ChatResponse response = call.text() != null
+                            ? new ChatResponse(true, createCharacterMessage(call.text()), null)
+                            : new ChatResponse(false, null, "服务繁忙，请稍后重试");
+                    recordTurn(prepared[index], response);
+                    onResult.accept(index, response);
+                }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("批量聊天请求被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("批量聊天请求执行失败", e.getCause());
+        } finally {
+            // 正常结束时所有调用都已完成；回调出错（如客户端断开）时中断仍在进行的调用
+            executor.shutdownNow();
+        }
+    }
+
+    // 批量请求中的单次模型调用，上游容量不足时返回 null，由调用方转换为单条请求的错误
+    private String callModelForBatch(PreparedChat prepared) {
+        try {
+            return generateCoalesced(prepared);
+        } catch (ServiceBusyException e) {
+            return null;
+        }
+    }
+
+    // 请求预处理：输入验证、敏感词过滤、角色查找和缓存短路，流式和非流式接口共用
+    private PreparedChat prepareChat(ChatRequest request) {
+        logger.debug("收到聊天请求，角色ID: {}", request.getCharacterId());
+        long start = System.nanoTime();
+
+        String characterId = request.getCharacterId();
+        String message = request.getMessage();
+
+        // 输入验证
+        if (characterId == null || characterId.isEmpty()) {
+            logger.warn("角色ID为空");
+            return PreparedChat.of(new ChatResponse(false, null, "角色ID是必需的"));
+        }
+
+        if (message == null) {
+            logger.warn("消息内容为空");
+            return PreparedChat.of(new ChatResponse(false, null, "消息内容是必需的"));
+        }
+
+        // 内容验证
+        String trimmedMessage = message.trim();
+        if (!validateMessageContent(trimmedMessage)) {
+            logger.warn("消息内容不合法");
+            return PreparedChat.of(new ChatResponse(false, null, "消息内容必须在1-1000个字符之间"));
+        }
+        start = stage(ChatMetrics.STAGE_VALIDATION, start);
+
+        // 过滤敏感内容
+        String filteredMessage = filterSensitiveContent(trimmedMessage);
+        start = stage(ChatMetrics.STAGE_FILTER, start);
+        if (filteredMessage.isEmpty()) {
+            chatMetrics.messageRejected();
+            logger.warn("消息内容包含不适当内容");
+            return PreparedChat.of(new ChatResponse(false, null, "消息内容包含不适当内容，请修改后重试"));
+        }
+        if (!filteredMessage.equals(trimmedMessage)) {
+            chatMetrics.messageFiltered();
+        }
+
+        // 获取角色信息
+        Character character = characterRepository.getCharacterById(characterId);
+        start = stage(ChatMetrics.STAGE_LOOKUP, start);
+        if (character == null) {
+            logger.warn("找不到指定的角色: {}", characterId);
+            return PreparedChat.of(new ChatResponse(false, null, "找不到指定的角色"));
+        }
+
+        // 提供会话ID时使用服务端保存的历史记录，否则使用客户端上传的历史记录
+        String conversationId = request.getConversationId();
+        if (conversationId != null && conversationId.isBlank()) {
+            conversationId = null;
+        }
+        List<Message> messageHistory = conversationId != null
+                ? conversationStore.getRecentMessages(characterId, conversationId)
+                : request.getMessageHistory();
+
+        // 按 token 预算选择历史记录，避免提示过长
+        List<Message> limitedHistory = limitMessageHistory(character, filteredMessage, messageHistory);
+        start = stage(ChatMetrics.STAGE_HISTORY, start);
+        PreparedChat prepared = new PreparedChat(null, character, filteredMessage, limitedHistory, conversationId);
+
+        // 检查该角色是否回答过相同的问题
+        String cachedResponse = responseCache.get(characterId, filteredMessage, limitedHistory);
+        if (cachedResponse != null) {
+            stage(ChatMetrics.STAGE_CACHE, start);
+            chatMetrics.responseCacheHit();
+            logger.debug("命中回复缓存，角色ID: {}", characterId);
+            return prepared.withResponse(new ChatResponse(true, createCharacterMessage(cachedResponse), null));
+        }
 
-            // 检查是否有缓存的常见响应
-            String cachedResponse = checkCommonResponsesCache(filteredMessage);
+        // 检查是否有缓存的常见响应
+        cachedResponse = checkCommonResponsesCache(filteredMessage);
+        start = stage(ChatMetrics.STAGE_CACHE, start);
+        if (cachedResponse != null) {
+            chatMetrics.commonResponseHit();
+            logger.debug("使用缓存的响应");
+            return prepared.withResponse(new ChatResponse(true, createCharacterMessage(cachedResponse), null));
+        }
+
+        // 检查该角色是否回答过意思相近的问题（只针对没有历史记录的轮次）
+        if (responseCache.isCacheable(characterId) && semanticCache.isApplicable(limitedHistory)) {
+            cachedResponse = semanticCache.lookup(characterId, filteredMessage);
+            stage(ChatMetrics.STAGE_SEMANTIC_CACHE, start);
             if (cachedResponse != null) {
-                logger.info("使用缓存的响应");
-                // 创建AI回复消息
-                Message aiMessage = new Message(
-                        "character-" + System.currentTimeMillis(),
-                        cachedResponse,
-                        "character",
-                        new Date(),
-                        false
-                );
-                return new ChatResponse(true, aiMessage, null);
+                chatMetrics.semanticCacheHit();
+                logger.debug("命中语义缓存，角色ID: {}", characterId);
+                return prepared.withResponse(new ChatResponse(true, createCharacterMessage(cachedResponse), null));
             }
+        }
 
-            // 限制历史记录大小
-            List<Message> limitedHistory = limitMessageHistory(messageHistory);
+        return prepared;
+    }
 
-            // 生成AI回复
-            String aiResponseText = generateAIResponse(character, filteredMessage, limitedHistory);
-
-            // 创建AI回复消息
-            Message aiMessage = new Message(
-                    "character-" + System.currentTimeMillis(),
-                    aiResponseText,
-                    "character",
-                    new Date(),
-                    false
-            );
-
-            logger.info("聊天请求处理成功，角色ID: " + characterId);
-            return new ChatResponse(true, aiMessage, null);
-        } catch (Exception e) {
-            logger.severe("处理聊天请求时出错: " + e.getMessage());
-            e.printStackTrace();
-            return new ChatResponse(false, null, "处理聊天请求失败，请稍后再试");
+    // 同时进行中的相同提示只调用一次模型，其余请求等待并共享同一个回复
+    private String generateCoalesced(PreparedChat prepared) {
+        if (!singleFlightEnabled) {
+            return generateAIResponse(prepared.character, prepared.filteredMessage, prepared.history);
         }
+        return singleFlight.execute(prepared.promptKey(),
+                () -> generateAIResponse(prepared.character, prepared.filteredMessage, prepared.history));
     }
 
     // 生成AI回复
     private String generateAIResponse(Character character, String userMessage, List<Message> messageHistory) {
         try {
-            // 生成系统提示
-            String systemPrompt = generateSystemPrompt(character);
-
-            // 构建提示模板
-            StringBuilder historyBuilder = new StringBuilder();
-            if (messageHistory != null && !messageHistory.isEmpty()) {
-                for (Message msg : messageHistory) {
-                    String role = msg.getSender().equals("character") ? "assistant" : "user";
-                    historyBuilder.append(role).append(": ").append(msg.getText()).append("\n");
-                }
-            }
-
-            Map<String, Object> promptVars = new HashMap<>();
-            promptVars.put("systemPrompt", systemPrompt);
-            promptVars.put("messageHistory", historyBuilder.toString());
-            promptVars.put("userMessage", userMessage);
+            return callModel(character, userMessage, messageHistory);
+        } catch (ServiceBusyException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            // 返回友好的错误信息
+            return "抱歉，我现在无法回答你的问题。请稍后再试。";
+        }
+    }
 
-            PromptTemplate promptTemplate = new PromptTemplate("{systemPrompt}\n{messageHistory}\nuser: {userMessage}");
-            Prompt prompt = promptTemplate.create(promptVars);
+    // 调用AI模型并缓存回复，出错时抛出异常
+    private String callModel(Character character, String userMessage, List<Message> messageHistory) {
+        upstreamCallLimiter.acquire();
+        long start = System.nanoTime();
+        try {
+            Prompt prompt = buildPrompt(character, userMessage, messageHistory);
+            start = stage(ChatMetrics.STAGE_PROMPT, start);
 
             // 调用AI模型
-            logger.info("调用AI模型生成回复，角色: " + character.getName());
-            return chatClient.call(prompt).getResult().getOutput().getContent();
-        } catch (Exception e) {
-            logger.severe("调用AI模型时出错: " + e.getMessage());
-            // 返回友好的错误信息
-            return "抱歉，我现在无法回答你的问题。请稍后再试。";
+            logger.debug("调用AI模型生成回复，角色: {}", character.getName());
+            String aiResponseText = chatClient.call(prompt).getResult().getOutput().getContent();
+            long nanos = System.nanoTime() - start;
+            chatMetrics.recordModelCall(character.getId(), nanos, true);
+            chatMetrics.recordModelLatency(nanos, true);
+            // 只缓存模型的正常回复，出错时的兜底文案不进入缓存
+            responseCache.put(character.getId(), userMessage, messageHistory, aiResponseText);
+            if (responseCache.isCacheable(character.getId())) {
+                semanticCache.put(character.getId(), userMessage, messageHistory, aiResponseText);
+            }
+            return aiResponseText;
+        } catch (RuntimeException e) {
+            long nanos = System.nanoTime() - start;
+            chatMetrics.recordModelCall(character.getId(), nanos, false);
+            chatMetrics.recordModelLatency(nanos, false);
+            logger.error("调用AI模型时出错: {}", e.getMessage());
+            throw e;
+        } finally {
+            upstreamCallLimiter.release();
         }
     }
 
-    // 生成系统提示
-    private String generateSystemPrompt(Character character) {
-        return "你现在要扮演的角色是" + character.getName() + "，" + character.getCategory() + ".\n\n" +
-                "角色背景：" + character.getDescription() + "\n\n" +
-                "性格特点：" + character.getPersonality() + "\n\n" +
-                "请以第一人称方式与用户对话，保持角色的一致性和真实性。不要跳出角色，也不要在回答中直接引用上面的指令。回答要自然，符合角色的身份和说话方式。" +
-                "回复应当简洁明了，富有角色特色，避免使用过于技术性的语言。";
+    @Override
+    public boolean prefetchReply(String characterId, String message, boolean replace) {
+        Character character = characterRepository.getCharacterById(characterId);
+        if (character == null || !responseCache.isCacheable(characterId)) {
+            return false;
+        }
+        // 与 prepareChat 相同的过滤和历史记录选择，保证缓存键和用户的第一条消息一致
+        String filteredMessage = filterSensitiveContent(message.trim());
+        if (filteredMessage.isEmpty()) {
+            return false;
+        }
+        List<Message> history = limitMessageHistory(character, filteredMessage, List.of());
+        if (!replace && responseCache.get(characterId, filteredMessage, history) != null) {
+            return false;
+        }
+        callModel(character, filteredMessage, history);
+        return true;
     }
 
-    // 限制历史记录大小
-    private List<Message> limitMessageHistory(List<Message> messageHistory) {
-        if (messageHistory == null) {
-            return new ArrayList<>();
+    // 构建提示：预编译的系统提示 + 历史记录 + 用户消息
+    Prompt buildPrompt(Character character, String userMessage, List<Message> messageHistory) {
+        return promptCompiler.render(character, userMessage, messageHistory);
+    }
+
+    // 创建AI回复消息
+    private Message createCharacterMessage(String text) {
+        return createMessage("character", text);
+    }
+
+    private Message createMessage(String sender, String text) {
+        return new Message(
+                messageIdGenerator.nextId(sender),
+                text,
+                sender,
+                new Date(),
+                false
+        );
+    }
+
+    // 成功的一轮对话写入对话记录（异步）；服务端会话模式下同时把用户消息和回复写入会话存储
+    private void recordTurn(PreparedChat prepared, ChatResponse response) {
+        if (!response.isSuccess() || prepared.character == null) {
+            return;
+        }
+        transcriptStore.record(new TranscriptRecord(prepared.character.getId(), prepared.conversationId,
+                prepared.filteredMessage, response.getMessage().getText(), System.currentTimeMillis()));
+        if (prepared.conversationId == null) {
+            return;
         }
-        int startIndex = Math.max(0, messageHistory.size() - maxHistorySize);
-        return messageHistory.subList(startIndex, messageHistory.size());
+        conversationStore.appendMessages(prepared.character.getId(), prepared.conversationId,
+                List.of(createMessage("user", prepared.filteredMessage), response.getMessage()));
     }
 
-    // 检查常见问题缓存
-    private String checkCommonResponsesCache(String message) {
-        String lowercaseMessage = message.toLowerCase();
-        for (Map.Entry<String, String> entry : commonResponsesCache.entrySet()) {
-            if (lowercaseMessage.contains(entry.getKey())) {
-                return entry.getValue();
-            }
+    // 记录流式回复的首字延迟
+    private void recordFirstTokenLatency(Character character, long latencyNanos) {
+        chatMetrics.recordFirstToken(character.getId(), latencyNanos);
+        logger.debug("流式回复首字延迟: {}ms，角色: {}", TimeUnit.NANOSECONDS.toMillis(latencyNanos), character.getName());
+    }
+
+    // 记录从 startNanos 开始的阶段耗时，返回当前时间作为下一阶段的起点
+    private long stage(String stage, long startNanos) {
+        long now = System.nanoTime();
+        chatMetrics.recordStage(stage, now - startNanos);
+        return now;
+    }
+
+    // 提取流式分片中的文本，结束分片可能不带内容
+    private String extractContent(org.springframework.ai.chat.ChatResponse chunk) {
+        if (chunk == null || chunk.getResult() == null || chunk.getResult().getOutput() == null) {
+            return null;
         }
-        return null;
+        return chunk.getResult().getOutput().getContent();
+    }
+
+    // 限制历史记录大小
+    List<Message> limitMessageHistory(Character character, String userMessage, List<Message> messageHistory) {
+        return historyWindow.select(character, userMessage, messageHistory);
+    }
+
+    // 检查常见问题缓存，一次扫描找出最先出现的触发词（忽略大小写）
+    String checkCommonResponsesCache(String message) {
+        int index = commonResponsesMatcher.findFirst(message);
+        return index < 0 ? null : commonResponsesCache.get(commonResponsesMatcher.getPattern(index));
     }
 
     // 过滤敏感内容
-    private String filterSensitiveContent(String content) {
-        // 简单的敏感词过滤，实际应用中可以使用更复杂的过滤系统
-        String[] sensitiveWords = {"垃圾", "废物", "白痴"}; // 示例敏感词
-        String filtered = content;
-        for (String word : sensitiveWords) {
-            filtered = filtered.replace(word, "*".repeat(word.length()));
-        }
-        return filtered;
+    String filterSensitiveContent(String content) {
+        return sensitiveWordFilter.filter(content);
     }
 
     @Override
@@ -214,4 +548,39 @@ public class ChatServiceImpl implements ChatService {
     public boolean validateMessageContent(String content) {
         return content != null && !content.trim().isEmpty() && content.trim().length() <= 1000;
     }
-}
\ No newline at end of file
+
+    // 预处理结果：response 不为空时直接返回，否则携带调用模型所需的上下文
+    private static final class PreparedChat {
+        private final ChatResponse response;
+        private final Character character;
+        private final String filteredMessage;
+        private final List<Message> history;
+        private final String conversationId; // 为空表示客户端自行维护历史记录
+
+        private PreparedChat(ChatResponse response, Character character, String filteredMessage,
+                             List<Message> history, String conversationId) {
+            this.response = response;
+            this.character = character;
+            this.filteredMessage = filteredMessage;
+            this.history = history;
+            this.conversationId = conversationId;
+        }
+
+        private static PreparedChat of(ChatResponse response) {
+            return new PreparedChat(response, null, null, null, null);
+        }
+
+        private PreparedChat withResponse(ChatResponse response) {
+            return new PreparedChat(response, character, filteredMessage, history, conversationId);
+        }
+
+        // 发给模型的提示相同的请求共用一次调用
+        private String promptKey() {
+            return character.getId() + '\u0001' + filteredMessage + '\u0001' + Long.toHexString(ResponseCache.hashHistory(history));
+        }
+    }
+
+    // 批量请求中一次模型调用的结果，indexes 为共用该调用的请求下标
+    private record BatchCall(List<Integer> indexes, String text) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.tcs.service;
+
+import com.tcs.cache.LruCache;
+import com.tcs.cache.ResponseCache;
+import com.tcs.model.Character;
+import com.tcs.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 按 token 预算选择历史记录
+ * 从最近的消息开始向前填充，直到用完提示的 token 预算（扣除系统提示和本轮用户消息），
+ * 可选地把被丢弃的较早消息压缩为一条摘要消息放在窗口最前面
+ */
+@Component
+public class HistoryWindow {
+    private static final Logger logger = LoggerFactory.getLogger(HistoryWindow.class);
+    // 每条消息的角色前缀和换行的大致开销
+    private static final int MESSAGE_OVERHEAD_TOKENS = 4;
+    private static final int SUMMARY_LINE_CHARS = 40;
+    private static final String SUMMARY_HEADER = "以下是较早对话的摘要：";
+
+    private final TokenEstimator tokenEstimator;
+    private final PromptCompiler promptCompiler;
+    private final int maxPromptTokens;
+    private final int maxMessages;
+    private final boolean summaryEnabled;
+    private final int summaryMaxTokens;
+    private final LruCache<String, Message> summaryCache;
+
+    public HistoryWindow(TokenEstimator tokenEstimator, PromptCompiler promptCompiler,
+                         @Value("${chat.history.max-prompt-tokens:2000}") int maxPromptTokens,
+                         @Value("${chat.history.max-messages:20}") int maxMessages,
+                         @Value("${chat.history.summary-enabled:false}") boolean summaryEnabled,
+                         @Value("${chat.history.summary-max-tokens:200}") int summaryMaxTokens) {
+        this.tokenEstimator = tokenEstimator;
+        this.promptCompiler = promptCompiler;
+        this.maxPromptTokens = maxPromptTokens;
+        this.maxMessages = maxMessages;
+        this.summaryEnabled = summaryEnabled;
+        this.summaryMaxTokens = summaryMaxTokens;
+        this.summaryCache = new LruCache<>(10000, 0);
+        logger.info("历史记录窗口: 提示预算 {} tokens，最多 {} 条消息，摘要{}",
+                maxPromptTokens, maxMessages, summaryEnabled ? "已开启" : "已关闭");
+    }
+
+    /**
+     * 选出放入提示的历史记录，按时间从旧到新排列
+     */
+    public List<Message> select(Character character, String userMessage, List<Message> history) {
+        if (history == null || history.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int budget = maxPromptTokens
+                - tokenEstimator.estimate(promptCompiler.compile(character).systemPart())
+                - tokenEstimator.estimate(userMessage)
+                - MESSAGE_OVERHEAD_TOKENS;
+
+        int start = windowStart(history, budget);
+        if (start == 0 || !summaryEnabled) {
+            return history.subList(start, history.size());
+        }
+
+        // 有消息被丢弃时，为摘要预留预算后重新计算窗口
+        start = windowStart(history, budget - summaryMaxTokens);
+        List<Message> window = new ArrayList<>(history.size() - start + 1);
+        window.add(summarize(history.subList(0, start)));
+        window.addAll(history.subList(start, history.size()));
+        return window;
+    }
+
+    // 从最近的消息向前累加，返回窗口中最旧消息的下标
+    private int windowStart(List<Message> history, int budget) {
+        int minStart = Math.max(0, history.size() - maxMessages);
+        int start = history.size();
+        int used = 0;
+        while (start > minStart) {
+            int cost = tokenEstimator.estimate(history.get(start - 1).getText()) + MESSAGE_OVERHEAD_TOKENS;
+            if (used + cost > budget) {
+                break;
+            }
+            used += cost;
+            start--;
+        }
+        return start;
+    }
+
+    // 生成较早消息的摘要：从最近被丢弃的消息往前截取，直到用完摘要预算
+    private Message summarize(List<Message> dropped) {
+        String key = dropped.size() + ":" + Long.toHexString(ResponseCache.hashHistory(dropped));
+        Message cached = summaryCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Deque<String> lines = new ArrayDeque<>();
+        int used = tokenEstimator.estimate(SUMMARY_HEADER);
+        for (int i = dropped.size() - 1; i >= 0; i--) {
+            Message msg = dropped.get(i);
+            String text = msg.getText() == null ? "" : msg.getText();
+            if (text.length() > SUMMARY_LINE_CHARS) {
+                text = text.substring(0, SUMMARY_LINE_CHARS) + "…";
+            }
+            String line = ("character".equals(msg.getSender()) ? "角色说：" : "用户说：") + text;
+            int cost = tokenEstimator.estimate(line) + 1;
+            if (used + cost > summaryMaxTokens) {
+                break;
+            }
+            lines.addFirst(line);
+            used += cost;
+        }
+
+        Message summary = new Message("summary-" + key, SUMMARY_HEADER + String.join("；", lines), "system", new Date(), false);
+        summaryCache.put(key, summary);
+        return summary;
+    }
+}
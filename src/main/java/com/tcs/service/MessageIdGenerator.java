@@ -0,0 +1,155 @@
+package com.tcs.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 消息ID生成器（Snowflake 布局）
+ * 64 位ID由 41 位毫秒时间戳（自 2024-01-01 起）、10 位节点号和 12 位序号组成，按时间递增；
+ * 时间戳和序号保存在同一个 AtomicLong 中，一次 CAS 完成分配：同一毫秒内序号用完时借用下一毫秒，
+ * 时钟回拨时沿用已分配的最大时间戳，保证单调递增。
+ * 字符串形式为“前缀-”加 13 位 Crockford Base32，定长编码使字符串顺序与数值顺序一致
+ */
+@Component
+public class MessageIdGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(MessageIdGenerator.class);
+    static final long EPOCH_MILLIS = 1_704_067_200_000L; // 2024-01-01T00:00:00Z
+    static final int SEQUENCE_BITS = 12;
+    static final int NODE_BITS = 10;
+    public static final int MAX_NODE = (1 << NODE_BITS) - 1;
+    public static final int ENCODED_LENGTH = 13;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final byte[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(StandardCharsets.US_ASCII);
+
+    private final long nodeBits;
+    private final LongSupplier clock;
+    // 高位为已分配的时间戳（相对 EPOCH_MILLIS），低 12 位为该毫秒内的序号
+    private final AtomicLong state = new AtomicLong();
+
+    public MessageIdGenerator(int node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    /**
+     * @param node           节点号（0-1023），多实例部署时每个实例需不同
+     * @param nodeSource     config 使用 node；statefulset 取 Pod 名称（statefulSetName-序号）中的序号，忽略 node
+     * @param statefulSetName nodeSource 为 statefulset 时 StatefulSet 的名称
+     */
+    @Autowired
+    public MessageIdGenerator(@Value("${chat.id.node:0}") int node,
+                              @Value("${chat.id.node-source:config}") String nodeSource,
+                              @Value("${chat.id.statefulset-name:}") String statefulSetName) {
+        this(resolveNode(node, nodeSource, statefulSetName, MessageIdGenerator::hostName), System::currentTimeMillis);
+        logger.info("消息ID生成器节点号: {}，来源: {}", nodeBits >>> SEQUENCE_BITS, nodeSource);
+    }
+
+    MessageIdGenerator(int node, LongSupplier clock) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("节点号必须在 0 到 " + MAX_NODE + " 之间");
+        }
+        this.nodeBits = (long) node << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    /**
+     * 分配下一个ID
+     */
+    public long nextId() {
+        long now = (clock.getAsLong() - EPOCH_MILLIS) << SEQUENCE_BITS;
+        long next = state.accumulateAndGet(now, MessageIdGenerator::advance);
+        return ((next >>> SEQUENCE_BITS) << (SEQUENCE_BITS + NODE_BITS)) | nodeBits | (next & SEQUENCE_MASK);
+    }
+
+    /**
+     * 分配下一个ID并编码为“前缀-Base32”，前缀只能包含 ASCII 字符；除结果字符串外只分配一个字节数组
+     */
+    public String nextId(String prefix) {
+        int length = prefix.length();
+        byte[] bytes = new byte[length + 1 + ENCODED_LENGTH];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) prefix.charAt(i);
+        }
+        bytes[length] = '-';
+        encode(nextId(), bytes, length + 1);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 13 位定长 Crockford Base32 编码
+     */
+    public static String encode(long id) {
+        byte[] bytes = new byte[ENCODED_LENGTH];
+        encode(id, bytes, 0);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * ID中的时间戳（毫秒）
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (SEQUENCE_BITS + NODE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int nodeOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE);
+    }
+
+    private static void encode(long id, byte[] out, int offset) {
+        for (int i = offset + ENCODED_LENGTH - 1; i >= offset; i--) {
+            out[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+    }
+
+    // 时钟前进时从新的毫秒开始，否则在已分配的最大值上加一（序号溢出时进位到下一毫秒）
+    private static long advance(long previous, long now) {
+        return Math.max(previous + 1, now);
+    }
+
+    // 只接受确定唯一的来源：配置的节点号，或主机名与 StatefulSet 名称完全匹配时的 Pod 序号；
+    // 主机名末尾任意的数字（例如 ip-10-0-1-17）在实例之间可能重复，不作为节点号
+    static int resolveNode(int node, String nodeSource, String statefulSetName, Supplier<String> hostName) {
+        switch (nodeSource.trim().toLowerCase()) {
+            case "config" -> {
+                return node;
+            }
+            case "statefulset" -> {
+                if (statefulSetName == null || statefulSetName.isBlank()) {
+                    throw new IllegalStateException("chat.id.node-source=statefulset 时必须配置 chat.id.statefulset-name");
+                }
+                String host = hostName.get();
+                String prefix = statefulSetName.trim() + '-';
+                String ordinal = host.startsWith(prefix) ? host.substring(prefix.length()) : "";
+                if (ordinal.isEmpty() || ordinal.length() > 4 || !ordinal.chars().allMatch(Character::isDigit)
+                        || (ordinal.length() > 1 && ordinal.charAt(0) == '0') || Integer.parseInt(ordinal) > MAX_NODE) {
+                    throw new IllegalStateException("主机名 " + host + " 不是 StatefulSet " + statefulSetName
+                            + " 的 Pod 名称（" + prefix + "0 到 " + prefix + MAX_NODE + "），无法确定消息ID节点号");
+                }
+                return Integer.parseInt(ordinal);
+            }
+            default -> throw new IllegalArgumentException("不支持的节点号来源: " + nodeSource + "，可选 config 或 statefulset");
+        }
+    }
+
+    private static String hostName() {
+        String host = System.getenv("HOSTNAME");
+        if (host != null && !host.isBlank()) {
+            return host;
+        }
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+}
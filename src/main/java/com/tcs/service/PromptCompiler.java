@@ -0,0 +1,109 @@
+package com.tcs.service;
+
+import com.tcs.model.Character;
+import com.tcs.model.Message;
+import com.tcs.repository.CharacterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 角色提示词编译器
+ * 每个角色的系统提示只在首次使用或角色信息变化时渲染一次，
+ * 每次请求只需把历史记录和用户消息追加到预估好容量的缓冲区中
+ */
+@Component
+public class PromptCompiler {
+    private static final Logger logger = LoggerFactory.getLogger(PromptCompiler.class);
+    private static final String USER_PREFIX = "user: ";
+    private static final String ASSISTANT_PREFIX = "assistant: ";
+    private static final String SYSTEM_PREFIX = "system: ";
+    // 每条历史记录除正文外的固定开销："assistant: " + 换行
+    private static final int HISTORY_LINE_OVERHEAD = ASSISTANT_PREFIX.length() + 1;
+
+    private final ConcurrentHashMap<String, CompiledPrompt> compiledPrompts = new ConcurrentHashMap<>();
+
+    public PromptCompiler(CharacterRepository characterRepository) {
+        precompile(characterRepository.getAllCharacters());
+        // 角色目录重新加载后丢弃变化角色的编译结果
+        characterRepository.addChangeListener((snapshot, changedIds) -> changedIds.forEach(this::invalidate));
+    }
+
+    // 预编译一批角色的系统提示
+    public void precompile(Collection<Character> characters) {
+        for (Character character : characters) {
+            compile(character);
+        }
+        logger.info("已预编译 {} 个角色的系统提示", characters.size());
+    }
+
+    /**
+     * 获取角色编译后的系统提示；角色对象被替换（重新加载或修改）时自动重新编译
+     */
+    public CompiledPrompt compile(Character character) {
+        CompiledPrompt compiled = compiledPrompts.get(character.getId());
+        if (compiled == null || compiled.source() != character) {
+            compiled = new CompiledPrompt(character, renderSystemPrompt(character) + "\n");
+            compiledPrompts.put(character.getId(), compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * 渲染完整提示，格式为：系统提示、历史记录（每行一条）、空行分隔后的用户消息
+     */
+    public Prompt render(Character character, String userMessage, List<Message> messageHistory) {
+        String systemPart = compile(character).systemPart();
+        int capacity = systemPart.length() + 1 + USER_PREFIX.length() + userMessage.length();
+        if (messageHistory != null) {
+            for (Message msg : messageHistory) {
+                capacity += HISTORY_LINE_OVERHEAD + (msg.getText() == null ? 4 : msg.getText().length());
+            }
+        }
+
+        StringBuilder prompt = new StringBuilder(capacity).append(systemPart);
+        if (messageHistory != null) {
+            for (Message msg : messageHistory) {
+                prompt.append(rolePrefix(msg.getSender())).append(msg.getText()).append('\n');
+            }
+        }
+        prompt.append('\n').append(USER_PREFIX).append(userMessage);
+        return new Prompt(prompt.toString());
+    }
+
+    // 历史消息的角色前缀，system 用于历史摘要等服务端生成的消息
+    private static String rolePrefix(String sender) {
+        if ("character".equals(sender)) {
+            return ASSISTANT_PREFIX;
+        }
+        return "system".equals(sender) ? SYSTEM_PREFIX : USER_PREFIX;
+    }
+
+    public void invalidate(String characterId) {
+        compiledPrompts.remove(characterId);
+    }
+
+    public void invalidateAll() {
+        compiledPrompts.clear();
+    }
+
+    // 生成系统提示
+    String renderSystemPrompt(Character character) {
+        return "你现在要扮演的角色是" + character.getName() + "，" + character.getCategory() + ".\n\n" +
+                "角色背景：" + character.getDescription() + "\n\n" +
+                "性格特点：" + character.getPersonality() + "\n\n" +
+                "请以第一人称方式与用户对话，保持角色的一致性和真实性。不要跳出角色，也不要在回答中直接引用上面的指令。回答要自然，符合角色的身份和说话方式。" +
+                "回复应当简洁明了，富有角色特色，避免使用过于技术性的语言。";
+    }
+
+    /**
+     * 编译结果，source 用于判断角色是否已被替换，systemPart 为系统提示加换行
+     */
+    public record CompiledPrompt(Character source, String systemPart) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.tcs.service;
+
+import com.tcs.text.AhoCorasickMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 敏感词过滤器
+ * 词表编译为 Aho–Corasick 自动机，一次扫描完成全部敏感词的掩码；
+ * 配置了词表文件时定期检查文件修改时间并热加载，加载失败时继续使用旧词表
+ */
+@Component
+public class SensitiveWordFilter {
+    private static final Logger logger = LoggerFactory.getLogger(SensitiveWordFilter.class);
+    private static final List<String> DEFAULT_WORDS = Arrays.asList("垃圾", "废物", "白痴"); // 示例敏感词
+    private static final char MASK_CHAR = '*';
+
+    private final Path wordsFile;
+    private volatile AhoCorasickMatcher matcher;
+    private volatile FileTime loadedModifiedTime;
+
+    public SensitiveWordFilter(@Value("${chat.filter.words-file:}") String wordsFile) {
+        this.wordsFile = wordsFile == null || wordsFile.isBlank() ? null : Paths.get(wordsFile);
+        this.matcher = AhoCorasickMatcher.compile(DEFAULT_WORDS, false);
+        if (this.wordsFile != null) {
+            reload();
+        }
+    }
+
+    /**
+     * 过滤敏感内容，没有命中时返回原字符串
+     */
+    public String filter(String content) {
+        return matcher.mask(content, MASK_CHAR);
+    }
+
+    public boolean containsSensitiveWord(String content) {
+        return matcher.containsAny(content);
+    }
+
+    public int getWordCount() {
+        return matcher.size();
+    }
+
+    // 定期检查词表文件是否更新
+    @Scheduled(fixedDelayString = "${chat.filter.reload-interval-ms:30000}")
+    public void reloadIfModified() {
+        if (wordsFile == null) {
+            return;
+        }
+        try {
+            FileTime modifiedTime = Files.getLastModifiedTime(wordsFile);
+            if (!modifiedTime.equals(loadedModifiedTime)) {
+                reload();
+            }
+        } catch (IOException e) {
+            logger.warn("检查敏感词文件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从词表文件重新加载，每行一个词，# 开头的行为注释
+     */
+    public synchronized void reload() {
+        if (wordsFile == null) {
+            return;
+        }
+        try {
+            FileTime modifiedTime = Files.getLastModifiedTime(wordsFile);
+            List<String> words = new ArrayList<>();
+            for (String line : Files.readAllLines(wordsFile, StandardCharsets.UTF_8)) {
+                String word = line.trim();
+                if (!word.isEmpty() && !word.startsWith("#")) {
+                    words.add(word);
+                }
+            }
+            matcher = AhoCorasickMatcher.compile(words, false);
+            loadedModifiedTime = modifiedTime;
+            logger.info("敏感词表加载完成，共 {} 个词，文件: {}", matcher.size(), wordsFile);
+        } catch (IOException e) {
+            logger.error("加载敏感词文件失败，继续使用当前词表: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.tcs.service;
+
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 相同请求合并执行（single-flight）
+ * 同一个 key 同时只执行一次：第一个调用方负责执行，执行期间到达的调用方等待并共享同一个结果（或异常）；
+ * 执行结束后立即移除，不缓存结果。流式调用共享同一个上游流，后加入的订阅者会先收到已输出的分片，
+ * 共享流断开后订阅的调用方开始新的调用
+ */
+public class SingleFlight<K> {
+    private final ConcurrentHashMap<K, CompletableFuture<?>> calls = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<K, Flight<?>> streams = new ConcurrentHashMap<>();
+    public static final String TYPE_CALL = "call";
+    public static final String TYPE_STREAM = "stream";
+
+    private final Consumer<String> onCoalesced;
+
+    /**
+     * @param onCoalesced 调用被合并（加入已有执行）时的回调，参数为 call 或 stream，用于统计
+     */
+    public SingleFlight(Consumer<String> onCoalesced) {
+        this.onCoalesced = onCoalesced;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> V execute(K key, Supplier<V> call) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = (CompletableFuture<V>) calls.putIfAbsent(key, created);
+        if (existing != null) {
+            onCoalesced.accept(TYPE_CALL);
+            return join(existing);
+        }
+        try {
+            V result = call.get();
+            created.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            created.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, created);
+        }
+    }
+
+    /**
+     * 共享一个流式调用：订阅时加入同一个 key 进行中的流，没有时由 source 开始一次新的调用。
+     * 上游流结束或所有订阅者都取消后移除，之后订阅的调用方开始新的调用，不会重新订阅已断开的流；
+     * 返回的流不订阅就不会调用 source
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> stream(K key, Supplier<Flux<T>> source) {
+        return Flux.defer(() -> {
+            Flight<T> created = new Flight<>();
+            // 在结束信号传给订阅者之前移除，之后到达的调用方不会加入已结束的流
+            created.shared = Flux.defer(source)
+                    .doOnTerminate(() -> streams.remove(key, created))
+                    .doOnCancel(() -> streams.remove(key, created))
+                    .replay()
+                    .refCount();
+            Flight<T> existing = (Flight<T>) streams.putIfAbsent(key, created);
+            if (existing != null) {
+                onCoalesced.accept(TYPE_STREAM);
+                return existing.shared;
+            }
+            return created.shared;
+        });
+    }
+
+    public int getInFlightCount() {
+        return calls.size() + streams.size();
+    }
+
+    private static <V> V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    // 进行中的一次流式调用，放入 map 之前创建好共享流
+    private static final class Flight<T> {
+        private Flux<T> shared;
+    }
+}
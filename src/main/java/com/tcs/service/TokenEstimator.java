@@ -0,0 +1,52 @@
+package com.tcs.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * 本地 token 数估算
+ * 不依赖具体模型的分词器：中日韩等非 ASCII 字符按每字 1 个 token，
+ * 连续的英文字母和数字按每 4 个字符 1 个 token，标点每个 1 个 token，空白不计。
+ * 对中文偏保守，保证按估算值裁剪出的提示不会超出预算。
+ * 只遍历一次字符、不分配内存，不缓存结果：按内容查缓存本身也要遍历整段文本，还会长期持有客户端发来的长字符串
+ */
+@Component
+public class TokenEstimator {
+    private static final int ASCII_CHARS_PER_TOKEN = 4;
+
+    /**
+     * 估算文本的 token 数
+     */
+    public int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return count(text);
+    }
+
+    static int count(CharSequence text) {
+        int tokens = 0;
+        int asciiRun = 0;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')) {
+                    asciiRun++;
+                    continue;
+                }
+                tokens += (asciiRun + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN;
+                asciiRun = 0;
+                if (c > ' ') {
+                    tokens++;
+                }
+            } else {
+                tokens += (asciiRun + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN;
+                asciiRun = 0;
+                // 代理对只在高位计数一次
+                if (!Character.isLowSurrogate(c)) {
+                    tokens++;
+                }
+            }
+        }
+        return tokens + (asciiRun + ASCII_CHARS_PER_TOKEN - 1) / ASCII_CHARS_PER_TOKEN;
+    }
+}
@@ -0,0 +1,68 @@
+package com.tcs.service;
+
+import com.tcs.exception.ServiceBusyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游模型调用并发限制器
+ * 限制同时进行中的模型调用数量，排队超过等待时间的请求直接被拒绝，避免请求无限堆积
+ */
+@Component
+public class UpstreamCallLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamCallLimiter.class);
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+
+    public UpstreamCallLimiter(@Value("${chat.upstream.max-concurrent:64}") int maxConcurrent,
+                               @Value("${chat.upstream.acquire-timeout-ms:500}") long acquireTimeoutMs) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("chat.upstream.max-concurrent 必须大于0");
+        }
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        logger.info("上游调用并发限制: {}，排队等待上限: {}ms", maxConcurrent, acquireTimeoutMs);
+    }
+
+    /**
+     * 获取一个调用许可，等待超时后抛出 ServiceBusyException，调用方必须在结束后调用 release
+     */
+    public void acquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            logger.warn("上游模型调用已达并发上限 {}，拒绝请求", maxConcurrent);
+            throw new ServiceBusyException("当前请求过多，请稍后再试", HttpStatus.SERVICE_UNAVAILABLE, 1);
+        }
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getInFlight() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    public int getQueueLength() {
+        return permits.getQueueLength();
+    }
+}
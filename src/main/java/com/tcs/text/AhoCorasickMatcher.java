@@ -0,0 +1,220 @@
+package com.tcs.text;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho–Corasick 多模式匹配器
+ * 构建后不可变、线程安全，一次扫描即可找出文本中的所有模式串，扫描过程不分配对象
+ */
+public final class AhoCorasickMatcher {
+    private static final int ROOT = 0;
+    private static final int NO_MATCH = -1;
+
+    private final String[] patterns;
+    private final boolean ignoreCase;
+
+    // 根节点使用稠密跳转表，其余节点的边按字符排序后存放在连续数组中，查找时二分
+    private final int[] rootNext;
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    // 在该节点结束的最长模式串（含失败链上的后缀）的长度与下标
+    private final int[] outputLength;
+    private final int[] outputPattern;
+
+    private AhoCorasickMatcher(String[] patterns, boolean ignoreCase, int[] rootNext, int[] edgeStart,
+                               char[] edgeChars, int[] edgeTargets, int[] fail,
+                               int[] outputLength, int[] outputPattern) {
+        this.patterns = patterns;
+        this.ignoreCase = ignoreCase;
+        this.rootNext = rootNext;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.outputLength = outputLength;
+        this.outputPattern = outputPattern;
+    }
+
+    /**
+     * 编译模式串集合，空串和重复的模式串会被忽略
+     */
+    public static AhoCorasickMatcher compile(Collection<String> patternSource, boolean ignoreCase) {
+        List<String> patternList = new ArrayList<>(patternSource.size());
+        List<Map<Character, Integer>> trie = new ArrayList<>();
+        List<Integer> terminal = new ArrayList<>();
+        trie.add(new HashMap<>());
+        terminal.add(NO_MATCH);
+
+        for (String pattern : patternSource) {
+            if (pattern == null || pattern.isEmpty()) {
+                continue;
+            }
+            int state = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i), ignoreCase);
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.add(new HashMap<>());
+                    terminal.add(NO_MATCH);
+                    trie.get(state).put(c, next);
+                }
+                state = next;
+            }
+            if (terminal.get(state) == NO_MATCH) {
+                terminal.set(state, patternList.size());
+                patternList.add(pattern);
+            }
+        }
+
+        int nodeCount = trie.size();
+        int edgeCount = nodeCount - 1;
+        int[] rootNext = new int[Character.MAX_VALUE + 1];
+        int[] edgeStart = new int[nodeCount + 1];
+        char[] edgeChars = new char[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int[] fail = new int[nodeCount];
+        int[] outputLength = new int[nodeCount];
+        int[] outputPattern = new int[nodeCount];
+        Arrays.fill(outputPattern, NO_MATCH);
+
+        // 展开边表
+        int offset = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            edgeStart[node] = offset;
+            Map<Character, Integer> children = trie.get(node);
+            char[] keys = new char[children.size()];
+            int k = 0;
+            for (Character c : children.keySet()) {
+                keys[k++] = c;
+            }
+            Arrays.sort(keys);
+            for (char c : keys) {
+                edgeChars[offset] = c;
+                edgeTargets[offset] = children.get(c);
+                offset++;
+            }
+        }
+        edgeStart[nodeCount] = offset;
+        for (Map.Entry<Character, Integer> entry : trie.get(ROOT).entrySet()) {
+            rootNext[entry.getKey()] = entry.getValue();
+        }
+
+        AhoCorasickMatcher matcher = new AhoCorasickMatcher(patternList.toArray(new String[0]), ignoreCase,
+                rootNext, edgeStart, edgeChars, edgeTargets, fail, outputLength, outputPattern);
+
+        // 广度优先计算失败指针，并沿失败链合并输出
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int e = edgeStart[ROOT]; e < edgeStart[ROOT + 1]; e++) {
+            int child = edgeTargets[e];
+            fail[child] = ROOT;
+            queue.add(child);
+        }
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int own = terminal.get(node);
+            if (own != NO_MATCH) {
+                outputLength[node] = patternList.get(own).length();
+                outputPattern[node] = own;
+            } else {
+                outputLength[node] = outputLength[fail[node]];
+                outputPattern[node] = outputPattern[fail[node]];
+            }
+            for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+                int child = edgeTargets[e];
+                fail[child] = matcher.next(fail[node], edgeChars[e]);
+                queue.add(child);
+            }
+        }
+        return matcher;
+    }
+
+    /**
+     * 文本中是否包含任一模式串
+     */
+    public boolean containsAny(CharSequence text) {
+        return findFirst(text) != NO_MATCH;
+    }
+
+    /**
+     * 返回最先结束的匹配对应的模式串下标，同一位置结束时取最长者，没有匹配时返回 -1
+     */
+    public int findFirst(CharSequence text) {
+        int state = ROOT;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = next(state, fold(text.charAt(i), ignoreCase));
+            if (outputLength[state] > 0) {
+                return outputPattern[state];
+            }
+        }
+        return NO_MATCH;
+    }
+
+    /**
+     * 将所有匹配到的模式串替换为等长的掩码字符
+     * 没有匹配时直接返回原字符串，有匹配时只复制一次字符数组
+     */
+    public String mask(String text, char maskChar) {
+        char[] masked = null;
+        int state = ROOT;
+        for (int i = 0, n = text.length(); i < n; i++) {
+            state = next(state, fold(text.charAt(i), ignoreCase));
+            int length = outputLength[state];
+            if (length > 0) {
+                if (masked == null) {
+                    masked = text.toCharArray();
+                }
+                Arrays.fill(masked, i - length + 1, i + 1, maskChar);
+            }
+        }
+        return masked == null ? text : new String(masked);
+    }
+
+    public String getPattern(int index) {
+        return patterns[index];
+    }
+
+    public int size() {
+        return patterns.length;
+    }
+
+    private int next(int state, char c) {
+        while (state != ROOT) {
+            int target = findEdge(state, c);
+            if (target != NO_MATCH) {
+                return target;
+            }
+            state = fail[state];
+        }
+        return rootNext[c];
+    }
+
+    private int findEdge(int state, char c) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return NO_MATCH;
+    }
+
+    private static char fold(char c, boolean ignoreCase) {
+        return ignoreCase ? Character.toLowerCase(c) : c;
+    }
+}
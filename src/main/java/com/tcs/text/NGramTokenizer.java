@@ -0,0 +1,85 @@
+package com.tcs.text;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 面向中日韩文字的分词器
+ * 连续的中日韩字符切分为单字和二元组，字母和数字组成的连续片段作为一个单词（转为小写），其余字符作为分隔符
+ */
+public final class NGramTokenizer {
+
+    private NGramTokenizer() {
+    }
+
+    /**
+     * 建索引用的词项：中日韩片段输出全部单字和二元组，单词原样输出
+     */
+    public static List<Token> indexTokens(String text) {
+        List<Token> tokens = new ArrayList<>();
+        tokenize(text, true, tokens);
+        return tokens;
+    }
+
+    /**
+     * 查询用的词项：中日韩片段只有一个字时输出单字，否则输出二元组
+     */
+    public static List<Token> queryTokens(String text) {
+        List<Token> tokens = new ArrayList<>();
+        tokenize(text, false, tokens);
+        return tokens;
+    }
+
+    private static void tokenize(String text, boolean forIndex, List<Token> tokens) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                emitCjk(text, start, i, forIndex, tokens);
+            } else if (java.lang.Character.isLetterOrDigit(c)) {
+                int start = i;
+                while (i < length && !isCjk(text.charAt(i)) && java.lang.Character.isLetterOrDigit(text.charAt(i))) {
+                    i++;
+                }
+                tokens.add(new Token(text.substring(start, i).toLowerCase(Locale.ROOT), false));
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private static void emitCjk(String text, int start, int end, boolean forIndex, List<Token> tokens) {
+        if (end - start == 1 || forIndex) {
+            for (int i = start; i < end; i++) {
+                tokens.add(new Token(String.valueOf(text.charAt(i)), true));
+            }
+        }
+        for (int i = start; i + 1 < end; i++) {
+            tokens.add(new Token(text.substring(i, i + 2), true));
+        }
+    }
+
+    // 中日韩统一表意文字、假名和谚文
+    public static boolean isCjk(char c) {
+        return (c >= '\u4e00' && c <= '\u9fff')
+                || (c >= '\u3400' && c <= '\u4dbf')
+                || (c >= '\uf900' && c <= '\ufaff')
+                || (c >= '\u3040' && c <= '\u30ff')
+                || (c >= '\uac00' && c <= '\ud7af');
+    }
+
+    /**
+     * 词项，cjk 表示来自中日韩片段的单字或二元组，否则为单词
+     */
+    public record Token(String text, boolean cjk) {
+    }
+}
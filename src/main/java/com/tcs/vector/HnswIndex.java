@@ -0,0 +1,409 @@
+package com.tcs.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * HNSW（分层可导航小世界图）近似最近邻索引，按内积检索已归一化的向量（即余弦相似度）
+ * 向量存放在堆外（{@link OffHeapVectorStore}），图结构和附带的数据在堆上。
+ * 删除只做标记，被删除的节点仍参与导航但不出现在结果中；编号用完时去掉已删除的节点重建索引，节点编号随之改变。
+ * 非线程安全：写操作需要独占，只读的 search 可以并发执行
+ */
+public final class HnswIndex<T> {
+    private static final int MAX_LEVEL = 16;
+
+    private final int dimensions;
+    private final int capacity;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final int chunkSize;
+    private final double levelMultiplier;
+    private final AtomicLong allocatedBytes;
+    private final SplittableRandom random;
+
+    private OffHeapVectorStore vectors;
+    // links[节点][层] 为该层的邻居，下标 0 存放邻居数
+    private int[][][] links;
+    private Object[] payloads;
+    private BitSet deleted;
+    private int deletedCount;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    /**
+     * @param capacity       节点编号上限（包括已删除但尚未重建的节点）
+     * @param m              每层的邻居数，第 0 层为 2m
+     * @param efConstruction 插入时的候选集大小
+     * @param allocatedBytes 共享的堆外字节数计数器
+     */
+    public HnswIndex(int dimensions, int capacity, int m, int efConstruction, AtomicLong allocatedBytes, long seed) {
+        if (capacity <= 0 || m < 2 || efConstruction < m) {
+            throw new IllegalArgumentException("需要 capacity > 0，m >= 2，efConstruction >= m");
+        }
+        this.dimensions = dimensions;
+        this.capacity = capacity;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.chunkSize = Math.min(64, capacity);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.allocatedBytes = allocatedBytes;
+        this.random = new SplittableRandom(seed);
+        reset();
+    }
+
+    private void reset() {
+        this.vectors = new OffHeapVectorStore(dimensions, chunkSize, allocatedBytes);
+        this.links = new int[Math.min(capacity, 64)][][];
+        this.payloads = new Object[links.length];
+        this.deleted = new BitSet();
+        this.deletedCount = 0;
+        this.entryPoint = -1;
+        this.maxLevel = -1;
+    }
+
+    /**
+     * 插入一个已归一化的向量，返回节点编号；编号用完时先重建索引，全部是有效节点时抛出 IllegalStateException
+     */
+    public int add(float[] vector, T payload) {
+        if (vectors.size() == capacity) {
+            if (deletedCount == 0) {
+                throw new IllegalStateException("索引已满: " + capacity);
+            }
+            compact();
+        }
+        int id = vectors.add(vector);
+        if (id == links.length) {
+            int grown = Math.min(capacity, links.length * 2);
+            links = Arrays.copyOf(links, grown);
+            payloads = Arrays.copyOf(payloads, grown);
+        }
+        int level = randomLevel();
+        int[][] nodeLinks = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            nodeLinks[l] = new int[(l == 0 ? maxM0 : m) + 1];
+        }
+        links[id] = nodeLinks;
+        payloads[id] = payload;
+        if (entryPoint < 0) {
+            entryPoint = id;
+            maxLevel = level;
+            return id;
+        }
+
+        // 从顶层贪心下降到新节点所在的最高层，再逐层搜索候选并连接邻居
+        int current = entryPoint;
+        float currentDistance = distance(vector, current);
+        for (int l = maxLevel; l > level; l--) {
+            long closest = greedy(vector, current, currentDistance, l);
+            current = idOf(closest);
+            currentDistance = distanceOf(closest);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            long[] candidates = ascending(searchLayer(vector, current, currentDistance, efConstruction, l));
+            int[] neighbors = selectNeighbors(candidates, m);
+            int[] own = nodeLinks[l];
+            for (int neighbor : neighbors) {
+                own[++own[0]] = neighbor;
+                connect(neighbor, id, l);
+            }
+            current = idOf(candidates[0]);
+            currentDistance = distanceOf(candidates[0]);
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = id;
+        }
+        return id;
+    }
+
+    /**
+     * 近似检索与 query 最相似的 k 个有效节点，ef 越大召回率越高、耗时越长；结果按相似度从高到低排列
+     */
+    public List<Match<T>> search(float[] query, int k, int ef) {
+        if (entryPoint < 0 || size() == 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        float currentDistance = distance(query, current);
+        for (int l = maxLevel; l > 0; l--) {
+            long closest = greedy(query, current, currentDistance, l);
+            current = idOf(closest);
+            currentDistance = distanceOf(closest);
+        }
+        long[] candidates = ascending(searchLayer(query, current, currentDistance, Math.max(ef, k), 0));
+        List<Match<T>> matches = new ArrayList<>(Math.min(k, candidates.length));
+        for (long candidate : candidates) {
+            int id = idOf(candidate);
+            if (!deleted.get(id)) {
+                matches.add(match(id, 1 - distanceOf(candidate)));
+                if (matches.size() == k) {
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * 精确检索（逐个比较所有有效节点），用于小规模数据和评估召回率
+     */
+    public List<Match<T>> searchExact(float[] query, int k) {
+        LongHeap results = new LongHeap(k + 1);
+        for (int id = 0, n = vectors.size(); id < n; id++) {
+            if (deleted.get(id)) {
+                continue;
+            }
+            long packed = pack(distance(query, id), id);
+            if (results.size() < k) {
+                results.push(-packed);
+            } else if (packed < -results.peek()) {
+                results.poll();
+                results.push(-packed);
+            }
+        }
+        List<Match<T>> matches = new ArrayList<>(results.size());
+        for (long packed : ascending(results)) {
+            matches.add(match(idOf(packed), 1 - distanceOf(packed)));
+        }
+        return matches;
+    }
+
+    /**
+     * 标记删除节点，返回其附带的数据
+     */
+    @SuppressWarnings("unchecked")
+    public T remove(int id) {
+        if (id < 0 || id >= vectors.size() || deleted.get(id)) {
+            return null;
+        }
+        deleted.set(id);
+        deletedCount++;
+        T payload = (T) payloads[id];
+        payloads[id] = null;
+        return payload;
+    }
+
+    /**
+     * 遍历所有有效节点的数据
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<T> consumer) {
+        for (int id = 0, n = vectors.size(); id < n; id++) {
+            if (!deleted.get(id)) {
+                consumer.accept((T) payloads[id], id);
+            }
+        }
+    }
+
+    /**
+     * 去掉已删除的节点，按原插入顺序重建索引
+     */
+    public void compact() {
+        OffHeapVectorStore oldVectors = vectors;
+        Object[] oldPayloads = payloads;
+        BitSet oldDeleted = deleted;
+        int oldSize = oldVectors.size();
+        reset();
+        float[] vector = new float[dimensions];
+        for (int id = 0; id < oldSize; id++) {
+            if (!oldDeleted.get(id)) {
+                oldVectors.get(id, vector);
+                @SuppressWarnings("unchecked")
+                T payload = (T) oldPayloads[id];
+                add(vector, payload);
+            }
+        }
+        oldVectors.release();
+    }
+
+    /**
+     * 释放堆外内存，之后不能再使用
+     */
+    public void release() {
+        vectors.release();
+        links = new int[0][][];
+        payloads = new Object[0];
+        entryPoint = -1;
+        maxLevel = -1;
+    }
+
+    // 在第 level 层从 entry 出发贪心移动到最近的节点
+    private long greedy(float[] query, int entry, float entryDistance, int level) {
+        int current = entry;
+        float currentDistance = entryDistance;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] neighbors = links[current][level];
+            for (int i = 1, n = neighbors[0]; i <= n; i++) {
+                int neighbor = neighbors[i];
+                float d = distance(query, neighbor);
+                if (d < currentDistance) {
+                    current = neighbor;
+                    currentDistance = d;
+                    changed = true;
+                }
+            }
+        }
+        return pack(currentDistance, current);
+    }
+
+    // 第 level 层的束搜索，返回保留 ef 个最近节点的最大堆（堆中存放取负后的打包值）
+    private LongHeap searchLayer(float[] query, int entry, float entryDistance, int ef, int level) {
+        BitSet visited = new BitSet(vectors.size());
+        LongHeap candidates = new LongHeap(ef * 2);
+        LongHeap results = new LongHeap(ef + 1);
+        long start = pack(entryDistance, entry);
+        candidates.push(start);
+        results.push(-start);
+        visited.set(entry);
+        while (!candidates.isEmpty()) {
+            long candidate = candidates.poll();
+            if (distanceOf(candidate) > distanceOf(-results.peek())) {
+                break;
+            }
+            int[] neighbors = links[idOf(candidate)][level];
+            for (int i = 1, n = neighbors[0]; i <= n; i++) {
+                int neighbor = neighbors[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float d = distance(query, neighbor);
+                if (results.size() < ef || d < distanceOf(-results.peek())) {
+                    long packed = pack(d, neighbor);
+                    candidates.push(packed);
+                    results.push(-packed);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    // 启发式选择邻居：候选按距离从近到远，只保留比已选邻居更接近基准点的候选，保证邻居分布在不同方向；不足时用被跳过的候选补齐
+    private int[] selectNeighbors(long[] candidates, int max) {
+        if (candidates.length <= max) {
+            int[] all = new int[candidates.length];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = idOf(candidates[i]);
+            }
+            return all;
+        }
+        int[] selected = new int[max];
+        int count = 0;
+        long[] skipped = new long[candidates.length];
+        int skippedCount = 0;
+        for (long candidate : candidates) {
+            if (count == max) {
+                break;
+            }
+            int id = idOf(candidate);
+            float d = distanceOf(candidate);
+            boolean diverse = true;
+            for (int i = 0; i < count; i++) {
+                if (1 - vectors.dot(id, selected[i]) < d) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = id;
+            } else {
+                skipped[skippedCount++] = candidate;
+            }
+        }
+        for (int i = 0; i < skippedCount && count < max; i++) {
+            selected[count++] = idOf(skipped[i]);
+        }
+        return selected;
+    }
+
+    // 为 node 在第 level 层添加反向连接，邻居已满时重新选择
+    private void connect(int node, int neighbor, int level) {
+        int[] neighbors = links[node][level];
+        int max = neighbors.length - 1;
+        if (neighbors[0] < max) {
+            neighbors[++neighbors[0]] = neighbor;
+            return;
+        }
+        long[] candidates = new long[max + 1];
+        for (int i = 1; i <= max; i++) {
+            candidates[i - 1] = pack(1 - vectors.dot(node, neighbors[i]), neighbors[i]);
+        }
+        candidates[max] = pack(1 - vectors.dot(node, neighbor), neighbor);
+        Arrays.sort(candidates);
+        int[] selected = selectNeighbors(candidates, max);
+        neighbors[0] = selected.length;
+        System.arraycopy(selected, 0, neighbors, 1, selected.length);
+    }
+
+    private int randomLevel() {
+        return Math.min(MAX_LEVEL, (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier));
+    }
+
+    private float distance(float[] query, int id) {
+        return 1 - vectors.dot(id, query);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Match<T> match(int id, float similarity) {
+        return new Match<>(id, (T) payloads[id], similarity);
+    }
+
+    // 取出最大堆中的全部元素，按距离从近到远排列
+    private static long[] ascending(LongHeap maxHeap) {
+        long[] values = new long[maxHeap.size()];
+        for (int i = values.length - 1; i >= 0; i--) {
+            values[i] = -maxHeap.poll();
+        }
+        return values;
+    }
+
+    // 距离（1 - 相似度，非负）的浮点位作为高 32 位、节点编号作为低 32 位，按 long 比较即按距离排序
+    private static long pack(float distance, int id) {
+        return ((long) Float.floatToRawIntBits(Math.max(0f, distance)) << 32) | id;
+    }
+
+    private static float distanceOf(long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    private static int idOf(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * 有效节点数
+     */
+    public int size() {
+        return vectors.size() - deletedCount;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public long bytes() {
+        return vectors.bytes();
+    }
+
+    /**
+     * 检索结果，similarity 为内积（归一化向量的余弦相似度）
+     */
+    public record Match<T>(int id, T payload, float similarity) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.tcs.vector;
+
+import java.util.Arrays;
+
+/**
+ * long 值的二叉最小堆，避免搜索过程中装箱
+ */
+final class LongHeap {
+    private long[] values;
+    private int size;
+
+    LongHeap(int initialCapacity) {
+        this.values = new long[Math.max(4, initialCapacity)];
+    }
+
+    void push(long value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (values[parent] <= value) {
+                break;
+            }
+            values[i] = values[parent];
+            i = parent;
+        }
+        values[i] = value;
+    }
+
+    long peek() {
+        return values[0];
+    }
+
+    long poll() {
+        long top = values[0];
+        long last = values[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && values[child + 1] < values[child]) {
+                child++;
+            }
+            if (last <= values[child]) {
+                break;
+            }
+            values[i] = values[child];
+            i = child;
+        }
+        if (size > 0) {
+            values[i] = last;
+        }
+        return top;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+}
@@ -0,0 +1,140 @@
+package com.tcs.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 堆外向量存储
+ * 向量按块分配在直接内存中（每块 chunkSize 个向量），不占用 Java 堆，也不增加 GC 扫描的对象数；
+ * 分配的字节数累加到共享计数器，release 时扣减。非线程安全，由调用方加锁
+ */
+public final class OffHeapVectorStore {
+    private final int dimensions;
+    private final int chunkShift;
+    private final int chunkMask;
+    private final AtomicLong allocatedBytes;
+    private FloatBuffer[] chunks = new FloatBuffer[4];
+    private int chunkCount;
+    private int size;
+    private boolean released;
+
+    /**
+     * @param chunkSize      每块的向量数，向上取整为 2 的幂
+     * @param allocatedBytes 共享的已分配字节数计数器
+     */
+    public OffHeapVectorStore(int dimensions, int chunkSize, AtomicLong allocatedBytes) {
+        if (dimensions <= 0) {
+            throw new IllegalArgumentException("dimensions 必须大于0");
+        }
+        int size = chunkSize <= 1 ? 1 : Integer.highestOneBit(chunkSize - 1) << 1;
+        this.dimensions = dimensions;
+        this.chunkShift = Integer.numberOfTrailingZeros(size);
+        this.chunkMask = size - 1;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * 追加一个向量，返回其编号（从 0 开始连续分配）
+     */
+    public int add(float[] vector) {
+        if (released) {
+            throw new IllegalStateException("向量存储已释放");
+        }
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("向量维度应为 " + dimensions + "，实际为 " + vector.length);
+        }
+        int id = size;
+        int chunk = id >>> chunkShift;
+        if (chunk == chunkCount) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            long bytes = (long) (chunkMask + 1) * dimensions * Float.BYTES;
+            chunks[chunkCount++] = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder()).asFloatBuffer();
+            allocatedBytes.addAndGet(bytes);
+        }
+        chunks[chunk].put((id & chunkMask) * dimensions, vector);
+        size++;
+        return id;
+    }
+
+    /**
+     * 存储的向量与 query 的内积
+     */
+    public float dot(int id, float[] query) {
+        FloatBuffer chunk = chunks[id >>> chunkShift];
+        int base = (id & chunkMask) * dimensions;
+        // 四路累加，减少循环携带的依赖
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (int n = dimensions & ~3; i < n; i += 4) {
+            s0 += chunk.get(base + i) * query[i];
+            s1 += chunk.get(base + i + 1) * query[i + 1];
+            s2 += chunk.get(base + i + 2) * query[i + 2];
+            s3 += chunk.get(base + i + 3) * query[i + 3];
+        }
+        for (; i < dimensions; i++) {
+            s0 += chunk.get(base + i) * query[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * 两个存储的向量的内积
+     */
+    public float dot(int a, int b) {
+        FloatBuffer chunkA = chunks[a >>> chunkShift];
+        FloatBuffer chunkB = chunks[b >>> chunkShift];
+        int baseA = (a & chunkMask) * dimensions;
+        int baseB = (b & chunkMask) * dimensions;
+        float s0 = 0, s1 = 0;
+        int i = 0;
+        for (int n = dimensions & ~1; i < n; i += 2) {
+            s0 += chunkA.get(baseA + i) * chunkB.get(baseB + i);
+            s1 += chunkA.get(baseA + i + 1) * chunkB.get(baseB + i + 1);
+        }
+        if (i < dimensions) {
+            s0 += chunkA.get(baseA + i) * chunkB.get(baseB + i);
+        }
+        return s0 + s1;
+    }
+
+    /**
+     * 把编号为 id 的向量复制到 out
+     */
+    public void get(int id, float[] out) {
+        chunks[id >>> chunkShift].get((id & chunkMask) * dimensions, out, 0, dimensions);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * 已分配的直接内存字节数
+     */
+    public long bytes() {
+        return (long) chunkCount * (chunkMask + 1) * dimensions * Float.BYTES;
+    }
+
+    /**
+     * 扣减计数器并丢弃所有块，直接内存在缓冲区被回收时释放
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        allocatedBytes.addAndGet(-bytes());
+        chunks = new FloatBuffer[0];
+        chunkCount = 0;
+        size = 0;
+    }
+}
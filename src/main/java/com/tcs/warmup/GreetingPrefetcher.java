@@ -0,0 +1,182 @@
+package com.tcs.warmup;
+
+import com.tcs.exception.ServiceBusyException;
+import com.tcs.model.Character;
+import com.tcs.repository.CharacterRepository;
+import com.tcs.service.ChatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * 角色开场回复预取
+ * 在后台为每个角色生成对开场消息（如“你好”）的回复并写入回复缓存，用户的第一条消息直接命中缓存；
+ * 缓存过期前定期补齐，角色目录变化时重新生成变化角色的回复。
+ * 开场消息默认取 chat.warmup.greeting.messages，可用 chat.warmup.greeting.messages.&lt;角色ID&gt; 单独配置，配置为空表示该角色不预取
+ */
+@Component
+public class GreetingPrefetcher {
+    private static final Logger logger = LoggerFactory.getLogger(GreetingPrefetcher.class);
+    private static final String MESSAGES_PROPERTY = "chat.warmup.greeting.messages";
+
+    private final ChatService chatService;
+    private final CharacterRepository characterRepository;
+    private final Function<String, List<String>> messagesOf;
+    private final boolean enabled;
+    private final Set<String> characterIds;
+    private final int parallelism;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean started;
+
+    @Autowired
+    public GreetingPrefetcher(ChatService chatService, CharacterRepository characterRepository, Environment environment,
+                              @Value("${chat.warmup.greeting.enabled:false}") boolean enabled,
+                              @Value("${chat.warmup.greeting.characters:}") Set<String> characterIds,
+                              @Value("${chat.warmup.greeting.parallelism:4}") int parallelism) {
+        this(chatService, characterRepository, id -> split(environment.getProperty(MESSAGES_PROPERTY + "." + id,
+                environment.getProperty(MESSAGES_PROPERTY, "你好"))), enabled, characterIds, parallelism);
+    }
+
+    GreetingPrefetcher(ChatService chatService, CharacterRepository characterRepository,
+                       Function<String, List<String>> messagesOf, boolean enabled, Set<String> characterIds, int parallelism) {
+        this.chatService = chatService;
+        this.characterRepository = characterRepository;
+        this.messagesOf = messagesOf;
+        this.enabled = enabled;
+        this.characterIds = new HashSet<>(characterIds);
+        this.parallelism = Math.max(1, parallelism);
+        // 角色设定变化后旧的开场回复不再适用，覆盖生成
+        characterRepository.addChangeListener((snapshot, changedIds) -> {
+            if (started) {
+                Thread.ofVirtual().name("greeting-prefetch").start(() -> prefetch(changedIds, true));
+            }
+        });
+    }
+
+    /**
+     * 在后台预取所有角色的开场回复，由启动预热调用
+     */
+    public void startAsync() {
+        if (!enabled) {
+            return;
+        }
+        started = true;
+        Thread.ofVirtual().name("greeting-prefetch").start(this::prefetchAll);
+    }
+
+    // 补齐过期或被淘汰的开场回复，已缓存的不重复生成
+    @Scheduled(fixedDelayString = "${chat.warmup.greeting.refresh-interval-ms:1800000}",
+            initialDelayString = "${chat.warmup.greeting.refresh-interval-ms:1800000}")
+    public void refresh() {
+        if (started) {
+            prefetchAll();
+        }
+    }
+
+    void prefetchAll() {
+        List<String> ids = new ArrayList<>();
+        for (Character character : characterRepository.getAllCharacters()) {
+            ids.add(character.getId());
+        }
+        prefetch(ids, false);
+    }
+
+    /**
+     * 预取指定角色的开场回复，同一时间只进行一轮，同时进行的模型调用不超过 parallelism；
+     * 补齐缓存的一轮遇到正在进行的预取时直接跳过，覆盖生成的一轮等待前一轮结束后执行
+     */
+    void prefetch(Collection<String> ids, boolean replace) {
+        if (replace) {
+            lock.lock();
+        } else if (!lock.tryLock()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long generatedBefore = generated.get();
+        long failedBefore = failed.get();
+        Semaphore permits = new Semaphore(parallelism);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (String id : ids) {
+                if (!characterIds.isEmpty() && !characterIds.contains(id)) {
+                    continue;
+                }
+                for (String message : messagesOf.apply(id)) {
+                    permits.acquireUninterruptibly();
+                    executor.execute(() -> {
+                        try {
+                            prefetchOne(id, message, replace);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        logger.info("开场回复预取完成，生成 {} 条，失败 {} 条，耗时 {}ms", generated.get() - generatedBefore,
+                failed.get() - failedBefore, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void prefetchOne(String characterId, String message, boolean replace) {
+        try {
+            if (chatService.prefetchReply(characterId, message, replace)) {
+                generated.incrementAndGet();
+            } else {
+                skipped.incrementAndGet();
+            }
+        } catch (ServiceBusyException e) {
+            // 上游繁忙时让出容量给用户请求，下一轮再补齐
+            failed.incrementAndGet();
+            logger.debug("上游繁忙，跳过角色 {} 的开场回复预取", characterId);
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            logger.warn("预取角色 {} 的开场回复失败: {}", characterId, e.getMessage());
+        }
+    }
+
+    private static List<String> split(String value) {
+        List<String> messages = new ArrayList<>();
+        for (String message : value.split(",")) {
+            if (!message.isBlank()) {
+                messages.add(message.trim());
+            }
+        }
+        return messages;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getGenerated() {
+        return generated.get();
+    }
+
+    public long getSkipped() {
+        return skipped.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+}
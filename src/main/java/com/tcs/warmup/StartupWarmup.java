@@ -0,0 +1,270 @@
+package com.tcs.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcs.cache.ResponseCache;
+import com.tcs.cache.SemanticCache;
+import com.tcs.embedding.HashingEmbedder;
+import com.tcs.metrics.ChatMetrics;
+import com.tcs.model.Character;
+import com.tcs.model.ChatRequest;
+import com.tcs.model.ChatResponse;
+import com.tcs.model.Message;
+import com.tcs.repository.CharacterRepository;
+import com.tcs.repository.InMemoryConversationStore;
+import com.tcs.repository.TranscriptStore;
+import com.tcs.service.ChatServiceImpl;
+import com.tcs.service.HistoryWindow;
+import com.tcs.service.MessageIdGenerator;
+import com.tcs.service.PromptCompiler;
+import com.tcs.service.SensitiveWordFilter;
+import com.tcs.service.UpstreamCallLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.Generation;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.core.env.Environment;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 启动预热
+ * 应用启动后、接收流量之前，用桩模型客户端把完整的聊天处理流程（校验、过滤、历史记录、提示构建、缓存、
+ * 流式输出和 JSON 序列化）执行若干次，并通过本机回环地址请求角色和聊天接口，让这些路径在真实请求到来前完成 JIT 编译；
+ * 预热结束前就绪检查返回 503。预热完成后在后台预取角色的开场回复（见 {@link GreetingPrefetcher}）
+ */
+@Component("warmup")
+public class StartupWarmup implements ApplicationRunner, HealthIndicator {
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmup.class);
+    private static final String[] MESSAGES = {
+            "你好", "请介绍一下你自己", "你最重要的成就是什么？", "能讲讲你年轻时候的故事吗？",
+            "你怎么看待失败？", "给现在的年轻人一些建议吧", "hello, how are you today?"
+    };
+    private static final String STUB_REPLY = "很高兴和你聊天。这是预热阶段的模拟回复，用于触发各处理路径的编译优化。";
+    // 预热期间的就绪检查响应
+    private static final ResponseEntity<byte[]> WARMING_UP = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .cacheControl(CacheControl.noStore())
+            .contentType(MediaType.APPLICATION_JSON)
+            .body("{\"status\":\"OUT_OF_SERVICE\",\"warmup\":\"IN_PROGRESS\"}".getBytes(StandardCharsets.UTF_8));
+
+    private final CharacterRepository characterRepository;
+    private final SensitiveWordFilter sensitiveWordFilter;
+    private final PromptCompiler promptCompiler;
+    private final HistoryWindow historyWindow;
+    private final MessageIdGenerator messageIdGenerator;
+    private final ObjectMapper objectMapper;
+    private final GreetingPrefetcher greetingPrefetcher;
+    private final Environment environment;
+    private final boolean enabled;
+    private final int iterations;
+    private final int httpRequests;
+    private final long timeoutMs;
+    private volatile Health health;
+
+    @Autowired
+    public StartupWarmup(CharacterRepository characterRepository, SensitiveWordFilter sensitiveWordFilter,
+                         PromptCompiler promptCompiler, HistoryWindow historyWindow, MessageIdGenerator messageIdGenerator,
+                         ObjectMapper objectMapper, GreetingPrefetcher greetingPrefetcher, Environment environment,
+                         @Value("${chat.warmup.enabled:false}") boolean enabled,
+                         @Value("${chat.warmup.iterations:2000}") int iterations,
+                         @Value("${chat.warmup.http-requests:200}") int httpRequests,
+                         @Value("${chat.warmup.timeout-ms:30000}") long timeoutMs) {
+        this.characterRepository = characterRepository;
+        this.sensitiveWordFilter = sensitiveWordFilter;
+        this.promptCompiler = promptCompiler;
+        this.historyWindow = historyWindow;
+        this.messageIdGenerator = messageIdGenerator;
+        this.objectMapper = objectMapper;
+        this.greetingPrefetcher = greetingPrefetcher;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.iterations = iterations;
+        this.httpRequests = httpRequests;
+        this.timeoutMs = timeoutMs;
+        this.health = enabled ? Health.outOfService().withDetail("warmup", "PENDING").build() : Health.up().build();
+    }
+
+    /**
+     * Spring Boot 在所有 ApplicationRunner 执行完之后才把 readinessState 置为 ACCEPTING_TRAFFIC，
+     * 预热在这里同步执行；Web 服务器此时已经启动，可以访问本机接口
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            health = Health.outOfService().withDetail("warmup", "IN_PROGRESS").build();
+            long start = System.nanoTime();
+            long deadline = start + timeoutMs * 1_000_000;
+            int chatIterations = 0;
+            int requests = 0;
+            try {
+                chatIterations = warmChatPath(deadline);
+                requests = warmHttpPath(deadline);
+            } catch (Exception e) {
+                // 预热只影响启动后的延迟，失败时照常接收流量
+                logger.warn("启动预热失败: {}", e.getMessage(), e);
+            }
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            logger.info("启动预热完成，聊天流程 {} 次，本机请求 {} 次，耗时 {}ms", chatIterations, requests, elapsedMs);
+            health = Health.up()
+                    .withDetail("chatIterations", chatIterations)
+                    .withDetail("httpRequests", requests)
+                    .withDetail("durationMs", elapsedMs)
+                    .build();
+        }
+        greetingPrefetcher.startAsync();
+    }
+
+    // 用桩模型客户端执行聊天流程，返回执行的次数
+    int warmChatPath(long deadline) throws IOException {
+        List<Character> characters = characterRepository.getAllCharacters();
+        if (characters.isEmpty()) {
+            return 0;
+        }
+        ChatServiceImpl chatService = stubChatService();
+        int i = 0;
+        for (; i < iterations && System.nanoTime() < deadline; i++) {
+            Character character = characters.get(i % characters.size());
+            // 部分消息重复出现，覆盖回复缓存命中和未命中两种情况
+            String message = MESSAGES[i % MESSAGES.length] + (i % 3 == 0 ? "" : " " + i);
+            ChatRequest request = new ChatRequest(character.getId(), message, history(i));
+            if (i % 4 == 0) {
+                request.setConversationId("warmup-" + (i % 16));
+            }
+            // 与控制器相同的请求体反序列化和响应序列化
+            request = objectMapper.readValue(objectMapper.writeValueAsBytes(request), ChatRequest.class);
+            if (i % 5 == 0) {
+                chatService.streamChatRequest(request)
+                        .doOnNext(this::serializeQuietly)
+                        .blockLast();
+            } else {
+                objectMapper.writeValueAsBytes(chatService.processChatRequest(request));
+            }
+            if (i % 50 == 0) {
+                chatService.processChatBatch(List.of(request, new ChatRequest(character.getId(), message + "?", null)));
+            }
+        }
+        return i;
+    }
+
+    // 通过本机回环地址请求只读接口，以及不会调用模型的聊天请求（角色不存在），覆盖 Tomcat、过滤器和消息转换器；
+    // 没有 Web 服务器时跳过
+    int warmHttpPath(long deadline) throws IOException, InterruptedException {
+        Integer port = environment.getProperty("local.server.port", Integer.class);
+        if (port == null || httpRequests <= 0) {
+            return 0;
+        }
+        List<Character> characters = characterRepository.getAllCharacters();
+        URI base = URI.create("http://127.0.0.1:" + port);
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(2)).build();
+        int i = 0;
+        for (; i < httpRequests && System.nanoTime() < deadline; i++) {
+            String name = characters.isEmpty() ? "warmup" : characters.get(i % characters.size()).getName();
+            HttpRequest.Builder request = switch (i % 5) {
+                case 0 -> HttpRequest.newBuilder(base.resolve("/api/characters"));
+                case 1 -> HttpRequest.newBuilder(base.resolve("/api/characters?limit=20&fields=id,name,avatar"));
+                case 2 -> HttpRequest.newBuilder(base.resolve("/api/characters/search?q="
+                        + URLEncoder.encode(name, StandardCharsets.UTF_8)));
+                case 3 -> HttpRequest.newBuilder(base.resolve("/api/health"));
+                default -> HttpRequest.newBuilder(base.resolve("/api/chat"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(
+                                new ChatRequest("__warmup__", MESSAGES[i % MESSAGES.length], history(i)))));
+            };
+            // 每个请求使用不同的客户端标识（信任客户端标识头时生效），不占用真实客户端的限流配额
+            httpClient.send(request.timeout(Duration.ofSeconds(5)).header("X-Client-Id", "warmup-" + i).build(),
+                    HttpResponse.BodyHandlers.discarding());
+        }
+        return i;
+    }
+
+    // 预热使用独立的服务实例：桩模型客户端、独立的缓存（语义缓存使用本地哈希向量化）、会话存储和指标，不影响线上数据
+    private ChatServiceImpl stubChatService() {
+        StubChatClient client = new StubChatClient();
+        SemanticCache semanticCache = new SemanticCache(new HashingEmbedder(256),
+                new SemanticCache.Settings(true, 0.8f, 256, 16, 16L * 1024 * 1024, 60_000, 16, 100, 32));
+        return new ChatServiceImpl(characterRepository, client, client, new UpstreamCallLimiter(64, 1000),
+                new ResponseCache(true, 1024, 60, Set.of()), semanticCache, sensitiveWordFilter, promptCompiler,
+                new InMemoryConversationStore(20, 64, 1_000_000, 1), TranscriptStore.NONE, historyWindow,
+                messageIdGenerator, new ChatMetrics(new SimpleMeterRegistry()));
+    }
+
+    // 长度变化的历史记录，覆盖历史窗口的各个分支
+    private static List<Message> history(int i) {
+        List<Message> history = new ArrayList<>();
+        for (int j = 0; j < i % 7; j++) {
+            boolean user = j % 2 == 0;
+            history.add(new Message("warmup-" + j, user ? MESSAGES[j % MESSAGES.length] : STUB_REPLY,
+                    user ? "user" : "character", new Date(), false));
+        }
+        return history;
+    }
+
+    private void serializeQuietly(Object value) {
+        try {
+            objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public boolean isComplete() {
+        return health.getStatus() == Status.UP;
+    }
+
+    /**
+     * 预热期间的就绪检查响应（503）
+     */
+    public ResponseEntity<byte[]> warmingUpResponse() {
+        return WARMING_UP;
+    }
+
+    @Override
+    public Health health() {
+        return health;
+    }
+
+    /**
+     * 立即返回固定回复的模型客户端，流式调用按句切分为多个分片
+     */
+    private static final class StubChatClient implements ChatClient, StreamingChatClient {
+        private static final org.springframework.ai.chat.ChatResponse RESPONSE =
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation(STUB_REPLY)));
+
+        @Override
+        public org.springframework.ai.chat.ChatResponse call(Prompt prompt) {
+            return RESPONSE;
+        }
+
+        @Override
+        public Flux<org.springframework.ai.chat.ChatResponse> stream(Prompt prompt) {
+            return Flux.fromArray(STUB_REPLY.split("(?<=。)"))
+                    .map(chunk -> new org.springframework.ai.chat.ChatResponse(List.of(new Generation(chunk))));
+        }
+    }
+}
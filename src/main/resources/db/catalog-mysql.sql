@@ -0,0 +1,12 @@
+-- 角色目录表（chat.catalog.source=jdbc），updated_at 用于增量加载，下线角色将 deleted 置为 1 而不是删除行
+CREATE TABLE IF NOT EXISTS characters (
+    id          VARCHAR(64)  NOT NULL PRIMARY KEY,
+    name        VARCHAR(128) NOT NULL,
+    avatar      VARCHAR(255),
+    category    VARCHAR(64),
+    description TEXT,
+    personality TEXT,
+    updated_at  TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3),
+    deleted     TINYINT      NOT NULL DEFAULT 0,
+    KEY idx_characters_updated_at (updated_at)
+) DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,12 @@
+-- 对话记录表（chat.transcript.enabled=true），由后台线程批量写入，只追加不更新
+-- 连接串建议加上 rewriteBatchedStatements=true，使批量插入合并为多值 INSERT
+CREATE TABLE IF NOT EXISTS chat_transcripts (
+    id              BIGINT       NOT NULL AUTO_INCREMENT PRIMARY KEY,
+    character_id    VARCHAR(64)  NOT NULL,
+    conversation_id VARCHAR(128),
+    user_message    TEXT         NOT NULL,
+    reply           TEXT         NOT NULL,
+    created_at      TIMESTAMP(3) NOT NULL,
+    KEY idx_chat_transcripts_character (character_id, created_at),
+    KEY idx_chat_transcripts_conversation (conversation_id, created_at)
+) DEFAULT CHARSET = utf8mb4;
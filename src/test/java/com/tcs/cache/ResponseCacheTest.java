@@ -0,0 +1,69 @@
+package com.tcs.cache;
+
+import com.tcs.model.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void testNormalizedMessageHitsSameEntry() {
+        ResponseCache cache = new ResponseCache(true, 100, 60, Set.of());
+        cache.put("einstein", "什么是相对论？", new ArrayList<>(), "相对论是关于时空的理论。");
+
+        assertEquals("相对论是关于时空的理论。", cache.get("einstein", "  什么是相对论  ", new ArrayList<>()));
+        assertNull(cache.get("confucius", "什么是相对论？", new ArrayList<>()));
+    }
+
+    @Test
+    public void testHistoryIsPartOfKey() {
+        ResponseCache cache = new ResponseCache(true, 100, 60, Set.of());
+        List<Message> history = List.of(new Message("1", "你好", "user", new Date(), false));
+        cache.put("einstein", "然后呢", history, "回复A");
+
+        assertEquals("回复A", cache.get("einstein", "然后呢", history));
+        assertNull(cache.get("einstein", "然后呢", new ArrayList<>()));
+    }
+
+    @Test
+    public void testDisabledCharacterIsNotCached() {
+        ResponseCache cache = new ResponseCache(true, 100, 60, Set.of("confucius"));
+        cache.put("confucius", "什么是仁", new ArrayList<>(), "仁者爱人。");
+
+        assertFalse(cache.isCacheable("confucius"));
+        assertNull(cache.get("confucius", "什么是仁", new ArrayList<>()));
+        assertEquals(0, cache.getStats().size());
+    }
+
+    @Test
+    public void testLruEvictionAndStats() {
+        LruCache<String, String> cache = new LruCache<>(2, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        LruCache.Stats stats = cache.stats();
+        assertEquals(1, stats.evictions());
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.misses());
+    }
+
+    @Test
+    public void testTtlExpiration() throws InterruptedException {
+        LruCache<String, String> cache = new LruCache<>(10, 20);
+        cache.put("a", "1");
+        Thread.sleep(40);
+
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.stats().expirations());
+    }
+}
@@ -0,0 +1,143 @@
+package com.tcs.cache;
+
+import com.tcs.embedding.HashingEmbedder;
+import com.tcs.embedding.TextEmbedder;
+import com.tcs.model.Message;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SemanticCacheTest {
+
+    @Test
+    public void testReorderedQuestionHitsSameEntry() {
+        SemanticCache cache = createCache(100, 10, 64L * 1024 * 1024);
+        cache.put("einstein", "相对论是什么？", List.of(), "相对论是关于时空的理论。");
+
+        assertEquals("相对论是关于时空的理论。", cache.lookup("einstein", "什么是相对论"));
+        assertNull(cache.lookup("einstein", "你最喜欢的乐器是什么"));
+        // 每个角色的缓存相互独立
+        assertNull(cache.lookup("confucius", "什么是相对论"));
+        assertEquals(1, cache.getStats().hits());
+        assertEquals(2, cache.getStats().misses());
+    }
+
+    @Test
+    public void testTurnsWithHistoryAreNotCached() {
+        SemanticCache cache = createCache(100, 10, 64L * 1024 * 1024);
+        List<Message> history = List.of(new Message("1", "你好", "user", new Date(), false));
+        cache.put("einstein", "相对论是什么", history, "回复A");
+
+        assertFalse(cache.isApplicable(history));
+        assertTrue(cache.isApplicable(List.of()));
+        assertNull(cache.lookup("einstein", "相对论是什么"));
+        assertFalse(SemanticCache.disabled().isApplicable(List.of()));
+    }
+
+    @Test
+    public void testSameQuestionReplacesOldReply() {
+        SemanticCache cache = createCache(100, 10, 64L * 1024 * 1024);
+        cache.put("einstein", "相对论是什么", List.of(), "回复A");
+        cache.put("einstein", "相对论是什么？", List.of(), "回复B");
+
+        assertEquals("回复B", cache.lookup("einstein", "相对论是什么"));
+        assertEquals(1, cache.getStats().size());
+    }
+
+    @Test
+    public void testEntryLimitEvictsLeastRecentlyUsed() throws InterruptedException {
+        SemanticCache cache = createCache(3, 10, 64L * 1024 * 1024);
+        cache.put("einstein", "相对论是什么", List.of(), "相对论");
+        Thread.sleep(2);
+        cache.put("einstein", "光电效应是什么", List.of(), "光电效应");
+        Thread.sleep(2);
+        cache.put("einstein", "布朗运动是什么", List.of(), "布朗运动");
+        Thread.sleep(2);
+        // 最早写入的条目刚被命中，淘汰的是次早的条目
+        assertEquals("相对论", cache.lookup("einstein", "相对论是什么"));
+        cache.put("einstein", "质能方程是什么", List.of(), "质能方程");
+
+        assertEquals(3, cache.getStats().size());
+        assertEquals(1, cache.getStats().evictions());
+        assertEquals("相对论", cache.lookup("einstein", "相对论是什么"));
+        assertNull(cache.lookup("einstein", "光电效应是什么"));
+        assertEquals("质能方程", cache.lookup("einstein", "质能方程是什么"));
+    }
+
+    @Test
+    public void testCharacterAndMemoryLimitsEvictWholeIndexes() {
+        // 每个索引至少分配一个 64 条向量的块（256 维 * 4 字节 * 64 = 64KB），内存上限只够两个角色
+        SemanticCache cache = createCache(100, 10, 150L * 1024);
+        cache.put("einstein", "相对论是什么", List.of(), "相对论");
+        cache.put("confucius", "仁是什么", List.of(), "仁者爱人");
+        assertEquals(128L * 1024, cache.getMemoryBytes());
+
+        cache.lookup("einstein", "相对论是什么");
+        cache.put("libai", "你喜欢喝酒吗", List.of(), "将进酒");
+        assertEquals(128L * 1024, cache.getMemoryBytes());
+        assertNotNull(cache.lookup("einstein", "相对论是什么"));
+        assertNull(cache.lookup("confucius", "仁是什么"));
+        assertNotNull(cache.lookup("libai", "你喜欢喝酒吗"));
+
+        SemanticCache fewCharacters = createCache(100, 1, 64L * 1024 * 1024);
+        fewCharacters.put("einstein", "相对论是什么", List.of(), "相对论");
+        fewCharacters.put("confucius", "仁是什么", List.of(), "仁者爱人");
+        assertNull(fewCharacters.lookup("einstein", "相对论是什么"));
+        assertEquals(64L * 1024, fewCharacters.getMemoryBytes());
+    }
+
+    @Test
+    public void testInvalidateReleasesCharacterIndex() {
+        SemanticCache cache = createCache(100, 10, 64L * 1024 * 1024);
+        cache.put("einstein", "相对论是什么", List.of(), "相对论");
+        cache.put("confucius", "仁是什么", List.of(), "仁者爱人");
+
+        cache.invalidate("einstein");
+        assertNull(cache.lookup("einstein", "相对论是什么"));
+        assertEquals("仁者爱人", cache.lookup("confucius", "仁是什么"));
+
+        cache.invalidateAll();
+        assertNull(cache.lookup("confucius", "仁是什么"));
+        assertEquals(0, cache.getMemoryBytes());
+    }
+
+    @Test
+    public void testEmbeddingFailureIsTreatedAsMiss() {
+        AtomicInteger calls = new AtomicInteger();
+        TextEmbedder failing = new TextEmbedder() {
+            private final HashingEmbedder delegate = new HashingEmbedder(256);
+
+            @Override
+            public String getName() {
+                return "failing";
+            }
+
+            @Override
+            public float[] embed(String text) {
+                if (calls.incrementAndGet() > 1) {
+                    throw new IllegalStateException("embedding service unavailable");
+                }
+                return delegate.embed(text);
+            }
+        };
+        SemanticCache cache = new SemanticCache(failing, settings(100, 10, 64L * 1024 * 1024));
+        cache.put("einstein", "相对论是什么", List.of(), "相对论");
+
+        // 同一条消息的向量化结果被复用，不再调用向量化
+        assertEquals("相对论", cache.lookup("einstein", "相对论是什么？"));
+        assertNull(cache.lookup("einstein", "光电效应是什么"));
+        assertEquals(2, calls.get());
+    }
+
+    private static SemanticCache createCache(int maxEntries, int maxCharacters, long maxMemoryBytes) {
+        return new SemanticCache(new HashingEmbedder(256), settings(maxEntries, maxCharacters, maxMemoryBytes));
+    }
+
+    private static SemanticCache.Settings settings(int maxEntries, int maxCharacters, long maxMemoryBytes) {
+        return new SemanticCache.Settings(true, 0.8f, maxEntries, maxCharacters, maxMemoryBytes, 60_000, 8, 32, 32);
+    }
+}
@@ -0,0 +1,35 @@
+package com.tcs.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelHttpClientConfigTest {
+
+    @Test
+    public void testOnlyModelBeansGetTheTransport() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        List<String> clientBeans = List.of("ollamaApi");
+        Map<String, Boolean> seen = new ConcurrentHashMap<>();
+
+        // 每个 bean 创建时记录定制器是否会替换 HTTP 客户端
+        for (String name : List.of("ollamaApi", "otherClient")) {
+            beanFactory.registerBeanDefinition(name, new RootBeanDefinition(String.class, () -> {
+                seen.put(name, ModelHttpClientConfig.creatingModelClient(beanFactory, clientBeans));
+                return name;
+            }));
+        }
+        beanFactory.preInstantiateSingletons();
+
+        assertTrue(seen.get("ollamaApi"));
+        assertFalse(seen.get("otherClient"));
+        // 容器启动完成后再创建的构建器同样不受影响
+        assertFalse(ModelHttpClientConfig.creatingModelClient(beanFactory, clientBeans));
+    }
+}
@@ -0,0 +1,61 @@
+package com.tcs.health;
+
+import com.tcs.support.StubModelServer;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpStatus;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelReadinessProbeTest {
+
+    @Test
+    public void testReadyWhenAnyBackendReachable() throws Exception {
+        try (StubModelServer server = new StubModelServer("ok")) {
+            Map<String, URI> targets = new LinkedHashMap<>();
+            targets.put("openai", URI.create(server.getBaseUrl()));
+            // 没有服务监听的端口
+            targets.put("ollama", URI.create("http://127.0.0.1:1"));
+            ModelReadinessProbe probe = new ModelReadinessProbe(targets, 1000);
+
+            // 首次探测完成之前不就绪
+            assertFalse(probe.isReady());
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, probe.readinessResponse().getStatusCode());
+            assertEquals(Status.OUT_OF_SERVICE, probe.health().getStatus());
+
+            probe.probeAll().get(5, TimeUnit.SECONDS);
+
+            assertTrue(probe.isReady());
+            assertEquals(Status.UP, probe.health().getStatus());
+            assertEquals(HttpStatus.OK, probe.readinessResponse().getStatusCode());
+            assertEquals("{\"status\":\"UP\",\"backends\":{\"openai\":\"UP\",\"ollama\":\"DOWN\"}}",
+                    new String(probe.readinessResponse().getBody(), StandardCharsets.UTF_8));
+
+            // 可达性没有变化时复用已生成的响应
+            byte[] body = probe.readinessResponse().getBody();
+            probe.probeAll().get(5, TimeUnit.SECONDS);
+            assertSame(body, probe.readinessResponse().getBody());
+        }
+    }
+
+    @Test
+    public void testNotReadyWhenAllBackendsDown() throws Exception {
+        StubModelServer server = new StubModelServer("ok");
+        ModelReadinessProbe probe = new ModelReadinessProbe(Map.of("openai", URI.create(server.getBaseUrl())), 1000);
+        probe.probeAll().get(5, TimeUnit.SECONDS);
+        assertTrue(probe.isReady());
+
+        server.close();
+        probe.probeAll().get(5, TimeUnit.SECONDS);
+
+        assertFalse(probe.isReady());
+        assertEquals(Status.DOWN, probe.health().getStatus());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, probe.readinessResponse().getStatusCode());
+    }
+}
@@ -0,0 +1,116 @@
+package com.tcs.http;
+
+import com.tcs.support.StubModelServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelHttpTransportTest {
+    private StubModelServer server;
+    private ModelHttpTransport transport;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new StubModelServer("你好，我是爱因斯坦。");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        if (transport != null) {
+            transport.close();
+        }
+        server.close();
+    }
+
+    @Test
+    public void testSequentialCallsReuseOneConnection() throws IOException {
+        transport = new ModelHttpTransport(settings(10, 5, 5000));
+
+        for (int i = 0; i < 20; i++) {
+            assertTrue(complete("{\"model\":\"stub\"}").contains("爱因斯坦"));
+        }
+
+        assertEquals(20, server.getRequestCount());
+        assertEquals(1, transport.getOpenedConnections(ModelHttpTransport.CLIENT_BLOCKING));
+        assertEquals(19, transport.getReusedConnections(ModelHttpTransport.CLIENT_BLOCKING));
+        assertEquals(1, transport.getPoolStats(ModelHttpTransport.CLIENT_BLOCKING).getAvailable());
+        assertEquals(0, transport.getPoolStats(ModelHttpTransport.CLIENT_BLOCKING).getLeased());
+    }
+
+    @Test
+    public void testPerRouteLimitTimesOutWaitingForConnection() throws Exception {
+        // 每个提供方只允许一个连接，第二个并发请求等待超时
+        transport = new ModelHttpTransport(settings(10, 1, 100));
+        server.setDelayMs(500);
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            for (int i = 0; i < 2; i++) {
+                results.add(executor.submit(() -> complete("{\"model\":\"stub\"}")));
+                Thread.sleep(50);
+            }
+        }
+
+        int failed = 0;
+        for (Future<String> result : results) {
+            try {
+                assertTrue(result.get().contains("爱因斯坦"));
+            } catch (Exception e) {
+                failed++;
+            }
+        }
+        assertEquals(1, failed);
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testStreamingThroughConnector() {
+        transport = new ModelHttpTransport(settings(10, 5, 5000));
+        WebClient webClient = WebClient.builder().clientConnector(transport.getConnector()).build();
+
+        String events = webClient.post()
+                .uri(server.getBaseUrl() + "/v1/chat/completions")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"model\":\"stub\",\"stream\":true}")
+                .retrieve()
+                .bodyToMono(String.class)
+                .block();
+
+        assertNotNull(events);
+        assertTrue(events.contains("chat.completion.chunk"));
+        assertTrue(events.contains("[DONE]"));
+        assertEquals(1, transport.getOpenedConnections(ModelHttpTransport.CLIENT_STREAMING)
+                + transport.getReusedConnections(ModelHttpTransport.CLIENT_STREAMING));
+    }
+
+    private String complete(String body) throws IOException {
+        ClientHttpRequest request = transport.getRequestFactory()
+                .createRequest(URI.create(server.getBaseUrl() + "/v1/chat/completions"), HttpMethod.POST);
+        request.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+        request.getBody().write(body.getBytes(StandardCharsets.UTF_8));
+        try (ClientHttpResponse response = request.execute()) {
+            return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static ModelHttpTransport.Settings settings(int maxTotal, int maxPerRoute, long acquireTimeoutMs) {
+        return new ModelHttpTransport.Settings(maxTotal, maxPerRoute, 1000, 5000, acquireTimeoutMs,
+                30000, 300000, 60000, true, true);
+    }
+}
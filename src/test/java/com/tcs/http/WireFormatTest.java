@@ -0,0 +1,49 @@
+package com.tcs.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WireFormatTest {
+
+    @Test
+    public void testNegotiateFormat() {
+        // 没有 Accept 或只有通配符时保持 JSON
+        assertEquals(WireFormat.JSON, WireFormat.negotiate(null));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("*/*"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("application/*"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("text/html"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("not a media type"));
+
+        // 明确类型优先于通配符，质量值高的优先
+        assertEquals(WireFormat.CBOR, WireFormat.negotiate("application/cbor"));
+        assertEquals(WireFormat.CBOR, WireFormat.negotiate("application/cbor, */*"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("application/json, application/cbor"));
+        assertEquals(WireFormat.SMILE, WireFormat.negotiate("application/json;q=0.5, application/x-jackson-smile"));
+        assertEquals(WireFormat.JSON, WireFormat.negotiate("application/cbor;q=0, */*;q=0.1"));
+    }
+
+    @Test
+    public void testFormatFromContentType() {
+        assertEquals(WireFormat.JSON, WireFormat.fromContentType(null));
+        assertEquals(WireFormat.JSON, WireFormat.fromContentType("application/json;charset=UTF-8"));
+        assertEquals(WireFormat.JSON, WireFormat.fromContentType("application/merge-patch+json"));
+        assertEquals(WireFormat.CBOR, WireFormat.fromContentType("application/cbor"));
+        assertEquals(WireFormat.SMILE, WireFormat.fromContentType("application/x-jackson-smile"));
+        assertNull(WireFormat.fromContentType("text/plain"));
+        assertNull(WireFormat.fromContentType("not a media type"));
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue(Gzip.accepts("gzip, deflate, br"));
+        assertTrue(Gzip.accepts("GZIP;q=0.5"));
+        assertTrue(Gzip.accepts("*"));
+        assertFalse(Gzip.accepts(null));
+        assertFalse(Gzip.accepts("br"));
+        // 明确拒绝 gzip 时不受 * 影响
+        assertFalse(Gzip.accepts("gzip;q=0, *"));
+        assertFalse(Gzip.accepts("*, gzip;q=0"));
+        assertFalse(Gzip.accepts("identity;q=1, *;q=0"));
+    }
+}
@@ -0,0 +1,207 @@
+package com.tcs.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcs.metrics.ChatMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatAdmissionFilterTest {
+    private static final long MILLIS = 1_000_000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChatMetrics chatMetrics;
+    private ChatAdmissionFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        chatMetrics = new ChatMetrics(meterRegistry);
+        // 初始上限 2，范围 [1, 8]，批量请求最多同时调用模型 3 次
+        filter = new ChatAdmissionFilter(chatMetrics, new ObjectMapper(), true, 2, 1, 8, 0.2, 1.5, 10, 600, 1, 3);
+    }
+
+    @Test
+    public void testShedsImmediatelyWhenLimitReached() throws Exception {
+        // 两个流式请求占满上限，异步处理结束前不归还许可
+        MockHttpServletRequest first = startAsync();
+        MockHttpServletRequest second = startAsync();
+        assertEquals(2, filter.getLimiter().getInFlight());
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(chatRequest(), rejected, chain);
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertTrue(rejected.getContentAsString(StandardCharsets.UTF_8).contains("当前请求过多"));
+        assertNull(chain.getRequest());
+        assertEquals(1.0, meterRegistry.get("chat.admission.rejected").counter().count());
+
+        // 其他接口不受聊天并发上限影响
+        MockHttpServletRequest characters = new MockHttpServletRequest("GET", "/api/characters");
+        MockFilterChain readChain = new MockFilterChain();
+        filter.doFilter(characters, new MockHttpServletResponse(), readChain);
+        assertNotNull(readChain.getRequest());
+
+        // 异步处理完成后归还许可，完成事件重复到达也只归还一次
+        first.getAsyncContext().complete();
+        first.getAsyncContext().complete();
+        assertEquals(1, filter.getLimiter().getInFlight());
+        MockHttpServletResponse accepted = new MockHttpServletResponse();
+        filter.doFilter(chatRequest(), accepted, new MockFilterChain());
+        assertEquals(200, accepted.getStatus());
+        assertEquals(1, filter.getLimiter().getInFlight());
+
+        second.getAsyncContext().complete();
+        assertEquals(0, filter.getLimiter().getInFlight());
+    }
+
+    @Test
+    public void testLimitFollowsModelLatency() {
+        List<Integer> changes = new ArrayList<>();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new AdaptiveConcurrencyLimiter.Settings(20, 4, 64, 0.2, 1.5, 10, 600),
+                (previous, updated) -> changes.add(updated - previous));
+        for (int i = 0; i < 20; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        assertFalse(limiter.tryAcquire());
+
+        // 延迟稳定时上限增长，但不超过进行中请求数的两倍
+        for (int i = 0; i < 200; i++) {
+            limiter.onSample(100 * MILLIS, true);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 20 && grown <= 40, "limit=" + grown);
+        assertTrue(limiter.tryAcquire());
+        limiter.release();
+
+        // 模型变慢后上限收缩到下限，超出的请求直接拒绝
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(2000 * MILLIS, true);
+        }
+        assertEquals(4, limiter.getLimit());
+        assertFalse(limiter.tryAcquire());
+        assertTrue(changes.stream().anyMatch(d -> d > 0));
+        assertTrue(changes.stream().anyMatch(d -> d < 0));
+
+        // 延迟恢复后上限重新增长
+        for (int i = 0; i < 300; i++) {
+            limiter.onSample(100 * MILLIS, true);
+        }
+        assertTrue(limiter.getLimit() > 20, "limit=" + limiter.getLimit());
+    }
+
+    @Test
+    public void testIdleAndFastFailuresDoNotMoveLimit() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(
+                new AdaptiveConcurrencyLimiter.Settings(10, 2, 64, 0.2, 1.5, 10, 600), (previous, updated) -> { });
+
+        // 进行中的请求不到上限一半时不增长
+        for (int i = 0; i < 100; i++) {
+            limiter.onSample(100 * MILLIS, true);
+        }
+        assertEquals(10, limiter.getLimit());
+
+        // 比基准快的失败不计入延迟，比基准慢的失败（超时）计入
+        limiter.onSample(MILLIS, false);
+        assertEquals(100.0, limiter.getShortRttMillis(), 0.001);
+        limiter.onSample(1000 * MILLIS, false);
+        assertTrue(limiter.getShortRttMillis() > 100.0);
+    }
+
+    @Test
+    public void testLimitChangesAreRecorded() throws Exception {
+        // 两个处理中的请求，使模型响应延迟的样本可以调整上限
+        startAsync();
+        startAsync();
+        for (int i = 0; i < 50; i++) {
+            chatMetrics.recordModelLatency(100 * MILLIS, true);
+        }
+        assertTrue(filter.getLimiter().getLimit() > 2);
+        assertTrue(meterRegistry.get("chat.admission.limit.changes").tag("direction", "increase").counter().count() > 0);
+
+        for (int i = 0; i < 50; i++) {
+            chatMetrics.recordModelLatency(3000 * MILLIS, true);
+        }
+        assertEquals(1, filter.getLimiter().getLimit());
+        assertTrue(meterRegistry.get("chat.admission.limit.changes").tag("direction", "decrease").counter().count() > 0);
+    }
+
+    @Test
+    public void testBatchChargedByFanOut() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = filter.getLimiter();
+
+        // 批量请求的并发数超过当前上限，只在没有其他请求时准入，占用 3 个许可
+        MockHttpServletRequest batch = startAsync(batchRequest());
+        assertEquals(3, limiter.getInFlight());
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        filter.doFilter(chatRequest(), rejected, new MockFilterChain());
+        assertEquals(503, rejected.getStatus());
+
+        // NDJSON 输出结束后一次归还全部许可
+        batch.getAsyncContext().complete();
+        assertEquals(0, limiter.getInFlight());
+
+        // 有请求在处理时，批量请求占用后会超过上限，直接拒绝
+        MockHttpServletRequest single = startAsync(chatRequest());
+        MockHttpServletResponse batchRejected = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(batchRequest(), batchRejected, chain);
+        assertEquals(503, batchRejected.getStatus());
+        assertNull(chain.getRequest());
+        assertEquals(1, limiter.getInFlight());
+
+        single.getAsyncContext().complete();
+        filter.doFilter(batchRequest(), new MockHttpServletResponse(), new MockFilterChain());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testDisabledFilterPassesEverything() throws Exception {
+        ChatAdmissionFilter disabled = new ChatAdmissionFilter(chatMetrics, new ObjectMapper(),
+                false, 1, 1, 1, 0.2, 1.5, 10, 600, 1, 3);
+        for (int i = 0; i < 3; i++) {
+            MockFilterChain chain = new MockFilterChain();
+            disabled.doFilter(chatRequest(), new MockHttpServletResponse(), chain);
+            assertNotNull(chain.getRequest());
+        }
+    }
+
+    // 通过过滤器开始一个异步处理中的聊天请求
+    private MockHttpServletRequest startAsync() throws Exception {
+        return startAsync(chatRequest());
+    }
+
+    private MockHttpServletRequest startAsync(MockHttpServletRequest request) throws Exception {
+        request.setAsyncSupported(true);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (req, res) -> req.startAsync());
+        assertEquals(200, response.getStatus());
+        assertTrue(request.isAsyncStarted());
+        return request;
+    }
+
+    private static MockHttpServletRequest chatRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/chat/stream");
+        request.setContentType("application/json");
+        request.setContent("{\"characterId\":\"einstein\",\"message\":\"你好\"}".getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    private static MockHttpServletRequest batchRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/chat/batch");
+        request.setContentType("application/json");
+        request.setContent("[{\"characterId\":\"einstein\",\"message\":\"你好\"}]".getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,295 @@
+package com.tcs.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.tcs.http.WireFormat;
+import com.tcs.metrics.ChatMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChatRateLimitFilterTest {
+    private static final long SECOND = 1_000_000_000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ChatRateLimitFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // 客户端每分钟 60 次、突发 5 次；每个角色每分钟 60 次、突发 3 次
+        filter = new ChatRateLimitFilter(new ChatMetrics(meterRegistry), new ObjectMapper(),
+                true, "X-Client-Id", true, 60, 5, 60, 3, 1000, 1024, 4);
+    }
+
+    @Test
+    public void testTokenBucketRefillsOverTime() {
+        TokenBucket bucket = new TokenBucket(1, 3, 0);
+
+        assertEquals(2, bucket.tryAcquire(1, 0));
+        assertEquals(0, bucket.tryAcquire(2, 0));
+        long wait = bucket.tryAcquire(1, 0);
+        assertTrue(wait < 0);
+        assertEquals(SECOND, -wait);
+
+        // 一秒后补充一个令牌
+        assertEquals(0, bucket.tryAcquire(1, SECOND));
+        assertFalse(bucket.isFull(SECOND));
+        assertTrue(bucket.isFull(4 * SECOND));
+    }
+
+    @Test
+    public void testTokenBucketRelease() {
+        TokenBucket bucket = new TokenBucket(1, 2, 0);
+        bucket.tryAcquire(2, 0);
+        assertTrue(bucket.tryAcquire(1, 0) < 0);
+
+        bucket.release(1, 0);
+        assertEquals(0, bucket.tryAcquire(1, 0));
+        // 退还不会使令牌超过桶的容量
+        bucket.release(5, 0);
+        assertTrue(bucket.isFull(0));
+    }
+
+    @Test
+    public void testConcurrentAcquireNeverExceedsBurst() throws Exception {
+        TokenBucket bucket = new TokenBucket(0.001, 100, 0);
+        AtomicInteger granted = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int t = 0; t < 8; t++) {
+                executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        if (bucket.tryAcquire(1, 0) >= 0) {
+                            granted.incrementAndGet();
+                        }
+                    }
+                });
+            }
+        }
+        assertEquals(100, granted.get());
+    }
+
+    @Test
+    public void testRateLimiterEvictsFullBuckets() {
+        RateLimiter limiter = new RateLimiter(1, 2, 2);
+        limiter.bucket("a", 0).tryAcquire(1, 0);
+        limiter.bucket("b", 0).tryAcquire(1, 0);
+        assertEquals(2, limiter.size());
+
+        // 达到上限后新键共用溢出桶，请求线程上不清理
+        TokenBucket overflow = limiter.bucket("c", 0);
+        assertSame(overflow, limiter.bucket("d", 0));
+        assertEquals(2, limiter.size());
+
+        assertEquals(2, limiter.evictIdle(10 * SECOND));
+        assertEquals(0, limiter.size());
+    }
+
+    @Test
+    public void testRejectsWhenCharacterQuotaExhausted() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = send("client-1", "{\"characterId\":\"einstein\",\"message\":\"你好\"}");
+            assertEquals(200, response.getStatus());
+            assertEquals(String.valueOf(2 - i), response.getHeader(ChatRateLimitFilter.HEADER_REMAINING));
+        }
+
+        MockHttpServletResponse rejected = send("client-1", "{\"characterId\":\"einstein\",\"message\":\"你好\"}");
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals("0", rejected.getHeader(ChatRateLimitFilter.HEADER_REMAINING));
+        assertTrue(rejected.getContentAsString(StandardCharsets.UTF_8).contains("请求过于频繁"));
+        assertEquals(1.0, meterRegistry.get("chat.ratelimit.rejected").tag("scope", "character").counter().count());
+
+        // 被拒绝的请求退还了客户端的令牌，其他角色和其他客户端不受影响
+        assertEquals(200, send("client-1", "{\"characterId\":\"socrates\",\"message\":\"你好\"}").getStatus());
+        assertEquals(200, send("client-2", "{\"characterId\":\"einstein\",\"message\":\"你好\"}").getStatus());
+    }
+
+    @Test
+    public void testBatchConsumesOneTokenPerItem() throws Exception {
+        String batch = "[{\"characterId\":\"einstein\",\"message\":\"一\"},"
+                + "{\"characterId\":\"socrates\",\"message\":\"二\"},"
+                + "{\"characterId\":\"einstein\",\"message\":\"三\"}]";
+        assertEquals(Map.of("einstein", 2, "socrates", 1), filter.countCharacters(batch.getBytes(StandardCharsets.UTF_8), WireFormat.JSON));
+
+        MockHttpServletResponse response = send("client-1", batch);
+        assertEquals(200, response.getStatus());
+        // 客户端剩余 2，einstein 剩余 1，取较小值
+        assertEquals("1", response.getHeader(ChatRateLimitFilter.HEADER_REMAINING));
+
+        MockHttpServletResponse rejected = send("client-1", batch);
+        assertEquals(429, rejected.getStatus());
+        assertEquals(1.0, meterRegistry.get("chat.ratelimit.rejected").tag("scope", "client").counter().count());
+    }
+
+    @Test
+    public void testBinaryBatchCountsEachCharacter() throws Exception {
+        byte[] batch = new ObjectMapper(new CBORFactory()).writeValueAsBytes(List.of(
+                Map.of("characterId", "einstein", "message", "一"),
+                Map.of("characterId", "einstein", "message", "二"),
+                Map.of("characterId", "einstein", "message", "三")));
+        assertEquals(Map.of("einstein", 3), filter.countCharacters(batch, WireFormat.CBOR));
+
+        // CBOR 批量请求同样按角色扣除令牌，einstein 的突发只有 3 个
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/chat/batch");
+        request.addHeader("X-Client-Id", "client-1");
+        request.setContentType("application/cbor");
+        request.setContent(batch);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        assertEquals(200, response.getStatus());
+        assertEquals("0", response.getHeader(ChatRateLimitFilter.HEADER_REMAINING));
+        assertEquals(429, send("client-1", "{\"characterId\":\"einstein\",\"message\":\"你好\"}").getStatus());
+        assertEquals(1.0, meterRegistry.get("chat.ratelimit.rejected").tag("scope", "character").counter().count());
+
+        // 无法解析的格式直接拒绝
+        MockHttpServletRequest text = request("client-1", "einstein 你好");
+        text.setContentType("text/plain");
+        MockHttpServletResponse unsupported = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(text, unsupported, chain);
+        assertEquals(415, unsupported.getStatus());
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    public void testBatchLargerThanBurstIsRejectedUpFront() throws Exception {
+        // 6 条聊天超过客户端的突发容量 5，等待也不会成功：返回 413，不带 Retry-After，不扣除令牌
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 6; i++) {
+            batch.append(i == 0 ? "" : ",").append("{\"characterId\":\"c").append(i).append("\",\"message\":\"你好\"}");
+        }
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse tooMany = new MockHttpServletResponse();
+        filter.doFilter(request("client-1", batch.append(']').toString()), tooMany, chain);
+        assertEquals(413, tooMany.getStatus());
+        assertNull(tooMany.getHeader(HttpHeaders.RETRY_AFTER));
+        assertNull(chain.getRequest());
+
+        // 同一角色 4 条超过角色的突发容量 3
+        String sameCharacter = "[" + String.join(",", java.util.Collections.nCopies(4,
+                "{\"characterId\":\"einstein\",\"message\":\"你好\"}")) + "]";
+        MockHttpServletResponse tooManyForCharacter = send("client-1", sameCharacter);
+        assertEquals(413, tooManyForCharacter.getStatus());
+        assertNull(tooManyForCharacter.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(2.0, meterRegistry.get("chat.ratelimit.rejected").tag("scope", "batch-size").counter().count());
+
+        // 被拒绝的请求没有消耗令牌
+        MockHttpServletResponse single = send("client-1", "{\"characterId\":\"einstein\",\"message\":\"你好\"}");
+        assertEquals(200, single.getStatus());
+        assertEquals("2", single.getHeader(ChatRateLimitFilter.HEADER_REMAINING));
+    }
+
+    @Test
+    public void testBodyIsReplayedToController() throws Exception {
+        String body = "{\"characterId\":\"einstein\",\"message\":\"你好\"}";
+        MockHttpServletRequest request = request("client-1", body);
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        byte[] replayed = chain.getRequest().getInputStream().readAllBytes();
+        assertEquals(body, new String(replayed, StandardCharsets.UTF_8));
+
+        // 非阻塞读取时直接通知请求体已读完
+        AtomicInteger allDataRead = new AtomicInteger();
+        chain.getRequest().getInputStream().setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() {
+            }
+
+            @Override
+            public void onAllDataRead() {
+                allDataRead.incrementAndGet();
+            }
+
+            @Override
+            public void onError(Throwable t) {
+            }
+        });
+        assertEquals(1, allDataRead.get());
+    }
+
+    @Test
+    public void testClientHeaderIgnoredUnlessTrusted() throws Exception {
+        ChatRateLimitFilter untrusted = new ChatRateLimitFilter(new ChatMetrics(meterRegistry), new ObjectMapper(),
+                true, "X-Client-Id", false, 60, 5, 60, 3, 1000, 1024, 4);
+        // 每次换一个客户端标识也按来源地址共用令牌桶
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            untrusted.doFilter(request("client-" + i, "{\"characterId\":\"einstein\",\"message\":\"你好\"}"),
+                    response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+        }
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        untrusted.doFilter(request("client-3", "{\"characterId\":\"einstein\",\"message\":\"你好\"}"),
+                rejected, new MockFilterChain());
+        assertEquals(429, rejected.getStatus());
+    }
+
+    @Test
+    public void testRejectsOversizedBody() throws Exception {
+        // 声明的长度超过上限时不读取请求体
+        MockHttpServletRequest declared = request("client-1", "{\"characterId\":\"einstein\",\"message\":\"" + "长".repeat(400) + "\"}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(declared, response, chain);
+        assertEquals(413, response.getStatus());
+        assertNull(chain.getRequest());
+
+        // 没有声明长度时读到上限为止
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", "/api/chat") {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        chunked.setContent(("{\"message\":\"" + "x".repeat(2000) + "\"}").getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse chunkedResponse = new MockHttpServletResponse();
+        filter.doFilter(chunked, chunkedResponse, new MockFilterChain());
+        assertEquals(413, chunkedResponse.getStatus());
+        assertEquals(2.0, meterRegistry.get("chat.ratelimit.rejected").tag("scope", "body-size").counter().count());
+
+        // 批量请求的上限为单个请求的上限乘以批量上限
+        String item = "{\"characterId\":\"einstein\",\"message\":\"" + "x".repeat(900) + "\"}";
+        assertEquals(200, send("client-1", "[" + item + "," + item + "]").getStatus());
+    }
+
+    @Test
+    public void testOtherRequestsAreNotLimited() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/characters");
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, new MockFilterChain());
+            assertEquals(200, response.getStatus());
+            assertNull(response.getHeader(ChatRateLimitFilter.HEADER_REMAINING));
+        }
+    }
+
+    private MockHttpServletResponse send(String client, String body) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(client, body), response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String client, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", body.startsWith("[") ? "/api/chat/batch" : "/api/chat");
+        request.addHeader("X-Client-Id", client);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,114 @@
+package com.tcs.repository;
+
+import com.tcs.model.Character;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CharacterRepositoryTest {
+
+    @Test
+    public void testBuiltinCatalogIndexes() {
+        CharacterRepository repository = new CharacterRepository();
+
+        assertEquals(8, repository.getAllCharacters().size());
+        assertEquals("爱因斯坦", repository.getCharacterById("einstein").getName());
+        assertNull(repository.getCharacterById("unknown"));
+        assertEquals(2, repository.getCharactersByCategory("科学家").size());
+        assertTrue(repository.getCharactersByCategory("不存在").isEmpty());
+        assertTrue(repository.getAllCategories().contains("历史人物"));
+        assertEquals(1, repository.getVersion());
+    }
+
+    @Test
+    public void testFindByNamePrefix() {
+        CharacterRepository repository = new CharacterRepository(source(List.of(
+                character("a", "Albert", "科学家"),
+                character("b", "alan", "科学家"),
+                character("c", "Bob", "作家"),
+                character("d", "孔子", "哲学家"),
+                character("e", "孔明", "历史人物"))));
+
+        assertEquals(List.of("alan", "Albert"), repository.findByNamePrefix("AL", 10).stream().map(Character::getName).toList());
+        assertEquals(1, repository.findByNamePrefix("al", 1).size());
+        assertEquals(2, repository.findByNamePrefix("孔", 10).size());
+        assertTrue(repository.findByNamePrefix("z", 10).isEmpty());
+        assertTrue(repository.findByNamePrefix("", 10).isEmpty());
+    }
+
+    @Test
+    public void testIncrementalChangesSwapSnapshot() {
+        CharacterRepository repository = new CharacterRepository(source(List.of(
+                character("a", "Albert", "科学家"),
+                character("b", "Bob", "作家"))));
+        List<Set<String>> notified = new ArrayList<>();
+        repository.addChangeListener((snapshot, changedIds) -> notified.add(changedIds));
+        CatalogSnapshot before = repository.getSnapshot();
+
+        // 修改一个角色的分类、新增一个角色、删除一个角色
+        repository.apply(new CatalogSource.Changes(false,
+                List.of(character("a", "Albert", "哲学家"), character("c", "Carl", "科学家")), Set.of("b")));
+
+        assertEquals(2, repository.getVersion());
+        assertEquals(Set.of("a", "b", "c"), notified.get(0));
+        assertEquals(List.of("c"), repository.getCharactersByCategory("科学家").stream().map(Character::getId).toList());
+        assertEquals("哲学家", repository.getCharacterById("a").getCategory());
+        assertNull(repository.getCharacterById("b"));
+        assertFalse(repository.getAllCategories().contains("作家"));
+        // 旧快照不受影响
+        assertEquals(2, before.size());
+        assertEquals("科学家", before.getById("a").getCategory());
+
+        // 内容没有变化的变更不产生新版本
+        repository.apply(new CatalogSource.Changes(false, List.of(character("c", "Carl", "科学家")), Set.of()));
+        assertEquals(2, repository.getVersion());
+        assertEquals(1, notified.size());
+    }
+
+    @Test
+    public void testFileSourceReloadsWhenModified(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("characters.json");
+        Files.writeString(file, "[{\"id\":\"a\",\"name\":\"Albert\",\"category\":\"科学家\"}]");
+        CharacterRepository repository = new CharacterRepository(new FileCatalogSource(file));
+        assertEquals(1, repository.getAllCharacters().size());
+
+        // 文件未修改时不重新加载
+        repository.reloadIfChanged();
+        assertEquals(1, repository.getVersion());
+
+        Files.writeString(file, "[{\"id\":\"a\",\"name\":\"Albert\",\"category\":\"科学家\"},"
+                + "{\"id\":\"b\",\"name\":\"Bob\",\"category\":\"作家\",\"unknown\":1}]");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5000));
+        repository.reloadIfChanged();
+
+        assertEquals(2, repository.getVersion());
+        assertEquals("Bob", repository.getCharacterById("b").getName());
+        assertEquals(List.of("b"), repository.getCharactersByCategory("作家").stream().map(Character::getId).toList());
+    }
+
+    private static CatalogSource source(List<Character> characters) {
+        return new CatalogSource() {
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public List<Character> loadAll() {
+                return characters;
+            }
+        };
+    }
+
+    private static Character character(String id, String name, String category) {
+        return new Character(id, name, null, category, null, null);
+    }
+}
@@ -0,0 +1,141 @@
+package com.tcs.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JdbcTranscriptStoreTest {
+    private static final String URL = "jdbc:h2:mem:transcripts;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private JdbcTranscriptStore store;
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        if (store != null) {
+            store.close();
+        }
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS chat_transcripts");
+        }
+    }
+
+    @Test
+    public void testFlushesFullBatchesWithoutWaitingForInterval() throws Exception {
+        // 刷新间隔很长，只有积累满一个批次才会写入
+        store = new JdbcTranscriptStore(URL, "sa", "", "chat_transcripts", 1024, 10, 60_000, true);
+
+        for (int i = 0; i < 25; i++) {
+            store.record(new TranscriptRecord("einstein", "c-" + (i % 3), "问题" + i, "回答" + i, 1_700_000_000_000L + i));
+        }
+
+        assertTrue(waitFor(() -> store.getWrittenCount() == 20));
+        assertEquals(20, count("SELECT COUNT(*) FROM chat_transcripts"));
+
+        // 关闭时写入剩余的记录
+        store.close();
+        assertEquals(25, count("SELECT COUNT(*) FROM chat_transcripts"));
+        assertEquals(1, count("SELECT COUNT(*) FROM chat_transcripts WHERE user_message = '问题7' AND reply = '回答7' AND conversation_id = 'c-1'"));
+        store = null;
+    }
+
+    @Test
+    public void testFlushesPartialBatchAfterInterval() throws Exception {
+        store = new JdbcTranscriptStore(URL, "sa", "", "chat_transcripts", 1024, 500, 100, true);
+
+        store.record(new TranscriptRecord("socrates", null, "什么是美德", "美德即知识", System.currentTimeMillis()));
+
+        assertTrue(waitFor(() -> store.getWrittenCount() == 1));
+        assertEquals(1, count("SELECT COUNT(*) FROM chat_transcripts WHERE conversation_id IS NULL"));
+        assertEquals(0, store.getDroppedCount());
+    }
+
+    @Test
+    public void testDropsWhenQueueIsFullAndDatabaseUnavailable() throws Exception {
+        // 表不存在，写入一直失败，队列积满后新记录被丢弃而不是阻塞调用方
+        store = new JdbcTranscriptStore(URL, "sa", "", "missing_table", 4, 2, 10, false);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            store.record(new TranscriptRecord("einstein", null, "问题", "回答", System.currentTimeMillis()));
+        }
+        assertTrue(System.nanoTime() - start < 1_000_000_000L);
+
+        assertTrue(store.getDroppedCount() > 0);
+        assertTrue(waitFor(() -> store.getFailedFlushCount() > 0));
+        assertEquals(0, store.getWrittenCount());
+    }
+
+    @Test
+    public void testRingBufferConcurrentProducers() throws Exception {
+        MpscRingBuffer<Integer> queue = new MpscRingBuffer<>(1000);
+        assertEquals(1024, queue.capacity());
+        int producers = 4;
+        int perProducer = 50_000;
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers);
+
+        Set<Integer> consumed = new HashSet<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(producers)) {
+            for (int p = 0; p < producers; p++) {
+                int base = p * perProducer;
+                executor.submit(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        if (!queue.offer(base + i)) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                    done.countDown();
+                });
+            }
+            // 单个消费者持续取出，直到生产者结束且队列为空
+            List<Integer> drained = new ArrayList<>();
+            while (done.getCount() > 0 || queue.size() > 0) {
+                drained.clear();
+                queue.drainTo(drained, 256);
+                for (Integer value : drained) {
+                    assertTrue(consumed.add(value), "重复取出: " + value);
+                }
+            }
+        }
+
+        assertEquals(producers * perProducer, consumed.size() + rejected.get());
+        assertEquals(0, queue.size());
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(URL, "sa", "");
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static boolean waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (System.nanoTime() < deadline) {
+            if (condition.getAsBoolean()) {
+                return true;
+            }
+            Thread.sleep(10);
+        }
+        return condition.getAsBoolean();
+    }
+}
@@ -0,0 +1,140 @@
+package com.tcs.routing;
+
+import com.tcs.metrics.ChatMetrics;
+import com.tcs.support.StubModelClient;
+import com.tcs.support.StubModelServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoutingChatClientTest {
+
+    private StubModelServer serverA;
+    private StubModelServer serverB;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        serverA = new StubModelServer("来自A的回复");
+        serverB = new StubModelServer("来自B的回复");
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        serverA.close();
+        serverB.close();
+    }
+
+    private RoutingChatClient createRouter(boolean hedgeEnabled, int failureThreshold) {
+        return new RoutingChatClient(List.of(backend("a", serverA, failureThreshold), backend("b", serverB, failureThreshold)),
+                new ChatMetrics(meterRegistry), hedgeEnabled, 50, 1000, 0);
+    }
+
+    private static ModelBackend backend(String name, StubModelServer server, int failureThreshold) {
+        StubModelClient client = new StubModelClient(server);
+        return new ModelBackend(name, client, client, new BackendStats(64), new CircuitBreaker(failureThreshold, 60000));
+    }
+
+    private static String text(ChatResponse response) {
+        return response.getResult().getOutput().getContent();
+    }
+
+    @Test
+    public void testRoutesToFasterBackend() {
+        // 准备测试数据：A 明显慢于 B
+        serverA.setDelayMs(150);
+        serverB.setDelayMs(5);
+        RoutingChatClient router = createRouter(false, 5);
+
+        // 执行测试：两个后端各被探测一次后，后续请求都发往较快的 B
+        for (int i = 0; i < 10; i++) {
+            router.call(new Prompt("你好"));
+        }
+
+        // 验证结果
+        assertEquals(1, serverA.getRequestCount());
+        assertEquals(9, serverB.getRequestCount());
+        router.close();
+    }
+
+    @Test
+    public void testHedgesSlowPrimary() {
+        // 准备测试数据：先让路由认为 A 更快并积累足够的延迟样本
+        serverA.setDelayMs(1);
+        serverB.setDelayMs(30);
+        RoutingChatClient router = createRouter(true, 5);
+        for (int i = 0; i < 25; i++) {
+            router.call(new Prompt("你好"));
+        }
+        assertEquals("来自A的回复", text(router.call(new Prompt("你好"))));
+
+        // 执行测试：A 突然变慢，超过对冲延迟后由 B 的对冲请求返回
+        serverA.setDelayMs(3000);
+        long start = System.nanoTime();
+        ChatResponse response = router.call(new Prompt("你好"));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // 验证结果
+        assertEquals("来自B的回复", text(response));
+        assertTrue(elapsedMs < 1000, "对冲请求应在主请求完成前返回，实际耗时 " + elapsedMs + "ms");
+        assertEquals(1.0, meterRegistry.get("chat.router.hedges").tag("provider", "b").counter().count());
+        router.close();
+    }
+
+    @Test
+    public void testFailsOverToHealthyBackend() {
+        // 准备测试数据：A 持续失败
+        serverA.setFailing(true);
+        RoutingChatClient router = createRouter(false, 5);
+
+        // 执行测试并验证结果：每个请求都由 B 返回，A 失败一次后不再被优先选择
+        for (int i = 0; i < 5; i++) {
+            assertEquals("来自B的回复", text(router.call(new Prompt("你好"))));
+        }
+        assertEquals(1, serverA.getRequestCount());
+        router.close();
+    }
+
+    @Test
+    public void testAllBackendsFailing() {
+        // 准备测试数据：两个后端都失败，连续失败2次后熔断
+        serverA.setFailing(true);
+        serverB.setFailing(true);
+        RoutingChatClient router = createRouter(false, 2);
+
+        // 执行测试
+        for (int i = 0; i < 5; i++) {
+            assertThrows(IllegalStateException.class, () -> router.call(new Prompt("你好")));
+        }
+
+        // 验证结果：熔断后不再向后端发送请求
+        assertEquals(2, serverA.getRequestCount());
+        assertEquals(2, serverB.getRequestCount());
+        assertEquals(CircuitBreaker.State.OPEN, router.getBackends().get(0).getCircuitBreaker().getState());
+        router.close();
+    }
+
+    @Test
+    public void testCircuitBreakerHalfOpenProbe() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 50);
+        breaker.onFailure();
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertFalse(breaker.allowRequest());
+
+        // 打开时间结束后只放行一个探测请求，探测成功后关闭
+        Thread.sleep(60);
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,158 @@
+package com.tcs.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.tcs.exception.BusinessException;
+import com.tcs.http.WireFormat;
+import com.tcs.repository.CatalogSnapshot;
+import com.tcs.repository.CharacterRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CharacterListingTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CharacterRepository characterRepository;
+
+    private CharacterListing characterListing;
+
+    @BeforeEach
+    public void setUp() {
+        characterRepository = new CharacterRepository();
+        characterListing = new CharacterListing(characterRepository, 16, 1 << 20, 100, 1024);
+    }
+
+    @Test
+    public void testUnpagedListKeepsFullCharacters() throws Exception {
+        JsonNode list = objectMapper.readTree(characterListing.render(characterRepository.getSnapshot(),
+                characterListing.query(null, null, null, null)));
+
+        assertTrue(list.isArray());
+        assertEquals(8, list.size());
+        assertTrue(list.get(0).has("personality"));
+    }
+
+    @Test
+    public void testCursorPaginationWithSparseFields() throws Exception {
+        CatalogSnapshot snapshot = characterRepository.getSnapshot();
+        StringBuilder ids = new StringBuilder();
+        String cursor = null;
+        int pages = 0;
+        do {
+            JsonNode page = objectMapper.readTree(characterListing.render(snapshot,
+                    characterListing.query(null, cursor, 3, "id,name")));
+            for (JsonNode item : page.get("items")) {
+                assertEquals(2, item.size());
+                ids.append(item.get("id").asText()).append(',');
+            }
+            cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+            pages++;
+        } while (cursor != null);
+
+        // 8 个角色按ID排序分 3 页返回，不重复也不遗漏
+        assertEquals(3, pages);
+        assertEquals("confucius,einstein,harry-potter,leonardo,marie-curie,maya,shakespeare,socrates,", ids.toString());
+    }
+
+    @Test
+    public void testCategoryFilter() throws Exception {
+        JsonNode page = objectMapper.readTree(characterListing.render(characterRepository.getSnapshot(),
+                characterListing.query("科学家", null, 10, "id")));
+
+        assertEquals(2, page.get("items").size());
+        assertTrue(page.get("nextCursor").isNull());
+    }
+
+    @Test
+    public void testETagMatchReturnsNotModified() {
+        CharacterListing.Query query = characterListing.query(null, null, 5, "id,name,avatar");
+        ResponseEntity<byte[]> first = characterListing.respond(query, null);
+        String etag = first.getHeaders().getETag();
+        assertEquals(HttpStatus.OK, first.getStatusCode());
+        assertNotNull(etag);
+
+        ResponseEntity<byte[]> second = characterListing.respond(query, "\"other\", " + etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+
+        // 不同的查询条件使用不同的 ETag
+        assertNotEquals(etag, characterListing.respond(characterListing.query(null, null, 5, "id"), null).getHeaders().getETag());
+        // 相同版本的相同查询直接返回缓存的字节
+        assertSame(first.getBody(), characterListing.respond(query, null).getBody());
+    }
+
+    @Test
+    public void testBinaryFormatAndPrecompressedBody() throws Exception {
+        CharacterListing.Query query = characterListing.query(null, null, null, null);
+        byte[] json = characterListing.render(characterRepository.getSnapshot(), query);
+
+        // 客户端接受 gzip 时输出缓存的压缩字节，解压后与 JSON 相同
+        ResponseEntity<byte[]> gzipped = characterListing.respond(query, null, WireFormat.JSON, true);
+        assertEquals("gzip", gzipped.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertTrue(gzipped.getBody().length < json.length);
+        assertArrayEquals(json, new GZIPInputStream(new ByteArrayInputStream(gzipped.getBody())).readAllBytes());
+        assertSame(gzipped.getBody(), characterListing.respond(query, null, WireFormat.JSON, true).getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                characterListing.respond(query, gzipped.getHeaders().getETag(), WireFormat.JSON, true).getStatusCode());
+
+        // CBOR 编码的内容与 JSON 相同，ETag 不同
+        ResponseEntity<byte[]> cbor = characterListing.respond(query, null, WireFormat.CBOR, false);
+        assertEquals(WireFormat.CBOR.getMediaType(), cbor.getHeaders().getContentType());
+        assertNull(cbor.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+        assertEquals(objectMapper.readTree(json), new ObjectMapper(new CBORFactory()).readTree(cbor.getBody()));
+        assertNotEquals(gzipped.getHeaders().getETag(), cbor.getHeaders().getETag());
+        assertNotEquals(characterListing.respond(query, null).getHeaders().getETag(), cbor.getHeaders().getETag());
+
+        // 小于 gzip-min-bytes 的结果不压缩
+        ResponseEntity<byte[]> small = characterListing.respond(characterListing.query(null, null, 1, "id"), null,
+                WireFormat.JSON, true);
+        assertNull(small.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    public void testNotModifiedSkipsRenderingAndCompression() {
+        CharacterListing.Query query = characterListing.query(null, null, null, null);
+        String etag = characterListing.respond(query, null, WireFormat.JSON, true).getHeaders().getETag();
+
+        // 新实例没有缓存，ETag 匹配时直接返回 304，不序列化也不压缩
+        CharacterListing fresh = new CharacterListing(characterRepository, 16, 1 << 20, 100, 1024);
+        ResponseEntity<byte[]> notModified = fresh.respond(query, etag, WireFormat.JSON, true);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertNull(notModified.getBody());
+        assertEquals(0, fresh.getCacheStats().misses());
+        assertEquals(0, fresh.getCacheStats().size());
+
+        // 不接受 gzip 的客户端得到不同的 ETag
+        assertEquals(HttpStatus.OK, fresh.respond(query, etag, WireFormat.JSON, false).getStatusCode());
+    }
+
+    @Test
+    public void testCategoriesArePreSerialized() throws Exception {
+        ResponseEntity<byte[]> first = characterListing.respondCategories(null);
+        JsonNode categories = objectMapper.readTree(first.getBody());
+
+        assertTrue(categories.isArray());
+        assertEquals(characterRepository.getAllCategories().size(), categories.size());
+        assertSame(first.getBody(), characterListing.respondCategories(null).getBody());
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                characterListing.respondCategories(first.getHeaders().getETag()).getStatusCode());
+    }
+
+    @Test
+    public void testInvalidParameters() {
+        assertThrows(BusinessException.class, () -> characterListing.query(null, null, 0, null));
+        assertThrows(BusinessException.class, () -> characterListing.query(null, null, 101, null));
+        assertThrows(BusinessException.class, () -> characterListing.query(null, null, null, "id,password"));
+        assertThrows(BusinessException.class, () -> characterListing.query(null, "not base64!", null, null));
+    }
+}
@@ -0,0 +1,96 @@
+package com.tcs.service;
+
+import com.tcs.model.Character;
+import com.tcs.repository.CatalogSource;
+import com.tcs.repository.CharacterRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CharacterSearchIndexTest {
+
+    @Test
+    public void testChineseSearch() {
+        CharacterSearchIndex index = new CharacterSearchIndex(new CharacterRepository());
+
+        // 二元组匹配简介中的“物理”，单字匹配名称
+        assertEquals(Set.of("einstein", "marie-curie"), Set.copyOf(ids(index.search("物理", 10))));
+        assertEquals("confucius", ids(index.search("孔", 10)).get(0));
+        // 所有查询词都匹配的角色优先
+        assertEquals("einstein", ids(index.search("相对论 物理", 10)).get(0));
+        assertTrue(index.search("量子纠缠", 10).stream().noneMatch(c -> c.getId().equals("shakespeare")));
+    }
+
+    @Test
+    public void testPrefixAndFuzzySearch() {
+        CharacterSearchIndex index = new CharacterSearchIndex(new CharacterRepository(new ChangingSource(List.of(
+                character("socrates", "Socrates", "Philosopher", "Greek philosophy teacher"),
+                character("newton", "Isaac Newton", "Physicist", "Laws of motion and gravity"),
+                character("plato", "Plato", "Philosopher", "Student of Socrates")))));
+
+        assertEquals(Set.of("socrates", "plato"), Set.copyOf(ids(index.search("philos", 10))));
+        assertEquals(Set.of("socrates", "plato"), Set.copyOf(ids(index.search("philosohper", 10))));
+        assertEquals(List.of("newton"), ids(index.search("newtn", 10)));
+        assertEquals(List.of("newton"), ids(index.search("grav", 10)));
+        // 名称以查询开头的角色排在前面
+        assertEquals("socrates", ids(index.search("socrates", 10)).get(0));
+        assertTrue(index.search("xyz", 10).isEmpty());
+        assertEquals(1, index.search("philosopher", 1).size());
+    }
+
+    @Test
+    public void testIndexFollowsCatalogChanges() {
+        ChangingSource source = new ChangingSource(List.of(
+                character("socrates", "Socrates", "Philosopher", "Greek philosophy teacher"),
+                character("newton", "Isaac Newton", "Physicist", "Laws of motion and gravity")));
+        CharacterRepository repository = new CharacterRepository(source);
+        CharacterSearchIndex index = new CharacterSearchIndex(repository);
+
+        source.changes = new CatalogSource.Changes(false, List.of(
+                character("kant", "Immanuel Kant", "Philosopher", "Critique of reason"),
+                character("socrates", "Socrates", "Teacher", "Athens")), Set.of("newton"));
+        repository.reloadIfChanged();
+
+        assertEquals(List.of("kant"), ids(index.search("philosopher", 10)));
+        assertTrue(index.search("gravity", 10).isEmpty());
+        assertEquals(List.of("socrates"), ids(index.search("athens", 10)));
+        assertEquals(2, index.size());
+    }
+
+    private static List<String> ids(List<Character> characters) {
+        return characters.stream().map(Character::getId).toList();
+    }
+
+    private static Character character(String id, String name, String category, String description) {
+        return new Character(id, name, null, category, description, null);
+    }
+
+    private static class ChangingSource implements CatalogSource {
+        private final List<Character> initial;
+        private Changes changes = Changes.NONE;
+
+        ChangingSource(List<Character> initial) {
+            this.initial = initial;
+        }
+
+        @Override
+        public String getName() {
+            return "test";
+        }
+
+        @Override
+        public List<Character> loadAll() {
+            return initial;
+        }
+
+        @Override
+        public Changes loadChanges() {
+            Changes pending = changes;
+            changes = Changes.NONE;
+            return pending;
+        }
+    }
+}
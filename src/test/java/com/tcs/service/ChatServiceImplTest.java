@@ -1,20 +1,34 @@
 package com.tcs.service;
 
+import com.tcs.cache.ResponseCache;
+import com.tcs.cache.SemanticCache;
+import com.tcs.embedding.HashingEmbedder;
+import com.tcs.exception.ServiceBusyException;
+import com.tcs.metrics.ChatMetrics;
 import com.tcs.model.ChatRequest;
 import com.tcs.model.ChatResponse;
+import com.tcs.model.ChatStreamEvent;
 import com.tcs.model.Message;
 import com.tcs.model.Character;
+import com.tcs.repository.CatalogSnapshot;
 import com.tcs.repository.CharacterRepository;
+import com.tcs.repository.InMemoryConversationStore;
+import com.tcs.repository.TranscriptStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.Generation;
+import org.springframework.ai.chat.StreamingChatClient;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.PromptTemplate;
+import reactor.core.publisher.Flux;
 
 import java.util.*;
+import java.util.function.BiConsumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -27,12 +41,36 @@ public class ChatServiceImplTest {
     @Mock
     private ChatClient chatClient;
 
-    @InjectMocks
+    @Mock
+    private StreamingChatClient streamingChatClient;
+
+    private InMemoryConversationStore conversationStore;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ChatMetrics chatMetrics;
+
     private ChatServiceImpl chatService;
 
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        conversationStore = new InMemoryConversationStore(20, 100, 100000, 30);
+        meterRegistry = new SimpleMeterRegistry();
+        chatMetrics = new ChatMetrics(meterRegistry, characterRepository);
+        chatService = createChatService(new UpstreamCallLimiter(4, 100));
+    }
+
+    private ChatServiceImpl createChatService(UpstreamCallLimiter limiter) {
+        return createChatService(limiter, SemanticCache.disabled());
+    }
+
+    private ChatServiceImpl createChatService(UpstreamCallLimiter limiter, SemanticCache semanticCache) {
+        PromptCompiler promptCompiler = new PromptCompiler(characterRepository);
+        return new ChatServiceImpl(characterRepository, chatClient, streamingChatClient, limiter,
+                new ResponseCache(true, 100, 60, Set.of()), semanticCache, new SensitiveWordFilter(""), promptCompiler,
+                conversationStore, TranscriptStore.NONE, new HistoryWindow(new TokenEstimator(), promptCompiler, 2000, 20, false, 200),
+                new MessageIdGenerator(1), chatMetrics);
     }
 
     // 移除mockAiResponse方法，直接在测试中创建更简单的模拟行为
@@ -121,6 +159,284 @@ public class ChatServiceImplTest {
         assertEquals("找不到指定的角色", response.getError());
     }
 
+    @Test
+    public void testProcessChatRequest_UpstreamBusy() {
+        // 准备测试数据：唯一的上游调用许可已被占用
+        UpstreamCallLimiter limiter = new UpstreamCallLimiter(1, 10);
+        limiter.acquire();
+        ChatServiceImpl busyService = createChatService(limiter);
+        Character character = new Character();
+        character.setId("1");
+        character.setName("爱因斯坦");
+        when(characterRepository.getCharacterById("1")).thenReturn(character);
+
+        // 执行测试并验证结果：超过并发上限时快速拒绝，不调用模型
+        ChatRequest request = new ChatRequest("1", "讲讲相对论", new ArrayList<>());
+        assertThrows(ServiceBusyException.class, () -> busyService.processChatRequest(request));
+        verifyNoInteractions(chatClient);
+    }
+
+    @Test
+    public void testStreamChatRequest_PermitTakenOnSubscribe() {
+        // 准备测试数据：只有一个上游调用许可
+        UpstreamCallLimiter limiter = new UpstreamCallLimiter(1, 10);
+        ChatServiceImpl limitedService = createChatService(limiter);
+        Character character = new Character();
+        character.setId("1");
+        character.setName("爱因斯坦");
+        when(characterRepository.getCharacterById("1")).thenReturn(character);
+        when(streamingChatClient.stream(any(Prompt.class))).thenAnswer(invocation -> Flux.just(
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("相对论"))),
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("很有趣")))
+        ).delayElements(java.time.Duration.ofMillis(20)));
+        ChatRequest request = new ChatRequest("1", "讲讲相对论", new ArrayList<>());
+
+        // 没有订阅的流不占用许可，也不调用模型
+        Flux<ChatStreamEvent> first = limitedService.streamChatRequest(request);
+        assertEquals(0, limiter.getInFlight());
+        verifyNoInteractions(streamingChatClient);
+
+        // 订阅者收到第一个分片后取消，许可归还
+        assertEquals(ChatStreamEvent.TYPE_DELTA, first.blockFirst().getType());
+        assertEquals(0, limiter.getInFlight());
+
+        // 之后的请求重新获取许可并调用模型
+        List<ChatStreamEvent> events = limitedService.streamChatRequest(request).collectList().block();
+        assertEquals(ChatStreamEvent.TYPE_DONE, events.get(events.size() - 1).getType());
+        assertEquals("相对论很有趣", events.get(events.size() - 1).getResponse().getMessage().getText());
+        verify(streamingChatClient, times(2)).stream(any(Prompt.class));
+        assertEquals(0, limiter.getInFlight());
+
+        // 许可被占用时订阅以 ServiceBusyException 结束，不调用模型
+        limiter.acquire();
+        Flux<ChatStreamEvent> busy = limitedService.streamChatRequest(new ChatRequest("1", "讲讲量子力学", new ArrayList<>()));
+        assertThrows(ServiceBusyException.class, busy::blockLast);
+        verify(streamingChatClient, times(2)).stream(any(Prompt.class));
+        limiter.release();
+    }
+
+    @Test
+    public void testProcessChatRequest_ServerSideConversation() {
+        // 准备测试数据
+        Character character = new Character();
+        character.setId("1");
+        character.setName("爱因斯坦");
+        when(characterRepository.getCharacterById("1")).thenReturn(character);
+
+        // 执行测试：携带会话ID时，本轮消息和回复由服务端保存
+        ChatRequest request = new ChatRequest("1", "你好", null, "conv-1");
+        ChatResponse response = chatService.processChatRequest(request);
+
+        // 验证结果
+        assertTrue(response.isSuccess());
+        List<Message> stored = conversationStore.getRecentMessages("1", "conv-1");
+        assertEquals(2, stored.size());
+        assertEquals("user", stored.get(0).getSender());
+        assertEquals("你好", stored.get(0).getText());
+        assertEquals(response.getMessage(), stored.get(1));
+        assertTrue(conversationStore.getRecentMessages("2", "conv-1").isEmpty());
+    }
+
+    @Test
+    public void testStreamChatRequest_Success() {
+        // 准备测试数据
+        String characterId = "1";
+        Character character = new Character();
+        character.setId(characterId);
+        character.setName("爱因斯坦");
+        character.setCategory("科学家");
+        character.setDescription("著名物理学家");
+        character.setPersonality("聪明、好奇、富有洞察力");
+
+        // 模拟依赖行为，模型分三段输出
+        when(characterRepository.getCharacterById(characterId)).thenReturn(character);
+        when(streamingChatClient.stream(any(Prompt.class))).thenReturn(Flux.just(
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("相对论"))),
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("很有趣"))),
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("！")))
+        ));
+
+        // 执行测试
+        ChatRequest request = new ChatRequest(characterId, "讲讲相对论", new ArrayList<>());
+        List<ChatStreamEvent> events = chatService.streamChatRequest(request).collectList().block();
+
+        // 验证结果
+        assertNotNull(events);
+        assertEquals(4, events.size());
+        assertEquals(ChatStreamEvent.TYPE_DELTA, events.get(0).getType());
+        assertEquals("相对论", events.get(0).getDelta());
+        ChatStreamEvent last = events.get(events.size() - 1);
+        assertEquals(ChatStreamEvent.TYPE_DONE, last.getType());
+        assertTrue(last.getResponse().isSuccess());
+        assertEquals("相对论很有趣！", last.getResponse().getMessage().getText());
+    }
+
+    @Test
+    public void testStreamChatRequest_FirstTokenIsLatencySample() {
+        // 准备测试数据：模型分三段输出，每段间隔 50ms
+        Character character = new Character();
+        character.setId("1");
+        character.setName("爱因斯坦");
+        when(characterRepository.getCharacterById("1")).thenReturn(character);
+        when(streamingChatClient.stream(any(Prompt.class))).thenReturn(Flux.just(
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("相对论"))),
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("很有趣"))),
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("！")))
+        ).delayElements(java.time.Duration.ofMillis(50)));
+        List<Long> samples = new ArrayList<>();
+        chatMetrics.addModelLatencyListener((nanos, success) -> samples.add(nanos));
+
+        // 执行测试
+        chatService.streamChatRequest(new ChatRequest("1", "讲讲相对论", new ArrayList<>())).blockLast();
+
+        // 验证结果：只有首个分片的延迟作为样本，不包含整个生成过程
+        assertEquals(1, samples.size());
+        assertTrue(samples.get(0) < java.util.concurrent.TimeUnit.MILLISECONDS.toNanos(140), "sample=" + samples.get(0));
+        assertTrue(meterRegistry.get("chat.model.duration").tag("outcome", "success").timer()
+                .totalTime(java.util.concurrent.TimeUnit.MILLISECONDS) >= 140);
+    }
+
+    @Test
+    public void testStreamChatRequest_EmptyCharacterId() {
+        // 执行测试
+        ChatRequest request = new ChatRequest(null, "你好", new ArrayList<>());
+        List<ChatStreamEvent> events = chatService.streamChatRequest(request).collectList().block();
+
+        // 验证结果：校验失败时不调用模型
+        assertNotNull(events);
+        assertEquals(1, events.size());
+        assertEquals(ChatStreamEvent.TYPE_ERROR, events.get(0).getType());
+        assertFalse(events.get(0).getResponse().isSuccess());
+        verifyNoInteractions(streamingChatClient);
+    }
+
+    @Test
+    public void testProcessChatBatch_DedupeAndPerItemErrors() {
+        // 准备测试数据
+        Character character = new Character();
+        character.setId("1");
+        character.setName("爱因斯坦");
+        when(characterRepository.getCharacterById("1")).thenReturn(character);
+        when(chatClient.call(any(Prompt.class))).thenReturn(
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("时间是相对的"))));
+
+        // 执行测试：两个相同的请求和一个不合法的请求
+        List<ChatResponse> responses = chatService.processChatBatch(List.of(
+                new ChatRequest("1", "讲讲相对论", new ArrayList<>()),
+                new ChatRequest(null, "你好", new ArrayList<>()),
+                new ChatRequest("1", "讲讲相对论", new ArrayList<>())));
+
+        // 验证结果：按请求顺序返回，相同的提示只调用一次模型
+        assertEquals(3, responses.size());
+        assertTrue(responses.get(0).isSuccess());
+        assertEquals("时间是相对的", responses.get(0).getMessage().getText());
+        assertFalse(responses.get(1).isSuccess());
+        assertEquals("角色ID是必需的", responses.get(1).getError());
+        assertTrue(responses.get(2).isSuccess());
+        assertEquals("时间是相对的", responses.get(2).getMessage().getText());
+        verify(chatClient, times(1)).call(any(Prompt.class));
+    }
+
+    @Test
+    public void testProcessChatRequest_RecordsMetrics() {
+        // 准备测试数据
+        Character character = new Character();
+        character.setId("1");
+        character.setName("爱因斯坦");
+        when(characterRepository.getCharacterById("1")).thenReturn(character);
+        when(chatClient.call(any(Prompt.class))).thenReturn(
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("时间是相对的"))));
+
+        // 执行测试：第二次相同的请求命中回复缓存
+        ChatRequest request = new ChatRequest("1", "讲讲相对论", new ArrayList<>());
+        chatService.processChatRequest(request);
+        chatService.processChatRequest(request);
+
+        // 验证结果
+        assertEquals(2, meterRegistry.get("chat.stage.duration").tag("stage", ChatMetrics.STAGE_LOOKUP).timer().count());
+        assertEquals(1, meterRegistry.get("chat.stage.duration").tag("stage", ChatMetrics.STAGE_PROMPT).timer().count());
+        assertEquals(1, meterRegistry.get("chat.model.duration").tag("character", "1").tag("outcome", "success").timer().count());
+        assertEquals(1.0, meterRegistry.get("chat.requests.short-circuited").tag("source", "response-cache").counter().count());
+
+        // 角色从目录中删除后，按角色区分的指标从注册表中移除
+        ArgumentCaptor<BiConsumer<CatalogSnapshot, Set<String>>> listener = ArgumentCaptor.forClass(BiConsumer.class);
+        verify(characterRepository, atLeastOnce()).addChangeListener(listener.capture());
+        // 依次通知所有监听器（提示编译器也注册了监听器）
+        listener.getAllValues().forEach(l -> l.accept(new CatalogSnapshot(2, List.of()), Set.of("1")));
+        assertNull(meterRegistry.find("chat.model.duration").tag("character", "1").timer());
+    }
+
+    @Test
+    public void testPrefetchReply_FirstMessageHitsCache() {
+        // 准备测试数据
+        Character character = new Character();
+        character.setId("1");
+        character.setName("爱因斯坦");
+        when(characterRepository.getCharacterById("1")).thenReturn(character);
+        when(chatClient.call(any(Prompt.class))).thenReturn(
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("你好，我是爱因斯坦。"))));
+
+        // 预取开场回复，已缓存时不再调用模型
+        assertTrue(chatService.prefetchReply("1", "你好", false));
+        assertFalse(chatService.prefetchReply("1", "你好", false));
+        verify(chatClient, times(1)).call(any(Prompt.class));
+
+        // 用户的第一条消息（归一化后相同）直接命中缓存，优先于通用的常见问题回复
+        ChatResponse response = chatService.processChatRequest(new ChatRequest("1", " 你好！", null));
+        assertTrue(response.isSuccess());
+        assertEquals("你好，我是爱因斯坦。", response.getMessage().getText());
+        verify(chatClient, times(1)).call(any(Prompt.class));
+
+        // 覆盖生成时重新调用模型
+        assertTrue(chatService.prefetchReply("1", "你好", true));
+        verify(chatClient, times(2)).call(any(Prompt.class));
+    }
+
+    @Test
+    public void testSemanticCache_SimilarQuestionSkipsModel() {
+        Character character = new Character();
+        character.setId("1");
+        character.setName("爱因斯坦");
+        when(characterRepository.getCharacterById("1")).thenReturn(character);
+        when(chatClient.call(any(Prompt.class))).thenReturn(
+                new org.springframework.ai.chat.ChatResponse(List.of(new Generation("相对论是关于时空和引力的理论。"))));
+        ChatServiceImpl service = createChatService(new UpstreamCallLimiter(4, 100), new SemanticCache(new HashingEmbedder(256),
+                new SemanticCache.Settings(true, 0.8f, 100, 10, 64L * 1024 * 1024, 60_000, 8, 32, 32)));
+
+        assertTrue(service.processChatRequest(new ChatRequest("1", "相对论是什么？", null)).isSuccess());
+        verify(chatClient, times(1)).call(any(Prompt.class));
+
+        // 换一种问法命中语义缓存，不再调用模型
+        ChatResponse response = service.processChatRequest(new ChatRequest("1", "什么是相对论", null));
+        assertTrue(response.isSuccess());
+        assertEquals("相对论是关于时空和引力的理论。", response.getMessage().getText());
+        verify(chatClient, times(1)).call(any(Prompt.class));
+        assertEquals(1.0, meterRegistry.get("chat.requests.short-circuited").tag("source", "semantic-cache").counter().count());
+
+        // 带历史记录的轮次不使用语义缓存
+        List<Message> history = List.of(new Message("m1", "你好", "user", new Date(), false));
+        service.processChatRequest(new ChatRequest("1", "什么是相对论", history));
+        verify(chatClient, times(2)).call(any(Prompt.class));
+    }
+
+    @Test
+    public void testPrefetchReply_ModelFailureNotCached() {
+        Character character = new Character();
+        character.setId("1");
+        character.setName("爱因斯坦");
+        when(characterRepository.getCharacterById("1")).thenReturn(character);
+        when(chatClient.call(any(Prompt.class))).thenThrow(new IllegalStateException("model down"));
+
+        // 模型调用失败时抛出异常，兜底文案不进入缓存
+        assertThrows(IllegalStateException.class, () -> chatService.prefetchReply("1", "讲讲相对论", false));
+        assertThrows(IllegalStateException.class, () -> chatService.prefetchReply("1", "讲讲相对论", false));
+        verify(chatClient, times(2)).call(any(Prompt.class));
+
+        // 角色不存在时不调用模型
+        assertFalse(chatService.prefetchReply("missing", "你好", false));
+        verify(chatClient, times(2)).call(any(Prompt.class));
+    }
+
     @Test
     public void testValidateMessageContent() {
         assertTrue(chatService.validateMessageContent("有效的消息"));
@@ -0,0 +1,84 @@
+package com.tcs.service;
+
+import com.tcs.model.Character;
+import com.tcs.model.Message;
+import com.tcs.repository.CharacterRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoryWindowTest {
+
+    private PromptCompiler promptCompiler;
+    private TokenEstimator tokenEstimator;
+    private Character character;
+
+    @BeforeEach
+    public void setUp() {
+        promptCompiler = new PromptCompiler(new CharacterRepository());
+        tokenEstimator = new TokenEstimator();
+        character = new Character("einstein", "爱因斯坦", "", "科学家", "物理学家", "好奇");
+    }
+
+    @Test
+    public void testTokenEstimate() {
+        assertEquals(0, TokenEstimator.count(""));
+        assertEquals(4, TokenEstimator.count("相对论！"));
+        assertEquals(4, TokenEstimator.count("hello world"));
+        assertEquals(tokenEstimator.estimate("你好".repeat(50)), TokenEstimator.count("你好".repeat(50)));
+    }
+
+    @Test
+    public void testShortHistoryIsKeptWhole() {
+        HistoryWindow window = new HistoryWindow(tokenEstimator, promptCompiler, 2000, 20, false, 200);
+        List<Message> history = history(6, 10);
+
+        assertEquals(history, window.select(character, "继续", history));
+    }
+
+    @Test
+    public void testLongMessageIsDroppedByBudget() {
+        HistoryWindow window = new HistoryWindow(tokenEstimator, promptCompiler, 600, 20, false, 200);
+        List<Message> history = history(4, 10);
+        history.add(0, new Message("long", "长".repeat(1000), "user", new Date(), false));
+
+        List<Message> selected = window.select(character, "继续", history);
+        assertEquals(4, selected.size());
+        assertEquals(history.get(1), selected.get(0));
+    }
+
+    @Test
+    public void testMaxMessagesCap() {
+        HistoryWindow window = new HistoryWindow(tokenEstimator, promptCompiler, 100000, 3, false, 200);
+        List<Message> history = history(10, 5);
+
+        List<Message> selected = window.select(character, "继续", history);
+        assertEquals(history.subList(7, 10), selected);
+    }
+
+    @Test
+    public void testDroppedMessagesAreSummarized() {
+        HistoryWindow window = new HistoryWindow(tokenEstimator, promptCompiler, 100000, 3, true, 200);
+        List<Message> history = history(10, 5);
+
+        List<Message> selected = window.select(character, "继续", history);
+        assertEquals("system", selected.get(0).getSender());
+        assertTrue(selected.get(0).getText().startsWith("以下是较早对话的摘要"));
+        assertEquals(history.get(9), selected.get(selected.size() - 1));
+        assertSame(selected.get(0), window.select(character, "继续", history).get(0));
+    }
+
+    private static List<Message> history(int count, int length) {
+        List<Message> history = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            history.add(new Message("m-" + i, String.valueOf((char) ('a' + i)).repeat(length) + "测试",
+                    i % 2 == 0 ? "user" : "character", new Date(), false));
+        }
+        return history;
+    }
+}
@@ -0,0 +1,122 @@
+package com.tcs.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageIdGeneratorTest {
+
+    @Test
+    public void testConcurrentIdsAreUniqueAndMonotonicPerThread() throws Exception {
+        MessageIdGenerator generator = new MessageIdGenerator(7);
+        int threads = 8;
+        int perThread = 200_000;
+        CountDownLatch start = new CountDownLatch(1);
+
+        // 执行测试：所有线程同时开始分配，每个线程内的ID必须严格递增
+        List<Future<long[]>> results = new ArrayList<>();
+        long startNanos;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit(() -> {
+                    long[] ids = new long[perThread];
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        ids[i] = generator.nextId();
+                    }
+                    return ids;
+                }));
+            }
+            startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<long[]> result : results) {
+                result.get();
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        Set<Long> all = new HashSet<>(threads * perThread * 2);
+        for (Future<long[]> result : results) {
+            long[] ids = result.get();
+            for (int i = 0; i < ids.length; i++) {
+                assertTrue(all.add(ids[i]), "重复的ID: " + ids[i]);
+                if (i > 0) {
+                    assertTrue(ids[i] > ids[i - 1]);
+                }
+                assertEquals(7, MessageIdGenerator.nodeOf(ids[i]));
+            }
+        }
+        assertEquals(threads * perThread, all.size());
+        // 160 万个ID应在数秒内完成（单次分配为一次 CAS，正常环境下远低于此上限）
+        assertTrue(elapsedNanos < 5_000_000_000L, "生成耗时过长: " + elapsedNanos / 1_000_000 + "ms");
+    }
+
+    @Test
+    public void testSequenceOverflowBorrowsNextMillisecond() {
+        AtomicLong clock = new AtomicLong(MessageIdGenerator.EPOCH_MILLIS + 1000);
+        MessageIdGenerator generator = new MessageIdGenerator(3, clock::get);
+
+        long previous = -1;
+        for (int i = 0; i < 5000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous);
+            previous = id;
+        }
+        // 同一毫秒只有 4096 个序号，之后的ID时间戳前移一毫秒
+        assertEquals(MessageIdGenerator.EPOCH_MILLIS + 1001, MessageIdGenerator.timestampOf(previous));
+
+        // 时钟回拨时仍然递增
+        clock.addAndGet(-500);
+        assertTrue(generator.nextId() > previous);
+    }
+
+    @Test
+    public void testEncodingIsFixedLengthAndSortable() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        MessageIdGenerator generator = new MessageIdGenerator(MessageIdGenerator.MAX_NODE, clock::get);
+
+        String previous = "";
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 100 == 0) {
+                clock.addAndGet(37);
+            }
+            String id = generator.nextId("character");
+            assertTrue(id.startsWith("character-"));
+            assertEquals("character-".length() + MessageIdGenerator.ENCODED_LENGTH, id.length());
+            assertTrue(id.compareTo(previous) > 0);
+            previous = id;
+        }
+        assertEquals("0000000000000", MessageIdGenerator.encode(0));
+        assertEquals("7ZZZZZZZZZZZZ", MessageIdGenerator.encode(Long.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> new MessageIdGenerator(MessageIdGenerator.MAX_NODE + 1));
+    }
+
+    @Test
+    public void testNodeSource() {
+        // 默认使用配置的节点号，与主机名无关
+        assertEquals(5, MessageIdGenerator.resolveNode(5, "config", "", () -> "vm"));
+        assertEquals(5, MessageIdGenerator.resolveNode(5, "config", "", () -> "ip-10-0-1-17"));
+
+        // StatefulSet 的 Pod 名称为 StatefulSet 名称加序号
+        assertEquals(0, MessageIdGenerator.resolveNode(-1, "statefulset", "chat", () -> "chat-0"));
+        assertEquals(17, MessageIdGenerator.resolveNode(-1, "statefulset", "tcs-chat", () -> "tcs-chat-17"));
+
+        // 名称不匹配或序号无效时启动失败，不从任意的主机名数字推导
+        assertThrows(IllegalStateException.class, () -> MessageIdGenerator.resolveNode(-1, "statefulset", "chat", () -> "ip-10-0-1-17"));
+        assertThrows(IllegalStateException.class, () -> MessageIdGenerator.resolveNode(-1, "statefulset", "chat", () -> "chat-7d9f8-x2kqz"));
+        assertThrows(IllegalStateException.class, () -> MessageIdGenerator.resolveNode(-1, "statefulset", "chat", () -> "chat-2048"));
+        assertThrows(IllegalStateException.class, () -> MessageIdGenerator.resolveNode(-1, "statefulset", "chat", () -> "chat-017"));
+        assertThrows(IllegalStateException.class, () -> MessageIdGenerator.resolveNode(-1, "statefulset", "", () -> "chat-1"));
+        assertThrows(IllegalArgumentException.class, () -> MessageIdGenerator.resolveNode(0, "hostname", "", () -> "vm"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.tcs.service;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testConcurrentCallsShareOneExecution() throws Exception {
+        // 准备测试数据：第一个调用阻塞，直到其余调用都已加入
+        AtomicInteger executions = new AtomicInteger();
+        AtomicInteger coalesced = new AtomicInteger();
+        SingleFlight<String> singleFlight = new SingleFlight<>(type -> coalesced.incrementAndGet());
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+
+        // 执行测试
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> singleFlight.execute("einstein:你好", () -> {
+                    executions.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "你好！";
+                })));
+            }
+            while (coalesced.get() < callers - 1) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            // 验证结果：只执行一次，所有调用方得到同一个结果
+            for (Future<String> result : results) {
+                assertEquals("你好！", result.get(5, TimeUnit.SECONDS));
+            }
+        }
+        assertEquals(1, executions.get());
+        assertEquals(callers - 1, coalesced.get());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+
+    @Test
+    public void testFailureIsSharedAndNotRetained() {
+        SingleFlight<String> singleFlight = new SingleFlight<>(type -> {
+        });
+
+        // 执行失败后立即移除，下一次调用重新执行
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("k", () -> {
+            throw new IllegalStateException("upstream failure");
+        }));
+        assertEquals("ok", singleFlight.execute("k", () -> "ok"));
+    }
+
+    @Test
+    public void testStreamSubscribersShareOneUpstream() {
+        // 准备测试数据：上游流逐个输出分片
+        AtomicInteger subscriptions = new AtomicInteger();
+        AtomicInteger coalesced = new AtomicInteger();
+        SingleFlight<String> singleFlight = new SingleFlight<>(type -> coalesced.incrementAndGet());
+
+        // 执行测试：第二个订阅者在第一个分片输出后才加入
+        Flux<String> first = singleFlight.stream("k", () -> Flux.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Flux.just("相对论", "很", "有趣").delayElements(Duration.ofMillis(50));
+        }));
+        Flux<String> second = singleFlight.stream("k", () -> Flux.error(new AssertionError("不应再次调用上游")));
+        List<String> firstChunks = first.collectList()
+                .zipWith(second.delaySubscription(Duration.ofMillis(70)).collectList(), (a, b) -> {
+                    assertEquals(a, b);
+                    return a;
+                })
+                .block(Duration.ofSeconds(5));
+
+        // 验证结果：后加入的订阅者也收到完整输出
+        assertEquals(List.of("相对论", "很", "有趣"), firstChunks);
+        assertEquals(1, subscriptions.get());
+        assertEquals(1, coalesced.get());
+    }
+
+    @Test
+    public void testLateSubscriberStartsNewFlightAfterCancel() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        AtomicInteger coalesced = new AtomicInteger();
+        SingleFlight<String> singleFlight = new SingleFlight<>(type -> coalesced.incrementAndGet());
+        Flux<String> upstream = Flux.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Flux.just("相对论", "很", "有趣").delayElements(Duration.ofMillis(20));
+        });
+
+        // 未订阅的流不开始调用，也不占用 key
+        Flux<String> first = singleFlight.stream("k", () -> upstream);
+        assertEquals(0, subscriptions.get());
+        assertEquals(0, singleFlight.getInFlightCount());
+
+        // 唯一的订阅者取消后共享流断开并移除
+        assertEquals("相对论", first.blockFirst(Duration.ofSeconds(5)));
+        assertEquals(1, subscriptions.get());
+        assertEquals(0, singleFlight.getInFlightCount());
+
+        // 之后订阅的调用方开始新的调用，得到完整输出；订阅者收到结束信号时 key 已经移除
+        AtomicInteger inFlightAtComplete = new AtomicInteger(-1);
+        Flux<String> late = singleFlight.stream("k", () -> upstream)
+                .doOnComplete(() -> inFlightAtComplete.set(singleFlight.getInFlightCount()));
+        assertEquals(List.of("相对论", "很", "有趣"), late.collectList().block(Duration.ofSeconds(5)));
+        assertEquals(2, subscriptions.get());
+        assertEquals(0, coalesced.get());
+        assertEquals(0, inFlightAtComplete.get());
+        assertEquals(0, singleFlight.getInFlightCount());
+    }
+}
@@ -0,0 +1,66 @@
+package com.tcs.support;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.ai.chat.ChatClient;
+import org.springframework.ai.chat.ChatResponse;
+import org.springframework.ai.chat.Generation;
+import org.springframework.ai.chat.StreamingChatClient;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 通过 HTTP 调用 StubModelServer 的最小 ChatClient，用于在测试中模拟真实的网络调用
+ */
+public class StubModelClient implements ChatClient, StreamingChatClient {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final URI endpoint;
+
+    public StubModelClient(StubModelServer server) {
+        this.endpoint = URI.create(server.getBaseUrl() + "/v1/chat/completions");
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        try {
+            String body = objectMapper.writeValueAsString(Map.of(
+                    "model", "stub",
+                    "messages", List.of(Map.of("role", "user", "content", prompt.getContents()))));
+            HttpResponse<String> response = httpClient.send(HttpRequest.newBuilder(endpoint)
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("stub model returned " + response.statusCode());
+            }
+            JsonNode json = objectMapper.readTree(response.body());
+            String content = json.path("choices").path(0).path("message").path("content").asText();
+            return new ChatResponse(List.of(new Generation(content)));
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> Flux.just(call(prompt))).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,187 @@
+package com.tcs.support;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地桩模型服务器，模拟 OpenAI 兼容的 /v1/chat/completions 接口
+ * 可以设置响应延迟（固定值或对数正态分布）、生成速度和故障（全部失败或按比例失败），
+ * 请求体带 "stream":true 时以 SSE 分片返回，每个分片视为一个 token
+ */
+public class StubModelServer implements AutoCloseable {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger failureCount = new AtomicInteger();
+    private final String reply;
+    private volatile long delayMs;
+    private volatile double latencySigma;
+    private volatile double tokensPerSecond;
+    private volatile double errorRate;
+    private volatile boolean failing;
+
+    public StubModelServer(String reply) throws IOException {
+        this.reply = reply;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/chat/completions", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        sleep(firstTokenDelayNanos());
+        if (failing || (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate)) {
+            failureCount.incrementAndGet();
+            send(exchange, 500, "application/json", "{\"error\":{\"message\":\"stub failure\"}}");
+            return;
+        }
+        List<String> pieces = new ArrayList<>();
+        for (int i = 0; i < reply.length(); i += 4) {
+            pieces.add(reply.substring(i, Math.min(reply.length(), i + 4)));
+        }
+        long tokenNanos = tokensPerSecond > 0 ? (long) (1_000_000_000L / tokensPerSecond) : 0;
+        if (body.replace(" ", "").contains("\"stream\":true")) {
+            if (tokenNanos > 0) {
+                streamPaced(exchange, pieces, tokenNanos);
+                return;
+            }
+            StringBuilder events = new StringBuilder();
+            for (String piece : pieces) {
+                events.append(chunk(piece));
+            }
+            events.append("data: [DONE]\n\n");
+            send(exchange, 200, "text/event-stream", events.toString());
+            return;
+        }
+        // 非流式请求等待全部 token 生成后一次返回
+        sleep(tokenNanos * pieces.size());
+        send(exchange, 200, "application/json",
+                "{\"id\":\"stub\",\"object\":\"chat.completion\",\"model\":\"stub\",\"choices\":[{\"index\":0,"
+                        + "\"message\":{\"role\":\"assistant\",\"content\":\"" + escape(reply) + "\"},\"finish_reason\":\"stop\"}],"
+                        + "\"usage\":{\"prompt_tokens\":1,\"completion_tokens\":1,\"total_tokens\":2}}");
+    }
+
+    // 按生成速度逐个发送分片
+    private static void streamPaced(HttpExchange exchange, List<String> pieces, long tokenNanos) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (String piece : pieces) {
+                out.write(chunk(piece).getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                sleep(tokenNanos);
+            }
+            out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static String chunk(String piece) {
+        return "data: {\"id\":\"stub\",\"object\":\"chat.completion.chunk\",\"choices\":[{\"index\":0,\"delta\":{\"content\":\""
+                + escape(piece) + "\"},\"finish_reason\":null}]}\n\n";
+    }
+
+    // 首个 token 之前的延迟：设置了 latencySigma 时以 delayMs 为中位数按对数正态分布抽样
+    private long firstTokenDelayNanos() {
+        double millis = delayMs;
+        if (millis > 0 && latencySigma > 0) {
+            millis *= Math.exp(latencySigma * ThreadLocalRandom.current().nextGaussian());
+        }
+        return (long) (millis * 1_000_000);
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public String getReply() {
+        return reply;
+    }
+
+    public void setDelayMs(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    /**
+     * 首个 token 延迟的对数正态分布参数，0 表示固定为 delayMs
+     */
+    public void setLatencySigma(double latencySigma) {
+        this.latencySigma = latencySigma;
+    }
+
+    /**
+     * 生成速度（每秒分片数），0 表示不模拟生成耗时
+     */
+    public void setTokensPerSecond(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+    }
+
+    /**
+     * 随机失败的比例（0-1）
+     */
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * 返回 500 的请求数（设置了全部失败或按比例注入的故障）
+     */
+    public int getFailureCount() {
+        return failureCount.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
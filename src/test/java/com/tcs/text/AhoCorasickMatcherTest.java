@@ -0,0 +1,50 @@
+package com.tcs.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AhoCorasickMatcherTest {
+
+    @Test
+    public void testMaskAllOccurrences() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("垃圾", "废物", "白痴"), false);
+
+        assertEquals("你是****吗 **", matcher.mask("你是垃圾废物吗 白痴", '*'));
+    }
+
+    @Test
+    public void testMaskOverlappingPatterns() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("he", "she", "his", "hers"), false);
+
+        assertEquals("u***** ok", matcher.mask("ushers ok", '*'));
+    }
+
+    @Test
+    public void testNoMatchReturnsSameInstance() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("垃圾"), false);
+        String text = "今天天气很好";
+
+        assertSame(text, matcher.mask(text, '*'));
+        assertFalse(matcher.containsAny(text));
+    }
+
+    @Test
+    public void testFindFirstIgnoreCase() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("hello", "help", "你好"), true);
+
+        int index = matcher.findFirst("HELP me, hello");
+        assertEquals("help", matcher.getPattern(index));
+        assertEquals(-1, matcher.findFirst("再见"));
+    }
+
+    @Test
+    public void testEmptyAndDuplicatePatternsIgnored() {
+        AhoCorasickMatcher matcher = AhoCorasickMatcher.compile(List.of("", "垃圾", "垃圾"), false);
+
+        assertEquals(1, matcher.size());
+        assertEquals("**桶", matcher.mask("垃圾桶", '*'));
+    }
+}
@@ -0,0 +1,139 @@
+package com.tcs.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HnswIndexTest {
+    private static final int DIMENSIONS = 32;
+
+    @Test
+    public void testRecallAgainstExactSearch() {
+        Random random = new Random(42);
+        HnswIndex<Integer> index = new HnswIndex<>(DIMENSIONS, 5000, 16, 100, new AtomicLong(), 7);
+        for (int i = 0; i < 5000; i++) {
+            index.add(randomUnitVector(random), i);
+        }
+
+        int found = 0;
+        int expected = 0;
+        for (int q = 0; q < 100; q++) {
+            float[] query = randomUnitVector(random);
+            Set<Integer> exact = ids(index.searchExact(query, 10));
+            List<HnswIndex.Match<Integer>> approximate = index.search(query, 10, 64);
+            for (HnswIndex.Match<Integer> match : approximate) {
+                if (exact.contains(match.id())) {
+                    found++;
+                }
+            }
+            expected += exact.size();
+            // 结果按相似度从高到低排列
+            for (int i = 1; i < approximate.size(); i++) {
+                assertTrue(approximate.get(i - 1).similarity() >= approximate.get(i).similarity());
+            }
+        }
+        double recall = (double) found / expected;
+        assertTrue(recall >= 0.95, "recall@10 = " + recall);
+    }
+
+    @Test
+    public void testRemovedNodesAreNotReturned() {
+        Random random = new Random(1);
+        HnswIndex<String> index = new HnswIndex<>(DIMENSIONS, 1000, 8, 50, new AtomicLong(), 1);
+        float[][] vectors = new float[200][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomUnitVector(random);
+            index.add(vectors[i], "v" + i);
+        }
+
+        assertEquals("v10", index.search(vectors[10], 1, 32).get(0).payload());
+        assertEquals(1f, index.search(vectors[10], 1, 32).get(0).similarity(), 1e-4);
+
+        assertEquals("v10", index.remove(10));
+        assertNull(index.remove(10));
+        assertEquals(199, index.size());
+        for (HnswIndex.Match<String> match : index.search(vectors[10], 20, 64)) {
+            assertNotEquals("v10", match.payload());
+        }
+        // 被删除的节点仍参与导航，其余节点照常可以找到
+        assertEquals("v11", index.search(vectors[11], 1, 32).get(0).payload());
+    }
+
+    @Test
+    public void testCompactsWhenIdsRunOut() {
+        Random random = new Random(2);
+        HnswIndex<Integer> index = new HnswIndex<>(DIMENSIONS, 100, 8, 50, new AtomicLong(), 2);
+        for (int i = 0; i < 100; i++) {
+            index.add(randomUnitVector(random), i);
+        }
+        for (int i = 0; i < 50; i++) {
+            index.remove(i);
+        }
+
+        // 编号用完后重建索引，只保留有效节点
+        float[] vector = randomUnitVector(random);
+        index.add(vector, 100);
+        assertEquals(51, index.size());
+        assertEquals(100, index.search(vector, 1, 32).get(0).payload());
+        Set<Integer> payloads = new HashSet<>();
+        index.forEach((payload, id) -> payloads.add(payload));
+        assertEquals(51, payloads.size());
+        assertFalse(payloads.contains(0));
+        assertTrue(payloads.contains(99));
+
+        // 全部是有效节点时不能再插入
+        HnswIndex<Integer> full = new HnswIndex<>(DIMENSIONS, 10, 4, 10, new AtomicLong(), 3);
+        for (int i = 0; i < 10; i++) {
+            full.add(randomUnitVector(random), i);
+        }
+        assertThrows(IllegalStateException.class, () -> full.add(randomUnitVector(random), 10));
+    }
+
+    @Test
+    public void testOffHeapBytesAreAccounted() {
+        Random random = new Random(3);
+        AtomicLong allocated = new AtomicLong();
+        HnswIndex<Integer> first = new HnswIndex<>(DIMENSIONS, 1000, 8, 50, allocated, 4);
+        HnswIndex<Integer> second = new HnswIndex<>(DIMENSIONS, 1000, 8, 50, allocated, 5);
+        for (int i = 0; i < 100; i++) {
+            first.add(randomUnitVector(random), i);
+        }
+        second.add(randomUnitVector(random), 0);
+
+        assertTrue(first.bytes() >= 100L * DIMENSIONS * Float.BYTES);
+        assertEquals(first.bytes() + second.bytes(), allocated.get());
+
+        first.release();
+        assertEquals(second.bytes(), allocated.get());
+        second.release();
+        assertEquals(0, allocated.get());
+    }
+
+    private static Set<Integer> ids(List<HnswIndex.Match<Integer>> matches) {
+        Set<Integer> ids = new HashSet<>();
+        for (HnswIndex.Match<Integer> match : matches) {
+            ids.add(match.id());
+        }
+        return ids;
+    }
+
+    private static float[] randomUnitVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        double norm = 0;
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+}
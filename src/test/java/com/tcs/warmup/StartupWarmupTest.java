@@ -0,0 +1,150 @@
+package com.tcs.warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tcs.exception.ServiceBusyException;
+import com.tcs.model.Character;
+import com.tcs.repository.CatalogSource;
+import com.tcs.repository.CharacterRepository;
+import com.tcs.service.ChatService;
+import com.tcs.service.HistoryWindow;
+import com.tcs.service.MessageIdGenerator;
+import com.tcs.service.PromptCompiler;
+import com.tcs.service.SensitiveWordFilter;
+import com.tcs.service.TokenEstimator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class StartupWarmupTest {
+
+    @Test
+    public void testReadyOnlyAfterWarmup() throws Exception {
+        CharacterRepository repository = new CharacterRepository();
+        ChatService chatService = mock(ChatService.class);
+        GreetingPrefetcher prefetcher = new GreetingPrefetcher(chatService, repository, id -> List.of("你好"),
+                true, Set.of(), 2);
+        StartupWarmup warmup = createWarmup(repository, prefetcher, true, 200);
+
+        // 预热完成之前不就绪
+        assertFalse(warmup.isComplete());
+        assertEquals(Status.OUT_OF_SERVICE, warmup.health().getStatus());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, warmup.warmingUpResponse().getStatusCode());
+
+        warmup.run(new DefaultApplicationArguments());
+
+        // 聊天流程全部执行，没有 Web 服务器时跳过本机请求
+        assertTrue(warmup.isComplete());
+        assertEquals(Status.UP, warmup.health().getStatus());
+        assertEquals(200, warmup.health().getDetails().get("chatIterations"));
+        assertEquals(0, warmup.health().getDetails().get("httpRequests"));
+
+        // 预热结束后在后台预取每个角色的开场回复
+        verify(chatService, timeout(5000).times(repository.getAllCharacters().size()))
+                .prefetchReply(anyString(), eq("你好"), eq(false));
+    }
+
+    @Test
+    public void testDisabledWarmupIsReadyImmediately() {
+        CharacterRepository repository = new CharacterRepository();
+        GreetingPrefetcher prefetcher = new GreetingPrefetcher(mock(ChatService.class), repository, id -> List.of("你好"),
+                false, Set.of(), 2);
+        StartupWarmup warmup = createWarmup(repository, prefetcher, false, 200);
+
+        assertTrue(warmup.isComplete());
+        assertEquals(Status.UP, warmup.health().getStatus());
+    }
+
+    @Test
+    public void testGreetingScopeAndPerCharacterMessages() {
+        CharacterRepository repository = new CharacterRepository(source(List.of(
+                character("1", "爱因斯坦"), character("2", "李白"), character("3", "居里夫人"))));
+        ChatService chatService = mock(ChatService.class);
+        when(chatService.prefetchReply(anyString(), anyString(), anyBoolean())).thenReturn(true);
+        when(chatService.prefetchReply(eq("3"), eq("hello"), anyBoolean()))
+                .thenThrow(new ServiceBusyException("服务繁忙", HttpStatus.SERVICE_UNAVAILABLE, 1));
+        // 角色 2 配置为不预取，角色 3 有两条开场消息
+        GreetingPrefetcher prefetcher = new GreetingPrefetcher(chatService, repository,
+                id -> switch (id) {
+                    case "2" -> List.of();
+                    case "3" -> List.of("你好", "hello");
+                    default -> List.of("你好");
+                }, true, Set.of(), 2);
+
+        prefetcher.prefetchAll();
+
+        verify(chatService).prefetchReply("1", "你好", false);
+        verify(chatService, never()).prefetchReply(eq("2"), anyString(), anyBoolean());
+        verify(chatService).prefetchReply("3", "你好", false);
+        verify(chatService).prefetchReply("3", "hello", false);
+        // 上游繁忙的一条计为失败，不影响其他角色
+        assertEquals(2, prefetcher.getGenerated());
+        assertEquals(1, prefetcher.getFailed());
+
+        // 只预取 chat.warmup.greeting.characters 中的角色
+        ChatService scopedService = mock(ChatService.class);
+        GreetingPrefetcher scoped = new GreetingPrefetcher(scopedService, repository, id -> List.of("你好"),
+                true, Set.of("2"), 2);
+        scoped.prefetchAll();
+        verify(scopedService).prefetchReply("2", "你好", false);
+        verifyNoMoreInteractions(scopedService);
+    }
+
+    @Test
+    public void testCatalogChangeRegeneratesChangedGreetings() {
+        List<Character> catalog = new ArrayList<>(List.of(character("1", "爱因斯坦"), character("2", "李白")));
+        CharacterRepository repository = new CharacterRepository(source(catalog));
+        ChatService chatService = mock(ChatService.class);
+        GreetingPrefetcher prefetcher = new GreetingPrefetcher(chatService, repository, id -> List.of("你好"),
+                true, Set.of(), 2);
+        prefetcher.startAsync();
+        verify(chatService, timeout(5000).times(2)).prefetchReply(anyString(), eq("你好"), eq(false));
+
+        // 修改角色 2 的设定后覆盖生成它的开场回复
+        Character changed = character("2", "李白");
+        changed.setPersonality("豪放不羁");
+        catalog.set(1, changed);
+        repository.reload();
+
+        verify(chatService, timeout(5000)).prefetchReply("2", "你好", true);
+        verify(chatService, never()).prefetchReply("1", "你好", true);
+    }
+
+    private static StartupWarmup createWarmup(CharacterRepository repository, GreetingPrefetcher prefetcher,
+                                              boolean enabled, int iterations) {
+        PromptCompiler promptCompiler = new PromptCompiler(repository);
+        return new StartupWarmup(repository, new SensitiveWordFilter(""), promptCompiler,
+                new HistoryWindow(new TokenEstimator(), promptCompiler, 2000, 20, false, 200),
+                new MessageIdGenerator(1), new ObjectMapper(), prefetcher, new MockEnvironment(),
+                enabled, iterations, 200, 30000);
+    }
+
+    // 每次加载返回列表当前内容的目录来源
+    private static CatalogSource source(List<Character> characters) {
+        return new CatalogSource() {
+            @Override
+            public String getName() {
+                return "test";
+            }
+
+            @Override
+            public List<Character> loadAll() {
+                return new ArrayList<>(characters);
+            }
+        };
+    }
+
+    private static Character character(String id, String name) {
+        return new Character(id, name, "", "测试", "简介", "性格");
+    }
+}